@@ -0,0 +1,76 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read path of the provider under 1, 8 and 64 reader threads while the resource is being renewed every few
+ * milliseconds in the background.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AutoRenewAsyncResourceProviderBenchmark {
+
+    private AutoRenewAsyncResourceProvider<String> provider;
+
+    @Setup
+    public void setup() {
+        ResourceAutoRenewalProperties properties = new ResourceAutoRenewalProperties();
+        properties.setRenewalPeriodMs(5);
+        properties.setPreemptiveExpiryMs(0);
+        properties.setRenewalLifetimePercent(0);
+
+        // every renewal publishes a new resource so readers race with the publication
+        provider = new AutoRenewAsyncResourceProvider<>(() -> new ExpiringResource<String>() {
+            private final Instant expiration = Instant.now().plusSeconds(3600);
+
+            @Override
+            public Instant getExpiration() {
+                return expiration;
+            }
+
+            @Override
+            public String getValue() {
+                return "benchmark-token";
+            }
+        }, properties, new CurrentTimeGenerator());
+    }
+
+    @TearDown
+    public void tearDown() {
+        provider.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ExpiringResource<String> getResource1Thread() {
+        return provider.getResource();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ExpiringResource<String> getResource8Threads() {
+        return provider.getResource();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public ExpiringResource<String> getResource64Threads() {
+        return provider.getResource();
+    }
+}
@@ -0,0 +1,78 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of adding a cached token to an outgoing request, including storing the header in Spring's HttpHeaders.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ClientCredentialsTokenInterceptorBenchmark {
+
+    private final HttpHeaders headers = new HttpHeaders();
+    private final HttpRequest request = new HttpRequest() {
+        @Override
+        public HttpMethod getMethod() {
+            return HttpMethod.GET;
+        }
+
+        @Override
+        public URI getURI() {
+            return URI.create("http://localhost");
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    };
+    private final byte[] body = new byte[0];
+    private final ClientHttpRequestExecution execution = (request, body) -> null;
+
+    private AutoRenewAsyncResourceProvider<String> tokenProvider;
+    private ClientCredentialsTokenInterceptor interceptor;
+
+    @Setup
+    public void setup() {
+        DefaultOAuth2AccessToken accessToken = new DefaultOAuth2AccessToken("benchmark-token");
+        accessToken.setExpiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)));
+        TokenResource token = new TokenResource(accessToken);
+
+        tokenProvider = new AutoRenewAsyncResourceProvider<>(() -> token, new ResourceAutoRenewalProperties(), new CurrentTimeGenerator());
+        interceptor = new ClientCredentialsTokenInterceptor(tokenProvider);
+    }
+
+    @TearDown
+    public void tearDown() {
+        tokenProvider.close();
+    }
+
+    @Benchmark
+    public ClientHttpResponse intercept() throws IOException {
+        headers.clear();
+        return interceptor.intercept(request, body, execution);
+    }
+}
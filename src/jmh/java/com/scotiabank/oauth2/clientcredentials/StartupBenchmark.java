@@ -0,0 +1,125 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials;
+
+import com.google.common.io.ByteStreams;
+import com.scotiabank.oauth2.clientcredentials.key.Base64Decoder;
+import com.scotiabank.oauth2.clientcredentials.key.ClientCredentialsKeyLoader;
+import com.scotiabank.oauth2.clientcredentials.key.ClientCredentialsSignatureConfig;
+import com.scotiabank.oauth2.clientcredentials.key.ClientCredentialsSignatureProperties;
+import com.scotiabank.oauth2.clientcredentials.key.JwsSignerFactory;
+import com.scotiabank.oauth2.clientcredentials.key.KeyStoreFactory;
+import com.scotiabank.oauth2.clientcredentials.key.KeyStoreProvider;
+import com.scotiabank.oauth2.clientcredentials.request.ClientAssertionGenerator;
+import com.scotiabank.oauth2.clientcredentials.request.ClientCredentialsAssertionGenerationProperties;
+import com.nimbusds.jose.JWSSigner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time from creating the token provider beans until the application could carry on starting, and until the first
+ * token is handed out, with and without lazy startup. Covers loading the key, building the signer and a token
+ * endpoint answering after a fixed latency. Parsed keys are cached for the JVM, so only the first invocation of each
+ * fork decrypts the keystore - later ones measure starting another context with the same key.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StartupBenchmark {
+
+    @Param({"false", "true"})
+    public boolean lazyStartup;
+
+    @Param({"100"})
+    public int tokenEndpointLatencyMs;
+
+    private final ClientCredentialsKeyLoader keyLoader = new ClientCredentialsKeyLoader(
+        new Base64Decoder(), new KeyStoreFactory(new KeyStoreProvider()), new JwsSignerFactory());
+    private final CurrentTimeGenerator currentTimeGenerator = new CurrentTimeGenerator();
+
+    private ClientCredentialsSignatureProperties signatureProperties;
+    private ClientCredentialsAssertionGenerationProperties assertionProperties;
+    private ResourceAutoRenewalProperties renewalProperties;
+    private RenewalScheduler scheduler;
+
+    private AutoRenewAsyncResourceProvider<String> provider;
+
+    @Setup
+    public void setup() throws IOException {
+        String password = Base64.getEncoder().encodeToString("benchmark".getBytes(StandardCharsets.UTF_8));
+        signatureProperties = new ClientCredentialsSignatureProperties();
+        try (InputStream keyStore = getClass().getResourceAsStream("/benchmark-keystore.p12")) {
+            signatureProperties.setKeyStoreBase64(Base64.getEncoder().encodeToString(ByteStreams.toByteArray(keyStore)));
+        }
+        signatureProperties.setKeyStorePasswordBase64(password);
+        signatureProperties.setKeyStoreFormat("PKCS12");
+        signatureProperties.setKeyName("benchmark");
+        signatureProperties.setKeyPasswordBase64(password);
+
+        assertionProperties = new ClientCredentialsAssertionGenerationProperties();
+        assertionProperties.setClientId("benchmark-client");
+        assertionProperties.setTokenUrl("https://idp.example.com/oauth2/token");
+
+        renewalProperties = new ResourceAutoRenewalProperties();
+        renewalProperties.setLazyStartupEnabled(lazyStartup);
+
+        scheduler = new RenewalScheduler(RenewalScheduler.DEFAULT_TICK_MS, RenewalScheduler.DEFAULT_WORKER_THREADS);
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeProvider() {
+        provider.close();
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.destroy();
+    }
+
+    @Benchmark
+    public AutoRenewAsyncResourceProvider<String> startup() throws Exception {
+        return startProvider();
+    }
+
+    @Benchmark
+    public ExpiringResource<String> startupToFirstToken() throws Exception {
+        return startProvider().getResource();
+    }
+
+    // what the application context does: create the beans, then start the lifecycle beans
+    private AutoRenewAsyncResourceProvider<String> startProvider() throws Exception {
+        JWSSigner signer = new ClientCredentialsSignatureConfig().jwsSigner(keyLoader, signatureProperties, renewalProperties, scheduler);
+        ClientAssertionGenerator generator = new ClientAssertionGenerator(assertionProperties, signer, currentTimeGenerator, scheduler);
+
+        provider = new AutoRenewAsyncResourceProvider<>(() -> requestToken(generator), renewalProperties, currentTimeGenerator, scheduler);
+        new TokenProviderStartup(provider, signer, scheduler, renewalProperties).start();
+        return provider;
+    }
+
+    private ExpiringResource<String> requestToken(ClientAssertionGenerator generator) {
+        generator.getAssertionToken();
+        try {
+            Thread.sleep(tokenEndpointLatencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return new TokenResource("benchmark-token", Instant.now().plusSeconds(3600));
+    }
+}
@@ -0,0 +1,139 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.key;
+
+import com.google.common.io.ByteStreams;
+import com.scotiabank.oauth2.clientcredentials.ClientCredentialsConfigurationException;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.jwk.RSAKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import javax.crypto.Cipher;
+import javax.crypto.EncryptedPrivateKeyInfo;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.PBEParameterSpec;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to load the signer for the same RSA key from each supported source, parsing it every time and served from the
+ * parsed key cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class KeyLoadingBenchmark {
+
+    private static final String PASSWORD = "benchmark";
+
+    @Param({"PKCS12_BASE64", "PKCS12_FILE", "PKCS8_PEM", "ENCRYPTED_PKCS8_PEM", "JWK"})
+    public String format;
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private final Base64Decoder base64Decoder = new Base64Decoder();
+    private final KeyStoreFactory keyStoreFactory = new KeyStoreFactory(new KeyStoreProvider());
+    private final JwsSignerFactory jwsSignerFactory = new JwsSignerFactory();
+
+    private ClientCredentialsSignatureProperties source;
+    private ClientCredentialsKeyLoader cachingLoader;
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException, GeneralSecurityException {
+        byte[] keyStoreBytes;
+        try (InputStream keyStore = getClass().getResourceAsStream("/benchmark-keystore.p12")) {
+            keyStoreBytes = ByteStreams.toByteArray(keyStore);
+        }
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(new ByteArrayInputStream(keyStoreBytes), PASSWORD.toCharArray());
+        PrivateKey key = (PrivateKey) keyStore.getKey(PASSWORD, PASSWORD.toCharArray());
+        RSAPublicKey publicKey = (RSAPublicKey) keyStore.getCertificate(PASSWORD).getPublicKey();
+
+        String passwordBase64 = Base64.getEncoder().encodeToString(PASSWORD.getBytes(StandardCharsets.UTF_8));
+        source = new ClientCredentialsSignatureProperties();
+        source.setKeyStorePasswordBase64(passwordBase64);
+        source.setKeyStoreFormat("PKCS12");
+        source.setKeyName(PASSWORD);
+        source.setKeyPasswordBase64(passwordBase64);
+
+        file = Files.createTempFile("benchmark-key", null);
+        switch (format) {
+            case "PKCS12_BASE64":
+                source.setKeyStoreBase64(Base64.getEncoder().encodeToString(keyStoreBytes));
+                break;
+            case "PKCS12_FILE":
+                Files.write(file, keyStoreBytes);
+                source.setKeyStoreFile(file.toString());
+                break;
+            case "PKCS8_PEM":
+                Files.write(file, pem("PRIVATE KEY", key.getEncoded()));
+                source.setPrivateKeyFile(file.toString());
+                break;
+            case "ENCRYPTED_PKCS8_PEM":
+                Files.write(file, pem("ENCRYPTED PRIVATE KEY", encrypt(key.getEncoded())));
+                source.setPrivateKeyFile(file.toString());
+                break;
+            case "JWK":
+                String jwk = new RSAKey.Builder(publicKey).privateKey((RSAPrivateKey) key).build().toJSONString();
+                Files.write(file, jwk.getBytes(StandardCharsets.UTF_8));
+                source.setPrivateKeyFile(file.toString());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown key format " + format);
+        }
+
+        cachingLoader = new ClientCredentialsKeyLoader(base64Decoder, keyStoreFactory, jwsSignerFactory, new ParsedKeyCache());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public JWSSigner loadSigner() throws ClientCredentialsConfigurationException {
+        ClientCredentialsKeyLoader loader = cached
+            ? cachingLoader
+            : new ClientCredentialsKeyLoader(base64Decoder, keyStoreFactory, jwsSignerFactory, new ParsedKeyCache());
+        return loader.loadSigner(source);
+    }
+
+    private static byte[] pem(String label, byte[] der) {
+        String body = Base64.getMimeEncoder(64, new byte[] {'\n'}).encodeToString(der);
+        return ("-----BEGIN " + label + "-----\n" + body + "\n-----END " + label + "-----\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] encrypt(byte[] pkcs8) throws GeneralSecurityException, IOException {
+        String algorithm = "PBEWithSHA1AndDESede";
+        Cipher cipher = Cipher.getInstance(algorithm);
+        cipher.init(
+            Cipher.ENCRYPT_MODE,
+            SecretKeyFactory.getInstance(algorithm).generateSecret(new PBEKeySpec(PASSWORD.toCharArray())),
+            new PBEParameterSpec(new byte[8], 2048));
+        return new EncryptedPrivateKeyInfo(cipher.getParameters(), cipher.doFinal(pkcs8)).getEncoded();
+    }
+}
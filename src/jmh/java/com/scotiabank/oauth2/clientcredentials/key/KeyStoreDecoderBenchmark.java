@@ -0,0 +1,51 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.key;
+
+import com.google.common.io.ByteStreams;
+import com.scotiabank.oauth2.clientcredentials.ClientCredentialsConfigurationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of decoding and loading the base64 encoded PKCS12 keystore done at startup for every configured key.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class KeyStoreDecoderBenchmark {
+
+    private KeyStoreDecoder decoder;
+    private String keyStoreBase64;
+    private String keyStorePasswordBase64;
+
+    @Setup
+    public void setup() throws IOException {
+        Base64Decoder base64Decoder = new Base64Decoder();
+        decoder = new KeyStoreDecoder(base64Decoder, new KeyStoreFactory(new KeyStoreProvider()));
+
+        try (InputStream keyStore = getClass().getResourceAsStream("/benchmark-keystore.p12")) {
+            keyStoreBase64 = Base64.getEncoder().encodeToString(ByteStreams.toByteArray(keyStore));
+        }
+        keyStorePasswordBase64 = Base64.getEncoder().encodeToString("benchmark".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public KeyStore decode() throws ClientCredentialsConfigurationException {
+        return decoder.decode(keyStoreBase64, keyStorePasswordBase64, "PKCS12");
+    }
+}
@@ -0,0 +1,87 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.request;
+
+import com.scotiabank.oauth2.clientcredentials.CurrentTimeGenerator;
+import com.scotiabank.oauth2.clientcredentials.key.JwsSignerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.security.KeyPairGenerator;
+import java.security.spec.AlgorithmParameterSpec;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.RSAKeyGenParameterSpec;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of signing one client assertion per algorithm and key size, as latency per assertion and as throughput, and
+ * of handing out a pre-signed one instead.
+ *
+ * PS256 needs a JCA provider with RSASSA-PSS (Java 11 or later, or BouncyCastle) - where available, run it from the
+ * benchmark jar with {@code -p algorithm=PS256-2048}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ClientAssertionSigningBenchmark {
+
+    @Param({"RS256-2048", "RS256-4096", "ES256", "ES384", "ES512"})
+    public String algorithm;
+
+    @Param({"false", "true"})
+    public boolean preSigning;
+
+    private ClientAssertionGenerator generator;
+
+    @Setup
+    public void setup() throws Exception {
+        String[] parts = algorithm.split("-");
+        String algorithmName = parts[0];
+
+        KeyPairGenerator keyPairGenerator;
+        AlgorithmParameterSpec keySpec;
+        if (algorithmName.startsWith("ES")) {
+            keyPairGenerator = KeyPairGenerator.getInstance("EC");
+            keySpec = new ECGenParameterSpec(curveFor(algorithmName));
+        } else {
+            keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+            keySpec = new RSAKeyGenParameterSpec(Integer.parseInt(parts[1]), RSAKeyGenParameterSpec.F4);
+        }
+        keyPairGenerator.initialize(keySpec);
+
+        ClientCredentialsAssertionGenerationProperties properties = new ClientCredentialsAssertionGenerationProperties();
+        properties.setClientId("benchmark-client");
+        properties.setTokenUrl("https://idp.example.com/oauth2/token");
+        properties.setAssertionSigningAlgorithm(algorithmName);
+        properties.setAssertionPreSigningEnabled(preSigning);
+
+        generator = new ClientAssertionGenerator(
+            properties,
+            new JwsSignerFactory().createSigner(keyPairGenerator.generateKeyPair().getPrivate()),
+            new CurrentTimeGenerator());
+    }
+
+    @Benchmark
+    public String getAssertionToken() {
+        return generator.getAssertionToken();
+    }
+
+    private static String curveFor(String algorithmName) {
+        switch (algorithmName) {
+            case "ES384":
+                return "secp384r1";
+            case "ES512":
+                return "secp521r1";
+            default:
+                return "secp256r1";
+        }
+    }
+}
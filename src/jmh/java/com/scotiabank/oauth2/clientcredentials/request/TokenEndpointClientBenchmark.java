@@ -0,0 +1,228 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.request;
+
+import com.scotiabank.oauth2.clientcredentials.RenewalScheduler;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.conn.ssl.TrustSelfSignedStrategy;
+import org.apache.http.ssl.SSLContexts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.util.StreamUtils;
+
+import javax.net.ServerSocketFactory;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for a token request over HttpURLConnection, as spring-security-oauth2 makes it by default, and over the pooled
+ * client, against a local token endpoint that keeps connections alive or closes them after every response. Over https
+ * without keep-alive every request pays for a new connection, and the pooled client for a resumed TLS session only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TokenEndpointClientBenchmark {
+
+    private static final String PASSWORD = "benchmark";
+    private static final byte[] REQUEST_BODY =
+        "grant_type=client_credentials&client_assertion=benchmark".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TOKEN_RESPONSE =
+        "{\"access_token\":\"benchmark\",\"token_type\":\"bearer\",\"expires_in\":3600}".getBytes(StandardCharsets.US_ASCII);
+
+    @Param({"URL_CONNECTION", "POOLED"})
+    public String client;
+
+    @Param({"http", "https"})
+    public String scheme;
+
+    @Param({"true", "false"})
+    public boolean serverKeepAlive;
+
+    private StubTokenEndpoint tokenEndpoint;
+    private RenewalScheduler scheduler;
+    private ClientHttpRequestFactory requestFactory;
+    private URI tokenUri;
+
+    @Setup
+    public void setup() throws IOException, GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = getClass().getResourceAsStream("/benchmark-keystore.p12")) {
+            keyStore.load(in, PASSWORD.toCharArray());
+        }
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, PASSWORD.toCharArray());
+        SSLContext serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(keyManagerFactory.getKeyManagers(), null, null);
+        SSLContext clientContext = SSLContexts.custom().loadTrustMaterial(null, new TrustSelfSignedStrategy()).build();
+
+        boolean https = "https".equals(scheme);
+        tokenEndpoint = new StubTokenEndpoint(
+            https ? serverContext.getServerSocketFactory() : ServerSocketFactory.getDefault(), serverKeepAlive);
+        tokenUri = URI.create(scheme + "://127.0.0.1:" + tokenEndpoint.getPort() + "/token");
+
+        scheduler = new RenewalScheduler(10, 1);
+        TokenEndpointClientProperties properties = new TokenEndpointClientProperties();
+        switch (client) {
+            case "URL_CONNECTION":
+                requestFactory = new SimpleClientHttpRequestFactory() {
+                    @Override
+                    protected void prepareConnection(HttpURLConnection connection, String httpMethod) throws IOException {
+                        super.prepareConnection(connection, httpMethod);
+                        connection.setInstanceFollowRedirects(false);
+                        connection.setUseCaches(false);
+                        if (connection instanceof HttpsURLConnection) {
+                            ((HttpsURLConnection) connection).setSSLSocketFactory(clientContext.getSocketFactory());
+                            ((HttpsURLConnection) connection).setHostnameVerifier(NoopHostnameVerifier.INSTANCE);
+                        }
+                    }
+                };
+                break;
+            case "POOLED":
+                requestFactory = new TokenEndpointRequestFactory(
+                    properties,
+                    new SSLConnectionSocketFactory(clientContext, NoopHostnameVerifier.INSTANCE),
+                    scheduler);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown client " + client);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (requestFactory instanceof TokenEndpointRequestFactory) {
+            ((TokenEndpointRequestFactory) requestFactory).destroy();
+        }
+        scheduler.destroy();
+        tokenEndpoint.close();
+    }
+
+    @Benchmark
+    public byte[] requestToken() throws IOException {
+        ClientHttpRequest request = requestFactory.createRequest(tokenUri, HttpMethod.POST);
+        request.getHeaders().set("Content-Type", "application/x-www-form-urlencoded");
+        request.getBody().write(REQUEST_BODY);
+        try (ClientHttpResponse response = request.execute()) {
+            return StreamUtils.copyToByteArray(response.getBody());
+        }
+    }
+
+    /**
+     * Answers every request with the same token, on a thread per connection.
+     */
+    private static class StubTokenEndpoint implements AutoCloseable {
+
+        private final ServerSocket serverSocket;
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+        private final boolean keepAlive;
+
+        StubTokenEndpoint(ServerSocketFactory serverSocketFactory, boolean keepAlive) throws IOException {
+            this.serverSocket = serverSocketFactory.createServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            this.keepAlive = keepAlive;
+            executor.execute(this::accept);
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        private void accept() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    executor.execute(() -> serve(socket));
+                } catch (IOException e) {
+                    // closed
+                }
+            }
+        }
+
+        private void serve(Socket socket) {
+            try (Socket connection = socket) {
+                connection.setTcpNoDelay(true);
+                InputStream in = new BufferedInputStream(connection.getInputStream());
+                OutputStream out = connection.getOutputStream();
+                do {
+                    int contentLength = readHeaders(in);
+                    if (contentLength < 0) {
+                        return;
+                    }
+                    for (int i = 0; i < contentLength; i++) {
+                        in.read();
+                    }
+                    String headers = "HTTP/1.1 200 OK\r\n"
+                        + "Content-Type: application/json;charset=UTF-8\r\n"
+                        + "Content-Length: " + TOKEN_RESPONSE.length + "\r\n"
+                        + "Connection: " + (keepAlive ? "keep-alive" : "close") + "\r\n\r\n";
+                    out.write(headers.getBytes(StandardCharsets.US_ASCII));
+                    out.write(TOKEN_RESPONSE);
+                    out.flush();
+                } while (keepAlive);
+            } catch (IOException e) {
+                // client went away
+            }
+        }
+
+        // the request's content length, or -1 once the client has closed the connection
+        private static int readHeaders(InputStream in) throws IOException {
+            int contentLength = 0;
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = in.read()) != -1) {
+                if (c != '\n') {
+                    if (c != '\r') {
+                        line.append((char) c);
+                    }
+                    continue;
+                }
+                if (line.length() == 0) {
+                    return contentLength;
+                }
+                String header = line.toString();
+                if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                    contentLength = Integer.parseInt(header.substring(15).trim());
+                }
+                line.setLength(0);
+            }
+            return -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+            executor.shutdownNow();
+        }
+    }
+}
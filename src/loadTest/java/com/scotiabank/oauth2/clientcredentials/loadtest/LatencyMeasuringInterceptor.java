@@ -0,0 +1,49 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.loadtest;
+
+import org.HdrHistogram.Recorder;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+
+/**
+ * Records how long an interceptor adds to each request: the time spent in it less the time the rest of the chain and
+ * the request itself took.
+ */
+class LatencyMeasuringInterceptor implements ClientHttpRequestInterceptor {
+
+    private final ClientHttpRequestInterceptor interceptor;
+    private final Recorder addedLatency;
+
+    LatencyMeasuringInterceptor(ClientHttpRequestInterceptor interceptor, Recorder addedLatency) {
+        this.interceptor = interceptor;
+        this.addedLatency = addedLatency;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        // a replayed request runs the rest of the chain twice
+        long[] downstreamNanos = new long[1];
+        ClientHttpRequestExecution timedExecution = (executedRequest, executedBody) -> {
+            long start = System.nanoTime();
+            try {
+                return execution.execute(executedRequest, executedBody);
+            } finally {
+                downstreamNanos[0] += System.nanoTime() - start;
+            }
+        };
+
+        long start = System.nanoTime();
+        try {
+            return interceptor.intercept(request, body, timedExecution);
+        } finally {
+            addedLatency.recordValue(Math.max(0, System.nanoTime() - start - downstreamNanos[0]));
+        }
+    }
+}
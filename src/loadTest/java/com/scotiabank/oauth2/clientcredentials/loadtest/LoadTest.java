@@ -0,0 +1,214 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.loadtest;
+
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.scotiabank.oauth2.clientcredentials.AutoRenewAsyncResourceProvider;
+import com.scotiabank.oauth2.clientcredentials.ClientCredentialsTokenInterceptor;
+import com.scotiabank.oauth2.clientcredentials.CurrentTimeGenerator;
+import com.scotiabank.oauth2.clientcredentials.ExpiringResourceProvider;
+import com.scotiabank.oauth2.clientcredentials.RenewalScheduler;
+import com.scotiabank.oauth2.clientcredentials.ResourceAutoRenewalProperties;
+import com.scotiabank.oauth2.clientcredentials.metrics.LongAdderTokenMetrics;
+import com.scotiabank.oauth2.clientcredentials.request.ClientAssertionGenerator;
+import com.scotiabank.oauth2.clientcredentials.request.ClientAssertionRequestEnhancer;
+import com.scotiabank.oauth2.clientcredentials.request.ClientCredentialsAssertionGenerationProperties;
+import com.scotiabank.oauth2.clientcredentials.request.ClientCredentialsTokenRequestor;
+import com.scotiabank.oauth2.clientcredentials.request.StandaloneTokenRequestor;
+import com.scotiabank.oauth2.clientcredentials.request.TokenEndpointCircuitBreaker;
+import com.scotiabank.oauth2.clientcredentials.request.TokenEndpointClientProperties;
+import com.scotiabank.oauth2.clientcredentials.request.TokenEndpointRequestFactory;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.HttpClients;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.security.oauth2.client.token.grant.client.ClientCredentialsResourceDetails;
+import org.springframework.security.oauth2.common.AuthenticationScheme;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.security.KeyPairGenerator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives a RestTemplate with the {@link ClientCredentialsTokenInterceptor} from many threads against a
+ * {@link StubTokenEndpoint}, entirely on the loopback interface, and reports what the interceptor costs the callers:
+ * the latency it adds to each request, how often the token endpoint was called, and how many requests had to wait on
+ * a token.
+ *
+ * Run with {@code ./gradlew loadTest}, parameters as in {@link LoadTestSettings}.
+ */
+public class LoadTest {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final LoadTestSettings settings;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final Recorder addedLatency = new Recorder(3);
+    private volatile boolean running = true;
+
+    public LoadTest(LoadTestSettings settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadTest(new LoadTestSettings()).run();
+    }
+
+    public void run() throws Exception {
+        System.out.println("Load test: " + settings);
+
+        ResourceAutoRenewalProperties renewalProperties = new ResourceAutoRenewalProperties();
+        RenewalScheduler scheduler = new RenewalScheduler(renewalProperties.getSchedulerTickMs(), renewalProperties.getSchedulerWorkerThreads());
+        LongAdderTokenMetrics metrics = new LongAdderTokenMetrics();
+
+        try (StubTokenEndpoint stub = new StubTokenEndpoint(
+                settings.getTokenEndpointLatencyMs(),
+                settings.getTokenEndpointLatencyJitterMs(),
+                settings.getTokenEndpointErrorRate(),
+                settings.getTokenLifetimeSeconds(),
+                settings.getThreads() + 8)) {
+            TokenEndpointRequestFactory tokenEndpointRequestFactory = new TokenEndpointRequestFactory(
+                new TokenEndpointClientProperties(), SSLConnectionSocketFactory.getSocketFactory(), scheduler);
+            AutoRenewAsyncResourceProvider<String> provider = new AutoRenewAsyncResourceProvider<>(
+                tokenRequestor(stub.getBaseUrl() + StubTokenEndpoint.TOKEN_PATH, tokenEndpointRequestFactory, renewalProperties, scheduler),
+                renewalProperties,
+                new CurrentTimeGenerator(),
+                scheduler,
+                metrics);
+
+            HttpComponentsClientHttpRequestFactory apiRequestFactory = new HttpComponentsClientHttpRequestFactory(HttpClients.custom()
+                .setMaxConnTotal(settings.getThreads())
+                .setMaxConnPerRoute(settings.getThreads())
+                .build());
+            RestTemplate restTemplate = new RestTemplate(apiRequestFactory);
+            restTemplate.setInterceptors(Collections.singletonList(new LatencyMeasuringInterceptor(
+                new ClientCredentialsTokenInterceptor(provider, renewalProperties), addedLatency)));
+
+            try {
+                measure(restTemplate, URI.create(stub.getBaseUrl() + StubTokenEndpoint.API_PATH), stub, metrics);
+            } finally {
+                provider.close();
+                apiRequestFactory.destroy();
+                tokenEndpointRequestFactory.destroy();
+            }
+        } finally {
+            scheduler.destroy();
+        }
+    }
+
+    private void measure(RestTemplate restTemplate, URI apiUri, StubTokenEndpoint stub, LongAdderTokenMetrics metrics)
+            throws InterruptedException, IOException {
+        List<Thread> callers = new ArrayList<>();
+        for (int i = 0; i < settings.getThreads(); i++) {
+            Thread caller = new Thread(() -> call(restTemplate, apiUri), "load-test-" + i);
+            caller.setDaemon(true);
+            caller.start();
+            callers.add(caller);
+        }
+
+        TimeUnit.SECONDS.sleep(settings.getWarmUpSeconds());
+
+        // everything up to here was warm-up
+        addedLatency.getIntervalHistogram();
+        long startRequests = requests.sum();
+        long startFailures = failures.sum();
+        long startTokenRequests = stub.getTokenRequests();
+        long startTokenErrors = stub.getTokenErrors();
+        long startColdMisses = metrics.getColdMissCount();
+        long start = System.nanoTime();
+
+        TimeUnit.SECONDS.sleep(settings.getDurationSeconds());
+
+        Histogram latency = addedLatency.getIntervalHistogram();
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        long measuredRequests = requests.sum() - startRequests;
+        long measuredFailures = failures.sum() - startFailures;
+        long tokenRequests = stub.getTokenRequests() - startTokenRequests;
+        long tokenErrors = stub.getTokenErrors() - startTokenErrors;
+        long coldMisses = metrics.getColdMissCount() - startColdMisses;
+
+        running = false;
+        for (Thread caller : callers) {
+            caller.join(TimeUnit.SECONDS.toMillis(10));
+        }
+
+        System.out.printf("Requests:               %d (%.0f/s), %d failed%n",
+            measuredRequests, measuredRequests / elapsedSeconds, measuredFailures);
+        System.out.println("Interceptor latency (us):");
+        for (double percentile : PERCENTILES) {
+            System.out.printf("  p%-8s            %.1f%n", percentile, latency.getValueAtPercentile(percentile) / 1000.0);
+        }
+        System.out.printf("  max                   %.1f%n", latency.getMaxValue() / 1000.0);
+        System.out.printf("Token requests:         %d (%.1f/min), %d failed%n",
+            tokenRequests, tokenRequests / elapsedSeconds * 60, tokenErrors);
+        System.out.printf("Blocked on token:       %d requests%n", coldMisses);
+
+        if (settings.getReportFile() != null) {
+            File reportFile = new File(settings.getReportFile());
+            reportFile.getParentFile().mkdirs();
+            try (PrintStream report = new PrintStream(new FileOutputStream(reportFile), false, "UTF-8")) {
+                latency.outputPercentileDistribution(report, 1000.0);
+            }
+            System.out.println("Latency distribution (us) written to " + reportFile);
+        }
+    }
+
+    private void call(RestTemplate restTemplate, URI apiUri) {
+        while (running) {
+            try {
+                restTemplate.getForObject(apiUri, String.class);
+            } catch (RuntimeException e) {
+                failures.increment();
+            }
+            requests.increment();
+        }
+    }
+
+    // as ClientCredentialsProviderFactory builds them, but with a key made up for the run
+    private ExpiringResourceProvider<String> tokenRequestor(String tokenUrl,
+                                                           TokenEndpointRequestFactory requestFactory,
+                                                           ResourceAutoRenewalProperties renewalProperties,
+                                                           RenewalScheduler scheduler) throws Exception {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+
+        ClientCredentialsAssertionGenerationProperties assertionProperties = new ClientCredentialsAssertionGenerationProperties();
+        assertionProperties.setClientId("load-test-client");
+        assertionProperties.setTokenUrl(tokenUrl);
+        ClientAssertionGenerator generator = new ClientAssertionGenerator(
+            assertionProperties, new RSASSASigner(keyPairGenerator.generateKeyPair().getPrivate()), new CurrentTimeGenerator(), scheduler);
+
+        TokenEndpointCircuitBreaker circuitBreaker = new TokenEndpointCircuitBreaker(
+            renewalProperties.getCircuitBreakerFailureThreshold(),
+            renewalProperties.getCircuitBreakerOpenMs());
+
+        if (settings.getTokenEndpointCodec() == TokenEndpointClientProperties.Codec.STANDALONE) {
+            StandaloneTokenRequestor standaloneRequestor = new StandaloneTokenRequestor(
+                tokenUrl, Collections.emptyList(), generator, requestFactory, new CurrentTimeGenerator());
+            standaloneRequestor.setCircuitBreaker(circuitBreaker);
+            return standaloneRequestor;
+        }
+
+        ClientCredentialsResourceDetails resource = new ClientCredentialsResourceDetails();
+        resource.setAccessTokenUri(tokenUrl);
+        resource.setGrantType("client_credentials");
+        resource.setClientAuthenticationScheme(AuthenticationScheme.form);
+        ClientCredentialsTokenRequestor oauth2Requestor = new ClientCredentialsTokenRequestor(resource, null, requestFactory);
+        oauth2Requestor.setTokenRequestEnhancer(new ClientAssertionRequestEnhancer(generator));
+        oauth2Requestor.setCircuitBreaker(circuitBreaker);
+        return oauth2Requestor;
+    }
+}
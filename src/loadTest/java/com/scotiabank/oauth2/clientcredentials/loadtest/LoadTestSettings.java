@@ -0,0 +1,65 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.loadtest;
+
+import com.scotiabank.oauth2.clientcredentials.request.TokenEndpointClientProperties;
+import lombok.Getter;
+
+/**
+ * Load test parameters, read from {@code loadTest.*} system properties - gradle passes on {@code -PloadTest.*}.
+ */
+@Getter
+public class LoadTestSettings {
+
+    private static final String PREFIX = "loadTest.";
+
+    // callers sending requests through the interceptor, with no pause between requests
+    private final int threads;
+    private final int durationSeconds;
+
+    // requests sent before measuring starts, so the JIT compiler and connection pools have settled
+    private final int warmUpSeconds;
+
+    private final int tokenEndpointLatencyMs;
+    private final int tokenEndpointLatencyJitterMs;
+
+    // share of token requests answered with 503, between 0 and 1
+    private final double tokenEndpointErrorRate;
+
+    private final int tokenLifetimeSeconds;
+    private final TokenEndpointClientProperties.Codec tokenEndpointCodec;
+
+    // where the full interceptor latency distribution is written in HdrHistogram's format - none when unset
+    private final String reportFile;
+
+    public LoadTestSettings() {
+        // by default, 200 callers for two minutes, so that tokens living 80 seconds are renewed at least once
+        threads = intSetting("threads", 200);
+        durationSeconds = intSetting("durationSeconds", 120);
+        warmUpSeconds = intSetting("warmUpSeconds", 10);
+
+        // by default, a token endpoint answering in 100 to 150 ms without errors
+        tokenEndpointLatencyMs = intSetting("tokenEndpointLatencyMs", 100);
+        tokenEndpointLatencyJitterMs = intSetting("tokenEndpointLatencyJitterMs", 50);
+        tokenEndpointErrorRate = Double.parseDouble(System.getProperty(PREFIX + "tokenEndpointErrorRate", "0"));
+
+        tokenLifetimeSeconds = intSetting("tokenLifetimeSeconds", 80);
+        tokenEndpointCodec = TokenEndpointClientProperties.Codec.valueOf(
+            System.getProperty(PREFIX + "tokenEndpointCodec", TokenEndpointClientProperties.Codec.SPRING_SECURITY_OAUTH2.name()));
+
+        reportFile = System.getProperty(PREFIX + "reportFile");
+    }
+
+    private static int intSetting(String name, int defaultValue) {
+        return Integer.getInteger(PREFIX + name, defaultValue);
+    }
+
+    @Override
+    public String toString() {
+        return threads + " threads for " + durationSeconds + " s after " + warmUpSeconds + " s warm-up, token endpoint "
+            + tokenEndpointLatencyMs + "+" + tokenEndpointLatencyJitterMs + " ms with " + tokenEndpointErrorRate
+            + " errors, tokens for " + tokenLifetimeSeconds + " s, " + tokenEndpointCodec + " codec";
+    }
+}
@@ -0,0 +1,140 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.loadtest;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token endpoint and protected API on the loopback interface, standing in for the identity provider and the service
+ * the tokens are for.
+ *
+ * The token endpoint answers after a latency drawn uniformly between {@code latencyMs} and {@code latencyMs +
+ * latencyJitterMs}, fails a share of requests with 503 and otherwise issues a new token for {@code tokenLifetimeSeconds}.
+ * The API answers 200 to any request with a bearer token this endpoint issued, and 401 otherwise.
+ */
+public class StubTokenEndpoint implements Closeable {
+
+    static final String TOKEN_PATH = "/oauth2/v1/token";
+    static final String API_PATH = "/api";
+
+    private static final String TOKEN_PREFIX = "load-test-token-";
+    private static final byte[] ERROR_RESPONSE =
+        "{\"error\":\"temporarily_unavailable\",\"error_description\":\"Stub failure\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] API_RESPONSE = "ok".getBytes(StandardCharsets.UTF_8);
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final int latencyMs;
+    private final int latencyJitterMs;
+    private final double errorRate;
+    private final int tokenLifetimeSeconds;
+
+    private final AtomicLong issuedTokens = new AtomicLong();
+    private final LongAdder tokenRequests = new LongAdder();
+    private final LongAdder tokenErrors = new LongAdder();
+    private final LongAdder rejectedApiRequests = new LongAdder();
+
+    public StubTokenEndpoint(int latencyMs, int latencyJitterMs, double errorRate, int tokenLifetimeSeconds, int threads)
+            throws IOException {
+        this.latencyMs = latencyMs;
+        this.latencyJitterMs = latencyJitterMs;
+        this.errorRate = errorRate;
+        this.tokenLifetimeSeconds = tokenLifetimeSeconds;
+
+        this.executor = Executors.newFixedThreadPool(threads,
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("stub-idp-%d").build());
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), threads);
+        this.server.createContext(TOKEN_PATH, this::handleTokenRequest);
+        this.server.createContext(API_PATH, this::handleApiRequest);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    public long getTokenRequests() {
+        return tokenRequests.sum();
+    }
+
+    public long getTokenErrors() {
+        return tokenErrors.sum();
+    }
+
+    public long getRejectedApiRequests() {
+        return rejectedApiRequests.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handleTokenRequest(HttpExchange exchange) throws IOException {
+        // the form is read so the connection can be reused, but not checked
+        try (InputStream body = exchange.getRequestBody()) {
+            ByteStreams.exhaust(body);
+        }
+        tokenRequests.increment();
+
+        sleep(latencyMs + (latencyJitterMs > 0 ? ThreadLocalRandom.current().nextInt(latencyJitterMs + 1) : 0));
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+            tokenErrors.increment();
+            respond(exchange, 503, ERROR_RESPONSE);
+            return;
+        }
+
+        String token = TOKEN_PREFIX + issuedTokens.incrementAndGet();
+        respond(exchange, 200, ("{\"access_token\":\"" + token + "\",\"token_type\":\"Bearer\",\"expires_in\":"
+            + tokenLifetimeSeconds + "}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void handleApiRequest(HttpExchange exchange) throws IOException {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith("Bearer " + TOKEN_PREFIX)) {
+            rejectedApiRequests.increment();
+            exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer error=\"invalid_token\"");
+            respond(exchange, 401, new byte[0]);
+            return;
+        }
+        respond(exchange, 200, API_RESPONSE);
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length > 0 ? body.length : -1);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
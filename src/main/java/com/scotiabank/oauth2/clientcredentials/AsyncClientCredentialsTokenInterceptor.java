@@ -0,0 +1,129 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.AsyncClientHttpRequestExecution;
+import org.springframework.http.client.AsyncClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link AsyncClientHttpRequestInterceptor} counterpart of {@link ClientCredentialsTokenInterceptor} for
+ * {@code AsyncRestTemplate}. When a token is cached the request is sent straight away; otherwise it is sent from the
+ * thread that completes the token retrieval, so no thread is parked waiting for the token.
+ *
+ * A request answered with 401 is replayed once with a new token like {@link ClientCredentialsTokenInterceptor} does,
+ * from the thread that completes the response or the new token's retrieval.
+ */
+@Slf4j
+@Component("asyncClientCredentialsTokenInterceptor")
+public class AsyncClientCredentialsTokenInterceptor implements AsyncClientHttpRequestInterceptor {
+
+    private final AsyncExpiringResourceProvider<String> tokenProvider;
+    private final ResourceAutoRenewalProperties properties;
+
+    public AsyncClientCredentialsTokenInterceptor(AsyncExpiringResourceProvider<String> tokenProvider) {
+        this(tokenProvider, new ResourceAutoRenewalProperties());
+    }
+
+    @Autowired
+    public AsyncClientCredentialsTokenInterceptor(AsyncExpiringResourceProvider<String> tokenProvider,
+                                                  ResourceAutoRenewalProperties properties) {
+        this.tokenProvider = tokenProvider;
+        this.properties = properties;
+    }
+
+    @Override
+    public ListenableFuture<ClientHttpResponse> intercept(HttpRequest request, byte[] body, AsyncClientHttpRequestExecution execution) throws IOException {
+        if (request.getHeaders().containsKey(BearerAuthorization.HEADER_NAME_LOWER_CASE)) {
+            log.debug("Skipping setting the client credentials token on request as authorization header has already been set");
+            return execution.executeAsync(request, body);
+        }
+
+        CompletableFuture<ExpiringResource<String>> token = tokenProvider.getResourceAsync();
+        if (token.isDone() && !token.isCompletedExceptionally()) {
+            return executeWithToken(request, body, execution, token.getNow(null));
+        }
+
+        SettableListenableFuture<ClientHttpResponse> response = new SettableListenableFuture<>();
+        token.whenComplete((resource, e) -> {
+            if (e != null) {
+                response.setException(new ClientCredentialsTokenRequestFailedException("Client credentials token request failed", e));
+                return;
+            }
+
+            try {
+                executeWithToken(request, body, execution, resource).addCallback(response::set, response::setException);
+            } catch (IOException | RuntimeException ex) {
+                response.setException(ex);
+            }
+        });
+        return response;
+    }
+
+    private ListenableFuture<ClientHttpResponse> executeWithToken(HttpRequest request, byte[] body, AsyncClientHttpRequestExecution execution, ExpiringResource<String> token) throws IOException {
+        if (token == null) {
+            throw new ClientCredentialsTokenRequestFailedException("Client credentials token request failed");
+        }
+
+        request.getHeaders().add(BearerAuthorization.HEADER_NAME, BearerAuthorization.headerValue(token));
+        ListenableFuture<ClientHttpResponse> response = execution.executeAsync(request, body);
+        if (!properties.isInvalidateOnUnauthorized()) {
+            return response;
+        }
+
+        SettableListenableFuture<ClientHttpResponse> result = new SettableListenableFuture<>();
+        response.addCallback(r -> {
+            try {
+                replayIfRejected(request, body, execution, token, r, result);
+            } catch (IOException | RuntimeException e) {
+                result.setException(e);
+            }
+        }, result::setException);
+        return result;
+    }
+
+    private void replayIfRejected(HttpRequest request, byte[] body, AsyncClientHttpRequestExecution execution,
+                                  ExpiringResource<String> token, ClientHttpResponse response,
+                                  SettableListenableFuture<ClientHttpResponse> result) throws IOException {
+        if (!BearerAuthorization.isTokenRejected(response, properties.getInvalidatingErrorCodes())) {
+            result.set(response);
+            return;
+        }
+
+        // concurrent rejections of the same token invalidate it once and all wait on the same renewal
+        tokenProvider.invalidate(token);
+        tokenProvider.getResourceAsync().whenComplete((renewed, e) -> {
+            if (e != null) {
+                // the rejected response is still the caller's to read and close
+                log.warn("Client credentials token rejected, but retrieving another one failed - not replaying request", e);
+                result.set(response);
+                return;
+            }
+            if (renewed == null || renewed == token) {
+                log.info("Client credentials token rejected, but no other token is available - not replaying request");
+                result.set(response);
+                return;
+            }
+
+            log.info("Client credentials token rejected - replaying request with a new token");
+            response.close();
+            try {
+                request.getHeaders().set(BearerAuthorization.HEADER_NAME, BearerAuthorization.headerValue(renewed));
+                execution.executeAsync(request, body).addCallback(result::set, result::setException);
+            } catch (IOException | RuntimeException ex) {
+                result.setException(ex);
+            }
+        });
+    }
+}
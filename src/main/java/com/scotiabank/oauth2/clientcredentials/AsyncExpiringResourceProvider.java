@@ -0,0 +1,23 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link ExpiringResourceProvider}. Implementations return an already completed future
+ * when a usable resource is at hand and never park the calling thread while one is being retrieved. The future
+ * completes with {@code null} when no resource could be retrieved.
+ */
+public interface AsyncExpiringResourceProvider<T> {
+    CompletableFuture<ExpiringResource<T>> getResourceAsync();
+
+    /**
+     * @see ExpiringResourceProvider#invalidate(ExpiringResource)
+     */
+    default boolean invalidate(ExpiringResource<T> resource) {
+        return false;
+    }
+}
@@ -0,0 +1,45 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Exposes an {@link ExpiringResourceProvider} as an {@link AsyncExpiringResourceProvider}.
+ *
+ * Providers that are already asynchronous are called directly. Any other provider is called on the given executor so
+ * the caller's thread is never the one that blocks on it. Without one, that is the default {@link RenewalScheduler}'s
+ * workers rather than the common fork-join pool, which parallel streams and other async code share and which a blocked
+ * token request would starve.
+ */
+public class AsyncResourceProviderAdapter<T> implements AsyncExpiringResourceProvider<T> {
+
+    private final ExpiringResourceProvider<T> delegate;
+    private final Executor executor;
+
+    public AsyncResourceProviderAdapter(ExpiringResourceProvider<T> delegate) {
+        this(delegate, RenewalScheduler.getDefault());
+    }
+
+    public AsyncResourceProviderAdapter(ExpiringResourceProvider<T> delegate, Executor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<ExpiringResource<T>> getResourceAsync() {
+        if (delegate instanceof AsyncExpiringResourceProvider) {
+            return ((AsyncExpiringResourceProvider<T>) delegate).getResourceAsync();
+        }
+        return CompletableFuture.supplyAsync(delegate::getResource, executor);
+    }
+
+    @Override
+    public boolean invalidate(ExpiringResource<T> resource) {
+        return delegate.invalidate(resource);
+    }
+}
@@ -4,42 +4,226 @@
  */
 package com.scotiabank.oauth2.clientcredentials;
 
+import com.scotiabank.oauth2.clientcredentials.metrics.TokenMetrics;
 import lombok.extern.slf4j.Slf4j;
 
-import java.time.Duration;
-import java.util.concurrent.*;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-
+import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Keeps a resource renewed in the background and hands out the current one without taking any locks.
+ *
+ * The current resource is held in an immutable {@link ResourceSnapshot} published through a volatile field, so the
+ * read path is a single volatile load plus a deadline comparison. Retrieval from the delegate always happens outside
+ * of any lock; the result is published with a compare-and-set so a slow retrieval can never overwrite a resource that
+ * outlives it. Concurrent readers that find no usable resource all wait on the same retrieval, so a burst of
+ * misses results in a single call to the delegate.
+ *
+ * Renewal and decommission deadlines are registered with a shared {@link RenewalScheduler} rather than a thread pool
+ * per provider. Unless configured to renew at a fixed period, each renewal is scheduled from the lifetime of the
+ * resource just retrieved, as decided by the {@link RenewalPolicy}. Failed renewals are retried as allowed by the
+ * {@link RenewalBackoff}, which also holds back readers that miss while a retry isn't due yet.
+ *
+ * In stale-while-revalidate mode a resource past its soft expiry keeps being handed out while it's renewed in the
+ * background; it's only decommissioned, and readers only wait on a renewal, once it reaches its hard expiry.
+ *
+ * {@link #getResourceAsync()} hands out the same resource without blocking: callers that miss get a future chained
+ * onto the renewal in flight, bounded by the same wait as {@link #getResource()}.
+ *
+ * Hits, cold misses, reader wait times, retrieval outcomes and the remaining lifetime of the current resource are
+ * reported to a {@link TokenMetrics}.
+ *
+ * A resource's deadlines are fixed on a monotonic clock when it's received: its expiration, already moved onto this
+ * host's clock by the resource, is only read against the wall clock once, so later steps of the wall clock neither
+ * expire it early nor keep it past its expiry. The issuer's clock skew the current resource was received with is
+ * reported to the metrics too.
+ *
+ * Every retrieved resource is handed to a {@link ResourceCache}. A resource still usable when it's loaded back at
+ * construction is handed out right away, and renewed in the background as usual rather than before construction
+ * completes.
+ *
+ * With lazy startup, construction doesn't retrieve anything: renewal starts once {@link #start()} is called, and
+ * readers that come earlier wait on a retrieval of their own like any other miss.
+ */
 @Slf4j
-public class AutoRenewAsyncResourceProvider<ResourceType> implements ExpiringResourceProvider<ResourceType> {
+public class AutoRenewAsyncResourceProvider<ResourceType>
+        implements ExpiringResourceProvider<ResourceType>, AsyncExpiringResourceProvider<ResourceType>, Closeable {
+
+    /**
+     * How long a reader without a resource waits on a renewal before it gets nothing.
+     */
+    public static final long RENEWAL_WAIT_MS = 10000;
 
-    private ScheduledFuture renewalProcess;
-    private ScheduledFuture decommissionProcess;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<AutoRenewAsyncResourceProvider, ResourceSnapshot> CURRENT_RESOURCE =
+        AtomicReferenceFieldUpdater.newUpdater(AutoRenewAsyncResourceProvider.class, ResourceSnapshot.class, "currentResource");
+
+    private final AtomicReference<RenewalScheduler.Timeout> renewalProcess = new AtomicReference<>();
+    private final AtomicReference<RenewalScheduler.Timeout> decommissionProcess = new AtomicReference<>();
 
     private final ResourceAutoRenewalProperties management;
+    private final RenewalPolicy renewalPolicy;
+    private final RenewalBackoff renewalBackoff;
 
     private final ExpiringResourceProvider<ResourceType> providerDelegate;
     private final CurrentTimeGenerator currentTimeGenerator;
 
-    private ExpiringResource<ResourceType> currentResource;
-    private ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    private volatile ResourceSnapshot<ResourceType> currentResource;
+    private final RenewalScheduler scheduler;
+    private final TokenMetrics metrics;
+    private final ResourceCache<ResourceType> cache;
+    private volatile boolean closed;
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    // the single retrieval from the delegate in flight, if any - every reader without a resource waits on this one
+    private final AtomicReference<CompletableFuture<ResourceSnapshot<ResourceType>>> inFlightRenewal = new AtomicReference<>();
 
-    // barrier used for initialization - will eventually be set to null to avoid re-initialization
-    private CountDownLatch initBarrier = new CountDownLatch(1);
+    // barrier used for initialization - released as soon as the first renewal starts
+    private final CountDownLatch initBarrier = new CountDownLatch(1);
 
     public AutoRenewAsyncResourceProvider(
             ExpiringResourceProvider<ResourceType> providerDelegate,
             ResourceAutoRenewalProperties management,
             CurrentTimeGenerator currentTimeGenerator) {
+        this(providerDelegate, management, currentTimeGenerator, RenewalScheduler.getDefault());
+    }
+
+    public AutoRenewAsyncResourceProvider(
+            ExpiringResourceProvider<ResourceType> providerDelegate,
+            ResourceAutoRenewalProperties management,
+            CurrentTimeGenerator currentTimeGenerator,
+            RenewalScheduler scheduler) {
+        this(providerDelegate, management, currentTimeGenerator, scheduler, TokenMetrics.NOOP);
+    }
+
+    public AutoRenewAsyncResourceProvider(
+            ExpiringResourceProvider<ResourceType> providerDelegate,
+            ResourceAutoRenewalProperties management,
+            CurrentTimeGenerator currentTimeGenerator,
+            RenewalScheduler scheduler,
+            TokenMetrics metrics) {
+        this(providerDelegate, management, currentTimeGenerator, scheduler, metrics, ResourceCache.none());
+    }
+
+    public AutoRenewAsyncResourceProvider(
+            ExpiringResourceProvider<ResourceType> providerDelegate,
+            ResourceAutoRenewalProperties management,
+            CurrentTimeGenerator currentTimeGenerator,
+            RenewalScheduler scheduler,
+            TokenMetrics metrics,
+            ResourceCache<ResourceType> cache) {
+        this(providerDelegate, management, currentTimeGenerator, scheduler, metrics, cache, management.isLazyStartupEnabled());
+    }
+
+    /**
+     * @param lazyStartup whether to wait on {@link #start()} rather than start renewing right away, whatever the
+     *                    {@code management} properties say
+     */
+    public AutoRenewAsyncResourceProvider(
+            ExpiringResourceProvider<ResourceType> providerDelegate,
+            ResourceAutoRenewalProperties management,
+            CurrentTimeGenerator currentTimeGenerator,
+            RenewalScheduler scheduler,
+            TokenMetrics metrics,
+            ResourceCache<ResourceType> cache,
+            boolean lazyStartup) {
         this.providerDelegate = providerDelegate;
         this.management = management;
+        this.renewalPolicy = new RenewalPolicy(management);
+        this.renewalBackoff = new RenewalBackoff(management);
         this.currentTimeGenerator = currentTimeGenerator;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.cache = cache;
+
+        metrics.bindRemainingLifetime(this::getRemainingLifetimeMs);
+        metrics.bindClockSkew(this::getClockSkewMs);
+
+        if (lazyStartup) {
+            log.info("Lazy startup - auto renewal waits to be started");
+            return;
+        }
+
+        if (!startRenewal()) {
+            synchronizeInit();
+        }
+    }
+
+    /**
+     * Starts renewing the resource in the background without waiting on the first retrieval. Construction already
+     * does so unless lazy startup is enabled; once started, this does nothing.
+     */
+    public void start() {
+        startRenewal();
+    }
+
+    /**
+     * Retrieves the resource on the calling thread rather than on the scheduler's workers, so that many providers can
+     * be warmed up at once by more threads than the scheduler has. A resource that can be handed out already is
+     * returned as is, and a retrieval in flight is waited on rather than started again. With lazy startup, call
+     * {@link #start()} afterwards, so renewal is scheduled from the resource retrieved.
+     *
+     * @return the resource, or null if it couldn't be retrieved
+     */
+    public ExpiringResource<ResourceType> warmUp() {
+        ResourceSnapshot<ResourceType> snapshot = servableSnapshot();
+        if (snapshot != null) {
+            return snapshot.getResource();
+        }
+        return awaitRenewedResource(Runnable::run);
+    }
+
+    /**
+     * @return whether a resource can be handed out without waiting on the first retrieval
+     */
+    private boolean startRenewal() {
+        if (!started.compareAndSet(false, true)) {
+            return true;
+        }
 
         log.info("Auto renewal initializing");
 
+        // a reader may already have retrieved a resource if startup is lazy
+        if (usableSnapshot() != null || restoreCachedResource()) {
+            initFromCurrentResource();
+            return true;
+        }
+
         init(0);
-        synchronizeInit();
+        return false;
+    }
+
+    private boolean restoreCachedResource() {
+        ExpiringResource<ResourceType> cached = cache.load();
+        if (cached == null) {
+            return false;
+        }
+
+        updateResource(cached);
+        if (usableSnapshot() == null) {
+            log.info("Cached resource expires too soon to use - retrieving a new one");
+            return false;
+        }
+
+        log.info("Using cached resource until it's renewed");
+        return true;
+    }
+
+    private void initFromCurrentResource() {
+        if (renewalPolicy.isLifetimeProportional()) {
+            scheduleNextRenewal();
+        } else {
+            init(management.getRenewalPeriodMs());
+        }
     }
 
     private boolean synchronizeInit() {
@@ -54,166 +238,420 @@ public class AutoRenewAsyncResourceProvider<ResourceType> implements ExpiringRes
     }
 
     private void init(int delay) {
-        if (renewalProcess != null) {
+        RenewalScheduler.Timeout previous = renewalProcess.getAndSet(null);
+        if (previous != null) {
             log.info("Stopping auto renewal process");
-            renewalProcess.cancel(true);
-            renewalProcess = null;
+            previous.cancel();
+        }
+
+        if (closed) {
+            return;
         }
 
         log.info("Scheduling renewal process");
-        renewalProcess = scheduler.scheduleAtFixedRate(this::renewResource, delay, management.getRenewalPeriodMs(), TimeUnit.MILLISECONDS);
+        if (renewalPolicy.isLifetimeProportional()) {
+            scheduleRenewal(delay);
+        } else {
+            renewalProcess.set(scheduler.scheduleAtFixedRate(this::renewResource, delay, management.getRenewalPeriodMs()));
+        }
     }
 
-    private void decommissionResource() {
-        log.info("Decommissioning resource");
-        ReentrantReadWriteLock.WriteLock writeLock = lock.writeLock();
+    private void scheduleRenewal(long delayMs) {
+        RenewalScheduler.Timeout next;
         try {
-            if (writeLock.tryLock(10, TimeUnit.SECONDS)) {
-                try {
-                    currentResource = null;
+            next = scheduler.schedule(this::renewResource, delayMs);
+        } catch (RejectedExecutionException e) {
+            log.info("Renewal scheduler has been shut down - renewal not scheduled");
+            return;
+        }
 
-                    init(management.getRenewalPeriodMs());
-                    renewResource();
-                } finally {
-                    writeLock.unlock();
-                }
-            }
-        } catch (InterruptedException e) {
-            log.error("Interrupted decommission", e);
-            Thread.currentThread().interrupt();
+        RenewalScheduler.Timeout previous = renewalProcess.getAndSet(next);
+        if (previous != null) {
+            previous.cancel();
+        }
+        if (closed) {
+            next.cancel();
         }
     }
 
-    private void updateResource(ExpiringResource<ResourceType> newResource) throws InterruptedException {
-        ReentrantReadWriteLock.WriteLock writeLock = lock.writeLock();
-        if (writeLock.tryLock(10, TimeUnit.SECONDS)) {
+    /**
+     * Schedules the renewal following the one that just finished - once a retry is due if it failed, otherwise from
+     * the lifetime of the current resource.
+     */
+    private void scheduleNextRenewal() {
+        if (closed) {
+            return;
+        }
 
-            try {
-                long timeToExpiryMs = Duration.between(currentTimeGenerator.getCurrentTime(), newResource.getExpiration()).toMillis();
-                long timeToDecommissionMs = timeToExpiryMs - management.getPreemptiveExpiryMs();
-
-                if (timeToDecommissionMs > 0) {
-                    if (decommissionProcess != null) {
-                        log.info("Canceling scheduled decommission process");
-                        decommissionProcess.cancel(true);
-                        decommissionProcess = null;
-                    }
+        long currentTimeMs = monotonicTimeMs();
+        ResourceSnapshot<ResourceType> snapshot = currentResource;
+        long delayMs;
+        if (renewalBackoff.isFailing()) {
+            delayMs = renewalBackoff.getRetryDelayMs();
+        } else if (snapshot == null || !snapshot.isUsableAt(currentTimeMs)) {
+            // retrieved, but not usable - expiring within the preemptive margin, or the same stale token served again
+            delayMs = management.getRenewalPeriodMs();
+        } else {
+            delayMs = renewalPolicy.nextRenewalDelayMs(currentTimeMs, snapshot.getExpiresAtMs(), snapshot.getUsableUntilMs());
+        }
 
-                    currentResource = newResource;
+        log.info("Scheduling next renewal in {} ms", delayMs);
+        scheduleRenewal(delayMs);
+    }
 
-                    log.info("Scheduling resource decommission process");
-                    // schedule decommission
-                    decommissionProcess = scheduler.schedule(this::decommissionResource, timeToDecommissionMs, TimeUnit.MILLISECONDS);
-                } else {
-                    log.info("Resource already expired or will expire too soon to use. Ignoring resource");
-                }
+    private void softExpireResource(ResourceSnapshot<ResourceType> expiring) {
+        if (closed) {
+            return;
+        }
+
+        if (currentResource != expiring) {
+            log.info("Resource already replaced - skipping soft expiry");
+            return;
+        }
+
+        log.info("Resource past soft expiry - renewing while still handing it out");
+
+        // schedule the hard expiry first so that a successful renewal cancels it
+        long timeToHardExpiryMs = expiring.getStaleUntilMs() - monotonicTimeMs();
+        try {
+            replaceDecommissionProcess(scheduler.schedule(() -> decommissionResource(expiring), timeToHardExpiryMs));
+        } catch (RejectedExecutionException e) {
+            log.info("Renewal scheduler has been shut down - resource won't be decommissioned");
+        }
+        renewResource();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void decommissionResource(ResourceSnapshot<ResourceType> expired) {
+        if (closed) {
+            return;
+        }
 
-            } finally {
-                writeLock.unlock();
+        log.info("Decommissioning resource");
+
+        // only decommission the snapshot this task was scheduled for - a newer one may already have been published
+        if (CURRENT_RESOURCE.compareAndSet(this, expired, null)) {
+            init(management.getRenewalPeriodMs());
+            renewResource();
+        } else {
+            log.info("Resource already replaced - skipping decommission");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void updateResource(ExpiringResource<ResourceType> newResource) {
+        // the only reading of the wall clock - from here on the resource's lifetime counts on the monotonic clock
+        long lifetimeMs = newResource.getExpiration().toEpochMilli() - currentTimeGenerator.getCurrentTime().toEpochMilli();
+        long currentTimeMs = monotonicTimeMs();
+        long expiresAtMs = currentTimeMs + lifetimeMs;
+        long usableUntilMs = expiresAtMs - renewalPolicy.getPreemptiveExpiryMs();
+        long timeToDecommissionMs = usableUntilMs - currentTimeMs;
+
+        if (closed) {
+            log.info("Auto renewal has been shut down. Ignoring resource");
+            return;
+        }
+
+        if (timeToDecommissionMs <= 0) {
+            log.info("Resource already expired or will expire too soon to use. Ignoring resource");
+            return;
+        }
+
+        long staleUntilMs = management.isStaleWhileRevalidateEnabled()
+            ? expiresAtMs - management.getHardExpiryMs()
+            : usableUntilMs;
+        ResourceSnapshot<ResourceType> snapshot = new ResourceSnapshot<>(newResource, expiresAtMs, usableUntilMs, staleUntilMs);
+        ResourceSnapshot<ResourceType> previous;
+        do {
+            previous = currentResource;
+            if (previous != null && previous.getUsableUntilMs() > usableUntilMs) {
+                log.info("Current resource outlives retrieved resource. Ignoring resource");
+                return;
             }
+        } while (!CURRENT_RESOURCE.compareAndSet(this, previous, snapshot));
+
+        log.info("Scheduling resource decommission process");
+        Runnable expiry = snapshot.getStaleUntilMs() > usableUntilMs
+            ? () -> softExpireResource(snapshot)
+            : () -> decommissionResource(snapshot);
+        try {
+            replaceDecommissionProcess(scheduler.schedule(expiry, timeToDecommissionMs));
+        } catch (RejectedExecutionException e) {
+            log.info("Renewal scheduler has been shut down - resource won't be decommissioned");
         }
     }
 
-    private void tryToRenewResource() throws InterruptedException {
-        log.info("Resource renewal process started");
-        initBarrier.countDown();
+    private void replaceDecommissionProcess(RenewalScheduler.Timeout decommission) {
+        RenewalScheduler.Timeout previousDecommission = decommissionProcess.getAndSet(decommission);
+        if (previousDecommission != null) {
+            log.info("Canceling scheduled decommission process");
+            previousDecommission.cancel();
+        }
+    }
 
+    private void tryToRenewResource() {
         log.info("Retrieving resource");
-        ExpiringResource<ResourceType> newResource = providerDelegate.getResource();
+        long start = System.nanoTime();
+        ExpiringResource<ResourceType> newResource;
+        try {
+            newResource = providerDelegate.getResource();
+        } catch (RuntimeException e) {
+            metrics.recordFetchFailure(System.nanoTime() - start, e.getClass().getSimpleName());
+            renewalBackoff.recordFailure();
+            throw e;
+        }
+        long latencyNanos = System.nanoTime() - start;
 
         if (newResource != null) {
             log.info("Resource retrieved - updating current resource");
+            metrics.recordFetchSuccess(latencyNanos);
+            renewalPolicy.recordFetchLatency(latencyNanos);
+            renewalBackoff.recordSuccess();
             updateResource(newResource);
+
+            ResourceSnapshot<ResourceType> snapshot = currentResource;
+            if (snapshot != null && snapshot.getResource() == newResource) {
+                cache.store(newResource);
+            }
         } else {
             log.info("Resource not retrieved");
+            metrics.recordFetchFailure(latencyNanos, "EmptyResponse");
+            renewalBackoff.recordFailure();
         }
     }
 
-    private void tryToRenewResourceWithWriteLock() throws InterruptedException {
-        log.info("Pre-emptively locking write lock");
-        ReentrantReadWriteLock.WriteLock writeLock = lock.writeLock();
-        if (writeLock.tryLock(10, TimeUnit.SECONDS)) {
-            try {
-                tryToRenewResource();
-            } finally {
-                writeLock.unlock();
-            }
+    private void renewResource() {
+        log.info("Resource renewal process started");
+
+        // claim the renewal before releasing initialization so the first readers join it rather than starting another
+        CompletableFuture<ResourceSnapshot<ResourceType>> renewal = new CompletableFuture<>();
+        boolean claimed = !closed && inFlightRenewal.compareAndSet(null, renewal);
+        initBarrier.countDown();
+
+        if (!claimed) {
+            log.info("Resource renewal already in progress or shut down");
+            return;
         }
+
+        runRenewal(renewal);
     }
 
-    private void renewResource() {
+    private void runRenewal(CompletableFuture<ResourceSnapshot<ResourceType>> renewal) {
         try {
-            // if the resource is not initialized then try to renew while holding the lock to prevent
-            // readers from reading the uninitialized value
-            if (currentResource == null) {
-                tryToRenewResourceWithWriteLock();
-            } else {
+            if (renewalBackoff.tryAcquireAttempt()) {
                 tryToRenewResource();
+            } else {
+                log.info("Backing off after failed renewals - not retrieving resource");
             }
-
-        } catch (InterruptedException e) {
-            log.error("Interrupted exception", e);
-            Thread.currentThread().interrupt();
         } catch (Exception e) {
             log.error("Exception ignored while retrieving resource", e);
+        } finally {
+            // clear before completing so that any waiter that still finds no resource can start a new renewal
+            inFlightRenewal.compareAndSet(renewal, null);
+            renewal.complete(currentResource);
+
+            if (renewalPolicy.isLifetimeProportional()) {
+                scheduleNextRenewal();
+            }
         }
     }
 
-    private ExpiringResource<ResourceType> trySchedulingResourceRetrievalImmediately() throws InterruptedException {
-        log.info("Attempting to schedule resource renewal immediately");
-        ExpiringResource<ResourceType> updatedResource = null;
-        ReentrantReadWriteLock.WriteLock writeLock = lock.writeLock();
+    private CompletableFuture<ResourceSnapshot<ResourceType>> joinRenewal() {
+        return joinRenewal(scheduler::execute);
+    }
 
-        if (writeLock.tryLock(10, TimeUnit.SECONDS)) {
-            try {
-                updatedResource = this.currentResource;
+    /**
+     * @return the renewal in flight, starting one on the executor if there is none
+     */
+    private CompletableFuture<ResourceSnapshot<ResourceType>> joinRenewal(Executor executor) {
+        for (;;) {
+            CompletableFuture<ResourceSnapshot<ResourceType>> inFlight = inFlightRenewal.get();
+            if (inFlight != null) {
+                return inFlight;
+            }
 
-                // double check now that you have the write lock
-                if (updatedResource == null && initBarrier.getCount() == 0) {
-                    // reset the initialization synchronization, then initialize
-                    initBarrier = new CountDownLatch(1);
-                    init(0);
+            CompletableFuture<ResourceSnapshot<ResourceType>> renewal = new CompletableFuture<>();
+            if (inFlightRenewal.compareAndSet(null, renewal)) {
+                // a renewal that finished just before the claim has already published - don't fetch again
+                ResourceSnapshot<ResourceType> snapshot = usableSnapshot();
+                if (snapshot != null) {
+                    inFlightRenewal.compareAndSet(renewal, null);
+                    renewal.complete(snapshot);
+                    return renewal;
                 }
-            } finally {
-                writeLock.unlock();
-            }
 
-            // try to wait for the updated resource
-            if (updatedResource == null) {
-                synchronizeInit();
+                log.info("Attempting to schedule resource renewal immediately");
+                try {
+                    executor.execute(() -> runRenewal(renewal));
+                } catch (RejectedExecutionException e) {
+                    log.info("Auto renewal has been shut down - resource can't be renewed");
+                    inFlightRenewal.compareAndSet(renewal, null);
+                    renewal.complete(null);
+                }
+                return renewal;
             }
         }
-        return updatedResource;
     }
 
-    @Override
-    public ExpiringResource<ResourceType> getResource() {
-        ExpiringResource<ResourceType> resource = null;
-        ReentrantReadWriteLock.ReadLock readLock = lock.readLock();
-        try {
-            // if you're able to read it immediately it's a special case since you may need to try to get the resource immediately
-            if (readLock.tryLock()) {
-                resource = this.currentResource;
-                readLock.unlock();
+    private ResourceSnapshot<ResourceType> usableSnapshot() {
+        ResourceSnapshot<ResourceType> snapshot = currentResource;
+        if (snapshot != null && snapshot.isUsableAt(monotonicTimeMs())) {
+            return snapshot;
+        }
+        return null;
+    }
 
-                if (resource == null) {
-                    resource = trySchedulingResourceRetrievalImmediately();
-                }
+    /**
+     * @return the current snapshot if it can still be handed out - fresh, or stale while it's being renewed
+     */
+    private ResourceSnapshot<ResourceType> servableSnapshot() {
+        ResourceSnapshot<ResourceType> snapshot = currentResource;
+        if (snapshot != null && snapshot.isServableAt(monotonicTimeMs())) {
+            return snapshot;
+        }
+        return null;
+    }
 
-                // resource was updated with valid value
-                if (resource != null) {
-                    return resource;
-                }
-            }
+    private ExpiringResource<ResourceType> awaitRenewedResource() {
+        return awaitRenewedResource(scheduler::execute);
+    }
 
-            if (readLock.tryLock(10, TimeUnit.SECONDS)) {
-                resource = this.currentResource;
-                readLock.unlock();
-            }
+    private ExpiringResource<ResourceType> awaitRenewedResource(Executor executor) {
+        if (closed) {
+            log.info("Auto renewal has been shut down - resource can't be renewed");
+            return null;
+        }
+
+        long start = System.nanoTime();
+        ResourceSnapshot<ResourceType> snapshot = null;
+        try {
+            snapshot = joinRenewal(executor).get(RENEWAL_WAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.info("Timed out waiting on resource renewal");
+        } catch (ExecutionException e) {
+            log.error("Exception ignored while waiting on resource renewal", e);
         } catch (InterruptedException e) {
             log.error("Interrupted exception", e);
             Thread.currentThread().interrupt();
+        } finally {
+            metrics.recordWait(System.nanoTime() - start);
+        }
+
+        return resourceAfterRenewal(snapshot);
+    }
+
+    private ExpiringResource<ResourceType> resourceAfterRenewal(ResourceSnapshot<ResourceType> snapshot) {
+        if (snapshot == null || !snapshot.isServableAt(monotonicTimeMs())) {
+            snapshot = servableSnapshot();
+        }
+        return snapshot != null ? snapshot.getResource() : null;
+    }
+
+    @Override
+    public ExpiringResource<ResourceType> getResource() {
+        ResourceSnapshot<ResourceType> snapshot = servableSnapshot();
+        if (snapshot != null) {
+            metrics.recordHit();
+            return snapshot.getResource();
+        }
+        metrics.recordColdMiss();
+        return awaitRenewedResource();
+    }
+
+    @Override
+    public CompletableFuture<ExpiringResource<ResourceType>> getResourceAsync() {
+        ResourceSnapshot<ResourceType> snapshot = servableSnapshot();
+        if (snapshot != null) {
+            metrics.recordHit();
+            return CompletableFuture.completedFuture(snapshot.getResource());
+        }
+
+        metrics.recordColdMiss();
+        if (closed) {
+            log.info("Auto renewal has been shut down - resource can't be renewed");
+            return CompletableFuture.completedFuture(null);
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<ExpiringResource<ResourceType>> resource = joinRenewal().thenApply(this::resourceAfterRenewal);
+        if (resource.isDone()) {
+            metrics.recordWait(System.nanoTime() - start);
+        } else {
+            resource.whenComplete((r, e) -> metrics.recordWait(System.nanoTime() - start));
+
+            // bound the wait like getResource does, without holding a thread for it
+            try {
+                RenewalScheduler.Timeout timeout = scheduler.schedule(() -> {
+                    if (resource.complete(resourceAfterRenewal(null))) {
+                        log.info("Timed out waiting on resource renewal");
+                    }
+                }, RENEWAL_WAIT_MS);
+                resource.whenComplete((r, e) -> timeout.cancel());
+            } catch (RejectedExecutionException e) {
+                log.info("Renewal scheduler has been shut down - waiting on the renewal in flight without a time limit");
+            }
         }
         return resource;
     }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean invalidate(ExpiringResource<ResourceType> resource) {
+        ResourceSnapshot<ResourceType> snapshot = currentResource;
+        if (snapshot == null || snapshot.getResource() != resource) {
+            log.debug("Rejected resource already replaced");
+            return false;
+        }
+
+        // only the first caller for this resource clears it, every other one finds it replaced
+        if (!CURRENT_RESOURCE.compareAndSet(this, snapshot, null)) {
+            return false;
+        }
+
+        log.info("Resource rejected before it expired - invalidating it");
+        return true;
+    }
+
+    /**
+     * @return milliseconds until the current resource expires, or 0 if there is none
+     */
+    public long getRemainingLifetimeMs() {
+        ResourceSnapshot<ResourceType> snapshot = currentResource;
+        if (snapshot == null) {
+            return 0;
+        }
+        return Math.max(0, snapshot.getExpiresAtMs() - monotonicTimeMs());
+    }
+
+    /**
+     * @return how far the issuer's clock was ahead of this host's when the current resource was received, negative
+     * if it was behind, or 0 if there is no resource
+     */
+    public long getClockSkewMs() {
+        ResourceSnapshot<ResourceType> snapshot = currentResource;
+        return snapshot != null ? snapshot.getResource().getClockSkewMs() : 0;
+    }
+
+    private long monotonicTimeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(currentTimeGenerator.getNanoTime());
+    }
+
+    /**
+     * Stops the renewal and decommission processes. Resources already handed out remain usable until they expire.
+     */
+    @Override
+    public void close() {
+        log.info("Shutting down auto renewal");
+        closed = true;
+
+        RenewalScheduler.Timeout renewal = renewalProcess.getAndSet(null);
+        if (renewal != null) {
+            renewal.cancel();
+        }
+
+        RenewalScheduler.Timeout decommission = decommissionProcess.getAndSet(null);
+        if (decommission != null) {
+            decommission.cancel();
+        }
+    }
 }
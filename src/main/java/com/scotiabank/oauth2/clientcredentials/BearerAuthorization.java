@@ -0,0 +1,64 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Rendering of bearer tokens into the Authorization header shared by the interceptors and {@link TokenResource}, and
+ * recognition of the responses that reject them.
+ */
+final class BearerAuthorization {
+    static final String HEADER_NAME = "Authorization";
+
+    // HttpHeaders lower cases names on lookup - a name that already is lower case is looked up without a copy
+    static final String HEADER_NAME_LOWER_CASE = "authorization";
+
+    private static final String PREFIX = "Bearer ";
+
+    private BearerAuthorization() {
+    }
+
+    static String render(String tokenValue) {
+        return tokenValue != null ? PREFIX.concat(tokenValue) : null;
+    }
+
+    static String headerValue(ExpiringResource<String> token) {
+        String headerValue = token.getAuthorizationHeaderValue();
+        return headerValue != null ? headerValue : render(token.getValue());
+    }
+
+    /**
+     * @param invalidatingErrorCodes WWW-Authenticate errors that reject the token, or empty for every 401
+     */
+    static boolean isTokenRejected(ClientHttpResponse response, List<String> invalidatingErrorCodes) throws IOException {
+        if (response.getRawStatusCode() != HttpStatus.UNAUTHORIZED.value()) {
+            return false;
+        }
+
+        if (invalidatingErrorCodes == null || invalidatingErrorCodes.isEmpty()) {
+            return true;
+        }
+
+        String challenge = response.getHeaders().getFirst(HttpHeaders.WWW_AUTHENTICATE);
+        if (challenge == null) {
+            return false;
+        }
+
+        String normalizedChallenge = challenge.toLowerCase(Locale.ROOT);
+        for (String errorCode : invalidatingErrorCodes) {
+            if (normalizedChallenge.contains("error=\"" + errorCode.toLowerCase(Locale.ROOT) + "\"")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,14 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials;
+
+/**
+ * Thrown instead of calling the token endpoint while its circuit breaker is open.
+ */
+public class ClientCredentialsCircuitOpenException extends ClientCredentialsTokenRequestFailedException {
+    public ClientCredentialsCircuitOpenException(String message) {
+        super(message);
+    }
+}
@@ -4,13 +4,24 @@
  */
 package com.scotiabank.oauth2.clientcredentials;
 
+import com.scotiabank.oauth2.clientcredentials.metrics.TokenMetrics;
+import com.scotiabank.oauth2.clientcredentials.registry.TokenKey;
+import com.scotiabank.oauth2.clientcredentials.request.ClientAssertionGenerator;
 import com.scotiabank.oauth2.clientcredentials.request.ClientAssertionRequestEnhancer;
 import com.scotiabank.oauth2.clientcredentials.request.ClientCredentialsAssertionGenerationProperties;
 import com.scotiabank.oauth2.clientcredentials.request.ClientCredentialsTokenRequestor;
+import com.scotiabank.oauth2.clientcredentials.request.StandaloneTokenRequestor;
+import com.scotiabank.oauth2.clientcredentials.request.TokenEndpointCircuitBreaker;
+import com.scotiabank.oauth2.clientcredentials.request.TokenEndpointClientProperties;
+import com.scotiabank.oauth2.clientcredentials.store.SharedTokenStore;
+import com.scotiabank.oauth2.clientcredentials.store.SharedTokenStoreProperties;
+import com.scotiabank.oauth2.clientcredentials.store.SharedTokenStoreResourceProvider;
+import com.nimbusds.jose.JWSSigner;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.security.oauth2.client.token.grant.client.ClientCredentialsResourceDetails;
 import org.springframework.security.oauth2.common.AuthenticationScheme;
 import org.springframework.web.client.RestTemplate;
@@ -27,22 +38,91 @@ public class ClientCredentialsInterceptorConfig {
         return resource;
     }
 
+    @Bean("com.scotiabank.oauth2.clientcredentials RenewalScheduler")
+    public RenewalScheduler renewalScheduler(ResourceAutoRenewalProperties tokenManagementProperties) {
+        return new RenewalScheduler(
+            tokenManagementProperties.getSchedulerTickMs(),
+            tokenManagementProperties.getSchedulerWorkerThreads());
+    }
+
+    @Bean("com.scotiabank.oauth2.clientcredentials TokenEndpointCircuitBreaker")
+    public TokenEndpointCircuitBreaker tokenEndpointCircuitBreaker(ResourceAutoRenewalProperties tokenManagementProperties) {
+        return new TokenEndpointCircuitBreaker(
+            tokenManagementProperties.getCircuitBreakerFailureThreshold(),
+            tokenManagementProperties.getCircuitBreakerOpenMs());
+    }
+
     @Bean("com.scotiabank.oauth2.clientcredentials TokenProvider")
     public ExpiringResourceProvider<String> clientCredentialsAccessTokenProvider(
             ClientCredentialsResourceDetails resource,
             @Autowired(required = false)
             @Qualifier("com.scotiabank.oauth2.clientcredentials OAuth2TokenRestTemplate")
                 RestTemplate restTemplate,
+            @Qualifier("com.scotiabank.oauth2.clientcredentials.request TokenEndpointRequestFactory")
+                ClientHttpRequestFactory requestFactory,
             ClientAssertionRequestEnhancer enhancer,
+            ClientAssertionGenerator assertionGenerator,
+            TokenEndpointClientProperties tokenEndpointClientProperties,
             ResourceAutoRenewalProperties tokenManagementProperties,
-            CurrentTimeGenerator currentTimeGenerator) {
-        ClientCredentialsTokenRequestor tokenRequestor = new ClientCredentialsTokenRequestor(resource, restTemplate);
-        tokenRequestor.setTokenRequestEnhancer(enhancer);
+            CurrentTimeGenerator currentTimeGenerator,
+            @Qualifier("com.scotiabank.oauth2.clientcredentials RenewalScheduler") RenewalScheduler renewalScheduler,
+            @Qualifier("com.scotiabank.oauth2.clientcredentials TokenEndpointCircuitBreaker")
+                TokenEndpointCircuitBreaker circuitBreaker,
+            @Qualifier("com.scotiabank.oauth2.clientcredentials.metrics TokenMetrics") TokenMetrics tokenMetrics,
+            @Qualifier("com.scotiabank.oauth2.clientcredentials.cache TokenCache") ResourceCache<String> tokenCache,
+            @Qualifier("com.scotiabank.oauth2.clientcredentials.store SharedTokenStore") SharedTokenStore sharedTokenStore,
+            SharedTokenStoreProperties sharedTokenStoreProperties,
+            ClientCredentialsAssertionGenerationProperties assertionProperties) {
+        ExpiringResourceProvider<String> tokenRequestor;
+        if (tokenEndpointClientProperties.getTokenEndpointCodec() == TokenEndpointClientProperties.Codec.STANDALONE) {
+            StandaloneTokenRequestor standaloneRequestor = new StandaloneTokenRequestor(
+                resource.getAccessTokenUri(),
+                resource.getScope(),
+                assertionGenerator,
+                restTemplate != null ? restTemplate.getRequestFactory() : requestFactory,
+                currentTimeGenerator);
+            standaloneRequestor.setCircuitBreaker(circuitBreaker);
+            tokenRequestor = standaloneRequestor;
+        } else {
+            ClientCredentialsTokenRequestor oauth2Requestor = new ClientCredentialsTokenRequestor(
+                resource, restTemplate, requestFactory, currentTimeGenerator);
+            oauth2Requestor.setTokenRequestEnhancer(enhancer);
+            oauth2Requestor.setCircuitBreaker(circuitBreaker);
+            tokenRequestor = oauth2Requestor;
+        }
 
-        AutoRenewAsyncResourceProvider<String> provider = new AutoRenewAsyncResourceProvider<>(
+        // instances sharing a store share tokens for the same client, token url and scopes - keyed as the registry's
+        // clients are, so the main client and a registry client requesting the same token share it too
+        ExpiringResourceProvider<String> sharedTokenRequestor = SharedTokenStoreResourceProvider.share(
             tokenRequestor,
-            tokenManagementProperties,
+            sharedTokenStore,
+            new TokenKey(assertionProperties.getClientId(), resource.getAccessTokenUri(), resource.getScope()).toString(),
+            sharedTokenStoreProperties.getSharedTokenStoreLeaseMs(),
             currentTimeGenerator);
+
+        AutoRenewAsyncResourceProvider<String> provider = new AutoRenewAsyncResourceProvider<>(
+            sharedTokenRequestor,
+            tokenManagementProperties,
+            currentTimeGenerator,
+            renewalScheduler,
+            tokenMetrics,
+            tokenCache);
         return provider;
     }
+
+    @Bean("com.scotiabank.oauth2.clientcredentials TokenProviderStartup")
+    public TokenProviderStartup tokenProviderStartup(
+            @Qualifier("com.scotiabank.oauth2.clientcredentials TokenProvider") ExpiringResourceProvider<String> tokenProvider,
+            @Qualifier("com.scotiabank.oauth2.clientcredentials JwsSigner") JWSSigner signer,
+            @Qualifier("com.scotiabank.oauth2.clientcredentials RenewalScheduler") RenewalScheduler renewalScheduler,
+            ResourceAutoRenewalProperties tokenManagementProperties) {
+        return new TokenProviderStartup(tokenProvider, signer, renewalScheduler, tokenManagementProperties);
+    }
+
+    @Bean("com.scotiabank.oauth2.clientcredentials AsyncTokenProvider")
+    public AsyncExpiringResourceProvider<String> asyncClientCredentialsAccessTokenProvider(
+            @Qualifier("com.scotiabank.oauth2.clientcredentials TokenProvider") ExpiringResourceProvider<String> tokenProvider,
+            @Qualifier("com.scotiabank.oauth2.clientcredentials RenewalScheduler") RenewalScheduler renewalScheduler) {
+        return new AsyncResourceProviderAdapter<>(tokenProvider, renewalScheduler);
+    }
 }
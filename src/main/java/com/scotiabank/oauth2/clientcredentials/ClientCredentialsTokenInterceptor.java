@@ -4,8 +4,9 @@
  */
 package com.scotiabank.oauth2.clientcredentials;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpRequest;
 import org.springframework.http.client.ClientHttpRequestExecution;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
@@ -14,28 +15,75 @@ import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 
+/**
+ * Adds the client credentials token to requests that don't carry an authorization header yet.
+ *
+ * When a request is answered with 401, the token it was sent with is invalidated in the provider and the request is
+ * replayed once with a new token. If no new token can be had, the 401 response is returned as is. The replay goes
+ * straight to the request factory, so interceptors registered after this one don't see it.
+ */
 @Slf4j
 @Component("clientCredentialsTokenInterceptor")
-@RequiredArgsConstructor
 public class ClientCredentialsTokenInterceptor implements ClientHttpRequestInterceptor {
-    private static final String TOKEN_KEY = "Authorization";
-    private static final String TOKEN_VALUE = "Bearer %s";
 
     private final ExpiringResourceProvider<String> tokenProvider;
+    private final ResourceAutoRenewalProperties properties;
+
+    public ClientCredentialsTokenInterceptor(ExpiringResourceProvider<String> tokenProvider) {
+        this(tokenProvider, new ResourceAutoRenewalProperties());
+    }
+
+    @Autowired
+    public ClientCredentialsTokenInterceptor(ExpiringResourceProvider<String> tokenProvider,
+                                             ResourceAutoRenewalProperties properties) {
+        this.tokenProvider = tokenProvider;
+        this.properties = properties;
+    }
 
     @Override
     public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
-        ExpiringResource<String> token;
-        if (!request.getHeaders().containsKey(TOKEN_KEY)) {
-            if ((token = tokenProvider.getResource()) == null) {
-                throw new ClientCredentialsTokenRequestFailedException("Client credentials token request failed");
-            }
-
-            request.getHeaders().add(TOKEN_KEY, String.format(TOKEN_VALUE, token.getValue()));
-        } else {
-            log.info("Skipping setting the client credentials token on request as authorization header has already been set");
+        // the header value is pre-rendered by the token, so a cached token costs no allocations here
+        HttpHeaders headers = request.getHeaders();
+        if (headers.containsKey(BearerAuthorization.HEADER_NAME_LOWER_CASE)) {
+            log.debug("Skipping setting the client credentials token on request as authorization header has already been set");
+            return execution.execute(request, body);
+        }
+
+        ExpiringResource<String> token = currentToken();
+        headers.add(BearerAuthorization.HEADER_NAME, BearerAuthorization.headerValue(token));
+        ClientHttpResponse response = execution.execute(request, body);
+
+        if (!properties.isInvalidateOnUnauthorized()
+            || !BearerAuthorization.isTokenRejected(response, properties.getInvalidatingErrorCodes())) {
+            return response;
+        }
+
+        // concurrent rejections of the same token invalidate it once and all wait on the same renewal
+        tokenProvider.invalidate(token);
+        ExpiringResource<String> renewed;
+        try {
+            renewed = tokenProvider.getResource();
+        } catch (RuntimeException e) {
+            // the rejected response is still the caller's to read and close
+            log.warn("Client credentials token rejected, but retrieving another one failed - not replaying request", e);
+            return response;
+        }
+        if (renewed == null || renewed == token) {
+            log.info("Client credentials token rejected, but no other token is available - not replaying request");
+            return response;
         }
 
+        log.info("Client credentials token rejected - replaying request with a new token");
+        response.close();
+        headers.set(BearerAuthorization.HEADER_NAME, BearerAuthorization.headerValue(renewed));
         return execution.execute(request, body);
     }
+
+    private ExpiringResource<String> currentToken() {
+        ExpiringResource<String> token = tokenProvider.getResource();
+        if (token == null) {
+            throw new ClientCredentialsTokenRequestFailedException("Client credentials token request failed");
+        }
+        return token;
+    }
 }
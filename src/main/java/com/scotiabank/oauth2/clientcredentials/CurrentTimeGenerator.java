@@ -14,4 +14,16 @@ public class CurrentTimeGenerator {
     public Instant getCurrentTime() {
         return Instant.now();
     }
+
+    public long getCurrentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * @return nanoseconds on a clock that only moves forward and isn't stepped when the wall clock is corrected, only
+     * meaningful relative to another reading
+     */
+    public long getNanoTime() {
+        return System.nanoTime();
+    }
 }
@@ -4,10 +4,18 @@
  */
 package com.scotiabank.oauth2.clientcredentials;
 
+import com.scotiabank.oauth2.clientcredentials.cache.TokenCacheConfig;
 import com.scotiabank.oauth2.clientcredentials.key.*;
+import com.scotiabank.oauth2.clientcredentials.metrics.TokenMetricsConfig;
+import com.scotiabank.oauth2.clientcredentials.registry.TokenRegistryConfig;
+import com.scotiabank.oauth2.clientcredentials.registry.TokenRegistryProperties;
 import com.scotiabank.oauth2.clientcredentials.request.ClientAssertionGenerator;
 import com.scotiabank.oauth2.clientcredentials.request.ClientAssertionRequestEnhancer;
 import com.scotiabank.oauth2.clientcredentials.request.ClientCredentialsAssertionGenerationProperties;
+import com.scotiabank.oauth2.clientcredentials.request.TokenEndpointClientConfig;
+import com.scotiabank.oauth2.clientcredentials.request.TokenEndpointClientProperties;
+import com.scotiabank.oauth2.clientcredentials.store.SharedTokenStoreConfig;
+import com.scotiabank.oauth2.clientcredentials.store.SharedTokenStoreProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
@@ -23,19 +31,34 @@ import java.lang.annotation.Target;
     KeyStoreDecoder.class,
     KeyStoreFactory.class,
     KeyStoreProvider.class,
+    JwsSignerFactory.class,
+    ClientCredentialsKeyLoader.class,
     ClientCredentialsSignatureConfig.class,
     // request
     ClientAssertionGenerator.class,
     ClientAssertionRequestEnhancer.class,
+    TokenEndpointClientConfig.class,
     // management
     ClientCredentialsInterceptorConfig.class,
     ClientCredentialsTokenInterceptor.class,
-    CurrentTimeGenerator.class
+    AsyncClientCredentialsTokenInterceptor.class,
+    CurrentTimeGenerator.class,
+    // metrics
+    TokenMetricsConfig.class,
+    // cache
+    TokenCacheConfig.class,
+    // store
+    SharedTokenStoreConfig.class,
+    // registry
+    TokenRegistryConfig.class
 })
 @EnableConfigurationProperties({
     ClientCredentialsSignatureProperties.class,
     ClientCredentialsAssertionGenerationProperties.class,
-    ResourceAutoRenewalProperties.class
+    TokenEndpointClientProperties.class,
+    ResourceAutoRenewalProperties.class,
+    TokenRegistryProperties.class,
+    SharedTokenStoreProperties.class
 })
 @Configuration
 public @interface EnableClientCredentialsInterceptor {
@@ -10,4 +10,20 @@ public interface ExpiringResource<T> {
     Instant getExpiration();
 
     T getValue();
+
+    /**
+     * @return the Authorization header value for this resource rendered once up front, or null if the resource
+     * doesn't pre-render it
+     */
+    default String getAuthorizationHeaderValue() {
+        return null;
+    }
+
+    /**
+     * @return how far the issuer's clock was ahead of this host's when the resource was received, negative if it was
+     * behind, or 0 if unknown - the expiration is already on this host's clock
+     */
+    default long getClockSkewMs() {
+        return 0;
+    }
 }
@@ -6,4 +6,14 @@ package com.scotiabank.oauth2.clientcredentials;
 
 public interface ExpiringResourceProvider<T> {
     ExpiringResource<T> getResource();
+
+    /**
+     * Discards the resource if it's still the current one - e.g. because it was rejected before it expired - so the
+     * next call retrieves a new one. Concurrent calls for the same resource discard it only once.
+     *
+     * @return whether this call discarded the resource
+     */
+    default boolean invalidate(ExpiringResource<T> resource) {
+        return false;
+    }
 }
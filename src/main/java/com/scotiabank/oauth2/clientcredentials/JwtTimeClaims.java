@@ -0,0 +1,143 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * The exp, iat and nbf claims of a token, read by decoding only its payload and skipping every other claim.
+ *
+ * Tokens that are not compact JWS or unsecured JWTs, like opaque tokens, are told apart by their shape alone.
+ */
+@Slf4j
+final class JwtTimeClaims {
+
+    static final JwtTimeClaims NONE = new JwtTimeClaims(false, null, null, null);
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final boolean jwt;
+    private final Instant expiration;
+    private final Instant issuedAt;
+    private final Instant notBefore;
+
+    private JwtTimeClaims(boolean jwt, Instant expiration, Instant issuedAt, Instant notBefore) {
+        this.jwt = jwt;
+        this.expiration = expiration;
+        this.issuedAt = issuedAt;
+        this.notBefore = notBefore;
+    }
+
+    /**
+     * @return the token's time claims, or {@link #NONE} if it is not a JWT or its claims cannot be read
+     */
+    static JwtTimeClaims scan(String token) {
+        if (token == null) {
+            return NONE;
+        }
+
+        // header.payload.signature, all base64url
+        int firstDot = -1;
+        int secondDot = -1;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c == '.') {
+                if (firstDot < 0) {
+                    firstDot = i;
+                } else if (secondDot < 0) {
+                    secondDot = i;
+                } else {
+                    return NONE;
+                }
+            } else if (!isBase64Url(c)) {
+                return NONE;
+            }
+        }
+        if (firstDot <= 0 || secondDot < 0 || secondDot - firstDot == 1 || (secondDot - firstDot - 1) % 4 == 1) {
+            return NONE;
+        }
+
+        byte[] payload = Base64.getUrlDecoder().decode(token.substring(firstDot + 1, secondDot));
+        try {
+            return read(payload);
+        } catch (IOException e) {
+            log.error("Unable to base expiry on token - unreadable claims: {}", e.getMessage());
+            return NONE;
+        }
+    }
+
+    private static JwtTimeClaims read(byte[] payload) throws IOException {
+        Instant expiration = null;
+        Instant issuedAt = null;
+        Instant notBefore = null;
+
+        try (JsonParser parser = JSON.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Token claims are not a JSON object");
+            }
+            JsonToken next;
+            while ((next = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                String claim = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("exp".equals(claim)) {
+                    expiration = numericDate(parser, value);
+                } else if ("iat".equals(claim)) {
+                    issuedAt = numericDate(parser, value);
+                } else if ("nbf".equals(claim)) {
+                    notBefore = numericDate(parser, value);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (next != JsonToken.END_OBJECT) {
+                throw new IOException("Token claims are incomplete");
+            }
+        }
+
+        return new JwtTimeClaims(true, expiration, issuedAt, notBefore);
+    }
+
+    // seconds since the epoch, possibly fractional
+    private static Instant numericDate(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NUMBER_INT) {
+            return Instant.ofEpochSecond(parser.getLongValue());
+        }
+        if (value == JsonToken.VALUE_NUMBER_FLOAT) {
+            return Instant.ofEpochMilli((long) (parser.getDoubleValue() * 1000));
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    private static boolean isBase64Url(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '_';
+    }
+
+    /**
+     * @return whether the token is shaped like a JWT and its claims could be read
+     */
+    boolean isJwt() {
+        return jwt;
+    }
+
+    Instant getExpiration() {
+        return expiration;
+    }
+
+    Instant getIssuedAt() {
+        return issuedAt;
+    }
+
+    Instant getNotBefore() {
+        return notBefore;
+    }
+}
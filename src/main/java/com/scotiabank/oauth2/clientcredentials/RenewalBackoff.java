@@ -0,0 +1,117 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Spaces out retrievals after failures. Each consecutive failure doubles the backoff ceiling up to a cap and the
+ * actual delay is drawn uniformly below it (full jitter), so nodes that failed together don't retry together. On top
+ * of that, no more than a fixed number of retries are attempted per time window.
+ *
+ * With no initial backoff configured, retries are neither delayed nor budgeted and are scheduled after the renewal
+ * period.
+ */
+class RenewalBackoff {
+
+    private static final int MAX_DOUBLINGS = 30;
+
+    private final ResourceAutoRenewalProperties management;
+    private final DoubleSupplier random;
+    private final LongSupplier nanoClock;
+
+    // only touched around retrievals, never on the read path
+    private int consecutiveFailures;
+    private long retryNotBeforeNanos;
+    private long budgetWindowStartNanos;
+    private int retriesInWindow;
+
+    RenewalBackoff(ResourceAutoRenewalProperties management) {
+        this(management, () -> ThreadLocalRandom.current().nextDouble(), System::nanoTime);
+    }
+
+    RenewalBackoff(ResourceAutoRenewalProperties management, DoubleSupplier random, LongSupplier nanoClock) {
+        this.management = management;
+        this.random = random;
+        this.nanoClock = nanoClock;
+    }
+
+    synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        retriesInWindow = 0;
+    }
+
+    synchronized void recordFailure() {
+        consecutiveFailures++;
+
+        long initialMs = management.getRenewalBackoffInitialMs();
+        if (initialMs <= 0) {
+            return;
+        }
+
+        long ceilingMs = Math.min(
+            Math.max(initialMs, management.getRenewalBackoffMaxMs()),
+            initialMs << Math.min(consecutiveFailures - 1, MAX_DOUBLINGS));
+        long delayMs = (long) (ceilingMs * random.getAsDouble());
+        retryNotBeforeNanos = nanoClock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+    }
+
+    synchronized boolean isFailing() {
+        return consecutiveFailures > 0;
+    }
+
+    /**
+     * @return whether a retrieval may be attempted now - a retry after a failure is only allowed once its backoff has
+     * elapsed and uses up one of the retries of the current window
+     */
+    synchronized boolean tryAcquireAttempt() {
+        if (consecutiveFailures == 0 || management.getRenewalBackoffInitialMs() <= 0) {
+            return true;
+        }
+
+        long now = nanoClock.getAsLong();
+        if (now - retryNotBeforeNanos < 0) {
+            return false;
+        }
+
+        int budget = management.getRenewalRetryBudget();
+        if (budget > 0) {
+            if (now - budgetWindowStartNanos >= budgetWindowNanos()) {
+                budgetWindowStartNanos = now;
+                retriesInWindow = 0;
+            }
+            if (retriesInWindow >= budget) {
+                return false;
+            }
+            retriesInWindow++;
+        }
+        return true;
+    }
+
+    /**
+     * @return delay until the next retry may be attempted
+     */
+    synchronized long getRetryDelayMs() {
+        if (management.getRenewalBackoffInitialMs() <= 0) {
+            return management.getRenewalPeriodMs();
+        }
+
+        long now = nanoClock.getAsLong();
+        long waitNanos = retryNotBeforeNanos - now;
+
+        int budget = management.getRenewalRetryBudget();
+        if (budget > 0 && retriesInWindow >= budget) {
+            waitNanos = Math.max(waitNanos, budgetWindowStartNanos + budgetWindowNanos() - now);
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+    }
+
+    private long budgetWindowNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(management.getRenewalRetryBudgetWindowMs());
+    }
+}
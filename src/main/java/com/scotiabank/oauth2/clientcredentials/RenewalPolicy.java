@@ -0,0 +1,81 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Decides when a resource should be renewed and how long before expiry it stops being handed out.
+ *
+ * Renewal is scheduled at a fraction of the resource's remaining lifetime, shortened by a random jitter so that
+ * instances started together spread their renewals out. The preemptive expiry margin follows the observed retrieval
+ * latency, bounded by the configured minimum and {@link ResourceAutoRenewalProperties#getPreemptiveExpiryMs()}.
+ */
+class RenewalPolicy {
+
+    // weight of the newest sample in the latency moving average
+    private static final double LATENCY_SMOOTHING = 0.25;
+
+    private final ResourceAutoRenewalProperties management;
+    private final DoubleSupplier random;
+
+    // only written by the single renewal in flight
+    private volatile long averageFetchLatencyNanos;
+
+    RenewalPolicy(ResourceAutoRenewalProperties management) {
+        this(management, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    RenewalPolicy(ResourceAutoRenewalProperties management, DoubleSupplier random) {
+        this.management = management;
+        this.random = random;
+    }
+
+    /**
+     * @return whether renewals follow the resource lifetime rather than a fixed period
+     */
+    boolean isLifetimeProportional() {
+        return management.getRenewalLifetimePercent() > 0;
+    }
+
+    void recordFetchLatency(long latencyNanos) {
+        long average = averageFetchLatencyNanos;
+        averageFetchLatencyNanos = average == 0
+            ? latencyNanos
+            : average + (long) (LATENCY_SMOOTHING * (latencyNanos - average));
+    }
+
+    long getAverageFetchLatencyMs() {
+        return TimeUnit.NANOSECONDS.toMillis(averageFetchLatencyNanos);
+    }
+
+    /**
+     * @return how long before expiry a resource stops being handed out
+     */
+    long getPreemptiveExpiryMs() {
+        int multiple = management.getPreemptiveExpiryLatencyMultiple();
+        long averageLatencyNanos = averageFetchLatencyNanos;
+        if (multiple <= 0 || averageLatencyNanos == 0) {
+            return management.getPreemptiveExpiryMs();
+        }
+
+        long adaptiveMs = multiple * TimeUnit.NANOSECONDS.toMillis(averageLatencyNanos);
+        return Math.min(management.getPreemptiveExpiryMs(), Math.max(management.getMinPreemptiveExpiryMs(), adaptiveMs));
+    }
+
+    /**
+     * @return delay until the next renewal of a resource retrieved at {@code currentTimeMs}
+     */
+    long nextRenewalDelayMs(long currentTimeMs, long expirationMs, long usableUntilMs) {
+        long lifetimeDelayMs = (expirationMs - currentTimeMs) * management.getRenewalLifetimePercent() / 100;
+        long delayMs = Math.min(lifetimeDelayMs, usableUntilMs - currentTimeMs);
+
+        // jitter only ever brings the renewal forward so it still happens before the resource stops being usable
+        long jitterMs = (long) (delayMs * management.getRenewalJitterPercent() / 100.0 * random.getAsDouble());
+        return Math.max(0, delayMs - jitterMs);
+    }
+}
@@ -0,0 +1,342 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Shared scheduler for renewal and decommission deadlines of any number of providers.
+ *
+ * Deadlines are kept in a hashed timing wheel driven by a single timer thread that advances one bucket per tick.
+ * Scheduling and cancelling are O(1) and cancelled deadlines are unlinked from the wheel on the next tick, so they
+ * don't accumulate. The timer thread never runs tasks itself: expired tasks are handed to a small worker pool so a
+ * slow token endpoint can't delay other deadlines.
+ */
+@Slf4j
+public class RenewalScheduler implements Executor, DisposableBean {
+
+    public static final int DEFAULT_TICK_MS = 10;
+    public static final int DEFAULT_WORKER_THREADS = 2;
+
+    private static final int WHEEL_SIZE = 512;
+    private static final int MAX_TRANSFERS_PER_TICK = 100000;
+
+    private static final AtomicInteger instances = new AtomicInteger();
+
+    private final long tickNanos;
+    private final Bucket[] wheel = new Bucket[WHEEL_SIZE];
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final ThreadPoolExecutor workers;
+    private final Thread timerThread;
+    private final long startTime;
+
+    private volatile boolean running = true;
+
+    // only accessed by the timer thread
+    private long tick;
+
+    public RenewalScheduler(int tickMs, int workerThreads) {
+        checkArgument(tickMs > 0, "tickMs must be a positive, non-zero value");
+        checkArgument(workerThreads > 0, "workerThreads must be a positive, non-zero value");
+
+        int instance = instances.incrementAndGet();
+
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+
+        this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("renewal-worker-" + instance + "-%d").build());
+
+        this.startTime = System.nanoTime();
+        this.timerThread = new ThreadFactoryBuilder().setDaemon(true).setNameFormat("renewal-timer-" + instance).build()
+            .newThread(this::runTimer);
+        this.timerThread.start();
+    }
+
+    /**
+     * @return the scheduler shared by providers that aren't given one explicitly - it lives as long as the JVM
+     */
+    public static RenewalScheduler getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    public Timeout schedule(Runnable task, long delayMs) {
+        return enqueue(new Timeout(this, task, deadlineAfter(delayMs), 0));
+    }
+
+    public Timeout scheduleAtFixedRate(Runnable task, long initialDelayMs, long periodMs) {
+        checkArgument(periodMs > 0, "periodMs must be a positive, non-zero value");
+        return enqueue(new Timeout(this, task, deadlineAfter(initialDelayMs), TimeUnit.MILLISECONDS.toNanos(periodMs)));
+    }
+
+    /**
+     * Runs the task on the worker pool as soon as a worker is available.
+     */
+    @Override
+    public void execute(Runnable task) {
+        if (!running) {
+            throw new RejectedExecutionException("Renewal scheduler has been shut down");
+        }
+        workers.execute(task);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void destroy() {
+        if (running) {
+            log.info("Shutting down renewal scheduler");
+            running = false;
+            timerThread.interrupt();
+            workers.shutdownNow();
+        }
+    }
+
+    int getPendingCount() {
+        int count = pendingTimeouts.size();
+        for (Bucket bucket : wheel) {
+            count += bucket.size;
+        }
+        return count;
+    }
+
+    private long deadlineAfter(long delayMs) {
+        return System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMs));
+    }
+
+    private Timeout enqueue(Timeout timeout) {
+        if (!running) {
+            throw new RejectedExecutionException("Renewal scheduler has been shut down");
+        }
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    private void runTimer() {
+        while (running) {
+            long deadline = waitForNextTick();
+            if (deadline < 0) {
+                continue;
+            }
+
+            processCancelledTimeouts();
+            transferPendingTimeouts();
+            wheel[(int) (tick & (wheel.length - 1))].expireTimeouts(deadline);
+            tick++;
+        }
+    }
+
+    private long waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+
+        for (;;) {
+            long current = System.nanoTime() - startTime;
+            long sleepMs = (deadline - current + 999999) / 1000000;
+
+            if (sleepMs <= 0) {
+                return current;
+            }
+
+            try {
+                Thread.sleep(sleepMs);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return -1;
+                }
+            }
+        }
+    }
+
+    private void processCancelledTimeouts() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void transferPendingTimeouts() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Timeout timeout = pendingTimeouts.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.isCancelled()) {
+                continue;
+            }
+
+            long calculated = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+
+            // deadlines already in the past are placed in the current bucket and expire on this tick
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & (wheel.length - 1))].add(timeout);
+        }
+    }
+
+    private void dispatch(Timeout timeout) {
+        // a periodic task still queued or running from its previous period skips this one instead of piling up
+        // behind a slow run and then firing back-to-back
+        if (timeout.periodNanos == 0 || timeout.inProgress.compareAndSet(false, true)) {
+            try {
+                workers.execute(timeout::run);
+            } catch (RejectedExecutionException e) {
+                timeout.inProgress.set(false);
+                log.info("Renewal scheduler has been shut down - dropping expired task");
+            }
+        }
+
+        if (timeout.periodNanos > 0 && !timeout.isCancelled()) {
+            timeout.deadline += timeout.periodNanos;
+            pendingTimeouts.add(timeout);
+        }
+    }
+
+    /**
+     * Handle to a scheduled task. Cancelling a periodic task stops all of its future runs.
+     */
+    public static final class Timeout {
+        private static final int ST_SCHEDULED = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+
+        private final RenewalScheduler scheduler;
+        private final Runnable task;
+        private final long periodNanos;
+        private final AtomicInteger state = new AtomicInteger(ST_SCHEDULED);
+        private final AtomicBoolean inProgress = new AtomicBoolean();
+
+        // only accessed by the timer thread once enqueued
+        private long deadline;
+        private long remainingRounds;
+        private Timeout next;
+        private Timeout prev;
+        private Bucket bucket;
+
+        private Timeout(RenewalScheduler scheduler, Runnable task, long deadline, long periodNanos) {
+            this.scheduler = scheduler;
+            this.task = task;
+            this.deadline = deadline;
+            this.periodNanos = periodNanos;
+        }
+
+        public boolean cancel() {
+            if (!state.compareAndSet(ST_SCHEDULED, ST_CANCELLED)) {
+                return false;
+            }
+            scheduler.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == ST_CANCELLED;
+        }
+
+        private void run() {
+            try {
+                task.run();
+            } finally {
+                inProgress.set(false);
+            }
+        }
+
+        private void expire() {
+            if (periodNanos > 0) {
+                if (!isCancelled()) {
+                    scheduler.dispatch(this);
+                }
+            } else if (state.compareAndSet(ST_SCHEDULED, ST_EXPIRED)) {
+                scheduler.dispatch(this);
+            }
+        }
+    }
+
+    private final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+        private int size;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+            size++;
+        }
+
+        private Timeout remove(Timeout timeout) {
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            size--;
+            return next;
+        }
+
+        private void expireTimeouts(long deadline) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.isCancelled()) {
+                    next = remove(timeout);
+                } else if (timeout.remainingRounds <= 0) {
+                    next = remove(timeout);
+                    if (timeout.deadline <= deadline) {
+                        timeout.expire();
+                    } else {
+                        // placed in this bucket before its deadline - wait for the next revolution
+                        pendingTimeouts.add(timeout);
+                    }
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+    }
+
+    private static final class DefaultHolder {
+        private static final RenewalScheduler INSTANCE = new RenewalScheduler(DEFAULT_TICK_MS, DEFAULT_WORKER_THREADS);
+    }
+}
@@ -7,9 +7,14 @@ package com.scotiabank.oauth2.clientcredentials;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 @Getter
 @Setter
@@ -21,8 +26,102 @@ public class ResourceAutoRenewalProperties {
 
         // by default, don't use a token in the last minute before expiry
         preemptiveExpiryMs = (int)Duration.of(1, ChronoUnit.MINUTES).toMillis();
+
+        // by default, renew once three quarters of the token lifetime has passed, up to a tenth of that earlier
+        renewalLifetimePercent = 75;
+        renewalJitterPercent = 10;
+
+        // by default, stop using a token ten round trips to the token endpoint before expiry, but no less than 5 seconds
+        preemptiveExpiryLatencyMultiple = 10;
+        minPreemptiveExpiryMs = (int)Duration.of(5, ChronoUnit.SECONDS).toMillis();
+
+        // by default, retry failed renewals after up to 1, 2, 4... seconds, at most a minute apart and 10 times a minute
+        renewalBackoffInitialMs = (int)Duration.of(1, ChronoUnit.SECONDS).toMillis();
+        renewalBackoffMaxMs = (int)Duration.of(1, ChronoUnit.MINUTES).toMillis();
+        renewalRetryBudget = 10;
+        renewalRetryBudgetWindowMs = (int)Duration.of(1, ChronoUnit.MINUTES).toMillis();
+
+        // by default, stop calling the token endpoint for 30 seconds after 5 consecutive failures
+        circuitBreakerFailureThreshold = 5;
+        circuitBreakerOpenMs = (int)Duration.of(30, ChronoUnit.SECONDS).toMillis();
+
+        // by default, keep handing out a token past its preemptive expiry while it's renewed, until 2 seconds before expiry
+        staleWhileRevalidateEnabled = true;
+        hardExpiryMs = (int)Duration.of(2, ChronoUnit.SECONDS).toMillis();
+
+        // by default, replace a token as soon as a request using it is answered with 401 for an invalid token - other
+        // 401s, such as for a missing scope, aren't fixed by a new token
+        invalidateOnUnauthorized = true;
+        invalidatingErrorCodes = new ArrayList<>(Collections.singletonList("invalid_token"));
+
+        // by default, don't cache the token across restarts
+        tokenCacheFile = null;
+
+        // by default, retrieve the first token while the application context starts
+        lazyStartupEnabled = false;
+
+        schedulerTickMs = RenewalScheduler.DEFAULT_TICK_MS;
+        schedulerWorkerThreads = RenewalScheduler.DEFAULT_WORKER_THREADS;
     }
 
+    // renewal period when renewals don't follow the token lifetime, otherwise the retry interval after a failed renewal
     private int renewalPeriodMs;
+
+    // soft expiry: how long before expiry a token is renewed rather than handed out as is - when adapting to the token
+    // endpoint latency, its upper bound
     private int preemptiveExpiryMs;
+
+    // point of the remaining token lifetime at which to renew - 0 renews every renewalPeriodMs instead
+    @Min(value = 0, message = "renewalLifetimePercent must be between 0 and 100")
+    @Max(value = 100, message = "renewalLifetimePercent must be between 0 and 100")
+    private int renewalLifetimePercent;
+
+    // up to this share of the delay is randomly taken off each renewal so instances don't renew in lockstep
+    @Min(value = 0, message = "renewalJitterPercent must be between 0 and 100")
+    @Max(value = 100, message = "renewalJitterPercent must be between 0 and 100")
+    private int renewalJitterPercent;
+
+    // preemptive expiry as a multiple of the average token endpoint latency - 0 always uses preemptiveExpiryMs
+    @Min(value = 0, message = "preemptiveExpiryLatencyMultiple must not be negative")
+    private int preemptiveExpiryLatencyMultiple;
+    private int minPreemptiveExpiryMs;
+
+    // ceiling of the first retry delay after a failed renewal, doubled on every further failure up to the max -
+    // 0 retries every renewalPeriodMs instead
+    @Min(value = 0, message = "renewalBackoffInitialMs must not be negative")
+    private int renewalBackoffInitialMs;
+    private int renewalBackoffMaxMs;
+
+    // retries allowed per window - 0 doesn't limit retries
+    @Min(value = 0, message = "renewalRetryBudget must not be negative")
+    private int renewalRetryBudget;
+    private int renewalRetryBudgetWindowMs;
+
+    // consecutive token endpoint failures that open the circuit, and how long it stays open - 0 never opens it
+    @Min(value = 0, message = "circuitBreakerFailureThreshold must not be negative")
+    private int circuitBreakerFailureThreshold;
+    private int circuitBreakerOpenMs;
+
+    // hard expiry: past the soft expiry a token is still handed out until this long before expiry, while it's renewed
+    // in the background - readers only wait on the renewal once it's hard expired
+    private boolean staleWhileRevalidateEnabled;
+    @Min(value = 0, message = "hardExpiryMs must not be negative")
+    private int hardExpiryMs;
+
+    // a 401 response invalidates the token it was sent with and the request is replayed once with a new token - when
+    // error codes are given, only if the WWW-Authenticate error is one of them, otherwise on every 401
+    private boolean invalidateOnUnauthorized;
+    private List<String> invalidatingErrorCodes;
+
+    // file the current token is kept in, encrypted with a key derived from the client credentials key, so a restart
+    // can use it rather than retrieving one first - no file doesn't cache the token
+    private String tokenCacheFile;
+
+    // beans are created without decoding the keystore or retrieving the first token - both run in the background once
+    // the application context has started, and a token requested before then waits on them
+    private boolean lazyStartupEnabled;
+
+    // resolution of renewal deadlines and number of threads retrieving resources, shared by all providers
+    private int schedulerTickMs;
+    private int schedulerWorkerThreads;
 }
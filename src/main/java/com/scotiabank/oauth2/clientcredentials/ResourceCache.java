@@ -0,0 +1,37 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials;
+
+/**
+ * Keeps the current resource of a provider beyond the life of the JVM, so a restarted provider can hand out a resource
+ * that's still valid instead of retrieving one first. Implementations must not throw - a resource that can't be
+ * loaded or stored is simply not cached.
+ */
+public interface ResourceCache<T> {
+
+    @SuppressWarnings("rawtypes")
+    ResourceCache NONE = new ResourceCache() {
+        @Override
+        public ExpiringResource load() {
+            return null;
+        }
+
+        @Override
+        public void store(ExpiringResource resource) {
+        }
+    };
+
+    /**
+     * @return the cached resource, or null if there is none - it may already have expired
+     */
+    ExpiringResource<T> load();
+
+    void store(ExpiringResource<T> resource);
+
+    @SuppressWarnings("unchecked")
+    static <T> ResourceCache<T> none() {
+        return NONE;
+    }
+}
@@ -0,0 +1,53 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials;
+
+/**
+ * Immutable pairing of a resource with its deadlines (milliseconds on the monotonic clock of
+ * {@link CurrentTimeGenerator#getNanoTime()}, fixed when the resource was received): until {@code usableUntilMs} it is
+ * fresh, after {@code staleUntilMs} it must no longer be handed out. In between it is stale - still handed out while a
+ * replacement is retrieved. Instances are published atomically by {@link AutoRenewAsyncResourceProvider} so readers
+ * never observe a resource without its matching deadlines.
+ */
+final class ResourceSnapshot<T> {
+    private final ExpiringResource<T> resource;
+    private final long expiresAtMs;
+    private final long usableUntilMs;
+    private final long staleUntilMs;
+
+    ResourceSnapshot(ExpiringResource<T> resource, long expiresAtMs, long usableUntilMs, long staleUntilMs) {
+        this.resource = resource;
+        this.expiresAtMs = expiresAtMs;
+        this.usableUntilMs = usableUntilMs;
+        this.staleUntilMs = Math.max(usableUntilMs, staleUntilMs);
+    }
+
+    ExpiringResource<T> getResource() {
+        return resource;
+    }
+
+    long getExpiresAtMs() {
+        return expiresAtMs;
+    }
+
+    long getUsableUntilMs() {
+        return usableUntilMs;
+    }
+
+    long getStaleUntilMs() {
+        return staleUntilMs;
+    }
+
+    boolean isUsableAt(long currentTimeMs) {
+        return currentTimeMs < usableUntilMs;
+    }
+
+    /**
+     * @return whether the resource can still be handed out, fresh or stale
+     */
+    boolean isServableAt(long currentTimeMs) {
+        return currentTimeMs < staleUntilMs;
+    }
+}
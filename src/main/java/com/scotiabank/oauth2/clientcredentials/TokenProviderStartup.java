@@ -0,0 +1,88 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials;
+
+import com.scotiabank.oauth2.clientcredentials.key.CryptoProviderWarmUp;
+import com.scotiabank.oauth2.clientcredentials.key.DeferredJwsSigner;
+import com.nimbusds.jose.JWSSigner;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * With lazy startup, starts the token provider once the application context has started.
+ *
+ * Loading the signer, warming up the crypto providers and retrieving the first token all run in the background on the
+ * renewal scheduler's workers; the retrieval only waits on the signer. Without lazy startup everything has already
+ * happened while the beans were created, and starting does nothing.
+ */
+@Slf4j
+public class TokenProviderStartup implements SmartLifecycle {
+
+    private final ExpiringResourceProvider<String> tokenProvider;
+    private final JWSSigner signer;
+    private final RenewalScheduler scheduler;
+    private final ResourceAutoRenewalProperties properties;
+    private volatile boolean running;
+
+    public TokenProviderStartup(ExpiringResourceProvider<String> tokenProvider,
+                                JWSSigner signer,
+                                RenewalScheduler scheduler,
+                                ResourceAutoRenewalProperties properties) {
+        this.tokenProvider = tokenProvider;
+        this.signer = signer;
+        this.scheduler = scheduler;
+        this.properties = properties;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (!properties.isLazyStartupEnabled()) {
+            return;
+        }
+
+        log.info("Starting token provider in the background");
+        if (signer instanceof DeferredJwsSigner) {
+            ((DeferredJwsSigner) signer).load(scheduler::execute);
+        }
+        try {
+            scheduler.execute(CryptoProviderWarmUp::warmUp);
+        } catch (RejectedExecutionException e) {
+            log.info("Renewal scheduler has been shut down - crypto providers not warmed up");
+        }
+        if (tokenProvider instanceof AutoRenewAsyncResourceProvider) {
+            ((AutoRenewAsyncResourceProvider<String>) tokenProvider).start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        stop();
+        callback.run();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    // started after every other lifecycle bean, so the background work doesn't compete with them
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE;
+    }
+}
@@ -5,8 +5,9 @@
 package com.scotiabank.oauth2.clientcredentials;
 
 import com.nimbusds.jwt.JWTClaimsSet;
-import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.JWTParser;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.oauth2.common.OAuth2AccessToken;
 
 import java.text.ParseException;
@@ -16,37 +17,158 @@ import java.util.Optional;
 
 @Slf4j
 public class TokenResource implements ExpiringResource<String> {
+
+    // the Date header and the iat claim are whole seconds, so smaller differences say nothing about the clocks
+    static final long CLOCK_SKEW_TOLERANCE_MS = 2000;
+
     private final String tokenValue;
     private final Instant expiration;
+    private final long clockSkewMs;
+
+    // rendered once per token rather than once per request
+    private final String authorizationHeaderValue;
+
+    // read from the token on first use, as most callers only need its value and expiry
+    private volatile JwtTimeClaims timeClaims;
+    private volatile Optional<JWTClaimsSet> claims;
 
     public TokenResource(OAuth2AccessToken token) {
-        tokenValue = token.getValue();
+        this(token.getValue(), JwtTimeClaims.scan(token.getValue()), Optional.ofNullable(token.getExpiration())
+            .map(Date::toInstant)
+            .orElse(null), 0);
+    }
+
+    /**
+     * Restores a token whose expiration is already known, e.g. one shared by another instance.
+     */
+    public TokenResource(String tokenValue, Instant expiration) {
+        this(tokenValue, expiration, null, 0);
+    }
+
+    private TokenResource(String tokenValue, JwtTimeClaims timeClaims, Instant responseExpiration, long clockSkewMs) {
+        this(tokenValue, expirationOf(timeClaims, responseExpiration, clockSkewMs), timeClaims, clockSkewMs);
+    }
+
+    private TokenResource(String tokenValue, Instant expiration, JwtTimeClaims timeClaims, long clockSkewMs) {
+        this.tokenValue = tokenValue;
+        this.expiration = expiration;
+        this.timeClaims = timeClaims;
+        this.clockSkewMs = clockSkewMs;
+        authorizationHeaderValue = BearerAuthorization.render(tokenValue);
+    }
+
+    /**
+     * Token read from a token response, whose expiry is taken from the token itself if possible.
+     *
+     * @param responseExpiration expiry from the response's expires_in, or null without one
+     */
+    public static TokenResource fromTokenResponse(String tokenValue, Instant responseExpiration) {
+        return new TokenResource(tokenValue, JwtTimeClaims.scan(tokenValue), responseExpiration, 0);
+    }
+
+    /**
+     * Token read from a token response, whose expiry is taken from the token itself if possible and moved onto this
+     * host's clock. How far the issuer's clock is off is estimated from the response's Date header and the token's
+     * iat claim, and only compensated for beyond {@link #CLOCK_SKEW_TOLERANCE_MS}.
+     *
+     * @param responseExpiration expiry from the response's expires_in, or null without one
+     * @param receivedAtMs       when the response was received, by this host's clock
+     * @param responseDateMs     the response's Date header, or -1 without one
+     */
+    public static TokenResource fromTokenResponse(String tokenValue,
+                                                  Instant responseExpiration,
+                                                  long receivedAtMs,
+                                                  long responseDateMs) {
+        JwtTimeClaims timeClaims = JwtTimeClaims.scan(tokenValue);
+        return new TokenResource(tokenValue, timeClaims, responseExpiration,
+            clockSkewOf(timeClaims, receivedAtMs, responseDateMs));
+    }
+
+    /**
+     * @return the Date header of a token response, or -1 without one or with one that can't be parsed
+     */
+    public static long responseDateOf(HttpHeaders responseHeaders) {
+        try {
+            return responseHeaders.getDate();
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed Date header of token response: {}", responseHeaders.getFirst(HttpHeaders.DATE));
+            return -1;
+        }
+    }
+
+    private static long clockSkewOf(JwtTimeClaims timeClaims, long receivedAtMs, long responseDateMs) {
+        // the issuer's clock read the Date as it answered, and at least the iat
+        Instant issuedAt = timeClaims.getIssuedAt();
+        if (responseDateMs >= 0) {
+            long issuerTimeMs = issuedAt != null ? Math.max(responseDateMs, issuedAt.toEpochMilli()) : responseDateMs;
+            return issuerTimeMs - receivedAtMs;
+        }
+        // without a Date, an iat in the past may just be an old token - it only shows an issuer clock ahead
+        return issuedAt != null ? Math.max(0, issuedAt.toEpochMilli() - receivedAtMs) : 0;
+    }
 
-        // if possible, base it on the actual token,
+    private static Instant expirationOf(JwtTimeClaims timeClaims, Instant responseExpiration, long clockSkewMs) {
+        // if possible, base it on the actual token, bounded by the expiry from the response,
         // or base it on expiry from response,
         // or consider it expired
-        expiration = Optional.ofNullable(token.getValue())
-            .map(t -> {
-                try {
-                    return SignedJWT.parse(t);
-                } catch (ParseException e) {
-                    log.error("Unable to base expiry on token - parse exception on token", e);
-                    return null;
-                }
-            })
-            .map(jwt -> {
+        Instant tokenExpiration = timeClaims.getExpiration();
+        if (tokenExpiration == null) {
+            return Optional.ofNullable(responseExpiration)
+                .orElse(Instant.ofEpochMilli(0));
+        }
+
+        // expires_in already counts on this host's clock, exp on the issuer's
+        if (Math.abs(clockSkewMs) > CLOCK_SKEW_TOLERANCE_MS) {
+            log.warn("Issuer clock is {} ms off this host's clock - moving token expiry onto this host's clock", clockSkewMs);
+            tokenExpiration = tokenExpiration.minusMillis(clockSkewMs);
+        }
+        return responseExpiration != null && responseExpiration.isBefore(tokenExpiration)
+            ? responseExpiration
+            : tokenExpiration;
+    }
+
+    /**
+     * @return the token's iat claim, if it is a JWT with one
+     */
+    public Optional<Instant> getIssuedAt() {
+        return Optional.ofNullable(timeClaims().getIssuedAt());
+    }
+
+    /**
+     * @return the token's nbf claim, if it is a JWT with one
+     */
+    public Optional<Instant> getNotBefore() {
+        return Optional.ofNullable(timeClaims().getNotBefore());
+    }
+
+    /**
+     * All of the token's claims, parsed on first call.
+     *
+     * @return the claims, or empty if the token is not a JWT or they cannot be read
+     */
+    public Optional<JWTClaimsSet> getClaims() {
+        Optional<JWTClaimsSet> result = claims;
+        if (result == null) {
+            result = Optional.empty();
+            if (timeClaims().isJwt()) {
                 try {
-                    return jwt.getJWTClaimsSet();
+                    result = Optional.ofNullable(JWTParser.parse(tokenValue).getJWTClaimsSet());
                 } catch (ParseException e) {
-                    log.error("Unable to base expiry on token - parse exception on claims", e);
-                    return null;
+                    log.error("Unable to read token claims - parse exception on token", e);
                 }
-            })
-            .map(JWTClaimsSet::getExpirationTime)
-            .map(Date::toInstant)
-            .orElse(Optional.ofNullable(token.getExpiration())
-                .map(Date::toInstant)
-                .orElse(Instant.ofEpochMilli(0)));
+            }
+            claims = result;
+        }
+        return result;
+    }
+
+    private JwtTimeClaims timeClaims() {
+        JwtTimeClaims result = timeClaims;
+        if (result == null) {
+            result = JwtTimeClaims.scan(tokenValue);
+            timeClaims = result;
+        }
+        return result;
     }
 
     @Override
@@ -58,4 +180,14 @@ public class TokenResource implements ExpiringResource<String> {
     public String getValue() {
         return tokenValue;
     }
+
+    @Override
+    public long getClockSkewMs() {
+        return clockSkewMs;
+    }
+
+    @Override
+    public String getAuthorizationHeaderValue() {
+        return authorizationHeaderValue;
+    }
 }
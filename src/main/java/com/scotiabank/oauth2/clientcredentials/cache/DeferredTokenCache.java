@@ -0,0 +1,59 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.cache;
+
+import com.scotiabank.oauth2.clientcredentials.ExpiringResource;
+import com.scotiabank.oauth2.clientcredentials.ResourceCache;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Cache created on first use, so that the key it's encrypted with is only derived once the token is first loaded or
+ * stored. A cache that can't be created doesn't cache anything.
+ */
+@Slf4j
+class DeferredTokenCache implements ResourceCache<String> {
+
+    private final Callable<ResourceCache<String>> factory;
+    private volatile ResourceCache<String> delegate;
+
+    DeferredTokenCache(Callable<ResourceCache<String>> factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public ExpiringResource<String> load() {
+        return delegate().load();
+    }
+
+    @Override
+    public void store(ExpiringResource<String> resource) {
+        delegate().store(resource);
+    }
+
+    private ResourceCache<String> delegate() {
+        ResourceCache<String> created = delegate;
+        if (created == null) {
+            synchronized (this) {
+                created = delegate;
+                if (created == null) {
+                    created = create();
+                    delegate = created;
+                }
+            }
+        }
+        return created;
+    }
+
+    private ResourceCache<String> create() {
+        try {
+            return factory.call();
+        } catch (Exception e) {
+            log.error("Token cache couldn't be created - the token won't be cached", e);
+            return ResourceCache.none();
+        }
+    }
+}
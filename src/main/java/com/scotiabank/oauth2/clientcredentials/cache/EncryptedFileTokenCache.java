@@ -0,0 +1,203 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.cache;
+
+import com.scotiabank.oauth2.clientcredentials.ClientCredentialsConfigurationException;
+import com.scotiabank.oauth2.clientcredentials.ExpiringResource;
+import com.scotiabank.oauth2.clientcredentials.ResourceCache;
+import com.scotiabank.oauth2.clientcredentials.TokenResource;
+import com.scotiabank.oauth2.clientcredentials.registry.TokenKey;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.time.Instant;
+
+/**
+ * Caches the current token in a file, encrypted with AES-GCM under a key derived from the client credentials key, so
+ * only an instance holding the same keystore can read it back. The client id, token url and scopes the token was
+ * requested for are authenticated along with it, so a file written for another client or scope set is never restored
+ * even where clients share a key.
+ *
+ * The file is replaced by writing a temporary file next to it and renaming it over the old one, so a reader - or a
+ * restart halfway through a write - sees either the previous token or the new one, never a partial file. A file that
+ * can't be decrypted, e.g. after the key was rotated or the scopes changed, is treated as empty.
+ */
+@Slf4j
+public class EncryptedFileTokenCache implements ResourceCache<String> {
+
+    // 2 authenticates the token key - files written without it can't be restored
+    private static final byte FORMAT_VERSION = 2;
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+    private static final String KEY_DERIVATION_LABEL = "oauth2-client-credentials token cache";
+
+    private final Path file;
+    private final SecretKey key;
+    private final byte[] aad;
+    private final SecureRandom random = new SecureRandom();
+
+    public EncryptedFileTokenCache(Path file, SecretKey key, TokenKey tokenKey) {
+        this.file = file;
+        this.key = key;
+        this.aad = associatedData(tokenKey);
+    }
+
+    /**
+     * Derives the cache key from the private key - the encoded key is already high entropy, so a single HMAC over a
+     * fixed label is enough to separate the cache key from the signing key.
+     */
+    public static SecretKey deriveKey(PrivateKey privateKey) throws ClientCredentialsConfigurationException {
+        byte[] encoded = privateKey.getEncoded();
+        if (encoded == null) {
+            throw new ClientCredentialsConfigurationException("Token cache key can't be derived from a non-extractable client credentials key");
+        }
+
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(encoded, "HmacSHA256"));
+            return new SecretKeySpec(mac.doFinal(KEY_DERIVATION_LABEL.getBytes(StandardCharsets.UTF_8)), "AES");
+        } catch (GeneralSecurityException e) {
+            throw new ClientCredentialsConfigurationException("Unable to derive token cache key", e);
+        }
+    }
+
+    @Override
+    public ExpiringResource<String> load() {
+        byte[] contents;
+        try {
+            contents = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            log.info("No cached token at {}", file);
+            return null;
+        } catch (IOException e) {
+            log.warn("Unable to read cached token at {}", file, e);
+            return null;
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(contents);
+            if (buffer.get() != FORMAT_VERSION) {
+                log.warn("Ignoring cached token at {} - unknown format", file);
+                return null;
+            }
+
+            byte[] iv = new byte[IV_BYTES];
+            buffer.get(iv);
+
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(aad);
+            ByteBuffer plain = ByteBuffer.wrap(cipher.doFinal(contents, buffer.position(), buffer.remaining()));
+
+            long expirationMs = plain.getLong();
+            String value = StandardCharsets.UTF_8.decode(plain).toString();
+
+            log.info("Loaded cached token from {}", file);
+            return new TokenResource(value, Instant.ofEpochMilli(expirationMs));
+        } catch (GeneralSecurityException | RuntimeException e) {
+            log.warn("Ignoring cached token at {} - unable to decrypt it", file, e);
+            return null;
+        }
+    }
+
+    @Override
+    public void store(ExpiringResource<String> resource) {
+        Path temporary = null;
+        try {
+            byte[] value = resource.getValue().getBytes(StandardCharsets.UTF_8);
+            ByteBuffer plain = ByteBuffer.allocate(Long.BYTES + value.length);
+            plain.putLong(resource.getExpiration().toEpochMilli());
+            plain.put(value);
+
+            byte[] iv = new byte[IV_BYTES];
+            random.nextBytes(iv);
+
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(aad);
+            byte[] encrypted = cipher.doFinal(plain.array());
+
+            ByteBuffer contents = ByteBuffer.allocate(1 + IV_BYTES + encrypted.length);
+            contents.put(FORMAT_VERSION);
+            contents.put(iv);
+            contents.put(encrypted);
+
+            temporary = createTemporaryFile();
+            Files.write(temporary, contents.array());
+            moveOverCacheFile(temporary);
+            log.info("Stored token in cache at {}", file);
+        } catch (GeneralSecurityException | IOException | RuntimeException e) {
+            log.warn("Unable to store token in cache at {}", file, e);
+            deleteQuietly(temporary);
+        }
+    }
+
+    // length-prefixed so that adjacent values can't be shifted into each other - scopes are already sorted
+    private static byte[] associatedData(TokenKey tokenKey) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(tokenKey.getClientId());
+            out.writeUTF(tokenKey.getTokenUrl());
+            out.writeInt(tokenKey.getScopes().size());
+            for (String scope : tokenKey.getScopes()) {
+                out.writeUTF(scope);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to encode token key " + tokenKey, e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private Path createTemporaryFile() throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        // same directory as the cache file so the rename stays on one file system
+        String prefix = "." + file.getFileName();
+        if (Files.getFileStore(directory).supportsFileAttributeView("posix")) {
+            return Files.createTempFile(directory, prefix, ".tmp",
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        }
+        return Files.createTempFile(directory, prefix, ".tmp");
+    }
+
+    private void moveOverCacheFile(Path temporary) throws IOException {
+        try {
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            log.debug("Atomic rename not supported at {} - replacing cached token non-atomically", file);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void deleteQuietly(Path temporary) {
+        if (temporary == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(temporary);
+        } catch (IOException e) {
+            log.debug("Unable to delete temporary token cache file {}", temporary, e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.cache;
+
+import com.scotiabank.oauth2.clientcredentials.ClientCredentialsConfigurationException;
+import com.scotiabank.oauth2.clientcredentials.ResourceAutoRenewalProperties;
+import com.scotiabank.oauth2.clientcredentials.ResourceCache;
+import com.scotiabank.oauth2.clientcredentials.registry.TokenKey;
+import com.scotiabank.oauth2.clientcredentials.request.ClientCredentialsAssertionGenerationProperties;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.client.token.grant.client.ClientCredentialsResourceDetails;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.PrivateKey;
+
+/**
+ * Caches the token on disk when a cache file is configured, and doesn't cache it otherwise. With lazy startup the
+ * cache key is only derived from the client credentials key once the token is first loaded or stored. The cached token
+ * is bound to the client, token url and scopes it's requested for.
+ */
+@Configuration
+public class TokenCacheConfig {
+
+    @Bean("com.scotiabank.oauth2.clientcredentials.cache TokenCache")
+    public ResourceCache<String> tokenCache(ResourceAutoRenewalProperties tokenManagementProperties,
+                                            @Qualifier("com.scotiabank.oauth2.clientcredentials PrivateKey") ObjectFactory<PrivateKey> privateKey,
+                                            ClientCredentialsResourceDetails resource,
+                                            ClientCredentialsAssertionGenerationProperties assertionProperties) throws ClientCredentialsConfigurationException {
+        String cacheFile = tokenManagementProperties.getTokenCacheFile();
+        if (cacheFile == null || cacheFile.isEmpty()) {
+            return ResourceCache.none();
+        }
+
+        Path file = Paths.get(cacheFile);
+        TokenKey tokenKey = new TokenKey(assertionProperties.getClientId(), resource.getAccessTokenUri(), resource.getScope());
+        if (tokenManagementProperties.isLazyStartupEnabled()) {
+            return new DeferredTokenCache(() -> new EncryptedFileTokenCache(file, EncryptedFileTokenCache.deriveKey(privateKey.getObject()), tokenKey));
+        }
+        return new EncryptedFileTokenCache(file, EncryptedFileTokenCache.deriveKey(privateKey.getObject()), tokenKey);
+    }
+}
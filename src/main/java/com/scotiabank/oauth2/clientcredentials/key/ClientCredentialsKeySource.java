@@ -0,0 +1,29 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.key;
+
+/**
+ * Where a client credentials key is read from, in order of precedence:
+ *
+ * - a private key file: PKCS#8 PEM, encrypted with the key password or not, or a JWK
+ * - a keystore file
+ * - a keystore inline in base64
+ */
+public interface ClientCredentialsKeySource {
+
+    String getPrivateKeyFile();
+
+    String getKeyStoreFile();
+
+    String getKeyStoreBase64();
+
+    String getKeyStorePasswordBase64();
+
+    String getKeyStoreFormat();
+
+    String getKeyName();
+
+    String getKeyPasswordBase64();
+}
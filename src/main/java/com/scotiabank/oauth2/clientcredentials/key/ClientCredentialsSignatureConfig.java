@@ -5,36 +5,36 @@
 package com.scotiabank.oauth2.clientcredentials.key;
 
 import com.scotiabank.oauth2.clientcredentials.ClientCredentialsConfigurationException;
+import com.scotiabank.oauth2.clientcredentials.RenewalScheduler;
+import com.scotiabank.oauth2.clientcredentials.ResourceAutoRenewalProperties;
 import com.nimbusds.jose.JWSSigner;
-import com.nimbusds.jose.crypto.RSASSASigner;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
-import java.io.IOException;
-import java.security.GeneralSecurityException;
-import java.security.KeyStore;
 import java.security.PrivateKey;
 
 @Configuration
 public class ClientCredentialsSignatureConfig {
 
-    @Bean("com.scotiabank.oauth2.clientcredentials KeyStore")
-    KeyStore keyStore(KeyStoreDecoder keyStoreDecoder,
-                      ClientCredentialsSignatureProperties properties) throws ClientCredentialsConfigurationException {
-        return keyStoreDecoder.decode(
-            properties.getKeyStoreBase64(),
-            properties.getKeyStorePasswordBase64(),
-            properties.getKeyStoreFormat());
+    // only loaded once it's needed - with lazy startup, in the background after the context has started
+    @Bean("com.scotiabank.oauth2.clientcredentials PrivateKey")
+    @Lazy
+    public PrivateKey privateKey(ClientCredentialsKeyLoader keyLoader,
+                                 ClientCredentialsSignatureProperties properties) throws ClientCredentialsConfigurationException {
+        return keyLoader.loadPrivateKey(properties);
     }
 
     @Bean("com.scotiabank.oauth2.clientcredentials JwsSigner")
-    public JWSSigner jwsSigner(Base64Decoder base64Decoder,
-                               @Qualifier("com.scotiabank.oauth2.clientcredentials KeyStore") KeyStore keyStore,
-                               ClientCredentialsSignatureProperties properties) throws GeneralSecurityException, IOException, ClientCredentialsConfigurationException {
-        PrivateKey key =  (PrivateKey) keyStore.getKey(
-            properties.getKeyName(),
-            base64Decoder.decodeBase64CharArray(properties.getKeyPasswordBase64()));
-        return new RSASSASigner(key);
+    public JWSSigner jwsSigner(ClientCredentialsKeyLoader keyLoader,
+                               ClientCredentialsSignatureProperties properties,
+                               ResourceAutoRenewalProperties tokenManagementProperties,
+                               @Qualifier("com.scotiabank.oauth2.clientcredentials RenewalScheduler") RenewalScheduler scheduler) throws ClientCredentialsConfigurationException {
+        long reloadPeriodMs = properties.getKeyReloadPeriodMs();
+        if (tokenManagementProperties.isLazyStartupEnabled()) {
+            return new DeferredJwsSigner(() -> keyLoader.loadSigner(properties, scheduler, reloadPeriodMs));
+        }
+        return keyLoader.loadSigner(properties, scheduler, reloadPeriodMs);
     }
 }
@@ -8,12 +8,19 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.Size;
 
 @Getter
 @Setter
 @ConfigurationProperties(prefix = "oauth2.clientcredentials")
-public class ClientCredentialsSignatureProperties {
+public class ClientCredentialsSignatureProperties implements ClientCredentialsKeySource {
+    // PKCS#8 PEM, encrypted with keyPasswordBase64 or not, or JWK file holding the key - used instead of a keystore
+    private String privateKeyFile;
+
+    // keystore file - used instead of keyStoreBase64
+    private String keyStoreFile;
+
     @Size(min = 1, message = "keyStoreBase64 must be populated with a base64 encoded keystore")
     private String keyStoreBase64;
 
@@ -28,4 +35,8 @@ public class ClientCredentialsSignatureProperties {
 
     @Size(min = 1, message = "keyPasswordBase64 must be populated with the client credential key's password base64 encoded")
     private String keyPasswordBase64;
+
+    // how often privateKeyFile or keyStoreFile is checked for a rotated key - 0 never reloads the key
+    @Min(value = 0, message = "keyReloadPeriodMs must not be negative")
+    private long keyReloadPeriodMs;
 }
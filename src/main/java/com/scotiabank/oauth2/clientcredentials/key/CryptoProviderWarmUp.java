@@ -0,0 +1,57 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.key;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.net.ssl.SSLContext;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.security.Signature;
+
+/**
+ * Looks up the JCA services used to sign assertions and call the token endpoint, so that provider lookup, class
+ * loading and seeding happen ahead of the first token request rather than during it.
+ */
+@Slf4j
+public final class CryptoProviderWarmUp {
+
+    private static final String[] SIGNATURES = {"SHA256withRSA", "SHA256withECDSA"};
+    private static final String[] KEY_FACTORIES = {"RSA", "EC"};
+
+    private CryptoProviderWarmUp() {
+    }
+
+    public static void warmUp() {
+        long start = System.nanoTime();
+
+        for (String algorithm : SIGNATURES) {
+            try {
+                Signature.getInstance(algorithm);
+            } catch (GeneralSecurityException e) {
+                log.debug("Signature {} not available", algorithm);
+            }
+        }
+        for (String algorithm : KEY_FACTORIES) {
+            try {
+                KeyFactory.getInstance(algorithm);
+            } catch (GeneralSecurityException e) {
+                log.debug("Key factory {} not available", algorithm);
+            }
+        }
+
+        try {
+            MessageDigest.getInstance("SHA-256");
+            new SecureRandom().nextBytes(new byte[16]);
+            SSLContext.getDefault();
+        } catch (GeneralSecurityException e) {
+            log.debug("Default TLS context not available", e);
+        }
+
+        log.info("Crypto providers warmed up in {} ms", (System.nanoTime() - start) / 1000000);
+    }
+}
@@ -0,0 +1,121 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.key;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.jca.JCAContext;
+import com.nimbusds.jose.util.Base64URL;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Signer whose key is loaded on first use rather than when it's constructed, so that decoding the keystore and
+ * building the signer can run in the background while the application starts.
+ *
+ * The signer is loaded once, either ahead of time on an executor or by the first caller that needs it - every other
+ * caller waits on that load. A failed load is reported to every caller.
+ */
+@Slf4j
+public class DeferredJwsSigner implements JWSSigner {
+
+    private final Callable<JWSSigner> loader;
+    private final AtomicReference<CompletableFuture<JWSSigner>> signer = new AtomicReference<>();
+    private final JCAContext jcaContext = new JCAContext();
+
+    public DeferredJwsSigner(Callable<JWSSigner> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Starts loading the signer on the executor unless it's already loading.
+     *
+     * @return the signer once loaded
+     */
+    public CompletableFuture<JWSSigner> load(Executor executor) {
+        CompletableFuture<JWSSigner> loading = new CompletableFuture<>();
+        if (!signer.compareAndSet(null, loading)) {
+            return signer.get();
+        }
+
+        try {
+            executor.execute(() -> load(loading));
+        } catch (RejectedExecutionException e) {
+            log.info("Executor has been shut down - loading signer inline");
+            load(loading);
+        }
+        return loading;
+    }
+
+    /**
+     * @return whether the signer has been loaded, successfully or not
+     */
+    public boolean isLoaded() {
+        CompletableFuture<JWSSigner> loading = signer.get();
+        return loading != null && loading.isDone();
+    }
+
+    /**
+     * @return the signer, loading it inline if it isn't loading yet or waiting on the load in progress
+     */
+    public JWSSigner get() throws JOSEException {
+        CompletableFuture<JWSSigner> loading = new CompletableFuture<>();
+        if (signer.compareAndSet(null, loading)) {
+            load(loading);
+        } else {
+            loading = signer.get();
+        }
+
+        try {
+            return loading.get();
+        } catch (ExecutionException e) {
+            throw new JOSEException("Client credentials key couldn't be loaded", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JOSEException("Interrupted while loading the client credentials key", e);
+        }
+    }
+
+    private void load(CompletableFuture<JWSSigner> loading) {
+        log.info("Loading client credentials key");
+        try {
+            loading.complete(loader.call());
+        } catch (Exception e) {
+            log.error("Client credentials key couldn't be loaded", e);
+            loading.completeExceptionally(e);
+        }
+    }
+
+    @Override
+    public Base64URL sign(JWSHeader header, byte[] signingInput) throws JOSEException {
+        return get().sign(header, signingInput);
+    }
+
+    @Override
+    public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+        try {
+            return get().supportedJWSAlgorithms();
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return a context of its own - the loaded signer uses its own context when signing
+     */
+    @Override
+    public JCAContext getJCAContext() {
+        return jcaContext;
+    }
+}
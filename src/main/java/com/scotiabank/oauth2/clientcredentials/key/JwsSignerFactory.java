@@ -0,0 +1,45 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.key;
+
+import com.scotiabank.oauth2.clientcredentials.ClientCredentialsConfigurationException;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import org.springframework.stereotype.Component;
+
+import java.security.PrivateKey;
+import java.security.interfaces.ECPrivateKey;
+
+/**
+ * Creates the signer matching the type of the client credentials key - RSA keys sign with RSASSA (RS256 or PS256) and
+ * EC keys with ECDSA on the key's curve (ES256, ES384 or ES512).
+ */
+@Component("com.scotiabank.oauth2.clientcredentials.key JwsSignerFactory")
+public class JwsSignerFactory {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(JwsSignerFactory.class);
+
+    public JWSSigner createSigner(PrivateKey key) throws ClientCredentialsConfigurationException {
+        String keyAlgorithm = key.getAlgorithm();
+
+        if ("RSA".equals(keyAlgorithm)) {
+            return new RSASSASigner(key);
+        }
+
+        if ("EC".equals(keyAlgorithm) && key instanceof ECPrivateKey) {
+            try {
+                return new ECDSASigner((ECPrivateKey) key);
+            } catch (JOSEException e) {
+                log.error("Unsupported EC key curve", e);
+                throw new ClientCredentialsConfigurationException("Unsupported EC key curve", e);
+            }
+        }
+
+        // EdDSA keys from the keystore can't be used - the JOSE library only signs EdDSA with its own key format
+        throw new ClientCredentialsConfigurationException("Unsupported client credentials key type: " + keyAlgorithm);
+    }
+}
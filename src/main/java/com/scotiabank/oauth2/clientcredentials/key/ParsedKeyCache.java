@@ -0,0 +1,81 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.key;
+
+import com.scotiabank.oauth2.clientcredentials.ClientCredentialsConfigurationException;
+import com.google.common.cache.CacheBuilder;
+import com.nimbusds.jose.JWSSigner;
+
+import java.security.PrivateKey;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keys and signers already parsed, by a hash of the key material and the passwords protecting it, so that application
+ * contexts and clients configured with the same key only parse it once per JVM.
+ *
+ * A key replaced by a reload is dropped as soon as its signer is swapped out, and the cache holds at most
+ * {@link #MAX_KEYS} keys otherwise, least recently used first out, so that keys rotated over the life of the JVM don't
+ * pile up in it.
+ */
+class ParsedKeyCache {
+
+    static final int MAX_KEYS = 64;
+
+    private static final ParsedKeyCache DEFAULT = new ParsedKeyCache();
+
+    private final ConcurrentMap<String, PrivateKey> keys = bounded();
+    private final ConcurrentMap<String, JWSSigner> signers = bounded();
+
+    static ParsedKeyCache getDefault() {
+        return DEFAULT;
+    }
+
+    PrivateKey privateKey(String hash, Parser<PrivateKey> parser) throws ClientCredentialsConfigurationException {
+        return get(keys, hash, parser);
+    }
+
+    JWSSigner signer(String hash, Parser<JWSSigner> parser) throws ClientCredentialsConfigurationException {
+        return get(signers, hash, parser);
+    }
+
+    /**
+     * Drops the signer, and the key it was built from, once nothing should sign with it any more.
+     */
+    void evict(JWSSigner signer) {
+        for (Map.Entry<String, JWSSigner> entry : signers.entrySet()) {
+            if (entry.getValue() == signer && signers.remove(entry.getKey(), signer)) {
+                keys.remove(entry.getKey());
+            }
+        }
+    }
+
+    int size() {
+        return keys.size();
+    }
+
+    private static <T> ConcurrentMap<String, T> bounded() {
+        // one segment, so the bound is on all keys rather than on each segment's share of them
+        return CacheBuilder.newBuilder().concurrencyLevel(1).maximumSize(MAX_KEYS).<String, T>build().asMap();
+    }
+
+    // parsed outside of the map so a slow parse doesn't block other keys - concurrent parses of one key keep the first
+    private static <T> T get(ConcurrentMap<String, T> parsed, String hash, Parser<T> parser) throws ClientCredentialsConfigurationException {
+        T value = parsed.get(hash);
+        if (value == null) {
+            value = parser.parse();
+            T raced = parsed.putIfAbsent(hash, value);
+            if (raced != null) {
+                value = raced;
+            }
+        }
+        return value;
+    }
+
+    @FunctionalInterface
+    interface Parser<T> {
+        T parse() throws ClientCredentialsConfigurationException;
+    }
+}
@@ -0,0 +1,135 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.key;
+
+import com.scotiabank.oauth2.clientcredentials.RenewalScheduler;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.jca.JCAContext;
+import com.nimbusds.jose.util.Base64URL;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Signer whose key can be swapped while it's in use, so that a rotated client credentials key is picked up without
+ * restarting the application.
+ *
+ * A reload loads the key again and, when it has changed, only swaps the new signer in once it has made a test
+ * signature. Each signature is made whole with the signer current when it started. The new key has to support every
+ * algorithm the current one does, so that assertion headers stay valid - a key of another type or curve is rejected
+ * and the current key kept. The signer swapped out is handed to the given callback, so whatever cached it can let it go.
+ */
+@Slf4j
+public class ReloadingJwsSigner implements JWSSigner {
+
+    private static final byte[] TEST_SIGNING_INPUT = "client-credentials-key-check".getBytes(StandardCharsets.US_ASCII);
+
+    private final Callable<JWSSigner> loader;
+    private final Consumer<JWSSigner> replaced;
+    private final AtomicReference<JWSSigner> current;
+    private final JCAContext jcaContext = new JCAContext();
+
+    public ReloadingJwsSigner(JWSSigner initial, Callable<JWSSigner> loader) {
+        this(initial, loader, signer -> { });
+    }
+
+    public ReloadingJwsSigner(JWSSigner initial, Callable<JWSSigner> loader, Consumer<JWSSigner> replaced) {
+        this.loader = loader;
+        this.replaced = replaced;
+        this.current = new AtomicReference<>(initial);
+    }
+
+    /**
+     * Reloads the key every period on the scheduler's workers.
+     */
+    public RenewalScheduler.Timeout scheduleReload(RenewalScheduler scheduler, long periodMs) {
+        return scheduler.scheduleAtFixedRate(this::reload, periodMs, periodMs);
+    }
+
+    /**
+     * @return whether a new key was swapped in - an unchanged key, or one that can't be loaded or fails the test
+     * signature, leaves the current key in place
+     */
+    public boolean reload() {
+        JWSSigner active = current.get();
+        JWSSigner candidate;
+        try {
+            candidate = loader.call();
+        } catch (Exception e) {
+            log.error("Client credentials key couldn't be reloaded - keeping the current key", e);
+            return false;
+        }
+
+        // the key loader hands out the same signer for the same key material
+        if (candidate == null || candidate == active) {
+            return false;
+        }
+
+        try {
+            check(active, candidate);
+        } catch (JOSEException | RuntimeException e) {
+            log.error("Reloaded client credentials key can't be used - keeping the current key", e);
+            return false;
+        }
+
+        if (!current.compareAndSet(active, candidate)) {
+            return false;
+        }
+        log.info("Client credentials key reloaded");
+        replaced.accept(active);
+        return true;
+    }
+
+    /**
+     * @return the signer in use
+     */
+    public JWSSigner current() {
+        return current.get();
+    }
+
+    private static void check(JWSSigner active, JWSSigner candidate) throws JOSEException {
+        Set<JWSAlgorithm> required = active.supportedJWSAlgorithms();
+        Set<JWSAlgorithm> supported = candidate.supportedJWSAlgorithms();
+        if (!supported.containsAll(required)) {
+            throw new JOSEException("Reloaded key supports " + supported + " rather than " + required);
+        }
+        // one signature proves the key usable - some algorithms need a crypto provider that may not be installed
+        JOSEException failure = new JOSEException("Reloaded key supports no algorithm");
+        for (JWSAlgorithm algorithm : required) {
+            try {
+                candidate.sign(new JWSHeader(algorithm), TEST_SIGNING_INPUT);
+                return;
+            } catch (JOSEException e) {
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    @Override
+    public Base64URL sign(JWSHeader header, byte[] signingInput) throws JOSEException {
+        return current.get().sign(header, signingInput);
+    }
+
+    @Override
+    public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+        return current.get().supportedJWSAlgorithms();
+    }
+
+    /**
+     * @return a context of its own - the current signer uses its own context when signing
+     */
+    @Override
+    public JCAContext getJCAContext() {
+        return jcaContext;
+    }
+}
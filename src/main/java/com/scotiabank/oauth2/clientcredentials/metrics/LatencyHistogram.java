@@ -0,0 +1,77 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with power-of-two microsecond buckets, recorded into striped counters so concurrent recording
+ * doesn't contend. Percentiles are reported as the upper bound of the bucket they fall in.
+ */
+public final class LatencyHistogram {
+
+    // bucket i counts values below 2^i microseconds, the last one everything from about 17 seconds up
+    private static final int BUCKETS = 26;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(TimeUnit.NANOSECONDS.toMicros(value)));
+
+        buckets[bucket].increment();
+        count.increment();
+        totalNanos.add(value);
+        maxNanos.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public double getMeanNanos() {
+        long samples = count.sum();
+        return samples == 0 ? 0 : (double) totalNanos.sum() / samples;
+    }
+
+    /**
+     * @param quantile between 0 and 1
+     */
+    public long getPercentileNanos(double quantile) {
+        long samples = count.sum();
+        if (samples == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * samples));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            seen += buckets[i].sum();
+            if (seen >= rank) {
+                return Math.min(TimeUnit.MICROSECONDS.toNanos(1L << i), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+}
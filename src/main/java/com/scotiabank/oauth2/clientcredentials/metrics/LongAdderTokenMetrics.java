@@ -0,0 +1,119 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps token metrics in memory for exporters to read. Everything is recorded into {@link LongAdder}s, so readers
+ * counting hits on the hot path never contend with each other.
+ */
+public class LongAdderTokenMetrics implements TokenMetrics {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder coldMisses = new LongAdder();
+    private final LongAdder fetchSuccesses = new LongAdder();
+    private final Map<String, LongAdder> fetchFailures = new ConcurrentHashMap<>();
+    private final LatencyHistogram fetchLatency = new LatencyHistogram();
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+    private final List<Consumer<String>> failureCauseListeners = new CopyOnWriteArrayList<>();
+
+    private volatile LongSupplier remainingLifetimeMs = () -> 0;
+    private volatile LongSupplier clockSkewMs = () -> 0;
+
+    @Override
+    public void recordHit() {
+        hits.increment();
+    }
+
+    @Override
+    public void recordColdMiss() {
+        coldMisses.increment();
+    }
+
+    @Override
+    public void recordWait(long waitNanos) {
+        waitTime.record(waitNanos);
+    }
+
+    @Override
+    public void recordFetchSuccess(long latencyNanos) {
+        fetchLatency.record(latencyNanos);
+        fetchSuccesses.increment();
+    }
+
+    @Override
+    public void recordFetchFailure(long latencyNanos, String cause) {
+        fetchLatency.record(latencyNanos);
+
+        LongAdder failures = fetchFailures.get(cause);
+        if (failures == null) {
+            LongAdder created = new LongAdder();
+            failures = fetchFailures.putIfAbsent(cause, created);
+            if (failures == null) {
+                failures = created;
+                failureCauseListeners.forEach(listener -> listener.accept(cause));
+            }
+        }
+        failures.increment();
+    }
+
+    @Override
+    public void bindRemainingLifetime(LongSupplier remainingLifetimeMs) {
+        this.remainingLifetimeMs = remainingLifetimeMs;
+    }
+
+    @Override
+    public void bindClockSkew(LongSupplier clockSkewMs) {
+        this.clockSkewMs = clockSkewMs;
+    }
+
+    /**
+     * Calls the listener with every failure cause seen so far and with every new one as it's first recorded.
+     */
+    public void forEachFailureCause(Consumer<String> listener) {
+        failureCauseListeners.add(listener);
+        fetchFailures.keySet().forEach(listener);
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getColdMissCount() {
+        return coldMisses.sum();
+    }
+
+    public long getFetchSuccessCount() {
+        return fetchSuccesses.sum();
+    }
+
+    public long getFetchFailureCount(String cause) {
+        LongAdder failures = fetchFailures.get(cause);
+        return failures != null ? failures.sum() : 0;
+    }
+
+    public LatencyHistogram getFetchLatency() {
+        return fetchLatency;
+    }
+
+    public LatencyHistogram getWaitTime() {
+        return waitTime;
+    }
+
+    public long getRemainingLifetimeMs() {
+        return remainingLifetimeMs.getAsLong();
+    }
+
+    public long getClockSkewMs() {
+        return clockSkewMs.getAsLong();
+    }
+}
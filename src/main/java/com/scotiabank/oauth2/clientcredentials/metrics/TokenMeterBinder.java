@@ -0,0 +1,67 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registers token metrics with a Micrometer registry. Meters read the striped counters when the registry polls them,
+ * so recording never goes through the registry.
+ */
+public class TokenMeterBinder implements MeterBinder {
+
+    private static final String PREFIX = TokenPublicMetrics.PREFIX;
+
+    private final LongAdderTokenMetrics metrics;
+
+    public TokenMeterBinder(LongAdderTokenMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder(PREFIX + "hit", metrics, LongAdderTokenMetrics::getHitCount)
+            .description("Token reads served from the current token")
+            .register(registry);
+        FunctionCounter.builder(PREFIX + "miss", metrics, LongAdderTokenMetrics::getColdMissCount)
+            .description("Token reads that had to wait on a retrieval")
+            .register(registry);
+        FunctionCounter.builder(PREFIX + "fetch.success", metrics, LongAdderTokenMetrics::getFetchSuccessCount)
+            .register(registry);
+        metrics.forEachFailureCause(cause ->
+            FunctionCounter.builder(PREFIX + "fetch.failure", metrics, m -> m.getFetchFailureCount(cause))
+                .tag("cause", cause)
+                .register(registry));
+
+        bindHistogram(registry, PREFIX + "fetch.latency", metrics.getFetchLatency());
+        bindHistogram(registry, PREFIX + "wait", metrics.getWaitTime());
+
+        Gauge.builder(PREFIX + "remaining.lifetime", metrics, LongAdderTokenMetrics::getRemainingLifetimeMs)
+            .baseUnit("milliseconds")
+            .register(registry);
+        Gauge.builder(PREFIX + "clock.skew", metrics, LongAdderTokenMetrics::getClockSkewMs)
+            .description("How far the issuer's clock is ahead of this host's")
+            .baseUnit("milliseconds")
+            .register(registry);
+    }
+
+    private static void bindHistogram(MeterRegistry registry, String name, LatencyHistogram histogram) {
+        FunctionTimer.builder(name, histogram, LatencyHistogram::getCount, LatencyHistogram::getTotalNanos,
+                TimeUnit.NANOSECONDS)
+            .register(registry);
+        Gauge.builder(name + ".p99", histogram, h -> h.getPercentileNanos(0.99) / (double) TimeUnit.MILLISECONDS.toNanos(1))
+            .baseUnit("milliseconds")
+            .register(registry);
+        Gauge.builder(name + ".max", histogram, h -> h.getMaxNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1))
+            .baseUnit("milliseconds")
+            .register(registry);
+    }
+}
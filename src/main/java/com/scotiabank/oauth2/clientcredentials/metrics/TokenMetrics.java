@@ -0,0 +1,120 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Receives the lifecycle events of a token provider. Implementations are called on the read path, so they must not
+ * block or contend. The gauges of an instance follow a single provider - further providers recording into it do so
+ * through {@link #withoutGauges()}.
+ */
+public interface TokenMetrics {
+
+    TokenMetrics NOOP = new TokenMetrics() {
+        @Override
+        public void recordHit() {
+        }
+
+        @Override
+        public void recordColdMiss() {
+        }
+
+        @Override
+        public void recordWait(long waitNanos) {
+        }
+
+        @Override
+        public void recordFetchSuccess(long latencyNanos) {
+        }
+
+        @Override
+        public void recordFetchFailure(long latencyNanos, String cause) {
+        }
+
+        @Override
+        public void bindRemainingLifetime(LongSupplier remainingLifetimeMs) {
+        }
+
+        @Override
+        public void bindClockSkew(LongSupplier clockSkewMs) {
+        }
+    };
+
+    /**
+     * A reader found a usable resource.
+     */
+    void recordHit();
+
+    /**
+     * A reader found no usable resource and had to wait on a retrieval.
+     */
+    void recordColdMiss();
+
+    /**
+     * Time a reader spent waiting on a retrieval after a cold miss.
+     */
+    void recordWait(long waitNanos);
+
+    void recordFetchSuccess(long latencyNanos);
+
+    /**
+     * @param cause simple name of the exception thrown by the retrieval, or {@code EmptyResponse} when it returned
+     *              no resource
+     */
+    void recordFetchFailure(long latencyNanos, String cause);
+
+    /**
+     * Binds the source of the remaining lifetime gauge - a provider binds it once when it's created.
+     */
+    void bindRemainingLifetime(LongSupplier remainingLifetimeMs);
+
+    /**
+     * Binds the source of the gauge of how far the issuer's clock is ahead of this host's - a provider binds it once
+     * when it's created.
+     */
+    void bindClockSkew(LongSupplier clockSkewMs);
+
+    /**
+     * @return a view recording events into this instance that leaves its gauges bound to the provider they follow
+     */
+    default TokenMetrics withoutGauges() {
+        TokenMetrics metrics = this;
+        return new TokenMetrics() {
+            @Override
+            public void recordHit() {
+                metrics.recordHit();
+            }
+
+            @Override
+            public void recordColdMiss() {
+                metrics.recordColdMiss();
+            }
+
+            @Override
+            public void recordWait(long waitNanos) {
+                metrics.recordWait(waitNanos);
+            }
+
+            @Override
+            public void recordFetchSuccess(long latencyNanos) {
+                metrics.recordFetchSuccess(latencyNanos);
+            }
+
+            @Override
+            public void recordFetchFailure(long latencyNanos, String cause) {
+                metrics.recordFetchFailure(latencyNanos, cause);
+            }
+
+            @Override
+            public void bindRemainingLifetime(LongSupplier remainingLifetimeMs) {
+            }
+
+            @Override
+            public void bindClockSkew(LongSupplier clockSkewMs) {
+            }
+        };
+    }
+}
@@ -0,0 +1,52 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.metrics;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Records token metrics when the actuator or Micrometer is on the classpath, and discards them otherwise.
+ */
+@Configuration
+public class TokenMetricsConfig {
+
+    static final String ACTUATOR_CLASS = "org.springframework.boot.actuate.endpoint.PublicMetrics";
+    static final String MICROMETER_CLASS = "io.micrometer.core.instrument.MeterRegistry";
+
+    @Bean("com.scotiabank.oauth2.clientcredentials.metrics TokenMetrics")
+    public TokenMetrics tokenMetrics() {
+        ClassLoader classLoader = getClass().getClassLoader();
+        if (ClassUtils.isPresent(ACTUATOR_CLASS, classLoader) || ClassUtils.isPresent(MICROMETER_CLASS, classLoader)) {
+            return new LongAdderTokenMetrics();
+        }
+        return TokenMetrics.NOOP;
+    }
+
+    @Configuration
+    @ConditionalOnClass(name = ACTUATOR_CLASS)
+    static class ActuatorExport {
+
+        @Bean("com.scotiabank.oauth2.clientcredentials.metrics TokenPublicMetrics")
+        public TokenPublicMetrics tokenPublicMetrics(
+                @Qualifier("com.scotiabank.oauth2.clientcredentials.metrics TokenMetrics") TokenMetrics tokenMetrics) {
+            return new TokenPublicMetrics((LongAdderTokenMetrics) tokenMetrics);
+        }
+    }
+
+    @Configuration
+    @ConditionalOnClass(name = MICROMETER_CLASS)
+    static class MicrometerExport {
+
+        @Bean("com.scotiabank.oauth2.clientcredentials.metrics TokenMeterBinder")
+        public TokenMeterBinder tokenMeterBinder(
+                @Qualifier("com.scotiabank.oauth2.clientcredentials.metrics TokenMetrics") TokenMetrics tokenMetrics) {
+            return new TokenMeterBinder((LongAdderTokenMetrics) tokenMetrics);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.metrics;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes token metrics on the actuator metrics endpoint. Values are read when the endpoint is queried rather than
+ * pushed through GaugeService/CounterService, so recording stays on the striped counters.
+ */
+public class TokenPublicMetrics implements PublicMetrics {
+
+    static final String PREFIX = "oauth2.clientcredentials.token.";
+
+    private final LongAdderTokenMetrics metrics;
+    private final Set<String> failureCauses = ConcurrentHashMap.newKeySet();
+
+    public TokenPublicMetrics(LongAdderTokenMetrics metrics) {
+        this.metrics = metrics;
+        metrics.forEachFailureCause(failureCauses::add);
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> result = new ArrayList<>();
+        result.add(new Metric<>(PREFIX + "hit", metrics.getHitCount()));
+        result.add(new Metric<>(PREFIX + "miss", metrics.getColdMissCount()));
+        result.add(new Metric<>(PREFIX + "fetch.success", metrics.getFetchSuccessCount()));
+        for (String cause : failureCauses) {
+            result.add(new Metric<>(PREFIX + "fetch.failure." + cause, metrics.getFetchFailureCount(cause)));
+        }
+        addHistogram(result, PREFIX + "fetch.latency", metrics.getFetchLatency());
+        addHistogram(result, PREFIX + "wait", metrics.getWaitTime());
+        result.add(new Metric<>(PREFIX + "remaining.lifetime", metrics.getRemainingLifetimeMs()));
+        result.add(new Metric<>(PREFIX + "clock.skew", metrics.getClockSkewMs()));
+        return result;
+    }
+
+    private static void addHistogram(List<Metric<?>> result, String name, LatencyHistogram histogram) {
+        result.add(new Metric<>(name + ".count", histogram.getCount()));
+        result.add(new Metric<>(name + ".mean", toMillis(histogram.getMeanNanos())));
+        result.add(new Metric<>(name + ".p50", toMillis(histogram.getPercentileNanos(0.5))));
+        result.add(new Metric<>(name + ".p99", toMillis(histogram.getPercentileNanos(0.99))));
+        result.add(new Metric<>(name + ".max", toMillis(histogram.getMaxNanos())));
+    }
+
+    private static double toMillis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,181 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.registry;
+
+import com.google.common.collect.ImmutableMap;
+import com.nimbusds.jose.JWSSigner;
+import com.scotiabank.oauth2.clientcredentials.AutoRenewAsyncResourceProvider;
+import com.scotiabank.oauth2.clientcredentials.ClientCredentialsConfigurationException;
+import com.scotiabank.oauth2.clientcredentials.ClientCredentialsTokenRequestFailedException;
+import com.scotiabank.oauth2.clientcredentials.CurrentTimeGenerator;
+import com.scotiabank.oauth2.clientcredentials.ExpiringResourceProvider;
+import com.scotiabank.oauth2.clientcredentials.RenewalScheduler;
+import com.scotiabank.oauth2.clientcredentials.ResourceAutoRenewalProperties;
+import com.scotiabank.oauth2.clientcredentials.ResourceCache;
+import com.scotiabank.oauth2.clientcredentials.metrics.TokenMetrics;
+import com.scotiabank.oauth2.clientcredentials.request.ClientAssertionGenerator;
+import com.scotiabank.oauth2.clientcredentials.request.ClientAssertionRequestEnhancer;
+import com.scotiabank.oauth2.clientcredentials.request.ClientCredentialsAssertionGenerationProperties;
+import com.scotiabank.oauth2.clientcredentials.request.ClientCredentialsTokenRequestor;
+import com.scotiabank.oauth2.clientcredentials.request.StandaloneTokenRequestor;
+import com.scotiabank.oauth2.clientcredentials.request.TokenEndpointCircuitBreaker;
+import com.scotiabank.oauth2.clientcredentials.request.TokenEndpointClientProperties;
+import com.scotiabank.oauth2.clientcredentials.store.SharedTokenStore;
+import com.scotiabank.oauth2.clientcredentials.store.SharedTokenStoreResourceProvider;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.security.oauth2.client.token.grant.client.ClientCredentialsResourceDetails;
+import org.springframework.security.oauth2.common.AuthenticationScheme;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Builds an auto renewing token provider for a {@link TokenKey}. Signers and assertion expiries are looked up by the
+ * key of the configured client; a key no client is configured with - another token url or scope set - falls back to
+ * the first client configured with its client id, and then to the defaults. Every other assertion setting is taken
+ * from the top level properties, except for the signing algorithm of a client signing with a key of its own, which
+ * follows from that key. All providers share the token rest
+ * template when one is configured, or else the token endpoint connections, as well as the renewal scheduler and the
+ * token endpoint codec. They record their events into the token metrics, whose gauges keep following the main
+ * provider's token. Each provider gets its own circuit breaker, so an outage of one token url doesn't stop calls to
+ * the others. Tokens are shared with other instances per key through the {@link SharedTokenStore}.
+ *
+ * Providers are built without being started, whatever the startup mode, so that the {@link TokenRegistry} can retrieve
+ * their first tokens on its warm-up threads before they start renewing on the scheduler.
+ */
+public class ClientCredentialsProviderFactory implements Function<TokenKey, AutoRenewAsyncResourceProvider<String>> {
+
+    private final Map<TokenKey, JWSSigner> signersByKey;
+    private final Map<String, JWSSigner> signersByClientId;
+    private final JWSSigner defaultSigner;
+    private final Map<TokenKey, Integer> assertionExpiryByKey;
+    private final Map<String, Integer> assertionExpiryByClientId;
+    private final ClientCredentialsAssertionGenerationProperties defaultAssertionProperties;
+    private final RestTemplate restTemplate;
+    private final ClientHttpRequestFactory requestFactory;
+    private final TokenEndpointClientProperties.Codec tokenEndpointCodec;
+    private final ResourceAutoRenewalProperties renewalProperties;
+    private final CurrentTimeGenerator currentTimeGenerator;
+    private final RenewalScheduler renewalScheduler;
+    private final TokenMetrics metrics;
+    private final SharedTokenStore sharedTokenStore;
+    private final long sharedTokenStoreLeaseMs;
+
+    public ClientCredentialsProviderFactory(Map<TokenKey, JWSSigner> signersByKey,
+                                            JWSSigner defaultSigner,
+                                            Map<TokenKey, Integer> assertionExpiryByKey,
+                                            ClientCredentialsAssertionGenerationProperties defaultAssertionProperties,
+                                            RestTemplate restTemplate,
+                                            ClientHttpRequestFactory requestFactory,
+                                            TokenEndpointClientProperties.Codec tokenEndpointCodec,
+                                            ResourceAutoRenewalProperties renewalProperties,
+                                            CurrentTimeGenerator currentTimeGenerator,
+                                            RenewalScheduler renewalScheduler,
+                                            TokenMetrics metrics,
+                                            SharedTokenStore sharedTokenStore,
+                                            long sharedTokenStoreLeaseMs) {
+        this.signersByKey = ImmutableMap.copyOf(signersByKey);
+        this.signersByClientId = byClientId(signersByKey);
+        this.defaultSigner = defaultSigner;
+        this.assertionExpiryByKey = ImmutableMap.copyOf(assertionExpiryByKey);
+        this.assertionExpiryByClientId = byClientId(assertionExpiryByKey);
+        this.defaultAssertionProperties = defaultAssertionProperties;
+        this.restTemplate = restTemplate;
+        this.requestFactory = requestFactory;
+        this.tokenEndpointCodec = tokenEndpointCodec;
+        this.renewalProperties = renewalProperties;
+        this.currentTimeGenerator = currentTimeGenerator;
+        this.renewalScheduler = renewalScheduler;
+        this.metrics = metrics.withoutGauges();
+        this.sharedTokenStore = sharedTokenStore;
+        this.sharedTokenStoreLeaseMs = sharedTokenStoreLeaseMs;
+    }
+
+    @Override
+    public AutoRenewAsyncResourceProvider<String> apply(TokenKey key) {
+        JWSSigner signer = lookUp(key, signersByKey, signersByClientId, defaultSigner);
+
+        ClientAssertionGenerator generator;
+        try {
+            generator = new ClientAssertionGenerator(assertionProperties(key, signer), signer, currentTimeGenerator, renewalScheduler);
+        } catch (ClientCredentialsConfigurationException e) {
+            throw new ClientCredentialsTokenRequestFailedException("Unable to create assertion generator for " + key, e);
+        }
+
+        TokenEndpointCircuitBreaker circuitBreaker = new TokenEndpointCircuitBreaker(
+            renewalProperties.getCircuitBreakerFailureThreshold(),
+            renewalProperties.getCircuitBreakerOpenMs());
+
+        ExpiringResourceProvider<String> tokenRequestor;
+        if (tokenEndpointCodec == TokenEndpointClientProperties.Codec.STANDALONE) {
+            StandaloneTokenRequestor standaloneRequestor = new StandaloneTokenRequestor(
+                key.getTokenUrl(),
+                key.getScopes(),
+                generator,
+                restTemplate != null ? restTemplate.getRequestFactory() : requestFactory,
+                currentTimeGenerator);
+            standaloneRequestor.setCircuitBreaker(circuitBreaker);
+            tokenRequestor = standaloneRequestor;
+        } else {
+            ClientCredentialsResourceDetails resource = new ClientCredentialsResourceDetails();
+            resource.setAccessTokenUri(key.getTokenUrl());
+            resource.setGrantType("client_credentials");
+            resource.setClientAuthenticationScheme(AuthenticationScheme.form);
+            if (!key.getScopes().isEmpty()) {
+                resource.setScope(new ArrayList<>(key.getScopes()));
+            }
+
+            ClientCredentialsTokenRequestor oauth2Requestor = new ClientCredentialsTokenRequestor(
+                resource, restTemplate, requestFactory, currentTimeGenerator);
+            oauth2Requestor.setTokenRequestEnhancer(new ClientAssertionRequestEnhancer(generator));
+            oauth2Requestor.setCircuitBreaker(circuitBreaker);
+            tokenRequestor = oauth2Requestor;
+        }
+
+        // the registry starts the provider, once it's been warmed up if it's warming up
+        return new AutoRenewAsyncResourceProvider<>(
+            SharedTokenStoreResourceProvider.share(
+                tokenRequestor, sharedTokenStore, key.toString(), sharedTokenStoreLeaseMs, currentTimeGenerator),
+            renewalProperties,
+            currentTimeGenerator,
+            renewalScheduler,
+            metrics,
+            ResourceCache.none(),
+            true);
+    }
+
+    private ClientCredentialsAssertionGenerationProperties assertionProperties(TokenKey key, JWSSigner signer) {
+        ClientCredentialsAssertionGenerationProperties properties = new ClientCredentialsAssertionGenerationProperties();
+        properties.setClientId(key.getClientId());
+        properties.setTokenUrl(key.getTokenUrl());
+        properties.setAssertionTokenExpiryTimeMs(lookUp(
+            key, assertionExpiryByKey, assertionExpiryByClientId, defaultAssertionProperties.getAssertionTokenExpiryTimeMs()));
+        if (signer == defaultSigner) {
+            properties.setAssertionSigningAlgorithm(defaultAssertionProperties.getAssertionSigningAlgorithm());
+        }
+        properties.setAssertionPreSigningEnabled(defaultAssertionProperties.isAssertionPreSigningEnabled());
+        properties.setAssertionRefreshPercent(defaultAssertionProperties.getAssertionRefreshPercent());
+        properties.setAssertionUniqueClaimsEnabled(defaultAssertionProperties.isAssertionUniqueClaimsEnabled());
+        properties.setAssertionPoolSize(defaultAssertionProperties.getAssertionPoolSize());
+        return properties;
+    }
+
+    private static <V> V lookUp(TokenKey key, Map<TokenKey, V> byKey, Map<String, V> byClientId, V defaultValue) {
+        V value = byKey.get(key);
+        if (value == null) {
+            value = byClientId.get(key.getClientId());
+        }
+        return value != null ? value : defaultValue;
+    }
+
+    private static <V> Map<String, V> byClientId(Map<TokenKey, V> byKey) {
+        Map<String, V> byClientId = new HashMap<>();
+        byKey.forEach((key, value) -> byClientId.putIfAbsent(key.getClientId(), value));
+        return ImmutableMap.copyOf(byClientId);
+    }
+}
@@ -0,0 +1,68 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.registry;
+
+import com.google.common.collect.ImmutableSortedSet;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Identifies a token by the client it's issued to, the endpoint issuing it and the scopes requested. Scopes are
+ * compared as a set, and the hash is computed once so that lookups in the {@link TokenRegistry} stay cheap.
+ */
+public final class TokenKey {
+    private final String clientId;
+    private final String tokenUrl;
+    private final Set<String> scopes;
+    private final int hash;
+
+    public TokenKey(String clientId, String tokenUrl, Collection<String> scopes) {
+        this.clientId = checkNotNull(clientId);
+        this.tokenUrl = checkNotNull(tokenUrl);
+        this.scopes = scopes == null ? ImmutableSortedSet.of() : ImmutableSortedSet.copyOf(scopes);
+        this.hash = Objects.hash(this.clientId, this.tokenUrl, this.scopes);
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public String getTokenUrl() {
+        return tokenUrl;
+    }
+
+    public Set<String> getScopes() {
+        return scopes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TokenKey)) {
+            return false;
+        }
+        TokenKey other = (TokenKey) o;
+        return hash == other.hash
+            && clientId.equals(other.clientId)
+            && tokenUrl.equals(other.tokenUrl)
+            && scopes.equals(other.scopes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return clientId + " " + tokenUrl + " " + scopes;
+    }
+}
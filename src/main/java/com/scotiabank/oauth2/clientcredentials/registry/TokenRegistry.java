@@ -0,0 +1,291 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.registry;
+
+import com.google.common.collect.ImmutableMap;
+import com.scotiabank.oauth2.clientcredentials.AutoRenewAsyncResourceProvider;
+import com.scotiabank.oauth2.clientcredentials.CurrentTimeGenerator;
+import com.scotiabank.oauth2.clientcredentials.ExpiringResource;
+import com.scotiabank.oauth2.clientcredentials.ExpiringResourceProvider;
+import com.scotiabank.oauth2.clientcredentials.RenewalScheduler;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Holds one token provider per {@link TokenKey}, creating providers the first time a key is used.
+ * {@link AutoRenewAsyncResourceProvider}s are expected unstarted, and started once they're created or warmed up.
+ *
+ * Lookups of existing keys are a single hash map read. A provider is created outside the map, so creating one -
+ * decoding its key and retrieving its first token - only holds up readers of the same key. The registry is bounded: once it holds more than
+ * {@code maximumSize} providers the least recently used one is closed and dropped, and providers that haven't been
+ * used for {@code idleExpiryMs} are dropped by a periodic sweep. The provider just created is never the one dropped,
+ * and a reader whose provider is dropped while it's waiting on a token looks the key up again.
+ */
+@Slf4j
+public class TokenRegistry implements Closeable {
+
+    // access times are only refreshed at this resolution so concurrent readers rarely write to the same entry
+    private static final long ACCESS_RESOLUTION_MS = 1000;
+
+    private final ConcurrentMap<TokenKey, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, TokenKey> namedKeys;
+    private final Function<TokenKey, ? extends ExpiringResourceProvider<String>> providerFactory;
+    private final int maximumSize;
+    private final long idleExpiryMs;
+    private final CurrentTimeGenerator currentTimeGenerator;
+    private final RenewalScheduler.Timeout sweep;
+
+    public TokenRegistry(Map<String, TokenKey> namedKeys,
+                         Function<TokenKey, ? extends ExpiringResourceProvider<String>> providerFactory,
+                         int maximumSize,
+                         long idleExpiryMs,
+                         CurrentTimeGenerator currentTimeGenerator,
+                         RenewalScheduler renewalScheduler) {
+        checkArgument(maximumSize > 0, "maximumSize must be a positive, non-zero value");
+        checkArgument(idleExpiryMs > 0, "idleExpiryMs must be a positive, non-zero value");
+
+        this.namedKeys = ImmutableMap.copyOf(namedKeys);
+        this.providerFactory = checkNotNull(providerFactory);
+        this.maximumSize = maximumSize;
+        this.idleExpiryMs = idleExpiryMs;
+        this.currentTimeGenerator = checkNotNull(currentTimeGenerator);
+
+        this.sweep = renewalScheduler.scheduleAtFixedRate(this::evictIdleEntries, idleExpiryMs, idleExpiryMs);
+    }
+
+    public ExpiringResource<String> getResource(TokenKey key) {
+        for (;;) {
+            Entry entry = entryFor(key);
+            ExpiringResource<String> resource = entry.provider().getResource();
+            // an entry evicted after it was looked up may have had its provider closed under the reader
+            if (resource != null || !entry.evicted) {
+                return resource;
+            }
+            log.debug("Token provider for {} evicted while in use - looking it up again", key);
+        }
+    }
+
+    /**
+     * Creates the providers of every client configured under {@code oauth2.clientcredentials.clients} and retrieves
+     * their first tokens in parallel, on the warm-up's threads. {@link AutoRenewAsyncResourceProvider}s are only started
+     * once they have their token, or failed to get it.
+     *
+     * @return the readiness of each client, by name
+     */
+    public TokenWarmUp.Report<String> warmUp(TokenWarmUp warmUp) {
+        return warmUp.warmUp(namedKeys.keySet(), clientName -> () -> warmUp(namedKeys.get(clientName)));
+    }
+
+    /**
+     * @return a provider bound to the given key, suitable for a {@link com.scotiabank.oauth2.clientcredentials.ClientCredentialsTokenInterceptor}
+     */
+    public ExpiringResourceProvider<String> providerFor(TokenKey key) {
+        return new BoundProvider(checkNotNull(key));
+    }
+
+    /**
+     * @return a provider bound to the key configured under {@code oauth2.clientcredentials.clients.<clientName>}
+     */
+    public ExpiringResourceProvider<String> providerFor(String clientName) {
+        TokenKey key = namedKeys.get(clientName);
+        checkArgument(key != null, "No client configured with name %s", clientName);
+        return providerFor(key);
+    }
+
+    public Set<String> getClientNames() {
+        return namedKeys.keySet();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void evictIdleEntries() {
+        long idleSince = currentTimeGenerator.getCurrentTimeMillis() - idleExpiryMs;
+        entries.forEach((key, entry) -> {
+            if (entry.lastAccessMs < idleSince) {
+                evict(key, entry, "idle");
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        log.info("Shutting down token registry");
+        sweep.cancel();
+        entries.forEach((key, entry) -> evict(key, entry, "registry closed"));
+    }
+
+    private ExpiringResource<String> warmUp(TokenKey key) {
+        ExpiringResourceProvider<String> provider = entryFor(key, false).provider();
+        if (!(provider instanceof AutoRenewAsyncResourceProvider)) {
+            return provider.getResource();
+        }
+
+        AutoRenewAsyncResourceProvider<String> autoRenewProvider = (AutoRenewAsyncResourceProvider<String>) provider;
+        try {
+            return autoRenewProvider.warmUp();
+        } finally {
+            autoRenewProvider.start();
+        }
+    }
+
+    private Entry entryFor(TokenKey key) {
+        return entryFor(key, true);
+    }
+
+    /**
+     * @param start whether to start a provider created for the key
+     */
+    private Entry entryFor(TokenKey key, boolean start) {
+        long now = currentTimeGenerator.getCurrentTimeMillis();
+
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = createEntry(key, now, start);
+        } else {
+            entry.touch(now);
+        }
+        return entry;
+    }
+
+    private Entry createEntry(TokenKey key, long now, boolean start) {
+        // the entry stands in for the provider while it's created, so other readers of the key wait on it rather than
+        // on the map
+        Entry created = new Entry(now);
+        Entry existing = entries.putIfAbsent(key, created);
+        if (existing != null) {
+            existing.touch(now);
+            return existing;
+        }
+
+        log.info("Creating token provider for {}", key);
+        ExpiringResourceProvider<String> provider;
+        try {
+            provider = providerFactory.apply(key);
+        } catch (RuntimeException e) {
+            // the next reader tries again
+            entries.remove(key, created);
+            created.provider.completeExceptionally(e);
+            throw e;
+        }
+        created.provider.complete(provider);
+
+        if (start && provider instanceof AutoRenewAsyncResourceProvider) {
+            ((AutoRenewAsyncResourceProvider<String>) provider).start();
+        }
+        evictLeastRecentlyUsed(created);
+        return created;
+    }
+
+    /**
+     * @param created the entry just created - never evicted, however old the others' access times look next to it
+     */
+    private void evictLeastRecentlyUsed(Entry created) {
+        // only runs when a provider is created, which is far more expensive than scanning the entries
+        while (entries.size() > maximumSize) {
+            Map.Entry<TokenKey, Entry> eldest = null;
+            for (Map.Entry<TokenKey, Entry> candidate : entries.entrySet()) {
+                if (candidate.getValue() == created) {
+                    continue;
+                }
+                if (eldest == null || candidate.getValue().lastAccessMs < eldest.getValue().lastAccessMs) {
+                    eldest = candidate;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            evict(eldest.getKey(), eldest.getValue(), "least recently used");
+        }
+    }
+
+    private void evict(TokenKey key, Entry entry, String reason) {
+        if (entries.remove(key, entry)) {
+            log.info("Evicting token provider for {} - {}", key, reason);
+            entry.evicted = true;
+            // a provider still being created is closed once it's there
+            entry.provider.thenAccept(TokenRegistry::closeProvider);
+        }
+    }
+
+    private static void closeProvider(ExpiringResourceProvider<String> provider) {
+        if (provider instanceof Closeable) {
+            try {
+                ((Closeable) provider).close();
+            } catch (IOException e) {
+                log.error("Exception ignored while closing token provider", e);
+            }
+        }
+    }
+
+    /**
+     * Looks the key up on every call, so a provider evicted from the registry is replaced rather than kept alive.
+     */
+    private final class BoundProvider implements ExpiringResourceProvider<String> {
+        private final TokenKey key;
+
+        private BoundProvider(TokenKey key) {
+            this.key = key;
+        }
+
+        @Override
+        public ExpiringResource<String> getResource() {
+            return TokenRegistry.this.getResource(key);
+        }
+
+        /**
+         * Invalidates the token in the key's provider, if the registry still holds one - an evicted provider's tokens
+         * aren't handed out any more anyway.
+         */
+        @Override
+        public boolean invalidate(ExpiringResource<String> resource) {
+            Entry entry = entries.get(key);
+            return entry != null && entry.provider().invalidate(resource);
+        }
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<ExpiringResourceProvider<String>> provider = new CompletableFuture<>();
+        private volatile long lastAccessMs;
+        private volatile boolean evicted;
+
+        private Entry(long now) {
+            this.lastAccessMs = now;
+        }
+
+        /**
+         * @return the provider, once the reader creating it is done
+         */
+        private ExpiringResourceProvider<String> provider() {
+            try {
+                return provider.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        private void touch(long now) {
+            if (now - lastAccessMs > ACCESS_RESOLUTION_MS) {
+                lastAccessMs = now;
+            }
+        }
+    }
+}
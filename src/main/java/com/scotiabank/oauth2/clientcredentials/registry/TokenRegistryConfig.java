@@ -0,0 +1,133 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.registry;
+
+import com.nimbusds.jose.JWSSigner;
+import com.scotiabank.oauth2.clientcredentials.ClientCredentialsConfigurationException;
+import com.scotiabank.oauth2.clientcredentials.CurrentTimeGenerator;
+import com.scotiabank.oauth2.clientcredentials.RenewalScheduler;
+import com.scotiabank.oauth2.clientcredentials.ResourceAutoRenewalProperties;
+import com.scotiabank.oauth2.clientcredentials.key.ClientCredentialsKeyLoader;
+import com.scotiabank.oauth2.clientcredentials.key.ClientCredentialsSignatureProperties;
+import com.scotiabank.oauth2.clientcredentials.key.DeferredJwsSigner;
+import com.scotiabank.oauth2.clientcredentials.metrics.TokenMetrics;
+import com.scotiabank.oauth2.clientcredentials.request.ClientCredentialsAssertionGenerationProperties;
+import com.scotiabank.oauth2.clientcredentials.request.TokenEndpointClientProperties;
+import com.scotiabank.oauth2.clientcredentials.registry.TokenRegistryProperties.ClientProperties;
+import com.scotiabank.oauth2.clientcredentials.store.SharedTokenStore;
+import com.scotiabank.oauth2.clientcredentials.store.SharedTokenStoreProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Slf4j
+@Configuration
+public class TokenRegistryConfig {
+
+    @Bean("com.scotiabank.oauth2.clientcredentials TokenRegistry")
+    public TokenRegistry tokenRegistry(
+            TokenRegistryProperties registryProperties,
+            ClientCredentialsAssertionGenerationProperties defaultProperties,
+            @Qualifier("com.scotiabank.oauth2.clientcredentials JwsSigner") JWSSigner defaultSigner,
+            @Autowired(required = false)
+            @Qualifier("com.scotiabank.oauth2.clientcredentials OAuth2TokenRestTemplate")
+                RestTemplate restTemplate,
+            @Qualifier("com.scotiabank.oauth2.clientcredentials.request TokenEndpointRequestFactory")
+                ClientHttpRequestFactory requestFactory,
+            TokenEndpointClientProperties tokenEndpointClientProperties,
+            ClientCredentialsKeyLoader keyLoader,
+            ClientCredentialsSignatureProperties signatureProperties,
+            ResourceAutoRenewalProperties tokenManagementProperties,
+            CurrentTimeGenerator currentTimeGenerator,
+            @Qualifier("com.scotiabank.oauth2.clientcredentials RenewalScheduler") RenewalScheduler renewalScheduler,
+            @Qualifier("com.scotiabank.oauth2.clientcredentials.metrics TokenMetrics") TokenMetrics tokenMetrics,
+            @Qualifier("com.scotiabank.oauth2.clientcredentials.store SharedTokenStore") SharedTokenStore sharedTokenStore,
+            SharedTokenStoreProperties sharedTokenStoreProperties) throws ClientCredentialsConfigurationException {
+        Map<String, TokenKey> namedKeys = new LinkedHashMap<>();
+        // ordered, so that a key no client is configured with falls back to the first client with its client id
+        Map<TokenKey, JWSSigner> signersByKey = new LinkedHashMap<>();
+        Map<TokenKey, Integer> assertionExpiryByKey = new LinkedHashMap<>();
+
+        long keyReloadPeriodMs = signatureProperties.getKeyReloadPeriodMs();
+
+        for (Map.Entry<String, ClientProperties> named : registryProperties.getClients().entrySet()) {
+            ClientProperties client = named.getValue();
+
+            String tokenUrl = client.getTokenUrl() != null ? client.getTokenUrl() : defaultProperties.getTokenUrl();
+            TokenKey key = new TokenKey(client.getClientId(), tokenUrl, client.getScopes());
+            namedKeys.put(named.getKey(), key);
+
+            // clients configured with the same key share a single signer, cached by the key loader - when warming up,
+            // it's loaded on the warm-up threads along with the other clients' keys
+            if (hasKey(client)) {
+                JWSSigner signer = tokenManagementProperties.isLazyStartupEnabled() || registryProperties.isClientWarmUpEnabled()
+                    ? new DeferredJwsSigner(() -> keyLoader.loadSigner(client, renewalScheduler, keyReloadPeriodMs))
+                    : keyLoader.loadSigner(client, renewalScheduler, keyReloadPeriodMs);
+                // clients requesting the same token share its provider, and so a single key
+                if (signersByKey.putIfAbsent(key, signer) != null) {
+                    log.warn("Client {} requests the same token as an earlier client, whose key is used", named.getKey());
+                }
+            }
+
+            if (client.getAssertionTokenExpiryTimeMs() != null) {
+                assertionExpiryByKey.putIfAbsent(key, client.getAssertionTokenExpiryTimeMs());
+            }
+        }
+
+        ClientCredentialsProviderFactory providerFactory = new ClientCredentialsProviderFactory(
+            signersByKey,
+            defaultSigner,
+            assertionExpiryByKey,
+            defaultProperties,
+            restTemplate,
+            requestFactory,
+            tokenEndpointClientProperties.getTokenEndpointCodec(),
+            tokenManagementProperties,
+            currentTimeGenerator,
+            renewalScheduler,
+            tokenMetrics,
+            sharedTokenStore,
+            sharedTokenStoreProperties.getSharedTokenStoreLeaseMs());
+
+        TokenRegistry registry = new TokenRegistry(
+            namedKeys,
+            providerFactory,
+            registryProperties.getMaximumClients(),
+            registryProperties.getClientIdleExpiryMs(),
+            currentTimeGenerator,
+            renewalScheduler);
+
+        if (registryProperties.isClientWarmUpEnabled() && !namedKeys.isEmpty()) {
+            TokenWarmUp warmUp = new TokenWarmUp(
+                registryProperties.getClientWarmUpParallelism(),
+                registryProperties.getClientWarmUpTimeoutMs());
+            if (tokenManagementProperties.isLazyStartupEnabled()) {
+                warmUpInBackground(registry, warmUp);
+            } else {
+                registry.warmUp(warmUp);
+            }
+        }
+        return registry;
+    }
+
+    // the warm-up waits up to clientWarmUpTimeoutMs on its own threads, so it's waited on by a thread of its own too
+    // rather than by one of the renewal scheduler's few workers
+    private static void warmUpInBackground(TokenRegistry registry, TokenWarmUp warmUp) {
+        Thread warmUpThread = new Thread(() -> registry.warmUp(warmUp), "token-registry-warm-up");
+        warmUpThread.setDaemon(true);
+        warmUpThread.start();
+    }
+
+    private static boolean hasKey(ClientProperties client) {
+        return client.getPrivateKeyFile() != null || client.getKeyStoreFile() != null || client.getKeyStoreBase64() != null;
+    }
+}
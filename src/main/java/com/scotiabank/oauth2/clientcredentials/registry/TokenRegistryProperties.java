@@ -0,0 +1,92 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.registry;
+
+import com.scotiabank.oauth2.clientcredentials.key.ClientCredentialsKeySource;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "oauth2.clientcredentials")
+public class TokenRegistryProperties {
+    public TokenRegistryProperties() {
+        // by default, keep up to a thousand clients' tokens renewed
+        maximumClients = 1000;
+
+        // by default, stop renewing a client's token once it hasn't been used for an hour
+        clientIdleExpiryMs = (int)Duration.of(60, ChronoUnit.MINUTES).toMillis();
+
+        // by default, retrieve a client's first token when it's first used
+        clientWarmUpEnabled = false;
+
+        // by default, warm up to eight clients at a time, for up to thirty seconds
+        clientWarmUpParallelism = 8;
+        clientWarmUpTimeoutMs = (int)Duration.of(30, ChronoUnit.SECONDS).toMillis();
+    }
+
+    @Valid
+    private Map<String, ClientProperties> clients = new LinkedHashMap<>();
+
+    @Min(value = 1, message = "maximumClients must be a positive, non-zero value")
+    private int maximumClients;
+
+    @Min(value = 1, message = "clientIdleExpiryMs must be a positive, non-zero value")
+    private int clientIdleExpiryMs;
+
+    // the configured clients' keys are loaded and first tokens retrieved in parallel at startup - in the background
+    // with lazy startup, otherwise while the registry is created
+    private boolean clientWarmUpEnabled;
+
+    @Min(value = 1, message = "clientWarmUpParallelism must be a positive, non-zero value")
+    private int clientWarmUpParallelism;
+
+    @Min(value = 1, message = "clientWarmUpTimeoutMs must be a positive, non-zero value")
+    private int clientWarmUpTimeoutMs;
+
+    /**
+     * Configuration of a single client. Unset values fall back to the top level {@code oauth2.clientcredentials}
+     * properties, and clients without their own key sign assertions with the top level key.
+     */
+    @Getter
+    @Setter
+    public static class ClientProperties implements ClientCredentialsKeySource {
+        @NotNull(message = "clientId must be populated with the OAuth2 client id")
+        @Size(min = 1, message = "clientId must be populated with the OAuth2 client id")
+        private String clientId;
+
+        private String tokenUrl;
+
+        private List<String> scopes = new ArrayList<>();
+
+        private Integer assertionTokenExpiryTimeMs;
+
+        private String privateKeyFile;
+
+        private String keyStoreFile;
+
+        private String keyStoreBase64;
+
+        private String keyStorePasswordBase64;
+
+        private String keyStoreFormat;
+
+        private String keyName;
+
+        private String keyPasswordBase64;
+    }
+}
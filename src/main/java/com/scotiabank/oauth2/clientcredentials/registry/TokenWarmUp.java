@@ -0,0 +1,189 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.registry;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.scotiabank.oauth2.clientcredentials.AutoRenewAsyncResourceProvider;
+import com.scotiabank.oauth2.clientcredentials.ExpiringResource;
+import com.scotiabank.oauth2.clientcredentials.ExpiringResourceProvider;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Retrieves the first token of many clients at once, so that warming them up takes about as long as the slowest
+ * client rather than all of them one after the other.
+ *
+ * Each client's provider is created, its key loaded and its token retrieved on a pool of {@code parallelism} threads
+ * of its own, which only lives for the warm-up. {@link AutoRenewAsyncResourceProvider}s retrieve on those threads
+ * rather than on the renewal scheduler's few workers.
+ */
+@Slf4j
+public class TokenWarmUp {
+
+    private static final AtomicInteger instances = new AtomicInteger();
+
+    private final int parallelism;
+    private final long timeoutMs;
+
+    public TokenWarmUp(int parallelism, long timeoutMs) {
+        checkArgument(parallelism > 0, "parallelism must be a positive, non-zero value");
+        checkArgument(timeoutMs > 0, "timeoutMs must be a positive, non-zero value");
+
+        this.parallelism = parallelism;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Waits until every client has its token or the timeout has passed. Clients still retrieving by then carry on in
+     * the background and are reported as timed out.
+     *
+     * @param providerFor the provider of each client, called on the warm-up threads
+     * @return each client's readiness, in the order the clients were given
+     */
+    public <K> Report<K> warmUp(Collection<K> clients, Function<? super K, ? extends ExpiringResourceProvider<String>> providerFor) {
+        long start = System.nanoTime();
+        log.info("Warming up {} clients on {} threads", clients.size(), parallelism);
+
+        ExecutorService pool = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(parallelism, clients.size())),
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("token-warm-up-" + instances.incrementAndGet() + "-%d").build());
+
+        Map<K, CompletableFuture<ClientReadiness>> pending = new LinkedHashMap<>();
+        try {
+            for (K client : clients) {
+                pending.put(client, CompletableFuture.supplyAsync(() -> warmUp(client, providerFor), pool));
+            }
+        } finally {
+            // lets the threads finish what was submitted, then die
+            pool.shutdown();
+        }
+
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        ImmutableMap.Builder<K, ClientReadiness> readiness = ImmutableMap.builder();
+        for (Map.Entry<K, CompletableFuture<ClientReadiness>> client : pending.entrySet()) {
+            readiness.put(client.getKey(), await(client.getKey(), client.getValue(), deadline, start));
+        }
+
+        Report<K> report = new Report<>(readiness.build(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("Warmed up {} of {} clients in {} ms", report.getReadyCount(), clients.size(), report.getElapsedMs());
+        return report;
+    }
+
+    private static <K> ClientReadiness warmUp(K client, Function<? super K, ? extends ExpiringResourceProvider<String>> providerFor) {
+        long start = System.nanoTime();
+        Status status;
+        try {
+            ExpiringResourceProvider<String> provider = providerFor.apply(client);
+            ExpiringResource<String> token = provider instanceof AutoRenewAsyncResourceProvider
+                ? ((AutoRenewAsyncResourceProvider<String>) provider).warmUp()
+                : provider.getResource();
+            status = token != null && token.getValue() != null ? Status.READY : Status.FAILED;
+        } catch (RuntimeException e) {
+            log.error("Exception ignored while warming up client {}", client, e);
+            status = Status.FAILED;
+        }
+
+        if (status == Status.FAILED) {
+            log.warn("No token retrieved for client {} while warming up", client);
+        }
+        return new ClientReadiness(status, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private static <K> ClientReadiness await(K client, CompletableFuture<ClientReadiness> readiness, long deadline, long start) {
+        try {
+            return readiness.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Timed out warming up client {}", client);
+        } catch (ExecutionException e) {
+            log.error("Exception ignored while warming up client {}", client, e.getCause());
+        } catch (InterruptedException e) {
+            log.error("Interrupted exception", e);
+            Thread.currentThread().interrupt();
+        }
+        return new ClientReadiness(Status.TIMED_OUT, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Readiness of every client warmed up, and how long the whole warm-up took.
+     */
+    public static final class Report<K> {
+        private final Map<K, ClientReadiness> clients;
+        private final long elapsedMs;
+
+        private Report(Map<K, ClientReadiness> clients, long elapsedMs) {
+            this.clients = clients;
+            this.elapsedMs = elapsedMs;
+        }
+
+        public Map<K, ClientReadiness> getClients() {
+            return clients;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        public int getReadyCount() {
+            return (int) clients.values().stream().filter(ClientReadiness::isReady).count();
+        }
+
+        /**
+         * @return whether every client has its token
+         */
+        public boolean isReady() {
+            return getReadyCount() == clients.size();
+        }
+    }
+
+    public static final class ClientReadiness {
+        private final Status status;
+        private final long elapsedMs;
+
+        private ClientReadiness(Status status, long elapsedMs) {
+            this.status = status;
+            this.elapsedMs = elapsedMs;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public boolean isReady() {
+            return status == Status.READY;
+        }
+
+        /**
+         * @return how long the client took to get its token or fail, or until the warm-up timed out
+         */
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        @Override
+        public String toString() {
+            return status + " in " + elapsedMs + " ms";
+        }
+    }
+
+    public enum Status {
+        READY,
+        FAILED,
+        TIMED_OUT
+    }
+}
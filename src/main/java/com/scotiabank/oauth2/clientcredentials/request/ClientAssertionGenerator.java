@@ -6,6 +6,8 @@ package com.scotiabank.oauth2.clientcredentials.request;
 
 import com.scotiabank.oauth2.clientcredentials.ClientCredentialsConfigurationException;
 import com.scotiabank.oauth2.clientcredentials.CurrentTimeGenerator;
+import com.scotiabank.oauth2.clientcredentials.RenewalScheduler;
+import com.scotiabank.oauth2.clientcredentials.key.DeferredJwsSigner;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.JWSHeader;
@@ -14,51 +16,256 @@ import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Generates the signed client assertions sent with token requests.
+ *
+ * By default every assertion is signed when it's requested. With pre-signing enabled, assertions are signed ahead of
+ * time on the renewal scheduler's workers and handed out until a configured share of their lifetime has passed, so
+ * a token request only pays for the round trip. With unique claims enabled every assertion carries its own
+ * {@code jti} and {@code iat}; pre-signed ones are then drawn from a pool and each is handed out once.
+ *
+ * The header algorithm is the configured {@code assertionSigningAlgorithm} or, when none is configured, the first
+ * algorithm the signer supports out of RS256, ES256, ES384, ES512 and PS256. It's resolved at construction, unless the
+ * signer's key is loaded on first use - it's then resolved with the first assertion, and an algorithm the key doesn't
+ * support fails every assertion rather than construction.
+ */
 @Component("com.scotiabank.oauth2.clientcredentials ClientAssertionGenerator")
 public class ClientAssertionGenerator {
 
     private static final Logger log = LoggerFactory.getLogger(ClientAssertionGenerator.class);
 
+    private static final List<JWSAlgorithm> DEFAULT_ALGORITHMS = Arrays.asList(
+        JWSAlgorithm.RS256, JWSAlgorithm.ES256, JWSAlgorithm.ES384, JWSAlgorithm.ES512, JWSAlgorithm.PS256);
+
     private final ClientCredentialsAssertionGenerationProperties properties;
     private final JWSSigner signer;
     private final CurrentTimeGenerator currentTimeGenerator;
+    private final RenewalScheduler scheduler;
+    private volatile JWSHeader header;
+
+    // pre-signed assertion reused until its refresh point when claims aren't unique
+    private volatile PreSignedAssertion cachedAssertion;
+    // pre-signed assertions each handed out once when claims are unique
+    private final Queue<PreSignedAssertion> assertionPool = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean preSigning = new AtomicBoolean();
+    private volatile RenewalScheduler.Timeout nextPreSigning;
 
     public ClientAssertionGenerator(ClientCredentialsAssertionGenerationProperties properties,
                                     JWSSigner signer,
                                     CurrentTimeGenerator currentTimeGenerator) throws ClientCredentialsConfigurationException {
+        this(properties, signer, currentTimeGenerator, RenewalScheduler.getDefault());
+    }
+
+    @Autowired
+    public ClientAssertionGenerator(ClientCredentialsAssertionGenerationProperties properties,
+                                    JWSSigner signer,
+                                    CurrentTimeGenerator currentTimeGenerator,
+                                    @Qualifier("com.scotiabank.oauth2.clientcredentials RenewalScheduler") RenewalScheduler scheduler) throws ClientCredentialsConfigurationException {
         this.properties = properties;
         this.signer = signer;
         this.currentTimeGenerator = currentTimeGenerator;
+        this.scheduler = scheduler;
+        if (!(signer instanceof DeferredJwsSigner)) {
+            this.header = new JWSHeader(signingAlgorithm(properties.getAssertionSigningAlgorithm(), signer));
+        }
+
+        if (properties.isAssertionPreSigningEnabled()) {
+            // have an assertion ready for the very first token request
+            schedulePreSigning();
+        }
     }
 
     public String getAssertionToken()  {
         log.info("Getting oauth2 assertion token");
 
-        Instant expirationTime = currentTimeGenerator.getCurrentTime()
-            .plus(properties.getAssertionTokenExpiryTimeMs(), ChronoUnit.MILLIS);
+        if (!properties.isAssertionPreSigningEnabled()) {
+            return tokenOf(signAssertion());
+        }
+
+        PreSignedAssertion assertion = takePreSignedAssertion(currentTimeGenerator.getCurrentTime().toEpochMilli());
+        if (assertion == null) {
+            log.info("No pre-signed assertion available - signing assertion inline");
+            assertion = signAssertion();
+            if (assertion != null && !properties.isAssertionUniqueClaimsEnabled()) {
+                cachedAssertion = assertion;
+            }
+        }
+
+        schedulePreSigning();
+        return tokenOf(assertion);
+    }
+
+    private PreSignedAssertion takePreSignedAssertion(long currentTimeMs) {
+        if (!properties.isAssertionUniqueClaimsEnabled()) {
+            PreSignedAssertion assertion = cachedAssertion;
+            return assertion != null && assertion.isFreshAt(currentTimeMs) ? assertion : null;
+        }
+
+        PreSignedAssertion assertion;
+        while ((assertion = assertionPool.poll()) != null) {
+            if (assertion.isFreshAt(currentTimeMs)) {
+                return assertion;
+            }
+        }
+        return null;
+    }
+
+    private void schedulePreSigning() {
+        if (!preSigning.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            scheduler.execute(this::preSignAssertions);
+        } catch (RejectedExecutionException e) {
+            log.info("Renewal scheduler has been shut down - assertions will be signed inline");
+            preSigning.set(false);
+        }
+    }
+
+    private void preSignAssertions() {
+        try {
+            long currentTimeMs = currentTimeGenerator.getCurrentTime().toEpochMilli();
+            PreSignedAssertion next;
+
+            if (properties.isAssertionUniqueClaimsEnabled()) {
+                assertionPool.removeIf(assertion -> !assertion.isFreshAt(currentTimeMs));
+                while (assertionPool.size() < properties.getAssertionPoolSize()) {
+                    PreSignedAssertion assertion = signAssertion();
+                    if (assertion == null) {
+                        break;
+                    }
+                    assertionPool.add(assertion);
+                }
+                next = assertionPool.peek();
+            } else {
+                next = cachedAssertion;
+                if (next == null || !next.isFreshAt(currentTimeMs)) {
+                    next = signAssertion();
+                    if (next != null) {
+                        cachedAssertion = next;
+                    }
+                }
+            }
 
-        JWTClaimsSet claimsSet = new JWTClaimsSet.Builder()
+            if (next != null) {
+                // sign replacements as soon as the assertions on hand stop being fresh, ahead of the next token request
+                scheduleNextPreSigning(next.refreshAtMs - currentTimeMs);
+            }
+        } catch (RuntimeException e) {
+            log.error("Exception ignored while pre-signing assertions", e);
+        } finally {
+            preSigning.set(false);
+        }
+    }
+
+    private void scheduleNextPreSigning(long delayMs) {
+        RenewalScheduler.Timeout previous = nextPreSigning;
+        if (previous != null) {
+            previous.cancel();
+        }
+
+        try {
+            nextPreSigning = scheduler.schedule(this::schedulePreSigning, delayMs);
+        } catch (RejectedExecutionException e) {
+            log.info("Renewal scheduler has been shut down - assertions will be signed inline");
+        }
+    }
+
+    private PreSignedAssertion signAssertion() {
+        Instant issueTime = currentTimeGenerator.getCurrentTime();
+        Instant expirationTime = issueTime.plus(properties.getAssertionTokenExpiryTimeMs(), ChronoUnit.MILLIS);
+
+        JWTClaimsSet.Builder claims = new JWTClaimsSet.Builder()
             .subject(properties.getClientId())
             .issuer(properties.getClientId())
             .audience(properties.getTokenUrl())
-            .expirationTime(Date.from(expirationTime))
-            .build();
+            .expirationTime(Date.from(expirationTime));
 
-        SignedJWT signedJWT = new SignedJWT(new JWSHeader(JWSAlgorithm.RS256), claimsSet);
+        if (properties.isAssertionUniqueClaimsEnabled()) {
+            claims.jwtID(UUID.randomUUID().toString())
+                .issueTime(Date.from(issueTime));
+        }
 
+        SignedJWT signedJWT;
         try {
+            signedJWT = new SignedJWT(header(), claims.build());
             signedJWT.sign(signer);
+        } catch (ClientCredentialsConfigurationException e) {
+            log.error("It was not possible to sign JWToken - {}", e.getMessage());
+            return null;
         } catch (JOSEException e) {
             log.error("It was not possible to sign JWToken", e);
             return null;
         }
-        return signedJWT.serialize();
+
+        long refreshAtMs = issueTime.toEpochMilli()
+            + (long) properties.getAssertionTokenExpiryTimeMs() * properties.getAssertionRefreshPercent() / 100;
+        return new PreSignedAssertion(signedJWT.serialize(), refreshAtMs);
     }
 
-}
\ No newline at end of file
+    private JWSHeader header() throws ClientCredentialsConfigurationException, JOSEException {
+        JWSHeader resolved = header;
+        if (resolved == null) {
+            // waits on the deferred signer's key, which decides the algorithm
+            ((DeferredJwsSigner) signer).get();
+            resolved = new JWSHeader(signingAlgorithm(properties.getAssertionSigningAlgorithm(), signer));
+            header = resolved;
+        }
+        return resolved;
+    }
+
+    private static JWSAlgorithm signingAlgorithm(String algorithmName, JWSSigner signer) throws ClientCredentialsConfigurationException {
+        Set<JWSAlgorithm> supported = signer.supportedJWSAlgorithms();
+
+        if (algorithmName != null && !algorithmName.isEmpty()) {
+            JWSAlgorithm algorithm = JWSAlgorithm.parse(algorithmName);
+            if (!supported.contains(algorithm)) {
+                throw new ClientCredentialsConfigurationException(
+                    "assertionSigningAlgorithm " + algorithmName + " isn't supported by the client credentials key");
+            }
+            return algorithm;
+        }
+
+        for (JWSAlgorithm algorithm : DEFAULT_ALGORITHMS) {
+            if (supported.contains(algorithm)) {
+                return algorithm;
+            }
+        }
+        return JWSAlgorithm.RS256;
+    }
+
+    private static String tokenOf(PreSignedAssertion assertion) {
+        return assertion != null ? assertion.token : null;
+    }
+
+    private static final class PreSignedAssertion {
+        private final String token;
+        private final long refreshAtMs;
+
+        private PreSignedAssertion(String token, long refreshAtMs) {
+            this.token = token;
+            this.refreshAtMs = refreshAtMs;
+        }
+
+        private boolean isFreshAt(long currentTimeMs) {
+            return currentTimeMs < refreshAtMs;
+        }
+    }
+}
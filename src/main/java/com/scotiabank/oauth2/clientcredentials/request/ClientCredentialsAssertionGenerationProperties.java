@@ -7,6 +7,7 @@ package com.scotiabank.oauth2.clientcredentials.request;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.Size;
 
@@ -19,6 +20,10 @@ import java.time.temporal.ChronoUnit;
 public class ClientCredentialsAssertionGenerationProperties {
     public ClientCredentialsAssertionGenerationProperties() {
         assertionTokenExpiryTimeMs = (int)Duration.of(60, ChronoUnit.MINUTES).toMillis();
+
+        // by default, sign assertions inline - when pre-signing, replace them once half of their lifetime has passed
+        assertionRefreshPercent = 50;
+        assertionPoolSize = 4;
     }
 
     @Size(min = 1, message = "clientId must be populated with the OAuth2 client id")
@@ -29,4 +34,21 @@ public class ClientCredentialsAssertionGenerationProperties {
 
     @Min(value = 1, message = "assertionTokenExpiryTimeMs must be a positive, non-zero value")
     private int assertionTokenExpiryTimeMs;
+
+    // JWS algorithm of the assertion, e.g. PS256 - by default it follows from the type of the client credentials key
+    private String assertionSigningAlgorithm;
+
+    // sign assertions ahead of time in the background and hand them out until assertionRefreshPercent of their
+    // lifetime has passed
+    private boolean assertionPreSigningEnabled;
+
+    @Min(value = 1, message = "assertionRefreshPercent must be between 1 and 100")
+    @Max(value = 100, message = "assertionRefreshPercent must be between 1 and 100")
+    private int assertionRefreshPercent;
+
+    // give every assertion its own jti and iat - pre-signed ones are kept in a pool of assertionPoolSize and used once
+    private boolean assertionUniqueClaimsEnabled;
+
+    @Min(value = 1, message = "assertionPoolSize must be a positive, non-zero value")
+    private int assertionPoolSize;
 }
@@ -4,28 +4,60 @@
  */
 package com.scotiabank.oauth2.clientcredentials.request;
 
+import com.scotiabank.oauth2.clientcredentials.ClientCredentialsCircuitOpenException;
+import com.scotiabank.oauth2.clientcredentials.CurrentTimeGenerator;
 import com.scotiabank.oauth2.clientcredentials.ExpiringResource;
 import com.scotiabank.oauth2.clientcredentials.ExpiringResourceProvider;
 import com.scotiabank.oauth2.clientcredentials.TokenResource;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.security.oauth2.client.token.DefaultAccessTokenRequest;
 import org.springframework.security.oauth2.client.token.grant.client.ClientCredentialsAccessTokenProvider;
 import org.springframework.security.oauth2.client.token.grant.client.ClientCredentialsResourceDetails;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
 import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestOperations;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Instant;
+
 public class ClientCredentialsTokenRequestor extends ClientCredentialsAccessTokenProvider implements ExpiringResourceProvider<String> {
 
     private final ClientCredentialsResourceDetails resource;
     private final RestTemplate restTemplate;
+    private final CurrentTimeGenerator currentTimeGenerator;
+    private TokenEndpointCircuitBreaker circuitBreaker = TokenEndpointCircuitBreaker.disabled();
 
     public ClientCredentialsTokenRequestor(ClientCredentialsResourceDetails resource,
                                            RestTemplate restTemplate) {
+        this(resource, restTemplate, null);
+    }
+
+    /**
+     * @param requestFactory connections to the token endpoint when no rest template is given
+     */
+    public ClientCredentialsTokenRequestor(ClientCredentialsResourceDetails resource,
+                                           RestTemplate restTemplate,
+                                           ClientHttpRequestFactory requestFactory) {
+        this(resource, restTemplate, requestFactory, new CurrentTimeGenerator());
+    }
+
+    /**
+     * @param requestFactory       connections to the token endpoint when no rest template is given
+     * @param currentTimeGenerator clock the token responses' receipt is timed on
+     */
+    public ClientCredentialsTokenRequestor(ClientCredentialsResourceDetails resource,
+                                           RestTemplate restTemplate,
+                                           ClientHttpRequestFactory requestFactory,
+                                           CurrentTimeGenerator currentTimeGenerator) {
         this.resource = resource;
         this.restTemplate = restTemplate;
+        this.currentTimeGenerator = currentTimeGenerator;
 
         if (restTemplate != null) {
             setMessageConverters(restTemplate.getMessageConverters());
+        } else if (requestFactory != null) {
+            setRequestFactory(requestFactory);
         }
     }
 
@@ -38,12 +70,67 @@ public class ClientCredentialsTokenRequestor extends ClientCredentialsAccessToke
         }
     }
 
+    /**
+     * Keeps when each token response was received and its Date header, to tell how far the issuer's clock is off.
+     */
+    @Override
+    protected ResponseExtractor<OAuth2AccessToken> getResponseExtractor() {
+        ResponseExtractor<OAuth2AccessToken> delegate = super.getResponseExtractor();
+        return response -> {
+            long receivedAtMs = currentTimeGenerator.getCurrentTimeMillis();
+            OAuth2AccessToken token = delegate.extractData(response);
+            return token != null
+                ? new ReceivedAccessToken(token, receivedAtMs, TokenResource.responseDateOf(response.getHeaders()))
+                : null;
+        };
+    }
+
+    public TokenEndpointCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public void setCircuitBreaker(TokenEndpointCircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
     @Override
     public ExpiringResource<String> getResource() {
-        OAuth2AccessToken token = obtainAccessToken(resource, new DefaultAccessTokenRequest());
+        if (!circuitBreaker.tryAcquirePermission()) {
+            throw new ClientCredentialsCircuitOpenException(
+                "Circuit open - not calling token endpoint " + resource.getAccessTokenUri());
+        }
+
+        OAuth2AccessToken token;
+        try {
+            token = obtainAccessToken(resource, new DefaultAccessTokenRequest());
+        } catch (RuntimeException e) {
+            circuitBreaker.recordFailure();
+            throw e;
+        }
+
         if (token != null && token.getValue() != null) {
-            return new TokenResource(token);
+            circuitBreaker.recordSuccess();
+            return token instanceof ReceivedAccessToken
+                ? ((ReceivedAccessToken) token).toTokenResource()
+                : new TokenResource(token);
         }
+        circuitBreaker.recordFailure();
         return null;
     }
+
+    private static class ReceivedAccessToken extends DefaultOAuth2AccessToken {
+        private final long receivedAtMs;
+        private final long responseDateMs;
+
+        ReceivedAccessToken(OAuth2AccessToken token, long receivedAtMs, long responseDateMs) {
+            super(token);
+            this.receivedAtMs = receivedAtMs;
+            this.responseDateMs = responseDateMs;
+        }
+
+        TokenResource toTokenResource() {
+            Instant responseExpiration = getExpiration() != null ? getExpiration().toInstant() : null;
+            return TokenResource.fromTokenResponse(getValue(), responseExpiration, receivedAtMs, responseDateMs);
+        }
+    }
 }
@@ -0,0 +1,108 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.request;
+
+import com.scotiabank.oauth2.clientcredentials.ClientCredentialsCircuitOpenException;
+import com.scotiabank.oauth2.clientcredentials.ClientCredentialsTokenRequestFailedException;
+import com.scotiabank.oauth2.clientcredentials.CurrentTimeGenerator;
+import com.scotiabank.oauth2.clientcredentials.ExpiringResource;
+import com.scotiabank.oauth2.clientcredentials.ExpiringResourceProvider;
+import com.scotiabank.oauth2.clientcredentials.TokenResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Requests client credentials tokens with a {@link TokenEndpointCodec} straight over a request factory, rather than
+ * through spring-security-oauth2's access token provider and message converters. Sends the same form.
+ */
+public class StandaloneTokenRequestor implements ExpiringResourceProvider<String> {
+
+    private final URI tokenUri;
+    private final TokenEndpointCodec codec;
+    private final ClientAssertionGenerator generator;
+    private final ClientHttpRequestFactory requestFactory;
+    private final CurrentTimeGenerator currentTimeGenerator;
+    private TokenEndpointCircuitBreaker circuitBreaker = TokenEndpointCircuitBreaker.disabled();
+
+    public StandaloneTokenRequestor(String tokenUrl,
+                                    Collection<String> scopes,
+                                    ClientAssertionGenerator generator,
+                                    ClientHttpRequestFactory requestFactory,
+                                    CurrentTimeGenerator currentTimeGenerator) {
+        this.tokenUri = URI.create(tokenUrl);
+        this.codec = new TokenEndpointCodec(scopes != null ? scopes : Collections.emptyList());
+        this.generator = generator;
+        this.requestFactory = requestFactory;
+        this.currentTimeGenerator = currentTimeGenerator;
+    }
+
+    public TokenEndpointCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public void setCircuitBreaker(TokenEndpointCircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public ExpiringResource<String> getResource() {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            throw new ClientCredentialsCircuitOpenException("Circuit open - not calling token endpoint " + tokenUri);
+        }
+
+        ExpiringResource<String> token;
+        try {
+            token = requestToken();
+        } catch (IOException e) {
+            circuitBreaker.recordFailure();
+            throw new ClientCredentialsTokenRequestFailedException("Token request to " + tokenUri + " failed", e);
+        } catch (RuntimeException e) {
+            circuitBreaker.recordFailure();
+            throw e;
+        }
+
+        if (token != null && token.getValue() != null) {
+            circuitBreaker.recordSuccess();
+            return token;
+        }
+        circuitBreaker.recordFailure();
+        return null;
+    }
+
+    private ExpiringResource<String> requestToken() throws IOException {
+        String assertion = generator.getAssertionToken();
+        if (assertion == null) {
+            // the generator logs why it could not sign; don't post a form without client authentication
+            throw new ClientCredentialsTokenRequestFailedException("No client assertion for token request to " + tokenUri);
+        }
+        byte[] body = codec.encodeRequest(assertion);
+
+        ClientHttpRequest request = requestFactory.createRequest(tokenUri, HttpMethod.POST);
+        HttpHeaders headers = request.getHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+        headers.setContentLength(body.length);
+        request.getBody().write(body);
+
+        try (ClientHttpResponse response = request.execute()) {
+            int status = response.getRawStatusCode();
+            if (status < 200 || status > 299) {
+                throw new ClientCredentialsTokenRequestFailedException(
+                    "Token endpoint " + tokenUri + " answered " + status + " " + codec.decodeError(response.getBody()));
+            }
+            return codec.decodeResponse(
+                response.getBody(), currentTimeGenerator.getCurrentTimeMillis(), TokenResource.responseDateOf(response.getHeaders()));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.request;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker around calls to the token endpoint.
+ *
+ * After {@code failureThreshold} consecutive failures the circuit opens and calls are refused for {@code openMs}.
+ * Once that has elapsed a single trial call is let through (half-open): if it succeeds the circuit closes, otherwise
+ * it opens again. A threshold of 0 disables the breaker.
+ *
+ * State is readable without locking, so callers can check {@link #isCallPermitted()} to fail fast.
+ */
+@Slf4j
+public class TokenEndpointCircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    private volatile State state = State.CLOSED;
+    private volatile int consecutiveFailures;
+    private volatile long openedAtNanos;
+
+    public TokenEndpointCircuitBreaker(int failureThreshold, long openMs) {
+        this(failureThreshold, openMs, System::nanoTime);
+    }
+
+    TokenEndpointCircuitBreaker(int failureThreshold, long openMs, LongSupplier nanoClock) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @return a breaker that never opens
+     */
+    public static TokenEndpointCircuitBreaker disabled() {
+        return new TokenEndpointCircuitBreaker(0, 0);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * @return whether a call would currently be let through, without claiming the half-open trial call
+     */
+    public boolean isCallPermitted() {
+        State current = state;
+        return current == State.CLOSED || (current == State.OPEN && openElapsed());
+    }
+
+    /**
+     * @return whether the call may go ahead - when the open period has elapsed, only the first caller gets the trial
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN && openElapsed()) {
+            log.info("Token endpoint circuit half-open - allowing a trial call");
+            state = State.HALF_OPEN;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        if (state != State.CLOSED) {
+            log.info("Token endpoint circuit closed");
+            state = State.CLOSED;
+        }
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (failureThreshold <= 0) {
+            return;
+        }
+
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                log.info("Token endpoint circuit opened after {} consecutive failures", consecutiveFailures);
+            }
+            state = State.OPEN;
+            openedAtNanos = nanoClock.getAsLong();
+        }
+    }
+
+    private boolean openElapsed() {
+        return nanoClock.getAsLong() - openedAtNanos >= openNanos;
+    }
+}
@@ -0,0 +1,61 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.request;
+
+import com.scotiabank.oauth2.clientcredentials.RenewalScheduler;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.ssl.SSLContexts;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+/**
+ * Connections to the token endpoint, used unless an OAuth2TokenRestTemplate is provided.
+ */
+@Configuration
+public class TokenEndpointClientConfig {
+
+    @Bean("com.scotiabank.oauth2.clientcredentials.request TokenEndpointRequestFactory")
+    public ClientHttpRequestFactory tokenEndpointRequestFactory(
+            TokenEndpointClientProperties properties,
+            ClientCredentialsAssertionGenerationProperties assertionProperties,
+            @Qualifier("com.scotiabank.oauth2.clientcredentials RenewalScheduler") RenewalScheduler renewalScheduler) {
+        if (!properties.isTokenEndpointPoolingEnabled()) {
+            return urlConnectionRequestFactory(properties);
+        }
+
+        TokenEndpointRequestFactory requestFactory = new TokenEndpointRequestFactory(
+            properties,
+            new SSLConnectionSocketFactory(SSLContexts.createSystemDefault()),
+            renewalScheduler);
+
+        String tokenUrl = assertionProperties.getTokenUrl();
+        if (properties.isTokenEndpointWarmUpEnabled() && tokenUrl != null) {
+            // in the background, as a token endpoint that can't be reached mustn't hold up startup
+            renewalScheduler.execute(() -> requestFactory.warmUp(tokenUrl));
+        }
+        return requestFactory;
+    }
+
+    private static ClientHttpRequestFactory urlConnectionRequestFactory(TokenEndpointClientProperties properties) {
+        // as spring-security-oauth2 sets up its own, without the redirects and caching token requests don't need
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory() {
+            @Override
+            protected void prepareConnection(HttpURLConnection connection, String httpMethod) throws IOException {
+                super.prepareConnection(connection, httpMethod);
+                connection.setInstanceFollowRedirects(false);
+                connection.setUseCaches(false);
+            }
+        };
+        requestFactory.setConnectTimeout(properties.getTokenEndpointConnectTimeoutMs());
+        requestFactory.setReadTimeout(properties.getTokenEndpointReadTimeoutMs());
+        return requestFactory;
+    }
+}
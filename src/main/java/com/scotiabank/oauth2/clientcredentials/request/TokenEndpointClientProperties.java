@@ -0,0 +1,67 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.request;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import javax.validation.constraints.Min;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "oauth2.clientcredentials")
+public class TokenEndpointClientProperties {
+    public TokenEndpointClientProperties() {
+        // by default, request tokens through spring-security-oauth2
+        tokenEndpointCodec = Codec.SPRING_SECURITY_OAUTH2;
+
+        // by default, keep a few connections to the token endpoint alive and reuse their TLS sessions
+        tokenEndpointPoolingEnabled = true;
+        tokenEndpointMaxConnections = 4;
+        tokenEndpointKeepAliveMs = (int)Duration.of(1, ChronoUnit.MINUTES).toMillis();
+
+        // by default, give up on a token endpoint that doesn't answer rather than stall renewals
+        tokenEndpointConnectTimeoutMs = (int)Duration.of(2, ChronoUnit.SECONDS).toMillis();
+        tokenEndpointReadTimeoutMs = (int)Duration.of(10, ChronoUnit.SECONDS).toMillis();
+        tokenEndpointTotalTimeoutMs = (int)Duration.of(15, ChronoUnit.SECONDS).toMillis();
+    }
+
+    private Codec tokenEndpointCodec;
+
+    // pooled keep-alive connections - otherwise a connection per request over HttpURLConnection, with the same
+    // connect and read timeouts but no total timeout
+    private boolean tokenEndpointPoolingEnabled;
+
+    @Min(value = 1, message = "tokenEndpointMaxConnections must be a positive, non-zero value")
+    private int tokenEndpointMaxConnections;
+
+    // longest an idle connection is kept, shortened by the token endpoint's Keep-Alive header
+    @Min(value = 1, message = "tokenEndpointKeepAliveMs must be a positive, non-zero value")
+    private int tokenEndpointKeepAliveMs;
+
+    // open a connection to the token url in the background at startup
+    private boolean tokenEndpointWarmUpEnabled;
+
+    @Min(value = 1, message = "tokenEndpointConnectTimeoutMs must be a positive, non-zero value")
+    private int tokenEndpointConnectTimeoutMs;
+
+    // longest wait for a byte of the response
+    @Min(value = 1, message = "tokenEndpointReadTimeoutMs must be a positive, non-zero value")
+    private int tokenEndpointReadTimeoutMs;
+
+    // deadline for the whole token request, after which it's aborted - 0 doesn't limit it
+    @Min(value = 0, message = "tokenEndpointTotalTimeoutMs must not be negative")
+    private int tokenEndpointTotalTimeoutMs;
+
+    public enum Codec {
+        // token requests go through spring-security-oauth2's access token provider and message converters
+        SPRING_SECURITY_OAUTH2,
+        // the form is written and the response read by TokenEndpointCodec
+        STANDALONE
+    }
+}
@@ -0,0 +1,155 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.request;
+
+import com.scotiabank.oauth2.clientcredentials.TokenResource;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+
+import static com.scotiabank.oauth2.clientcredentials.request.ClientAssertionRequestEnhancer.CLIENT_ASSERTION_FIELD;
+import static com.scotiabank.oauth2.clientcredentials.request.ClientAssertionRequestEnhancer.CLIENT_ASSERTION_TYPE_FIELD;
+import static com.scotiabank.oauth2.clientcredentials.request.ClientAssertionRequestEnhancer.CLIENT_ASSERTION_TYPE_VALUE;
+
+/**
+ * Client credentials token request body and token response, written and read without spring-security-oauth2.
+ *
+ * Everything in the form but the assertion is encoded once. The response is read field by field and only the access
+ * token and its expiry kept.
+ */
+public class TokenEndpointCodec {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final byte[] formPrefix;
+
+    public TokenEndpointCodec(Collection<String> scopes) {
+        StringBuilder form = new StringBuilder()
+            .append("grant_type=client_credentials")
+            .append('&').append(CLIENT_ASSERTION_TYPE_FIELD).append('=').append(encode(CLIENT_ASSERTION_TYPE_VALUE));
+        if (scopes != null && !scopes.isEmpty()) {
+            form.append("&scope=").append(encode(String.join(" ", scopes)));
+        }
+        form.append('&').append(CLIENT_ASSERTION_FIELD).append('=');
+        formPrefix = form.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @return the form body requesting a token with the assertion
+     */
+    public byte[] encodeRequest(String assertion) {
+        // a compact JWS only holds base64url characters and dots, none of which need encoding
+        byte[] body = Arrays.copyOf(formPrefix, formPrefix.length + assertion.length());
+        for (int i = 0; i < assertion.length(); i++) {
+            body[formPrefix.length + i] = (byte) assertion.charAt(i);
+        }
+        return body;
+    }
+
+    /**
+     * @param receivedAtMillis when the response was received, which expires_in counts from
+     * @return the token, or null if the response has no access token
+     */
+    public TokenResource decodeResponse(InputStream body, long receivedAtMillis) throws IOException {
+        return decodeResponse(body, receivedAtMillis, -1);
+    }
+
+    /**
+     * @param receivedAtMillis   when the response was received, which expires_in counts from
+     * @param responseDateMillis the response's Date header, or -1 without one
+     * @return the token, with its expiry on this host's clock, or null if the response has no access token
+     */
+    public TokenResource decodeResponse(InputStream body, long receivedAtMillis, long responseDateMillis) throws IOException {
+        String accessToken = null;
+        Instant responseExpiration = null;
+
+        try (JsonParser parser = JSON.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Token response is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("access_token".equals(field) && value == JsonToken.VALUE_STRING) {
+                    accessToken = parser.getText();
+                } else if ("expires_in".equals(field)) {
+                    long expiresIn = expiresIn(parser, value);
+                    responseExpiration = expiresIn >= 0 ? Instant.ofEpochMilli(receivedAtMillis + expiresIn * 1000) : null;
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        return accessToken != null
+            ? TokenResource.fromTokenResponse(accessToken, responseExpiration, receivedAtMillis, responseDateMillis)
+            : null;
+    }
+
+    /**
+     * @return the error and its description from an error response, or an empty string if it has none
+     */
+    public String decodeError(InputStream body) {
+        String error = null;
+        String description = null;
+
+        try (JsonParser parser = JSON.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return "";
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("error".equals(field) && value == JsonToken.VALUE_STRING) {
+                    error = parser.getText();
+                } else if ("error_description".equals(field) && value == JsonToken.VALUE_STRING) {
+                    description = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            // not a JSON error response
+        }
+
+        if (error == null) {
+            return "";
+        }
+        return description != null ? error + ": " + description : error;
+    }
+
+    // expires_in may come as a number or a string, like spring-security-oauth2 accepts it
+    private static long expiresIn(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        if (value == JsonToken.VALUE_STRING) {
+            try {
+                return Long.parseLong(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Token response has an invalid expires_in " + parser.getText(), e);
+            }
+        }
+        parser.skipChildren();
+        return -1;
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
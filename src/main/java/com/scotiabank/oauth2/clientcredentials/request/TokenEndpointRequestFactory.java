@@ -0,0 +1,183 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.request;
+
+import com.scotiabank.oauth2.clientcredentials.RenewalScheduler;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.routing.HttpRoutePlanner;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.DefaultSchemePortResolver;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.conn.SystemDefaultRoutePlanner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token endpoint requests over a small pool of keep-alive connections.
+ *
+ * Connections are kept for {@code tokenEndpointKeepAliveMs}, or less when the token endpoint says so, and checked
+ * before reuse once they've been idle for a while. All connections share one SSL socket factory, so a connection
+ * opened after the previous one was closed resumes its TLS session instead of a full handshake. Besides connect and
+ * read timeouts, a request still running after {@code tokenEndpointTotalTimeoutMs} is aborted from the renewal
+ * scheduler. Proxies follow the JVM's proxy selector.
+ */
+public class TokenEndpointRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenEndpointRequestFactory.class);
+
+    // idle time after which a pooled connection is checked before it's reused
+    private static final int VALIDATE_AFTER_INACTIVITY_MS = 2000;
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final HttpRoutePlanner routePlanner;
+    private final RenewalScheduler scheduler;
+    private final int connectTimeoutMs;
+    private final int keepAliveMs;
+    private final int totalTimeoutMs;
+
+    public TokenEndpointRequestFactory(TokenEndpointClientProperties properties,
+                                       SSLConnectionSocketFactory sslSocketFactory,
+                                       RenewalScheduler scheduler) {
+        this(properties, connectionManager(properties, sslSocketFactory),
+            new SystemDefaultRoutePlanner(DefaultSchemePortResolver.INSTANCE, ProxySelector.getDefault()), scheduler);
+    }
+
+    private TokenEndpointRequestFactory(TokenEndpointClientProperties properties,
+                                        PoolingHttpClientConnectionManager connectionManager,
+                                        HttpRoutePlanner routePlanner,
+                                        RenewalScheduler scheduler) {
+        super(HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setRoutePlanner(routePlanner)
+            .setKeepAliveStrategy(keepAliveStrategy(properties.getTokenEndpointKeepAliveMs()))
+            // token requests are neither redirected nor carry cookies
+            .disableRedirectHandling()
+            .disableCookieManagement()
+            .build());
+        this.connectionManager = connectionManager;
+        this.routePlanner = routePlanner;
+        this.scheduler = scheduler;
+        this.connectTimeoutMs = properties.getTokenEndpointConnectTimeoutMs();
+        this.keepAliveMs = properties.getTokenEndpointKeepAliveMs();
+        this.totalTimeoutMs = properties.getTokenEndpointTotalTimeoutMs();
+
+        setConnectTimeout(connectTimeoutMs);
+        setConnectionRequestTimeout(connectTimeoutMs);
+        setReadTimeout(properties.getTokenEndpointReadTimeoutMs());
+    }
+
+    /**
+     * Opens a connection to the token url, TLS handshake included, and leaves it in the pool for the first token
+     * request. Failures are only logged - the token request opens its own connection then.
+     *
+     * @return whether a connection was opened or already open
+     */
+    public boolean warmUp(String tokenUrl) {
+        try {
+            HttpHost target = URIUtils.extractHost(URI.create(tokenUrl));
+            HttpClientContext context = HttpClientContext.create();
+            HttpRoute route = routePlanner.determineRoute(target, new HttpPost(tokenUrl), context);
+            if (route.getHopCount() > 1) {
+                log.info("Not warming up token endpoint connection through proxy {}", route.getProxyHost());
+                return false;
+            }
+
+            ConnectionRequest request = connectionManager.requestConnection(route, null);
+            HttpClientConnection connection = request.get(connectTimeoutMs, TimeUnit.MILLISECONDS);
+            try {
+                if (!connection.isOpen()) {
+                    connectionManager.connect(connection, route, connectTimeoutMs, context);
+                    connectionManager.routeComplete(connection, route, context);
+                }
+            } catch (IOException | RuntimeException e) {
+                connection.shutdown();
+                throw e;
+            } finally {
+                connectionManager.releaseConnection(connection, null, keepAliveMs, TimeUnit.MILLISECONDS);
+            }
+            log.info("Token endpoint connection to {} warmed up", target);
+            return true;
+        } catch (IOException | HttpException | ExecutionException | RuntimeException e) {
+            log.warn("Unable to warm up token endpoint connection to {} - {}", tokenUrl, e.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    @Override
+    protected void postProcessHttpRequest(HttpUriRequest request) {
+        if (totalTimeoutMs == 0) {
+            return;
+        }
+
+        // aborting a request that has completed is a no-op, so the deadline is left to expire
+        try {
+            scheduler.schedule(() -> {
+                if (!request.isAborted()) {
+                    request.abort();
+                }
+            }, totalTimeoutMs);
+        } catch (RejectedExecutionException e) {
+            log.info("Renewal scheduler has been shut down - token request has no total timeout");
+        }
+    }
+
+    int getLeasedConnections() {
+        return connectionManager.getTotalStats().getLeased();
+    }
+
+    int getAvailableConnections() {
+        return connectionManager.getTotalStats().getAvailable();
+    }
+
+    private static PoolingHttpClientConnectionManager connectionManager(TokenEndpointClientProperties properties,
+                                                                        SSLConnectionSocketFactory sslSocketFactory) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+            RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", sslSocketFactory)
+                .build());
+        connectionManager.setMaxTotal(properties.getTokenEndpointMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(properties.getTokenEndpointMaxConnections());
+        connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MS);
+        connectionManager.setDefaultSocketConfig(SocketConfig.custom()
+            .setTcpNoDelay(true)
+            .setSoKeepAlive(true)
+            .setSoTimeout(properties.getTokenEndpointReadTimeoutMs())
+            .build());
+        return connectionManager;
+    }
+
+    private static ConnectionKeepAliveStrategy keepAliveStrategy(int keepAliveMs) {
+        return (response, context) -> {
+            long serverKeepAliveMs = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return serverKeepAliveMs > 0 ? Math.min(serverKeepAliveMs, keepAliveMs) : keepAliveMs;
+        };
+    }
+}
@@ -0,0 +1,144 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.store;
+
+import com.google.common.hash.Hashing;
+import com.scotiabank.oauth2.clientcredentials.CurrentTimeGenerator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Keeps shared tokens in a directory, so they're shared by all processes on a host that use the same directory - a
+ * stand-in for a distributed store when running several instances locally or in tests. Tokens are written in plain
+ * text, so the directory must only be readable by the service.
+ *
+ * Each key has a token file and a lease file, named after a hash of the key. Both are replaced by renaming a temporary
+ * file over them, so reads never see a partial file; updates hold an exclusive lock on the key's lock file, and on
+ * this class within the JVM since file locks aren't exclusive between threads of one process.
+ */
+public class FileSharedTokenStore implements SharedTokenStore {
+
+    private static final Object PROCESS_LOCK = new Object();
+
+    private final Path directory;
+    private final CurrentTimeGenerator currentTimeGenerator;
+
+    public FileSharedTokenStore(Path directory, CurrentTimeGenerator currentTimeGenerator) {
+        this.directory = directory;
+        this.currentTimeGenerator = currentTimeGenerator;
+    }
+
+    @Override
+    public StoredToken get(String key) {
+        StoredToken token = readToken(key);
+        if (token == null || token.isExpiredAt(currentTimeGenerator.getCurrentTimeMillis())) {
+            return null;
+        }
+        return token;
+    }
+
+    @Override
+    public boolean compareAndSet(String key, StoredToken expected, StoredToken update) {
+        return locked(key, () -> {
+            if (!Objects.equals(get(key), expected)) {
+                return false;
+            }
+            write(file(key, ".token"), update.getExpiresAtMs() + "\n" + update.getValue());
+            return true;
+        });
+    }
+
+    @Override
+    public boolean tryAcquireLease(String key, String owner, long leaseMs) {
+        return locked(key, () -> {
+            long currentTimeMs = currentTimeGenerator.getCurrentTimeMillis();
+            List<String> lease = read(file(key, ".lease"));
+            if (lease != null && !lease.get(0).equals(owner) && Long.parseLong(lease.get(1)) > currentTimeMs) {
+                return false;
+            }
+            write(file(key, ".lease"), owner + "\n" + (currentTimeMs + leaseMs));
+            return true;
+        });
+    }
+
+    @Override
+    public void releaseLease(String key, String owner) {
+        locked(key, () -> {
+            List<String> lease = read(file(key, ".lease"));
+            if (lease != null && lease.get(0).equals(owner)) {
+                Files.deleteIfExists(file(key, ".lease"));
+            }
+            return null;
+        });
+    }
+
+    private StoredToken readToken(String key) {
+        try {
+            List<String> token = read(file(key, ".token"));
+            return token != null ? new StoredToken(token.get(1), Long.parseLong(token.get(0))) : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path file(String key, String suffix) {
+        return directory.resolve(Hashing.sha256().hashString(key, StandardCharsets.UTF_8) + suffix);
+    }
+
+    private <T> T locked(String key, IOSupplier<T> action) {
+        synchronized (PROCESS_LOCK) {
+            try {
+                Files.createDirectories(directory);
+                try (FileChannel channel = FileChannel.open(file(key, ".lock"),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                     FileLock ignored = channel.lock()) {
+                    return action.get();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static List<String> read(Path file) throws IOException {
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            return lines.size() == 2 ? lines : null;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private void write(Path file, String contents) throws IOException {
+        Path temporary = Files.createTempFile(directory, "." + file.getFileName(), ".tmp");
+        try {
+            Files.write(temporary, contents.getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    @FunctionalInterface
+    private interface IOSupplier<T> {
+        T get() throws IOException;
+    }
+}
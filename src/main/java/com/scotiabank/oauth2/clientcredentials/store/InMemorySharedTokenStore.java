@@ -0,0 +1,73 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.store;
+
+import com.scotiabank.oauth2.clientcredentials.CurrentTimeGenerator;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps shared tokens in memory, so they're only shared by providers of the same JVM - the reference implementation of
+ * {@link SharedTokenStore}, and a stand-in for a distributed store in tests.
+ */
+public class InMemorySharedTokenStore implements SharedTokenStore {
+
+    private final ConcurrentMap<String, StoredToken> tokens = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Lease> leases = new ConcurrentHashMap<>();
+    private final CurrentTimeGenerator currentTimeGenerator;
+
+    public InMemorySharedTokenStore(CurrentTimeGenerator currentTimeGenerator) {
+        this.currentTimeGenerator = currentTimeGenerator;
+    }
+
+    @Override
+    public StoredToken get(String key) {
+        StoredToken token = tokens.get(key);
+        if (token == null || token.isExpiredAt(currentTimeGenerator.getCurrentTimeMillis())) {
+            return null;
+        }
+        return token;
+    }
+
+    @Override
+    public boolean compareAndSet(String key, StoredToken expected, StoredToken update) {
+        boolean[] replaced = new boolean[1];
+        tokens.compute(key, (k, current) -> {
+            StoredToken live = current == null || current.isExpiredAt(currentTimeGenerator.getCurrentTimeMillis())
+                ? null
+                : current;
+            replaced[0] = Objects.equals(live, expected);
+            return replaced[0] ? update : current;
+        });
+        return replaced[0];
+    }
+
+    @Override
+    public boolean tryAcquireLease(String key, String owner, long leaseMs) {
+        long currentTimeMs = currentTimeGenerator.getCurrentTimeMillis();
+        Lease lease = leases.compute(key, (k, current) ->
+            current == null || current.owner.equals(owner) || current.expiresAtMs <= currentTimeMs
+                ? new Lease(owner, currentTimeMs + leaseMs)
+                : current);
+        return lease.owner.equals(owner);
+    }
+
+    @Override
+    public void releaseLease(String key, String owner) {
+        leases.computeIfPresent(key, (k, current) -> current.owner.equals(owner) ? null : current);
+    }
+
+    private static final class Lease {
+        private final String owner;
+        private final long expiresAtMs;
+
+        private Lease(String owner, long expiresAtMs) {
+            this.owner = owner;
+            this.expiresAtMs = expiresAtMs;
+        }
+    }
+}
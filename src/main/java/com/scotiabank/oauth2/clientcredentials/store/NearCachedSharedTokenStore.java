@@ -0,0 +1,87 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.store;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers the tokens read from a {@link SharedTokenStore} for a short while, so that renewals retried in quick
+ * succession - by one provider, or by many providers of the same JVM - don't each reach the store.
+ *
+ * Successful updates go into the near cache, failed ones evict from it. Acquiring a lease evicts as well, so the lease
+ * holder deciding whether to renew always sees the latest token.
+ */
+public class NearCachedSharedTokenStore implements SharedTokenStore {
+
+    private final SharedTokenStore delegate;
+    private final long nearCacheNanos;
+    private final LongSupplier nanoClock;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public NearCachedSharedTokenStore(SharedTokenStore delegate, long nearCacheMs) {
+        this(delegate, nearCacheMs, System::nanoTime);
+    }
+
+    NearCachedSharedTokenStore(SharedTokenStore delegate, long nearCacheMs, LongSupplier nanoClock) {
+        this.delegate = delegate;
+        this.nearCacheNanos = TimeUnit.MILLISECONDS.toNanos(nearCacheMs);
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public StoredToken get(String key) {
+        long now = nanoClock.getAsLong();
+        Entry entry = entries.get(key);
+        if (entry != null && now - entry.readAtNanos < nearCacheNanos) {
+            return entry.token;
+        }
+
+        StoredToken token = delegate.get(key);
+        if (token != null) {
+            entries.put(key, new Entry(token, now));
+        } else {
+            entries.remove(key);
+        }
+        return token;
+    }
+
+    @Override
+    public boolean compareAndSet(String key, StoredToken expected, StoredToken update) {
+        boolean replaced = delegate.compareAndSet(key, expected, update);
+        if (replaced) {
+            entries.put(key, new Entry(update, nanoClock.getAsLong()));
+        } else {
+            entries.remove(key);
+        }
+        return replaced;
+    }
+
+    @Override
+    public boolean tryAcquireLease(String key, String owner, long leaseMs) {
+        boolean acquired = delegate.tryAcquireLease(key, owner, leaseMs);
+        if (acquired) {
+            entries.remove(key);
+        }
+        return acquired;
+    }
+
+    @Override
+    public void releaseLease(String key, String owner) {
+        delegate.releaseLease(key, owner);
+    }
+
+    private static final class Entry {
+        private final StoredToken token;
+        private final long readAtNanos;
+
+        private Entry(StoredToken token, long readAtNanos) {
+            this.token = token;
+            this.readAtNanos = readAtNanos;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.store;
+
+/**
+ * Shares tokens between instances of a service, so that one instance renews a token and the others reuse it instead
+ * of each requesting their own.
+ *
+ * Tokens are kept by key until they expire; an expired token reads as absent. Updates are conditional on the token
+ * currently held, so two instances renewing at once can't overwrite each other. Renewals are coordinated with a lease:
+ * only the instance holding the lease for a key is expected to request a new token, and a lease that isn't released
+ * lapses after its duration, so a crashed instance doesn't block renewal.
+ *
+ * Implementations are called while renewing, not on the read path, and must be safe for concurrent use.
+ */
+public interface SharedTokenStore {
+
+    /**
+     * Shares nothing - every provider renews its own token.
+     */
+    SharedTokenStore NONE = new SharedTokenStore() {
+        @Override
+        public StoredToken get(String key) {
+            return null;
+        }
+
+        @Override
+        public boolean compareAndSet(String key, StoredToken expected, StoredToken update) {
+            return false;
+        }
+
+        @Override
+        public boolean tryAcquireLease(String key, String owner, long leaseMs) {
+            return true;
+        }
+
+        @Override
+        public void releaseLease(String key, String owner) {
+        }
+    };
+
+    /**
+     * @return the token kept for the key, or null if there is none or it has expired
+     */
+    StoredToken get(String key);
+
+    /**
+     * Replaces the token kept for the key with {@code update} if the token currently kept is {@code expected} - null
+     * expecting there to be none.
+     *
+     * @return whether the token was replaced
+     */
+    boolean compareAndSet(String key, StoredToken expected, StoredToken update);
+
+    /**
+     * Takes the lease for renewing the key's token if no other owner holds it, or extends it if {@code owner}
+     * already does.
+     *
+     * @return whether {@code owner} holds the lease
+     */
+    boolean tryAcquireLease(String key, String owner, long leaseMs);
+
+    /**
+     * Gives up the lease if {@code owner} holds it.
+     */
+    void releaseLease(String key, String owner);
+}
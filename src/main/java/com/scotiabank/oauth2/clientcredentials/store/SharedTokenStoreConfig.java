@@ -0,0 +1,43 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.store;
+
+import com.scotiabank.oauth2.clientcredentials.ClientCredentialsConfigurationException;
+import com.scotiabank.oauth2.clientcredentials.CurrentTimeGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+
+/**
+ * Shares tokens through the configured store, fronted by a near cache, and doesn't share them otherwise.
+ */
+@Configuration
+public class SharedTokenStoreConfig {
+
+    @Bean("com.scotiabank.oauth2.clientcredentials.store SharedTokenStore")
+    public SharedTokenStore sharedTokenStore(SharedTokenStoreProperties properties,
+                                             CurrentTimeGenerator currentTimeGenerator) throws ClientCredentialsConfigurationException {
+        SharedTokenStore store;
+        switch (properties.getSharedTokenStore()) {
+            case IN_MEMORY:
+                store = new InMemorySharedTokenStore(currentTimeGenerator);
+                break;
+            case FILE:
+                if (properties.getSharedTokenStoreDirectory() == null) {
+                    throw new ClientCredentialsConfigurationException("sharedTokenStoreDirectory must be populated to share tokens through files");
+                }
+                store = new FileSharedTokenStore(Paths.get(properties.getSharedTokenStoreDirectory()), currentTimeGenerator);
+                break;
+            default:
+                return SharedTokenStore.NONE;
+        }
+
+        if (properties.getSharedTokenStoreNearCacheMs() == 0) {
+            return store;
+        }
+        return new NearCachedSharedTokenStore(store, properties.getSharedTokenStoreNearCacheMs());
+    }
+}
@@ -0,0 +1,50 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.store;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import javax.validation.constraints.Min;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "oauth2.clientcredentials")
+public class SharedTokenStoreProperties {
+    public SharedTokenStoreProperties() {
+        // by default, every instance renews its own tokens
+        sharedTokenStore = Type.NONE;
+
+        // by default, give the instance renewing a token 30 seconds before another one may take over
+        sharedTokenStoreLeaseMs = (int)Duration.of(30, ChronoUnit.SECONDS).toMillis();
+
+        // by default, reuse a token read from the store for a second before reading it again
+        sharedTokenStoreNearCacheMs = (int)Duration.of(1, ChronoUnit.SECONDS).toMillis();
+    }
+
+    private Type sharedTokenStore;
+
+    // directory shared by all instances when sharing tokens through files
+    private String sharedTokenStoreDirectory;
+
+    @Min(value = 1, message = "sharedTokenStoreLeaseMs must be a positive, non-zero value")
+    private int sharedTokenStoreLeaseMs;
+
+    // 0 reads the store on every renewal
+    @Min(value = 0, message = "sharedTokenStoreNearCacheMs must not be negative")
+    private int sharedTokenStoreNearCacheMs;
+
+    public enum Type {
+        // tokens aren't shared
+        NONE,
+        // tokens are shared by the providers of this JVM
+        IN_MEMORY,
+        // tokens are shared through files in sharedTokenStoreDirectory, by all processes using it
+        FILE
+    }
+}
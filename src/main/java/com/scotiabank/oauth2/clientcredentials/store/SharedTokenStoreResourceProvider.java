@@ -0,0 +1,191 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.store;
+
+import com.scotiabank.oauth2.clientcredentials.AutoRenewAsyncResourceProvider;
+import com.scotiabank.oauth2.clientcredentials.CurrentTimeGenerator;
+import com.scotiabank.oauth2.clientcredentials.ExpiringResource;
+import com.scotiabank.oauth2.clientcredentials.ExpiringResourceProvider;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consults a {@link SharedTokenStore} before requesting a token, so that of all the instances sharing the store only
+ * one requests each new token and the others reuse it.
+ *
+ * A token in the store that expires later than the last one this provider handed out was renewed by another instance
+ * and is reused as is. Otherwise the provider renews the token itself if it gets the lease, and shares the result. An
+ * instance that doesn't get the lease and still has a token hands out nothing, so its auto renewal keeps the current
+ * token and retries once the lease holder has had the chance to share the new one. An instance without a token waits
+ * for the lease holder to share one instead, trying for the lease as it goes so that it renews the token itself if the
+ * lease holder gives up. It waits no longer than a reader of {@link AutoRenewAsyncResourceProvider} would, and only
+ * then hands out nothing.
+ *
+ * The store is never required: if it can't be reached, the token is requested directly.
+ */
+@Slf4j
+public class SharedTokenStoreResourceProvider implements ExpiringResourceProvider<String> {
+
+    // how often the store is read while waiting on another instance to share a token
+    private static final long POLL_INTERVAL_MS = 50;
+
+    private final ExpiringResourceProvider<String> delegate;
+    private final SharedTokenStore store;
+    private final String key;
+    private final long leaseMs;
+    private final long maxWaitMs;
+    private final CurrentTimeGenerator currentTimeGenerator;
+    private final String owner = UUID.randomUUID().toString();
+
+    // expiry of the last token handed out - anything in the store expiring later was renewed by someone else
+    private volatile long lastExpiresAtMs;
+
+    public SharedTokenStoreResourceProvider(ExpiringResourceProvider<String> delegate,
+                                            SharedTokenStore store,
+                                            String key,
+                                            long leaseMs,
+                                            CurrentTimeGenerator currentTimeGenerator) {
+        this(delegate, store, key, leaseMs, AutoRenewAsyncResourceProvider.RENEWAL_WAIT_MS, currentTimeGenerator);
+    }
+
+    SharedTokenStoreResourceProvider(ExpiringResourceProvider<String> delegate,
+                                     SharedTokenStore store,
+                                     String key,
+                                     long leaseMs,
+                                     long maxWaitMs,
+                                     CurrentTimeGenerator currentTimeGenerator) {
+        this.delegate = delegate;
+        this.store = store;
+        this.key = key;
+        this.leaseMs = leaseMs;
+        this.maxWaitMs = maxWaitMs;
+        this.currentTimeGenerator = currentTimeGenerator;
+    }
+
+    /**
+     * @return the delegate sharing its tokens through the store, or the delegate itself when nothing is shared
+     */
+    public static ExpiringResourceProvider<String> share(ExpiringResourceProvider<String> delegate,
+                                                         SharedTokenStore store,
+                                                         String key,
+                                                         long leaseMs,
+                                                         CurrentTimeGenerator currentTimeGenerator) {
+        if (store == SharedTokenStore.NONE) {
+            return delegate;
+        }
+        return new SharedTokenStoreResourceProvider(delegate, store, key, leaseMs, currentTimeGenerator);
+    }
+
+    @Override
+    public ExpiringResource<String> getResource() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        for (boolean waiting = false; ; waiting = true) {
+            try {
+                StoredToken stored = store.get(key);
+                if (isRenewedElsewhere(stored)) {
+                    log.info("Reusing token renewed by another instance");
+                    return reuse(stored);
+                }
+
+                if (store.tryAcquireLease(key, owner, leaseMs)) {
+                    break;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Shared token store unavailable - requesting token directly", e);
+                return delegate.getResource();
+            }
+
+            if (hasUnexpiredToken()) {
+                log.info("Another instance is renewing the token - keeping the current one until it's shared");
+                return null;
+            }
+            if (!waiting) {
+                log.info("Another instance is renewing the token - waiting for it to be shared");
+            }
+            if (!pollAgain(deadline)) {
+                log.info("No token shared within {} ms", maxWaitMs);
+                return null;
+            }
+        }
+
+        try {
+            return renewAndShare();
+        } finally {
+            releaseLease();
+        }
+    }
+
+    private ExpiringResource<String> renewAndShare() {
+        StoredToken latest;
+        try {
+            latest = store.get(key);
+            if (isRenewedElsewhere(latest)) {
+                log.info("Reusing token renewed by another instance");
+                return reuse(latest);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Shared token store unavailable - requesting token directly", e);
+            return delegate.getResource();
+        }
+
+        ExpiringResource<String> renewed = delegate.getResource();
+        if (renewed == null) {
+            return null;
+        }
+        lastExpiresAtMs = renewed.getExpiration().toEpochMilli();
+
+        try {
+            if (store.compareAndSet(key, latest, StoredToken.of(renewed))) {
+                log.info("Shared renewed token");
+            } else {
+                log.info("Another instance shared a token first - keeping the renewed one");
+            }
+        } catch (RuntimeException e) {
+            log.warn("Unable to share renewed token", e);
+        }
+        return renewed;
+    }
+
+    private boolean hasUnexpiredToken() {
+        return lastExpiresAtMs > currentTimeGenerator.getCurrentTimeMillis();
+    }
+
+    /**
+     * @return whether to read the store again - false once the deadline has passed
+     */
+    private static boolean pollAgain(long deadline) {
+        long remainingNanos = deadline - System.nanoTime();
+        if (remainingNanos <= 0) {
+            return false;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(Math.min(remainingNanos, TimeUnit.MILLISECONDS.toNanos(POLL_INTERVAL_MS)));
+            return true;
+        } catch (InterruptedException e) {
+            log.error("Interrupted exception", e);
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void releaseLease() {
+        try {
+            store.releaseLease(key, owner);
+        } catch (RuntimeException e) {
+            log.warn("Unable to release token renewal lease - it lapses after {} ms", leaseMs, e);
+        }
+    }
+
+    private boolean isRenewedElsewhere(StoredToken stored) {
+        return stored != null && stored.getExpiresAtMs() > lastExpiresAtMs;
+    }
+
+    private ExpiringResource<String> reuse(StoredToken stored) {
+        lastExpiresAtMs = stored.getExpiresAtMs();
+        return stored.toResource();
+    }
+}
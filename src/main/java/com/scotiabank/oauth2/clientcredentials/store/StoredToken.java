@@ -0,0 +1,70 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.store;
+
+import com.scotiabank.oauth2.clientcredentials.ExpiringResource;
+import com.scotiabank.oauth2.clientcredentials.TokenResource;
+
+import java.time.Instant;
+import java.util.Objects;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A token as kept in a {@link SharedTokenStore}: its value and when it expires, in epoch millis. Two stored tokens are
+ * equal when both match, which is what {@link SharedTokenStore#compareAndSet} compares.
+ */
+public final class StoredToken {
+    private final String value;
+    private final long expiresAtMs;
+
+    public StoredToken(String value, long expiresAtMs) {
+        this.value = checkNotNull(value);
+        this.expiresAtMs = expiresAtMs;
+    }
+
+    public static StoredToken of(ExpiringResource<String> resource) {
+        return new StoredToken(resource.getValue(), resource.getExpiration().toEpochMilli());
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public long getExpiresAtMs() {
+        return expiresAtMs;
+    }
+
+    public boolean isExpiredAt(long currentTimeMs) {
+        return currentTimeMs >= expiresAtMs;
+    }
+
+    public ExpiringResource<String> toResource() {
+        return new TokenResource(value, Instant.ofEpochMilli(expiresAtMs));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof StoredToken)) {
+            return false;
+        }
+        StoredToken other = (StoredToken) o;
+        return expiresAtMs == other.expiresAtMs && value.equals(other.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(value, expiresAtMs);
+    }
+
+    @Override
+    public String toString() {
+        // never log the token itself
+        return "StoredToken expiring at " + Instant.ofEpochMilli(expiresAtMs);
+    }
+}
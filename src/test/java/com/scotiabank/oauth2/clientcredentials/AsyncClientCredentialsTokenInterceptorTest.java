@@ -0,0 +1,264 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.AsyncClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AsyncClientCredentialsTokenInterceptorTest {
+
+    @InjectMocks
+    AsyncClientCredentialsTokenInterceptor sut;
+
+    @Mock
+    AsyncExpiringResourceProvider<String> tokenProvider;
+
+    @Mock
+    ResourceAutoRenewalProperties properties;
+
+    @Mock
+    HttpHeaders httpHeaders;
+
+    @Mock
+    HttpRequest httpRequest;
+
+    @Mock
+    AsyncClientHttpRequestExecution execution;
+
+    @Mock
+    ClientHttpResponse clientHttpResponse;
+
+    @Mock
+    ExpiringResource<String> token;
+
+    byte body[] = new byte[0];
+
+    @Test
+    public void intercept_whenAuthorizationHeaderExists_doesNotModifyRequest() throws IOException {
+        SettableListenableFuture<ClientHttpResponse> response = new SettableListenableFuture<>();
+        when(httpRequest.getHeaders()).thenReturn(httpHeaders);
+        when(httpHeaders.containsKey("authorization")).thenReturn(true);
+        when(execution.executeAsync(same(httpRequest), same(body))).thenReturn(response);
+
+        ListenableFuture<ClientHttpResponse> result = sut.intercept(httpRequest, body, execution);
+
+        assertThat(result).isSameAs(response);
+        verify(httpHeaders, never()).add(any(), any());
+        verifyZeroInteractions(tokenProvider);
+    }
+
+    @Test
+    public void intercept_whenTokenIsCached_executesRequestImmediately() throws IOException {
+        SettableListenableFuture<ClientHttpResponse> response = new SettableListenableFuture<>();
+        when(httpRequest.getHeaders()).thenReturn(httpHeaders);
+        when(httpHeaders.containsKey("authorization")).thenReturn(false);
+        when(token.getValue()).thenReturn("token");
+        when(tokenProvider.getResourceAsync()).thenReturn(CompletableFuture.completedFuture(token));
+        when(execution.executeAsync(same(httpRequest), same(body))).thenReturn(response);
+
+        ListenableFuture<ClientHttpResponse> result = sut.intercept(httpRequest, body, execution);
+
+        assertThat(result).isSameAs(response);
+        verify(httpHeaders).add(eq("Authorization"), eq("Bearer token"));
+    }
+
+    @Test
+    public void intercept_whenCachedTokenIsNull_throwsException() {
+        when(httpRequest.getHeaders()).thenReturn(httpHeaders);
+        when(httpHeaders.containsKey("authorization")).thenReturn(false);
+        when(tokenProvider.getResourceAsync()).thenReturn(CompletableFuture.completedFuture(null));
+
+        assertThatThrownBy(() -> sut.intercept(httpRequest, body, execution))
+            .isExactlyInstanceOf(ClientCredentialsTokenRequestFailedException.class);
+    }
+
+    @Test
+    public void intercept_whenTokenIsPending_executesRequestOnceTokenIsAvailable() throws Exception {
+        CompletableFuture<ExpiringResource<String>> pendingToken = new CompletableFuture<>();
+        SettableListenableFuture<ClientHttpResponse> response = new SettableListenableFuture<>();
+        when(httpRequest.getHeaders()).thenReturn(httpHeaders);
+        when(httpHeaders.containsKey("authorization")).thenReturn(false);
+        when(token.getValue()).thenReturn("token");
+        when(tokenProvider.getResourceAsync()).thenReturn(pendingToken);
+        when(execution.executeAsync(same(httpRequest), same(body))).thenReturn(response);
+
+        ListenableFuture<ClientHttpResponse> result = sut.intercept(httpRequest, body, execution);
+
+        assertThat(result.isDone()).isFalse();
+        verify(execution, never()).executeAsync(any(), any());
+
+        pendingToken.complete(token);
+        response.set(clientHttpResponse);
+
+        assertThat(result.get()).isSameAs(clientHttpResponse);
+        verify(httpHeaders).add(eq("Authorization"), eq("Bearer token"));
+    }
+
+    @Test
+    public void intercept_whenPendingTokenIsNull_failsResponse() throws IOException {
+        CompletableFuture<ExpiringResource<String>> pendingToken = new CompletableFuture<>();
+        when(httpRequest.getHeaders()).thenReturn(httpHeaders);
+        when(httpHeaders.containsKey("authorization")).thenReturn(false);
+        when(tokenProvider.getResourceAsync()).thenReturn(pendingToken);
+
+        ListenableFuture<ClientHttpResponse> result = sut.intercept(httpRequest, body, execution);
+        pendingToken.complete(null);
+
+        assertThatThrownBy(result::get)
+            .isExactlyInstanceOf(ExecutionException.class)
+            .hasCauseExactlyInstanceOf(ClientCredentialsTokenRequestFailedException.class);
+        verify(execution, never()).executeAsync(any(), any());
+    }
+
+    @Test
+    public void intercept_whenPendingTokenFails_failsResponse() throws IOException {
+        CompletableFuture<ExpiringResource<String>> pendingToken = new CompletableFuture<>();
+        when(httpRequest.getHeaders()).thenReturn(httpHeaders);
+        when(httpHeaders.containsKey("authorization")).thenReturn(false);
+        when(tokenProvider.getResourceAsync()).thenReturn(pendingToken);
+
+        ListenableFuture<ClientHttpResponse> result = sut.intercept(httpRequest, body, execution);
+        pendingToken.completeExceptionally(new IllegalStateException());
+
+        assertThatThrownBy(result::get)
+            .isExactlyInstanceOf(ExecutionException.class)
+            .hasCauseExactlyInstanceOf(ClientCredentialsTokenRequestFailedException.class);
+        verify(execution, never()).executeAsync(any(), any());
+    }
+
+    @Test
+    public void intercept_whenPendingRequestExecutionFails_failsResponse() throws IOException {
+        CompletableFuture<ExpiringResource<String>> pendingToken = new CompletableFuture<>();
+        when(httpRequest.getHeaders()).thenReturn(httpHeaders);
+        when(httpHeaders.containsKey("authorization")).thenReturn(false);
+        when(token.getValue()).thenReturn("token");
+        when(tokenProvider.getResourceAsync()).thenReturn(pendingToken);
+        when(execution.executeAsync(same(httpRequest), same(body))).thenThrow(new IOException());
+
+        ListenableFuture<ClientHttpResponse> result = sut.intercept(httpRequest, body, execution);
+        pendingToken.complete(token);
+
+        assertThatThrownBy(result::get)
+            .isExactlyInstanceOf(ExecutionException.class)
+            .hasCauseExactlyInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void intercept_whenTokenIsRejected_invalidatesTokenAndReplaysRequestWithNewToken() throws Exception {
+        when(httpRequest.getHeaders()).thenReturn(httpHeaders);
+        when(httpHeaders.containsKey("authorization")).thenReturn(false);
+        when(properties.isInvalidateOnUnauthorized()).thenReturn(true);
+
+        ExpiringResource<String> renewedToken = mock(ExpiringResource.class);
+        when(token.getValue()).thenReturn("rejected");
+        when(renewedToken.getValue()).thenReturn("renewed");
+        when(tokenProvider.getResourceAsync())
+            .thenReturn(CompletableFuture.completedFuture(token), CompletableFuture.completedFuture(renewedToken));
+
+        SettableListenableFuture<ClientHttpResponse> response = new SettableListenableFuture<>();
+        SettableListenableFuture<ClientHttpResponse> replayedResponse = new SettableListenableFuture<>();
+        ClientHttpResponse replayed = mock(ClientHttpResponse.class);
+        when(clientHttpResponse.getRawStatusCode()).thenReturn(401);
+        when(execution.executeAsync(same(httpRequest), same(body))).thenReturn(response, replayedResponse);
+
+        ListenableFuture<ClientHttpResponse> result = sut.intercept(httpRequest, body, execution);
+        response.set(clientHttpResponse);
+        replayedResponse.set(replayed);
+
+        assertThat(result.get()).isSameAs(replayed);
+
+        verify(tokenProvider).invalidate(same(token));
+        verify(clientHttpResponse).close();
+        verify(httpHeaders).add(eq("Authorization"), eq("Bearer rejected"));
+        verify(httpHeaders).set(eq("Authorization"), eq("Bearer renewed"));
+        verify(execution, times(2)).executeAsync(same(httpRequest), same(body));
+    }
+
+    @Test
+    public void intercept_whenTokenIsRejectedAndNoOtherTokenIsAvailable_returnsResponse() throws Exception {
+        when(httpRequest.getHeaders()).thenReturn(httpHeaders);
+        when(httpHeaders.containsKey("authorization")).thenReturn(false);
+        when(properties.isInvalidateOnUnauthorized()).thenReturn(true);
+        when(token.getValue()).thenReturn("token");
+        when(tokenProvider.getResourceAsync())
+            .thenReturn(CompletableFuture.completedFuture(token), CompletableFuture.completedFuture(null));
+
+        SettableListenableFuture<ClientHttpResponse> response = new SettableListenableFuture<>();
+        when(clientHttpResponse.getRawStatusCode()).thenReturn(401);
+        when(execution.executeAsync(same(httpRequest), same(body))).thenReturn(response);
+
+        ListenableFuture<ClientHttpResponse> result = sut.intercept(httpRequest, body, execution);
+        response.set(clientHttpResponse);
+
+        assertThat(result.get()).isSameAs(clientHttpResponse);
+
+        verify(tokenProvider).invalidate(same(token));
+        verify(clientHttpResponse, never()).close();
+        verify(execution, times(1)).executeAsync(same(httpRequest), same(body));
+    }
+
+    @Test
+    public void intercept_whenTokenIsRejectedAndNewTokenCannotBeRetrieved_returnsResponse() throws Exception {
+        when(httpRequest.getHeaders()).thenReturn(httpHeaders);
+        when(httpHeaders.containsKey("authorization")).thenReturn(false);
+        when(properties.isInvalidateOnUnauthorized()).thenReturn(true);
+        when(token.getValue()).thenReturn("token");
+        CompletableFuture<ExpiringResource<String>> failedToken = new CompletableFuture<>();
+        failedToken.completeExceptionally(new ClientCredentialsCircuitOpenException("open"));
+        when(tokenProvider.getResourceAsync()).thenReturn(CompletableFuture.completedFuture(token), failedToken);
+
+        SettableListenableFuture<ClientHttpResponse> response = new SettableListenableFuture<>();
+        when(clientHttpResponse.getRawStatusCode()).thenReturn(401);
+        when(execution.executeAsync(same(httpRequest), same(body))).thenReturn(response);
+
+        ListenableFuture<ClientHttpResponse> result = sut.intercept(httpRequest, body, execution);
+        response.set(clientHttpResponse);
+
+        assertThat(result.get()).isSameAs(clientHttpResponse);
+
+        verify(tokenProvider).invalidate(same(token));
+        verify(clientHttpResponse, never()).close();
+        verify(execution, times(1)).executeAsync(same(httpRequest), same(body));
+    }
+
+    @Test
+    public void intercept_whenResponseIsNotUnauthorized_returnsItWithoutInvalidatingToken() throws Exception {
+        when(httpRequest.getHeaders()).thenReturn(httpHeaders);
+        when(httpHeaders.containsKey("authorization")).thenReturn(false);
+        when(properties.isInvalidateOnUnauthorized()).thenReturn(true);
+        when(token.getValue()).thenReturn("token");
+        when(tokenProvider.getResourceAsync()).thenReturn(CompletableFuture.completedFuture(token));
+
+        SettableListenableFuture<ClientHttpResponse> response = new SettableListenableFuture<>();
+        when(clientHttpResponse.getRawStatusCode()).thenReturn(200);
+        when(execution.executeAsync(same(httpRequest), same(body))).thenReturn(response);
+
+        ListenableFuture<ClientHttpResponse> result = sut.intercept(httpRequest, body, execution);
+        response.set(clientHttpResponse);
+
+        assertThat(result.get()).isSameAs(clientHttpResponse);
+
+        verify(tokenProvider, never()).invalidate(any());
+    }
+}
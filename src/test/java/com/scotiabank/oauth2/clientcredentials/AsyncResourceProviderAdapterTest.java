@@ -0,0 +1,79 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AsyncResourceProviderAdapterTest {
+
+    @Mock
+    ExpiringResourceProvider<String> tokenProvider;
+
+    @Mock
+    ExpiringResource<String> resource;
+
+    @Test
+    public void getResourceAsync_whenDelegateIsSynchronous_retrievesResourceOnExecutor() {
+        List<Runnable> tasks = new ArrayList<>();
+        when(tokenProvider.getResource()).thenReturn(resource);
+
+        AsyncResourceProviderAdapter<String> sut = new AsyncResourceProviderAdapter<>(tokenProvider, tasks::add);
+        CompletableFuture<ExpiringResource<String>> result = sut.getResourceAsync();
+
+        assertThat(result).isNotDone();
+        assertThat(tasks).hasSize(1);
+
+        tasks.get(0).run();
+
+        assertThat(result).isCompletedWithValue(resource);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void getResourceAsync_whenDelegateIsAsynchronous_callsDelegateDirectly() {
+        ExpiringResourceProvider<String> asyncProvider = mock(ExpiringResourceProvider.class,
+            withSettings().extraInterfaces(AsyncExpiringResourceProvider.class));
+        CompletableFuture<ExpiringResource<String>> future = CompletableFuture.completedFuture(resource);
+        when(((AsyncExpiringResourceProvider<String>) asyncProvider).getResourceAsync()).thenReturn(future);
+
+        AsyncResourceProviderAdapter<String> sut = new AsyncResourceProviderAdapter<>(asyncProvider);
+        CompletableFuture<ExpiringResource<String>> result = sut.getResourceAsync();
+
+        assertThat(result).isSameAs(future);
+        verify(asyncProvider, never()).getResource();
+    }
+
+    @Test
+    public void invalidate_always_invalidatesResourceInDelegate() {
+        when(tokenProvider.invalidate(resource)).thenReturn(true);
+
+        AsyncResourceProviderAdapter<String> sut = new AsyncResourceProviderAdapter<>(tokenProvider);
+
+        assertThat(sut.invalidate(resource)).isTrue();
+    }
+
+    @Test
+    public void constructor_withoutExecutor_usesDefaultRenewalScheduler() {
+        AsyncResourceProviderAdapter<String> sut = new AsyncResourceProviderAdapter<>(tokenProvider);
+
+        assertThat(ReflectionTestUtils.getField(sut, "executor")).isSameAs(RenewalScheduler.getDefault());
+    }
+}
@@ -4,7 +4,10 @@
  */
 package com.scotiabank.oauth2.clientcredentials;
 
+import com.scotiabank.oauth2.clientcredentials.metrics.LongAdderTokenMetrics;
+import com.scotiabank.oauth2.clientcredentials.metrics.TokenMetrics;
 import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -15,13 +18,28 @@ import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.util.StopWatch;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.atMost;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @Slf4j
@@ -54,6 +72,13 @@ public class AutoRenewAsyncTokenProviderTest {
         when(resource.getExpiration()).thenReturn(currentTime.plusMillis(1000));
     }
 
+    @After
+    public void cleanup() {
+        if (sut != null) {
+            sut.close();
+        }
+    }
+
     @Test
     public void getToken_whenRequestComesBeforeToken_willBlockThreadUntilTokenAvailable() throws InterruptedException, TimeoutException, BrokenBarrierException {
         CyclicBarrier barrier = new CyclicBarrier(2);
@@ -168,4 +193,428 @@ public class AutoRenewAsyncTokenProviderTest {
         assertThat(result).isNotNull();
         assertThat(result).isSameAs(resource);
     }
+
+    @Test
+    public void getResource_whileRenewalIsInProgress_returnsCurrentResourceWithoutBlocking() throws InterruptedException {
+        CountDownLatch renewalStarted = new CountDownLatch(1);
+        CountDownLatch releaseRenewal = new CountDownLatch(1);
+        when(tokenProvider.getResource()).thenReturn(resource).thenAnswer((InvocationOnMock inv) -> {
+            renewalStarted.countDown();
+            releaseRenewal.await(10, TimeUnit.SECONDS);
+            return null;
+        });
+
+        sut = new AutoRenewAsyncResourceProvider<>(tokenProvider, properties, currentTimeGenerator);
+        assertThat(sut.getResource()).isSameAs(resource);
+
+        assertThat(renewalStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+        StopWatch s = new StopWatch();
+        s.start();
+        ExpiringResource<String> result = sut.getResource();
+        s.stop();
+        releaseRenewal.countDown();
+
+        assertThat(result).isSameAs(resource);
+        assertThat(s.getTotalTimeMillis()).isLessThan(50);
+    }
+
+    @Test
+    public void getResource_whenRetrievedResourceExpiresWithinPreemptiveExpiry_retriesAfterRenewalPeriod() throws InterruptedException {
+        when(properties.getRenewalLifetimePercent()).thenReturn(75);
+        // expires before the 300ms preemptive expiry, so it's never used
+        when(resource.getExpiration()).thenReturn(currentTime.plusMillis(100));
+        when(tokenProvider.getResource()).thenReturn(resource);
+
+        sut = new AutoRenewAsyncResourceProvider<>(tokenProvider, properties, currentTimeGenerator);
+        // a backoff of the default 1000ms, which only applies once a retrieval fails - without failures, an unusable
+        // resource must not be retried right away
+        ReflectionTestUtils.setField(sut, "renewalBackoff", new RenewalBackoff(new ResourceAutoRenewalProperties()));
+        Thread.sleep(500);
+
+        // once every 200ms renewal period, not on every scheduler tick
+        verify(tokenProvider, atLeast(2)).getResource();
+        verify(tokenProvider, atMost(4)).getResource();
+    }
+
+    @Test
+    public void getResource_whenRenewingByLifetime_renewsAtFractionOfLifetimeAndRetriesFailuresAfterPeriod() throws InterruptedException {
+        when(properties.getRenewalLifetimePercent()).thenReturn(50);
+        CountDownLatch retried = new CountDownLatch(1);
+        ExpiringResource<String> token2 = mock(ExpiringResource.class);
+        when(token2.getExpiration()).thenReturn(currentTime.plusMillis(1000));
+        when(tokenProvider.getResource()).thenReturn(null).thenAnswer((InvocationOnMock inv) -> {
+            retried.countDown();
+            return resource;
+        }).thenReturn(token2);
+
+        sut = new AutoRenewAsyncResourceProvider<>(tokenProvider, properties, currentTimeGenerator);
+
+        // the empty retrieval is retried after the 200ms renewal period
+        assertThat(retried.await(10, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(20);
+        assertThat(sut.getResource()).isSameAs(resource);
+
+        // half of the 1000ms lifetime - no renewal at the 200ms period
+        Thread.sleep(280);
+        verify(tokenProvider, times(2)).getResource();
+        assertThat(sut.getResource()).isSameAs(resource);
+
+        Thread.sleep(400);
+        verify(tokenProvider, times(3)).getResource();
+        assertThat(sut.getResource()).isSameAs(token2);
+    }
+
+    @Test
+    public void getResource_whenStaleWhileRevalidating_returnsStaleResourceUntilHardExpiry() throws InterruptedException, ExecutionException, TimeoutException {
+        when(properties.isStaleWhileRevalidateEnabled()).thenReturn(true);
+        when(properties.getHardExpiryMs()).thenReturn(100);
+        when(currentTimeGenerator.getNanoTime()).thenAnswer((InvocationOnMock inv) -> System.nanoTime());
+        CountDownLatch releaseRenewal = new CountDownLatch(1);
+        ExpiringResource<String> token2 = mock(ExpiringResource.class);
+        when(token2.getExpiration()).thenReturn(currentTime.plusMillis(5000));
+        when(tokenProvider.getResource()).thenReturn(resource).thenAnswer((InvocationOnMock inv) -> {
+            releaseRenewal.await(10, TimeUnit.SECONDS);
+            return token2;
+        });
+
+        sut = new AutoRenewAsyncResourceProvider<>(tokenProvider, properties, currentTimeGenerator);
+        assertThat(sut.getResource()).isSameAs(resource);
+
+        // past the 700ms soft expiry, with the renewal stuck
+        Thread.sleep(780);
+        StopWatch s = new StopWatch();
+        s.start();
+        ExpiringResource<String> result = sut.getResource();
+        s.stop();
+
+        assertThat(result).isSameAs(resource);
+        assertThat(s.getTotalTimeMillis()).isLessThan(50);
+
+        // past the 900ms hard expiry, readers wait on the renewal
+        Thread.sleep(200);
+        CompletableFuture<ExpiringResource<String>> pending = sut.getResourceAsync();
+        assertThat(pending).isNotDone();
+
+        releaseRenewal.countDown();
+        assertThat(pending.get(10, TimeUnit.SECONDS)).isSameAs(token2);
+    }
+
+    @Test
+    public void invalidate_whenResourceIsCurrent_retrievesNewResourceOnce() {
+        ExpiringResource<String> token2 = mock(ExpiringResource.class);
+        when(token2.getExpiration()).thenReturn(currentTime.plusMillis(1000));
+        when(tokenProvider.getResource()).thenReturn(resource, token2);
+
+        sut = new AutoRenewAsyncResourceProvider<>(tokenProvider, properties, currentTimeGenerator);
+        assertThat(sut.getResource()).isSameAs(resource);
+
+        assertThat(sut.invalidate(resource)).isTrue();
+        assertThat(sut.invalidate(resource)).isFalse();
+
+        assertThat(sut.getResource()).isSameAs(token2);
+        assertThat(sut.invalidate(resource)).isFalse();
+        assertThat(sut.getResource()).isSameAs(token2);
+
+        verify(tokenProvider, times(2)).getResource();
+    }
+
+    @Test
+    public void getResource_whenCachedResourceIsUsable_returnsItWithoutRetrieval() {
+        ResourceCache<String> cache = mock(ResourceCache.class);
+        when(cache.load()).thenReturn(resource);
+
+        sut = new AutoRenewAsyncResourceProvider<>(tokenProvider, properties, currentTimeGenerator,
+            RenewalScheduler.getDefault(), TokenMetrics.NOOP, cache);
+
+        assertThat(sut.getResource()).isSameAs(resource);
+
+        verify(tokenProvider, never()).getResource();
+    }
+
+    @Test
+    public void getResource_whenCachedResourceExpiresTooSoon_retrievesResource() {
+        ExpiringResource<String> cached = mock(ExpiringResource.class);
+        when(cached.getExpiration()).thenReturn(currentTime.plusMillis(100));
+        ResourceCache<String> cache = mock(ResourceCache.class);
+        when(cache.load()).thenReturn(cached);
+        when(tokenProvider.getResource()).thenReturn(resource);
+
+        sut = new AutoRenewAsyncResourceProvider<>(tokenProvider, properties, currentTimeGenerator,
+            RenewalScheduler.getDefault(), TokenMetrics.NOOP, cache);
+
+        assertThat(sut.getResource()).isSameAs(resource);
+    }
+
+    @Test
+    public void getResource_whenResourceIsRetrieved_storesItInCache() {
+        ResourceCache<String> cache = mock(ResourceCache.class);
+        when(tokenProvider.getResource()).thenReturn(resource);
+
+        sut = new AutoRenewAsyncResourceProvider<>(tokenProvider, properties, currentTimeGenerator,
+            RenewalScheduler.getDefault(), TokenMetrics.NOOP, cache);
+
+        assertThat(sut.getResource()).isSameAs(resource);
+
+        // stored after the resource is published, so possibly after it's handed out
+        verify(cache, timeout(1000)).store(resource);
+    }
+
+    @Test
+    public void start_whenStartupIsLazy_retrievesResourceOnceStarted() throws InterruptedException {
+        when(properties.isLazyStartupEnabled()).thenReturn(true);
+        when(tokenProvider.getResource()).thenReturn(resource);
+
+        sut = new AutoRenewAsyncResourceProvider<>(tokenProvider, properties, currentTimeGenerator);
+        Thread.sleep(100);
+        verify(tokenProvider, never()).getResource();
+
+        sut.start();
+        sut.start();
+
+        verify(tokenProvider, timeout(1000)).getResource();
+        assertThat(sut.getResource()).isSameAs(resource);
+    }
+
+    @Test
+    public void getResource_whenStartupIsLazyAndNotStarted_retrievesResource() throws InterruptedException {
+        when(properties.isLazyStartupEnabled()).thenReturn(true);
+        when(tokenProvider.getResource()).thenReturn(resource);
+
+        sut = new AutoRenewAsyncResourceProvider<>(tokenProvider, properties, currentTimeGenerator);
+        assertThat(sut.getResource()).isSameAs(resource);
+
+        // the resource already retrieved is renewed as usual rather than retrieved again
+        sut.start();
+        Thread.sleep(100);
+
+        verify(tokenProvider, times(1)).getResource();
+    }
+
+    @Test
+    public void warmUp_whenStartupIsLazyAndNotStarted_retrievesResourceOnCallingThread() {
+        when(properties.isLazyStartupEnabled()).thenReturn(true);
+        Thread caller = Thread.currentThread();
+        when(tokenProvider.getResource()).thenAnswer(invocation -> {
+            assertThat(Thread.currentThread()).isSameAs(caller);
+            return resource;
+        });
+
+        sut = new AutoRenewAsyncResourceProvider<>(tokenProvider, properties, currentTimeGenerator);
+
+        assertThat(sut.warmUp()).isSameAs(resource);
+        assertThat(sut.warmUp()).isSameAs(resource);
+        verify(tokenProvider, times(1)).getResource();
+    }
+
+    @Test
+    public void warmUp_whenSchedulerHasBeenShutDown_publishesAndCachesResource() {
+        when(properties.isLazyStartupEnabled()).thenReturn(true);
+        when(tokenProvider.getResource()).thenReturn(resource);
+        ResourceCache<String> cache = mock(ResourceCache.class);
+        RenewalScheduler scheduler = new RenewalScheduler(10, 1);
+        scheduler.destroy();
+
+        sut = new AutoRenewAsyncResourceProvider<>(tokenProvider, properties, currentTimeGenerator, scheduler,
+            TokenMetrics.NOOP, cache);
+
+        assertThat(sut.warmUp()).isSameAs(resource);
+        assertThat(sut.getResource()).isSameAs(resource);
+        verify(cache).store(resource);
+    }
+
+    @Test
+    public void close_always_stopsRenewal() throws InterruptedException {
+        when(tokenProvider.getResource()).thenReturn(resource);
+
+        sut = new AutoRenewAsyncResourceProvider<>(tokenProvider, properties, currentTimeGenerator);
+        assertThat(sut.getResource()).isSameAs(resource);
+
+        sut.close();
+        Thread.sleep(500);
+
+        verify(tokenProvider, times(1)).getResource();
+        assertThat(sut.getResource()).isSameAs(resource);
+    }
+
+    @Test
+    public void getResource_whenManyCallersMissConcurrently_retrievesResourceOnce() throws InterruptedException, ExecutionException, TimeoutException {
+        int callers = 32;
+        CountDownLatch initialRetrieval = new CountDownLatch(1);
+        CountDownLatch releaseRetrieval = new CountDownLatch(1);
+        when(tokenProvider.getResource()).thenAnswer((InvocationOnMock inv) -> {
+            initialRetrieval.countDown();
+            return null;
+        }).thenAnswer((InvocationOnMock inv) -> {
+            releaseRetrieval.await(10, TimeUnit.SECONDS);
+            return resource;
+        });
+
+        sut = new AutoRenewAsyncResourceProvider<>(tokenProvider, properties, currentTimeGenerator);
+        // let the initial retrieval come back empty so every caller below starts out with a cold miss
+        assertThat(initialRetrieval.await(10, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(20);
+
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        CyclicBarrier start = new CyclicBarrier(callers);
+        List<Future<ExpiringResource<String>>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(executor.submit(() -> {
+                start.await(10, TimeUnit.SECONDS);
+                return sut.getResource();
+            }));
+        }
+
+        Thread.sleep(50);
+        releaseRetrieval.countDown();
+
+        for (Future<ExpiringResource<String>> result : results) {
+            assertThat(result.get(10, TimeUnit.SECONDS)).isSameAs(resource);
+        }
+        executor.shutdown();
+
+        // one retrieval on construction, one shared by all of the cold callers
+        verify(tokenProvider, times(2)).getResource();
+    }
+
+    @Test
+    public void getResourceAsync_whenResourceIsAvailable_returnsCompletedFuture() {
+        when(tokenProvider.getResource()).thenReturn(resource);
+
+        sut = new AutoRenewAsyncResourceProvider<>(tokenProvider, properties, currentTimeGenerator);
+        sut.getResource();
+
+        CompletableFuture<ExpiringResource<String>> result = sut.getResourceAsync();
+
+        assertThat(result).isCompletedWithValue(resource);
+    }
+
+    @Test
+    public void getResourceAsync_whenResourceIsNotAvailable_completesOnceRetrieved() throws InterruptedException, ExecutionException, TimeoutException {
+        CountDownLatch initialRetrieval = new CountDownLatch(1);
+        CountDownLatch releaseRetrieval = new CountDownLatch(1);
+        when(tokenProvider.getResource()).thenAnswer((InvocationOnMock inv) -> {
+            initialRetrieval.countDown();
+            return null;
+        }).thenAnswer((InvocationOnMock inv) -> {
+            releaseRetrieval.await(10, TimeUnit.SECONDS);
+            return resource;
+        });
+
+        sut = new AutoRenewAsyncResourceProvider<>(tokenProvider, properties, currentTimeGenerator);
+        assertThat(initialRetrieval.await(10, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(20);
+
+        CompletableFuture<ExpiringResource<String>> result = sut.getResourceAsync();
+        assertThat(result).isNotDone();
+
+        releaseRetrieval.countDown();
+
+        assertThat(result.get(10, TimeUnit.SECONDS)).isSameAs(resource);
+    }
+
+    @Test
+    public void getResourceAsync_whenClosed_completesWithNull() {
+        sut = new AutoRenewAsyncResourceProvider<>(tokenProvider, properties, currentTimeGenerator);
+        sut.close();
+
+        CompletableFuture<ExpiringResource<String>> result = sut.getResourceAsync();
+
+        assertThat(result).isCompletedWithValue(null);
+    }
+
+    @Test
+    public void getResource_always_recordsMetrics() throws InterruptedException {
+        CountDownLatch initialRetrieval = new CountDownLatch(1);
+        when(tokenProvider.getResource()).thenAnswer((InvocationOnMock inv) -> {
+            initialRetrieval.countDown();
+            throw new IllegalStateException();
+        }).thenReturn(resource);
+        LongAdderTokenMetrics metrics = new LongAdderTokenMetrics();
+
+        sut = new AutoRenewAsyncResourceProvider<>(tokenProvider, properties, currentTimeGenerator,
+            RenewalScheduler.getDefault(), metrics);
+        assertThat(initialRetrieval.await(10, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(20);
+
+        assertThat(sut.getResource()).isSameAs(resource);
+        assertThat(sut.getResource()).isSameAs(resource);
+
+        assertThat(metrics.getColdMissCount()).isEqualTo(1);
+        assertThat(metrics.getHitCount()).isEqualTo(1);
+        assertThat(metrics.getWaitTime().getCount()).isEqualTo(1);
+        assertThat(metrics.getFetchFailureCount("IllegalStateException")).isEqualTo(1);
+        assertThat(metrics.getFetchSuccessCount()).isEqualTo(1);
+        assertThat(metrics.getFetchLatency().getCount()).isEqualTo(2);
+        assertThat(metrics.getRemainingLifetimeMs()).isEqualTo(1000);
+    }
+
+    @Test
+    public void getRemainingLifetimeMs_whenNoResource_returnsZero() {
+        sut = new AutoRenewAsyncResourceProvider<>(tokenProvider, properties, currentTimeGenerator);
+
+        assertThat(sut.getRemainingLifetimeMs()).isEqualTo(0);
+    }
+
+    @Test
+    public void getResource_whenWallClockIsSteppedAfterRetrieval_keepsResourceUntilItsLifetimeElapses() {
+        when(properties.getRenewalPeriodMs()).thenReturn(10000);
+        when(resource.getExpiration()).thenReturn(currentTime.plusMillis(60000));
+        AtomicLong nanoTime = new AtomicLong();
+        when(currentTimeGenerator.getNanoTime()).thenAnswer((InvocationOnMock inv) -> nanoTime.get());
+        ExpiringResource<String> token2 = mock(ExpiringResource.class);
+        when(token2.getExpiration()).thenReturn(currentTime.plusSeconds(3600).plusMillis(60000));
+        when(tokenProvider.getResource()).thenReturn(resource, token2);
+
+        sut = new AutoRenewAsyncResourceProvider<>(tokenProvider, properties, currentTimeGenerator);
+        assertThat(sut.getResource()).isSameAs(resource);
+
+        // the wall clock jumps an hour ahead, as when NTP corrects it
+        when(currentTimeGenerator.getCurrentTime()).thenReturn(currentTime.plusSeconds(3600));
+        assertThat(sut.getResource()).isSameAs(resource);
+        assertThat(sut.getRemainingLifetimeMs()).isEqualTo(60000);
+
+        // past the 59700ms the resource is usable for
+        nanoTime.set(TimeUnit.MILLISECONDS.toNanos(59800));
+        assertThat(sut.getResource()).isSameAs(token2);
+        verify(tokenProvider, times(2)).getResource();
+    }
+
+    @Test
+    public void getClockSkewMs_always_reportsSkewOfCurrentResource() {
+        when(resource.getClockSkewMs()).thenReturn(-5000L);
+        when(tokenProvider.getResource()).thenReturn(resource);
+        LongAdderTokenMetrics metrics = new LongAdderTokenMetrics();
+
+        sut = new AutoRenewAsyncResourceProvider<>(tokenProvider, properties, currentTimeGenerator,
+            RenewalScheduler.getDefault(), metrics);
+
+        assertThat(sut.getResource()).isSameAs(resource);
+        assertThat(sut.getClockSkewMs()).isEqualTo(-5000);
+        assertThat(metrics.getClockSkewMs()).isEqualTo(-5000);
+    }
+
+    @Test
+    public void getResource_whileBackingOffAfterFailure_returnsNullUntilRetryIsDue() throws InterruptedException, TimeoutException, BrokenBarrierException {
+        when(properties.getRenewalBackoffInitialMs()).thenReturn(300);
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        when(tokenProvider.getResource()).thenAnswer((InvocationOnMock inv) -> {
+            barrier.await(10, TimeUnit.SECONDS);
+            throw new IllegalStateException();
+        }).thenReturn(resource);
+
+        sut = new AutoRenewAsyncResourceProvider<>(tokenProvider, properties, currentTimeGenerator);
+        // back off for the whole 300ms ceiling rather than a random part of it
+        ReflectionTestUtils.setField(sut, "renewalBackoff", new RenewalBackoff(properties, () -> 1.0, System::nanoTime));
+        barrier.await(10, TimeUnit.SECONDS);
+        Thread.sleep(50);
+
+        // neither this miss nor the 200ms renewal retries before the backoff elapses
+        assertThat(sut.getResource()).isNull();
+        Thread.sleep(170);
+        verify(tokenProvider, times(1)).getResource();
+
+        Thread.sleep(150);
+        assertThat(sut.getResource()).isSameAs(resource);
+    }
 }
@@ -0,0 +1,21 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClientCredentialsCircuitOpenExceptionTest {
+
+    @Test
+    public void messageConstructorInitializes() {
+        ClientCredentialsCircuitOpenException sut = new ClientCredentialsCircuitOpenException("some test message");
+
+        assertThat(sut).isInstanceOf(ClientCredentialsTokenRequestFailedException.class);
+        assertThat(sut.getMessage()).isEqualTo("some test message");
+        assertThat(sut.getCause()).isNull();
+    }
+}
@@ -4,15 +4,28 @@
  */
 package com.scotiabank.oauth2.clientcredentials;
 
+import com.scotiabank.oauth2.clientcredentials.metrics.TokenMetrics;
+import com.scotiabank.oauth2.clientcredentials.request.ClientAssertionGenerator;
 import com.scotiabank.oauth2.clientcredentials.request.ClientAssertionRequestEnhancer;
 import com.scotiabank.oauth2.clientcredentials.request.ClientCredentialsAssertionGenerationProperties;
 import com.scotiabank.oauth2.clientcredentials.request.ClientCredentialsTokenRequestor;
+import com.scotiabank.oauth2.clientcredentials.request.StandaloneTokenRequestor;
+import com.scotiabank.oauth2.clientcredentials.request.TokenEndpointCircuitBreaker;
+import com.scotiabank.oauth2.clientcredentials.request.TokenEndpointClientProperties;
+import com.scotiabank.oauth2.clientcredentials.store.InMemorySharedTokenStore;
+import com.scotiabank.oauth2.clientcredentials.store.SharedTokenStore;
+import com.scotiabank.oauth2.clientcredentials.store.SharedTokenStoreProperties;
+import com.scotiabank.oauth2.clientcredentials.store.SharedTokenStoreResourceProvider;
+import com.nimbusds.jose.JWSSigner;
 import org.junit.Test;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.security.oauth2.client.token.grant.client.ClientCredentialsResourceDetails;
 import org.springframework.security.oauth2.common.AuthenticationScheme;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.Arrays;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -37,17 +50,30 @@ public class ClientCredentialsInterceptorConfigTest {
     public void clientCredentialsAccessTokenProvider_always_constructsAsynchAccessTokenProvider() {
         ClientCredentialsResourceDetails resource = mock(ClientCredentialsResourceDetails.class);
         RestTemplate restTemplate = mock(RestTemplate.class);
+        ClientHttpRequestFactory requestFactory = mock(ClientHttpRequestFactory.class);
         ClientAssertionRequestEnhancer enhancer = mock(ClientAssertionRequestEnhancer.class);
         ResourceAutoRenewalProperties tokenManagementProps = mock(ResourceAutoRenewalProperties.class);
         CurrentTimeGenerator currentTimeGenerator = mock(CurrentTimeGenerator.class);
 
         when(tokenManagementProps.getRenewalPeriodMs()).thenReturn(Integer.MAX_VALUE);
 
-        ExpiringResourceProvider<String> result = sut.clientCredentialsAccessTokenProvider(resource, restTemplate, enhancer, tokenManagementProps, currentTimeGenerator);
+        TokenMetrics tokenMetrics = mock(TokenMetrics.class);
+        TokenEndpointCircuitBreaker circuitBreaker = TokenEndpointCircuitBreaker.disabled();
+
+        ResourceCache<String> tokenCache = ResourceCache.none();
+
+        RenewalScheduler renewalScheduler = new RenewalScheduler(10, 1);
+
+        ExpiringResourceProvider<String> result = sut.clientCredentialsAccessTokenProvider(resource, restTemplate, requestFactory, enhancer,
+            mock(ClientAssertionGenerator.class), new TokenEndpointClientProperties(), tokenManagementProps, currentTimeGenerator, renewalScheduler, circuitBreaker, tokenMetrics, tokenCache,
+            SharedTokenStore.NONE, new SharedTokenStoreProperties(), new ClientCredentialsAssertionGenerationProperties());
 
         assertThat(result).isInstanceOf(AutoRenewAsyncResourceProvider.class);
         assertThat(ReflectionTestUtils.getField(result, "management")).isSameAs(tokenManagementProps);
         assertThat(ReflectionTestUtils.getField(result, "currentTimeGenerator")).isSameAs(currentTimeGenerator);
+        assertThat(ReflectionTestUtils.getField(result, "scheduler")).isSameAs(renewalScheduler);
+        assertThat(ReflectionTestUtils.getField(result, "metrics")).isSameAs(tokenMetrics);
+        assertThat(ReflectionTestUtils.getField(result, "cache")).isSameAs(tokenCache);
 
         Object tokenDelegate = ReflectionTestUtils.getField(result, "providerDelegate");
         assertThat(tokenDelegate).isInstanceOf(ClientCredentialsTokenRequestor.class);
@@ -55,5 +81,119 @@ public class ClientCredentialsInterceptorConfigTest {
         ClientCredentialsTokenRequestor delegate = (ClientCredentialsTokenRequestor)tokenDelegate;
         assertThat(ReflectionTestUtils.getField(delegate, "restTemplate")).isSameAs(restTemplate);
         assertThat(ReflectionTestUtils.getField(delegate, "resource")).isSameAs(resource);
+        assertThat(delegate.getCircuitBreaker()).isSameAs(circuitBreaker);
+
+        renewalScheduler.destroy();
+    }
+
+    @Test
+    public void clientCredentialsAccessTokenProvider_whenTokensAreShared_sharesTokensPerClientTokenUrlAndScopes() {
+        ClientCredentialsResourceDetails resource = new ClientCredentialsResourceDetails();
+        resource.setAccessTokenUri("token url");
+        resource.setScope(Arrays.asList("write", "read"));
+        ResourceAutoRenewalProperties tokenManagementProps = mock(ResourceAutoRenewalProperties.class);
+        when(tokenManagementProps.getRenewalPeriodMs()).thenReturn(Integer.MAX_VALUE);
+        ClientCredentialsAssertionGenerationProperties assertionProps = new ClientCredentialsAssertionGenerationProperties();
+        assertionProps.setClientId("client");
+        CurrentTimeGenerator currentTimeGenerator = new CurrentTimeGenerator();
+        SharedTokenStore sharedTokenStore = new InMemorySharedTokenStore(currentTimeGenerator);
+
+        RenewalScheduler renewalScheduler = new RenewalScheduler(10, 1);
+
+        ExpiringResourceProvider<String> result = sut.clientCredentialsAccessTokenProvider(resource, mock(RestTemplate.class),
+            mock(ClientHttpRequestFactory.class), mock(ClientAssertionRequestEnhancer.class), mock(ClientAssertionGenerator.class),
+            new TokenEndpointClientProperties(), tokenManagementProps, currentTimeGenerator, renewalScheduler,
+            TokenEndpointCircuitBreaker.disabled(), mock(TokenMetrics.class), ResourceCache.none(),
+            sharedTokenStore, new SharedTokenStoreProperties(), assertionProps);
+
+        Object delegate = ReflectionTestUtils.getField(result, "providerDelegate");
+        assertThat(delegate).isInstanceOf(SharedTokenStoreResourceProvider.class);
+        assertThat(ReflectionTestUtils.getField(delegate, "store")).isSameAs(sharedTokenStore);
+        assertThat(ReflectionTestUtils.getField(delegate, "key")).isEqualTo("client token url [read, write]");
+        assertThat(ReflectionTestUtils.getField(delegate, "delegate")).isInstanceOf(ClientCredentialsTokenRequestor.class);
+
+        renewalScheduler.destroy();
+    }
+
+    @Test
+    public void clientCredentialsAccessTokenProvider_whenCodecIsStandalone_requestsTokensWithoutSpringSecurityOAuth2() {
+        ClientCredentialsResourceDetails resource = new ClientCredentialsResourceDetails();
+        resource.setAccessTokenUri("http://localhost/token");
+        ResourceAutoRenewalProperties tokenManagementProps = mock(ResourceAutoRenewalProperties.class);
+        when(tokenManagementProps.getRenewalPeriodMs()).thenReturn(Integer.MAX_VALUE);
+        TokenEndpointClientProperties tokenEndpointClientProps = new TokenEndpointClientProperties();
+        tokenEndpointClientProps.setTokenEndpointCodec(TokenEndpointClientProperties.Codec.STANDALONE);
+        ClientHttpRequestFactory requestFactory = mock(ClientHttpRequestFactory.class);
+        ClientAssertionGenerator assertionGenerator = mock(ClientAssertionGenerator.class);
+        TokenEndpointCircuitBreaker circuitBreaker = TokenEndpointCircuitBreaker.disabled();
+
+        RenewalScheduler renewalScheduler = new RenewalScheduler(10, 1);
+
+        ExpiringResourceProvider<String> result = sut.clientCredentialsAccessTokenProvider(resource, null,
+            requestFactory, mock(ClientAssertionRequestEnhancer.class), assertionGenerator,
+            tokenEndpointClientProps, tokenManagementProps, new CurrentTimeGenerator(), renewalScheduler,
+            circuitBreaker, mock(TokenMetrics.class), ResourceCache.none(),
+            SharedTokenStore.NONE, new SharedTokenStoreProperties(), new ClientCredentialsAssertionGenerationProperties());
+
+        Object delegate = ReflectionTestUtils.getField(result, "providerDelegate");
+        assertThat(delegate).isInstanceOf(StandaloneTokenRequestor.class);
+        assertThat(ReflectionTestUtils.getField(delegate, "requestFactory")).isSameAs(requestFactory);
+        assertThat(ReflectionTestUtils.getField(delegate, "generator")).isSameAs(assertionGenerator);
+        assertThat(((StandaloneTokenRequestor) delegate).getCircuitBreaker()).isSameAs(circuitBreaker);
+
+        renewalScheduler.destroy();
+    }
+
+    @Test
+    public void renewalScheduler_always_constructsSchedulerFromProperties() {
+        ResourceAutoRenewalProperties tokenManagementProps = new ResourceAutoRenewalProperties();
+        tokenManagementProps.setSchedulerTickMs(5);
+
+        RenewalScheduler result = sut.renewalScheduler(tokenManagementProps);
+
+        assertThat(result.isRunning()).isTrue();
+        assertThat(ReflectionTestUtils.getField(result, "tickNanos")).isEqualTo(5000000L);
+
+        result.destroy();
+    }
+
+    @Test
+    public void tokenEndpointCircuitBreaker_always_constructsBreakerFromProperties() {
+        ResourceAutoRenewalProperties tokenManagementProps = new ResourceAutoRenewalProperties();
+        tokenManagementProps.setCircuitBreakerFailureThreshold(7);
+        tokenManagementProps.setCircuitBreakerOpenMs(5);
+
+        TokenEndpointCircuitBreaker result = sut.tokenEndpointCircuitBreaker(tokenManagementProps);
+
+        assertThat(result.getState()).isEqualTo(TokenEndpointCircuitBreaker.State.CLOSED);
+        assertThat(ReflectionTestUtils.getField(result, "failureThreshold")).isEqualTo(7);
+        assertThat(ReflectionTestUtils.getField(result, "openNanos")).isEqualTo(5000000L);
+    }
+
+    @Test
+    public void asyncClientCredentialsAccessTokenProvider_always_adaptsTokenProvider() {
+        ExpiringResourceProvider<String> tokenProvider = mock(ExpiringResourceProvider.class);
+        RenewalScheduler renewalScheduler = mock(RenewalScheduler.class);
+
+        AsyncExpiringResourceProvider<String> result = sut.asyncClientCredentialsAccessTokenProvider(tokenProvider, renewalScheduler);
+
+        assertThat(result).isInstanceOf(AsyncResourceProviderAdapter.class);
+        assertThat(ReflectionTestUtils.getField(result, "delegate")).isSameAs(tokenProvider);
+        assertThat(ReflectionTestUtils.getField(result, "executor")).isSameAs(renewalScheduler);
+    }
+
+    @Test
+    public void tokenProviderStartup_always_startsTokenProvider() {
+        ExpiringResourceProvider<String> tokenProvider = mock(ExpiringResourceProvider.class);
+        JWSSigner signer = mock(JWSSigner.class);
+        RenewalScheduler renewalScheduler = mock(RenewalScheduler.class);
+        ResourceAutoRenewalProperties tokenManagementProps = new ResourceAutoRenewalProperties();
+
+        TokenProviderStartup result = sut.tokenProviderStartup(tokenProvider, signer, renewalScheduler, tokenManagementProps);
+
+        assertThat(ReflectionTestUtils.getField(result, "tokenProvider")).isSameAs(tokenProvider);
+        assertThat(ReflectionTestUtils.getField(result, "signer")).isSameAs(signer);
+        assertThat(ReflectionTestUtils.getField(result, "scheduler")).isSameAs(renewalScheduler);
+        assertThat(ReflectionTestUtils.getField(result, "properties")).isSameAs(tokenManagementProps);
     }
 }
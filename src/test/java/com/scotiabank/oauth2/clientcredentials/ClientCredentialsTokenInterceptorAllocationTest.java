@@ -0,0 +1,144 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Asserts that intercepting a request with a cached token allocates nothing on the calling thread beyond what
+ * HttpHeaders itself needs to store the header - the same check as JMH's {@code -prof gc}, per thread.
+ */
+public class ClientCredentialsTokenInterceptorAllocationTest {
+
+    private static final int ITERATIONS = 100000;
+
+    // stands in for the header storage so only the interceptor and token provider are measured
+    private final HttpHeaders headers = new HttpHeaders() {
+        @Override
+        public boolean containsKey(Object key) {
+            return false;
+        }
+
+        @Override
+        public void add(String headerName, String headerValue) {
+            lastHeaderValue = headerValue;
+        }
+    };
+
+    private final HttpRequest request = new HttpRequest() {
+        @Override
+        public HttpMethod getMethod() {
+            return HttpMethod.GET;
+        }
+
+        @Override
+        public URI getURI() {
+            return URI.create("http://localhost");
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    };
+
+    // the interceptor reads the status of every response, which a mock would record as an invocation
+    private final ClientHttpResponse response = new ClientHttpResponse() {
+        @Override
+        public HttpStatus getStatusCode() {
+            return HttpStatus.OK;
+        }
+
+        @Override
+        public int getRawStatusCode() {
+            return HttpStatus.OK.value();
+        }
+
+        @Override
+        public String getStatusText() {
+            return HttpStatus.OK.getReasonPhrase();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public InputStream getBody() {
+            return null;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    };
+    private final ClientHttpRequestExecution execution = (request, body) -> response;
+    private final byte[] body = new byte[0];
+
+    private volatile String lastHeaderValue;
+
+    private AutoRenewAsyncResourceProvider<String> tokenProvider;
+    private ClientCredentialsTokenInterceptor sut;
+
+    @Before
+    public void init() {
+        DefaultOAuth2AccessToken accessToken = new DefaultOAuth2AccessToken("token");
+        accessToken.setExpiration(new Date(System.currentTimeMillis() + Duration.ofHours(1).toMillis()));
+        TokenResource token = new TokenResource(accessToken);
+
+        tokenProvider = new AutoRenewAsyncResourceProvider<>(() -> token, new ResourceAutoRenewalProperties(), new CurrentTimeGenerator());
+        sut = new ClientCredentialsTokenInterceptor(tokenProvider);
+    }
+
+    @After
+    public void cleanup() {
+        tokenProvider.close();
+    }
+
+    @Test
+    public void intercept_whenTokenIsCached_doesNotAllocate() throws IOException {
+        // warm up so class loading and one-off initialization aren't counted
+        for (int i = 0; i < ITERATIONS; i++) {
+            sut.intercept(request, body, execution);
+        }
+
+        long baseline = allocatedBytes();
+        long overhead = allocatedBytes() - baseline;
+
+        long start = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sut.intercept(request, body, execution);
+        }
+        long allocated = allocatedBytes() - start - overhead;
+
+        assertThat(lastHeaderValue).isEqualTo("Bearer token");
+        // anything per request would add up to at least ITERATIONS * 16 bytes
+        assertThat(allocated).isLessThan(ITERATIONS);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+            .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
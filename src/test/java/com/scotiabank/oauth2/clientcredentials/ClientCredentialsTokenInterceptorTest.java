@@ -15,6 +15,7 @@ import org.springframework.http.client.ClientHttpRequestExecution;
 import org.springframework.http.client.ClientHttpResponse;
 
 import java.io.IOException;
+import java.util.Collections;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -30,6 +31,9 @@ public class ClientCredentialsTokenInterceptorTest {
     @Mock
     ExpiringResourceProvider<String> tokenProvider;
 
+    @Mock
+    ResourceAutoRenewalProperties properties;
+
     @Mock
     HttpHeaders httpHeaders;
 
@@ -47,7 +51,7 @@ public class ClientCredentialsTokenInterceptorTest {
     @Test
     public void intercept_whenAuthorizationHeaderExists_doesNotModifyRequest() throws IOException {
         when(httpRequest.getHeaders()).thenReturn(httpHeaders);
-        when(httpHeaders.containsKey("Authorization")).thenReturn(true);
+        when(httpHeaders.containsKey("authorization")).thenReturn(true);
 
         when(clientHttpRequestExecution.execute(same(httpRequest), same(body))).thenReturn(clientHttpResponse);
 
@@ -61,7 +65,7 @@ public class ClientCredentialsTokenInterceptorTest {
     @Test
     public void intercept_whenTokenProviderReturnsNull_throwsException() throws IOException {
         when(httpRequest.getHeaders()).thenReturn(httpHeaders);
-        when(httpHeaders.containsKey("Authorization")).thenReturn(false);
+        when(httpHeaders.containsKey("authorization")).thenReturn(false);
 
         when(tokenProvider.getResource()).thenReturn(null);
 
@@ -72,7 +76,7 @@ public class ClientCredentialsTokenInterceptorTest {
     @Test
     public void intercept_whenTokenProviderReturnsToken_doesNotModifyRequest() throws IOException {
         when(httpRequest.getHeaders()).thenReturn(httpHeaders);
-        when(httpHeaders.containsKey("Authorization")).thenReturn(false);
+        when(httpHeaders.containsKey("authorization")).thenReturn(false);
 
         ExpiringResource<String> token = mock(ExpiringResource.class);
         when(token.getValue()).thenReturn("token");
@@ -86,4 +90,162 @@ public class ClientCredentialsTokenInterceptorTest {
 
         verify(httpHeaders).add(eq("Authorization"), eq("Bearer token"));
     }
+
+    @Test
+    public void intercept_whenTokenHasPreRenderedHeader_addsPreRenderedHeader() throws IOException {
+        when(httpRequest.getHeaders()).thenReturn(httpHeaders);
+        when(httpHeaders.containsKey("authorization")).thenReturn(false);
+
+        ExpiringResource<String> token = mock(ExpiringResource.class);
+        when(token.getAuthorizationHeaderValue()).thenReturn("Bearer pre-rendered");
+        when(tokenProvider.getResource()).thenReturn(token);
+
+        when(clientHttpRequestExecution.execute(same(httpRequest), same(body))).thenReturn(clientHttpResponse);
+
+        sut.intercept(httpRequest, body, clientHttpRequestExecution);
+
+        verify(httpHeaders).add(eq("Authorization"), eq("Bearer pre-rendered"));
+        verify(token, never()).getValue();
+    }
+
+    @Test
+    public void intercept_whenTokenIsRejected_invalidatesTokenAndReplaysRequestWithNewToken() throws IOException {
+        when(httpRequest.getHeaders()).thenReturn(httpHeaders);
+        when(httpHeaders.containsKey("authorization")).thenReturn(false);
+        when(properties.isInvalidateOnUnauthorized()).thenReturn(true);
+
+        ExpiringResource<String> rejectedToken = mock(ExpiringResource.class);
+        when(rejectedToken.getValue()).thenReturn("rejected");
+        ExpiringResource<String> renewedToken = mock(ExpiringResource.class);
+        when(renewedToken.getValue()).thenReturn("renewed");
+        when(tokenProvider.getResource()).thenReturn(rejectedToken, renewedToken);
+
+        ClientHttpResponse replayedResponse = mock(ClientHttpResponse.class);
+        when(clientHttpResponse.getRawStatusCode()).thenReturn(401);
+        when(clientHttpRequestExecution.execute(same(httpRequest), same(body))).thenReturn(clientHttpResponse, replayedResponse);
+
+        ClientHttpResponse result = sut.intercept(httpRequest, body, clientHttpRequestExecution);
+
+        assertThat(result).isSameAs(replayedResponse);
+
+        verify(tokenProvider).invalidate(same(rejectedToken));
+        verify(clientHttpResponse).close();
+        verify(httpHeaders).add(eq("Authorization"), eq("Bearer rejected"));
+        verify(httpHeaders).set(eq("Authorization"), eq("Bearer renewed"));
+        verify(clientHttpRequestExecution, times(2)).execute(same(httpRequest), same(body));
+    }
+
+    @Test
+    public void intercept_whenTokenIsRejectedAndNoOtherTokenIsAvailable_returnsResponse() throws IOException {
+        when(httpRequest.getHeaders()).thenReturn(httpHeaders);
+        when(httpHeaders.containsKey("authorization")).thenReturn(false);
+        when(properties.isInvalidateOnUnauthorized()).thenReturn(true);
+
+        ExpiringResource<String> token = mock(ExpiringResource.class);
+        when(token.getValue()).thenReturn("token");
+        when(tokenProvider.getResource()).thenReturn(token);
+
+        when(clientHttpResponse.getRawStatusCode()).thenReturn(401);
+        when(clientHttpRequestExecution.execute(same(httpRequest), same(body))).thenReturn(clientHttpResponse);
+
+        ClientHttpResponse result = sut.intercept(httpRequest, body, clientHttpRequestExecution);
+
+        assertThat(result).isSameAs(clientHttpResponse);
+
+        verify(tokenProvider).invalidate(same(token));
+        verify(clientHttpResponse, never()).close();
+        verify(clientHttpRequestExecution, times(1)).execute(same(httpRequest), same(body));
+    }
+
+    @Test
+    public void intercept_whenTokenIsRejectedAndNewTokenCannotBeRetrieved_returnsResponse() throws IOException {
+        when(httpRequest.getHeaders()).thenReturn(httpHeaders);
+        when(httpHeaders.containsKey("authorization")).thenReturn(false);
+        when(properties.isInvalidateOnUnauthorized()).thenReturn(true);
+
+        ExpiringResource<String> token = mock(ExpiringResource.class);
+        when(token.getValue()).thenReturn("token");
+        when(tokenProvider.getResource()).thenReturn(token).thenThrow(new ClientCredentialsCircuitOpenException("open"));
+
+        when(clientHttpResponse.getRawStatusCode()).thenReturn(401);
+        when(clientHttpRequestExecution.execute(same(httpRequest), same(body))).thenReturn(clientHttpResponse);
+
+        ClientHttpResponse result = sut.intercept(httpRequest, body, clientHttpRequestExecution);
+
+        assertThat(result).isSameAs(clientHttpResponse);
+
+        verify(tokenProvider).invalidate(same(token));
+        verify(clientHttpResponse, never()).close();
+        verify(clientHttpRequestExecution, times(1)).execute(same(httpRequest), same(body));
+    }
+
+    @Test
+    public void intercept_whenRejectionErrorIsNotInvalidating_returnsResponse() throws IOException {
+        when(httpRequest.getHeaders()).thenReturn(httpHeaders);
+        when(httpHeaders.containsKey("authorization")).thenReturn(false);
+        when(properties.isInvalidateOnUnauthorized()).thenReturn(true);
+        when(properties.getInvalidatingErrorCodes()).thenReturn(Collections.singletonList("invalid_token"));
+
+        ExpiringResource<String> token = mock(ExpiringResource.class);
+        when(token.getValue()).thenReturn("token");
+        when(tokenProvider.getResource()).thenReturn(token);
+
+        HttpHeaders responseHeaders = mock(HttpHeaders.class);
+        when(responseHeaders.getFirst("WWW-Authenticate")).thenReturn("Bearer error=\"insufficient_scope\"");
+        when(clientHttpResponse.getHeaders()).thenReturn(responseHeaders);
+        when(clientHttpResponse.getRawStatusCode()).thenReturn(401);
+        when(clientHttpRequestExecution.execute(same(httpRequest), same(body))).thenReturn(clientHttpResponse);
+
+        ClientHttpResponse result = sut.intercept(httpRequest, body, clientHttpRequestExecution);
+
+        assertThat(result).isSameAs(clientHttpResponse);
+
+        verify(tokenProvider, never()).invalidate(any());
+    }
+
+    @Test
+    public void intercept_whenRejectionErrorIsInvalidating_replaysRequest() throws IOException {
+        when(httpRequest.getHeaders()).thenReturn(httpHeaders);
+        when(httpHeaders.containsKey("authorization")).thenReturn(false);
+        when(properties.isInvalidateOnUnauthorized()).thenReturn(true);
+        when(properties.getInvalidatingErrorCodes()).thenReturn(Collections.singletonList("invalid_token"));
+
+        ExpiringResource<String> rejectedToken = mock(ExpiringResource.class);
+        when(rejectedToken.getValue()).thenReturn("rejected");
+        ExpiringResource<String> renewedToken = mock(ExpiringResource.class);
+        when(renewedToken.getValue()).thenReturn("renewed");
+        when(tokenProvider.getResource()).thenReturn(rejectedToken, renewedToken);
+
+        HttpHeaders responseHeaders = mock(HttpHeaders.class);
+        when(responseHeaders.getFirst("WWW-Authenticate")).thenReturn("Bearer realm=\"api\", error=\"Invalid_Token\"");
+        when(clientHttpResponse.getHeaders()).thenReturn(responseHeaders);
+        when(clientHttpResponse.getRawStatusCode()).thenReturn(401);
+        ClientHttpResponse replayedResponse = mock(ClientHttpResponse.class);
+        when(clientHttpRequestExecution.execute(same(httpRequest), same(body))).thenReturn(clientHttpResponse, replayedResponse);
+
+        ClientHttpResponse result = sut.intercept(httpRequest, body, clientHttpRequestExecution);
+
+        assertThat(result).isSameAs(replayedResponse);
+
+        verify(httpHeaders).set(eq("Authorization"), eq("Bearer renewed"));
+    }
+
+    @Test
+    public void intercept_whenInvalidationIsDisabled_returnsRejectedResponse() throws IOException {
+        when(httpRequest.getHeaders()).thenReturn(httpHeaders);
+        when(httpHeaders.containsKey("authorization")).thenReturn(false);
+
+        ExpiringResource<String> token = mock(ExpiringResource.class);
+        when(token.getValue()).thenReturn("token");
+        when(tokenProvider.getResource()).thenReturn(token);
+
+        when(clientHttpRequestExecution.execute(same(httpRequest), same(body))).thenReturn(clientHttpResponse);
+
+        ClientHttpResponse result = sut.intercept(httpRequest, body, clientHttpRequestExecution);
+
+        assertThat(result).isSameAs(clientHttpResponse);
+
+        verify(tokenProvider, never()).invalidate(any());
+        verify(clientHttpResponse, never()).getRawStatusCode();
+    }
 }
@@ -32,4 +32,26 @@ public class CurrentTimeGeneratorTest {
         assertThat(result.isAfter(currentLow)).isTrue();
         assertThat(result.isBefore(currentHigh)).isTrue();
     }
+
+    @Test
+    public void getCurrentTimeMillisReturnsCurrentTime() {
+        long before = System.currentTimeMillis();
+
+        long result = sut.getCurrentTimeMillis();
+
+        long after = System.currentTimeMillis();
+
+        assertThat(result).isBetween(before, after);
+    }
+
+    @Test
+    public void getNanoTimeReturnsMonotonicTime() {
+        long before = System.nanoTime();
+
+        long result = sut.getNanoTime();
+
+        long after = System.nanoTime();
+
+        assertThat(result).isBetween(before, after);
+    }
 }
@@ -0,0 +1,72 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JwtTimeClaimsTest {
+
+    @Test
+    public void scan_whenTokenIsJws_returnsTimeClaims() {
+        JwtTimeClaims result = JwtTimeClaims.scan(jwt("{\"sub\":\"client\",\"aud\":[\"a\",\"b\"],\"cnf\":{\"exp\":1},"
+            + "\"iat\":1516239022,\"nbf\":1516239000,\"exp\":1523448061}") + ".c2lnbmF0dXJl");
+
+        assertThat(result.isJwt()).isTrue();
+        assertThat(result.getExpiration()).isEqualTo(Instant.parse("2018-04-11T12:01:01Z"));
+        assertThat(result.getIssuedAt()).isEqualTo(Instant.parse("2018-01-18T01:30:22Z"));
+        assertThat(result.getNotBefore()).isEqualTo(Instant.parse("2018-01-18T01:30:00Z"));
+    }
+
+    @Test
+    public void scan_whenTokenIsUnsecured_returnsTimeClaims() {
+        JwtTimeClaims result = JwtTimeClaims.scan(jwt("{\"exp\":1523448061}"));
+
+        assertThat(result.isJwt()).isTrue();
+        assertThat(result.getExpiration()).isEqualTo(Instant.parse("2018-04-11T12:01:01Z"));
+    }
+
+    @Test
+    public void scan_whenExpiryIsFractional_returnsItToTheMillisecond() {
+        JwtTimeClaims result = JwtTimeClaims.scan(jwt("{\"exp\":1523448061.25}"));
+
+        assertThat(result.getExpiration()).isEqualTo(Instant.parse("2018-04-11T12:01:01.250Z"));
+    }
+
+    @Test
+    public void scan_whenExpiryIsNotNumber_ignoresIt() {
+        JwtTimeClaims result = JwtTimeClaims.scan(jwt("{\"exp\":\"tomorrow\"}"));
+
+        assertThat(result.isJwt()).isTrue();
+        assertThat(result.getExpiration()).isNull();
+    }
+
+    @Test
+    public void scan_whenTokenIsOpaque_returnsNone() {
+        assertThat(JwtTimeClaims.scan("2YotnFZFEjr1zCsicMWpAA")).isSameAs(JwtTimeClaims.NONE);
+        assertThat(JwtTimeClaims.scan("opaque token")).isSameAs(JwtTimeClaims.NONE);
+        assertThat(JwtTimeClaims.scan("a.b.c.d.e")).isSameAs(JwtTimeClaims.NONE);
+        assertThat(JwtTimeClaims.scan(".eyJ9.")).isSameAs(JwtTimeClaims.NONE);
+        assertThat(JwtTimeClaims.scan(null)).isSameAs(JwtTimeClaims.NONE);
+    }
+
+    @Test
+    public void scan_whenClaimsAreNotJson_returnsNone() {
+        assertThat(JwtTimeClaims.scan(jwt("not json"))).isSameAs(JwtTimeClaims.NONE);
+        assertThat(JwtTimeClaims.scan(jwt("[1523448061]"))).isSameAs(JwtTimeClaims.NONE);
+        assertThat(JwtTimeClaims.scan(jwt("{\"exp\":1523448061|"))).isSameAs(JwtTimeClaims.NONE);
+    }
+
+    private static String jwt(String claims) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8))
+            + "." + encoder.encodeToString(claims.getBytes(StandardCharsets.UTF_8)) + ".";
+    }
+}
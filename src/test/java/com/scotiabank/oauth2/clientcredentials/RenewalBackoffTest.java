@@ -0,0 +1,107 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RenewalBackoffTest {
+
+    ResourceAutoRenewalProperties properties = new ResourceAutoRenewalProperties();
+
+    AtomicLong nanoTime = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+
+    RenewalBackoff sut = new RenewalBackoff(properties, () -> 1.0, nanoTime::get);
+
+    @Test
+    public void tryAcquireAttempt_withoutFailures_allowsAttempt() {
+        assertThat(sut.isFailing()).isFalse();
+        assertThat(sut.tryAcquireAttempt()).isTrue();
+    }
+
+    @Test
+    public void recordFailure_always_doublesBackoffUpToCap() {
+        properties.setRenewalBackoffMaxMs(3000);
+
+        sut.recordFailure();
+        assertThat(sut.getRetryDelayMs()).isEqualTo(1000);
+
+        sut.recordFailure();
+        assertThat(sut.getRetryDelayMs()).isEqualTo(2000);
+
+        sut.recordFailure();
+        assertThat(sut.getRetryDelayMs()).isEqualTo(3000);
+
+        for (int i = 0; i < 100; i++) {
+            sut.recordFailure();
+        }
+        assertThat(sut.getRetryDelayMs()).isEqualTo(3000);
+    }
+
+    @Test
+    public void recordFailure_always_drawsDelayBelowCeiling() {
+        sut = new RenewalBackoff(properties, () -> 0.25, nanoTime::get);
+
+        sut.recordFailure();
+        sut.recordFailure();
+
+        assertThat(sut.getRetryDelayMs()).isEqualTo(500);
+    }
+
+    @Test
+    public void tryAcquireAttempt_afterFailure_allowsRetryOnceBackoffElapses() {
+        sut.recordFailure();
+
+        assertThat(sut.isFailing()).isTrue();
+        assertThat(sut.tryAcquireAttempt()).isFalse();
+
+        nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+
+        assertThat(sut.tryAcquireAttempt()).isTrue();
+        assertThat(sut.getRetryDelayMs()).isEqualTo(0);
+    }
+
+    @Test
+    public void tryAcquireAttempt_whenBudgetIsSpent_waitsForNextWindow() {
+        properties.setRenewalBackoffInitialMs(1);
+        properties.setRenewalRetryBudget(2);
+        properties.setRenewalRetryBudgetWindowMs(10000);
+        sut.recordFailure();
+        nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+
+        assertThat(sut.tryAcquireAttempt()).isTrue();
+        assertThat(sut.tryAcquireAttempt()).isTrue();
+        assertThat(sut.tryAcquireAttempt()).isFalse();
+        assertThat(sut.getRetryDelayMs()).isEqualTo(10000);
+
+        nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(10000));
+
+        assertThat(sut.tryAcquireAttempt()).isTrue();
+    }
+
+    @Test
+    public void recordSuccess_always_resetsBackoff() {
+        sut.recordFailure();
+
+        sut.recordSuccess();
+
+        assertThat(sut.isFailing()).isFalse();
+        assertThat(sut.tryAcquireAttempt()).isTrue();
+    }
+
+    @Test
+    public void tryAcquireAttempt_whenBackoffIsDisabled_retriesAfterRenewalPeriod() {
+        properties.setRenewalBackoffInitialMs(0);
+
+        sut.recordFailure();
+
+        assertThat(sut.tryAcquireAttempt()).isTrue();
+        assertThat(sut.getRetryDelayMs()).isEqualTo(60000);
+    }
+}
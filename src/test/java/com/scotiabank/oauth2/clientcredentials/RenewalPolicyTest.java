@@ -0,0 +1,86 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RenewalPolicyTest {
+
+    ResourceAutoRenewalProperties properties = new ResourceAutoRenewalProperties();
+
+    @Test
+    public void isLifetimeProportional_whenPercentIsZero_returnsFalse() {
+        assertThat(new RenewalPolicy(properties).isLifetimeProportional()).isTrue();
+
+        properties.setRenewalLifetimePercent(0);
+
+        assertThat(new RenewalPolicy(properties).isLifetimeProportional()).isFalse();
+    }
+
+    @Test
+    public void nextRenewalDelayMs_withoutJitter_returnsFractionOfRemainingLifetime() {
+        RenewalPolicy sut = new RenewalPolicy(properties, () -> 0);
+
+        long result = sut.nextRenewalDelayMs(1000, 1000 + 3600000, 1000 + 3540000);
+
+        assertThat(result).isEqualTo(2700000);
+    }
+
+    @Test
+    public void nextRenewalDelayMs_withJitter_bringsRenewalForward() {
+        RenewalPolicy sut = new RenewalPolicy(properties, () -> 0.5);
+
+        long result = sut.nextRenewalDelayMs(0, 3600000, 3540000);
+
+        // half of the 10% jitter taken off the 45 minute delay
+        assertThat(result).isEqualTo(2700000 - 135000);
+    }
+
+    @Test
+    public void nextRenewalDelayMs_whenFractionIsBeyondUsableLifetime_returnsUsableLifetime() {
+        properties.setRenewalLifetimePercent(100);
+        RenewalPolicy sut = new RenewalPolicy(properties, () -> 0);
+
+        long result = sut.nextRenewalDelayMs(0, 300000, 240000);
+
+        assertThat(result).isEqualTo(240000);
+    }
+
+    @Test
+    public void getPreemptiveExpiryMs_beforeAnyRetrieval_returnsConfiguredMargin() {
+        RenewalPolicy sut = new RenewalPolicy(properties);
+
+        assertThat(sut.getPreemptiveExpiryMs()).isEqualTo(60000);
+    }
+
+    @Test
+    public void getPreemptiveExpiryMs_afterRetrievals_followsAverageLatencyWithinBounds() {
+        RenewalPolicy sut = new RenewalPolicy(properties);
+
+        sut.recordFetchLatency(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(sut.getPreemptiveExpiryMs()).isEqualTo(5000);
+
+        sut.recordFetchLatency(TimeUnit.MILLISECONDS.toNanos(4100));
+        assertThat(sut.getAverageFetchLatencyMs()).isEqualTo(1100);
+        assertThat(sut.getPreemptiveExpiryMs()).isEqualTo(11000);
+
+        sut.recordFetchLatency(TimeUnit.SECONDS.toNanos(60));
+        assertThat(sut.getPreemptiveExpiryMs()).isEqualTo(60000);
+    }
+
+    @Test
+    public void getPreemptiveExpiryMs_whenLatencyMultipleIsZero_returnsConfiguredMargin() {
+        properties.setPreemptiveExpiryLatencyMultiple(0);
+        RenewalPolicy sut = new RenewalPolicy(properties);
+
+        sut.recordFetchLatency(TimeUnit.MILLISECONDS.toNanos(100));
+
+        assertThat(sut.getPreemptiveExpiryMs()).isEqualTo(60000);
+    }
+}
@@ -0,0 +1,122 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RenewalSchedulerTest {
+
+    RenewalScheduler sut = new RenewalScheduler(1, 2);
+
+    @After
+    public void cleanup() {
+        sut.destroy();
+    }
+
+    @Test
+    public void schedule_whenDelayElapses_runsTaskOnWorker() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+        List<String> threads = new ArrayList<>();
+
+        long start = System.nanoTime();
+        sut.schedule(() -> {
+            threads.add(Thread.currentThread().getName());
+            ran.countDown();
+        }, 100);
+
+        assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(100);
+        assertThat(threads.get(0)).startsWith("renewal-worker-");
+    }
+
+    @Test
+    public void schedule_whenDelayIsLongerThanOneRevolution_runsTaskAfterDelay() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+
+        long start = System.nanoTime();
+        sut.schedule(ran::countDown, 700);
+
+        assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(700);
+    }
+
+    @Test
+    public void cancel_whenTaskIsPending_removesTaskFromWheel() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        List<RenewalScheduler.Timeout> timeouts = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            timeouts.add(sut.schedule(runs::incrementAndGet, 200));
+        }
+
+        timeouts.forEach(RenewalScheduler.Timeout::cancel);
+        Thread.sleep(50);
+
+        assertThat(sut.getPendingCount()).isEqualTo(0);
+
+        Thread.sleep(250);
+        assertThat(runs.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void scheduleAtFixedRate_untilCancelled_runsTaskRepeatedly() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+
+        RenewalScheduler.Timeout timeout = sut.scheduleAtFixedRate(runs::incrementAndGet, 0, 20);
+        Thread.sleep(210);
+        timeout.cancel();
+
+        int runsAtCancel = runs.get();
+        Thread.sleep(100);
+
+        assertThat(runsAtCancel).isBetween(8, 12);
+        assertThat(runs.get()).isLessThanOrEqualTo(runsAtCancel + 1);
+        assertThat(sut.getPendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void scheduleAtFixedRate_whenRunOutlastsPeriod_skipsOverlappingRuns() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        AtomicInteger concurrentRuns = new AtomicInteger();
+        AtomicInteger maxConcurrentRuns = new AtomicInteger();
+
+        RenewalScheduler.Timeout timeout = sut.scheduleAtFixedRate(() -> {
+            maxConcurrentRuns.accumulateAndGet(concurrentRuns.incrementAndGet(), Math::max);
+            runs.incrementAndGet();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            concurrentRuns.decrementAndGet();
+        }, 0, 10);
+        Thread.sleep(350);
+        timeout.cancel();
+
+        assertThat(maxConcurrentRuns.get()).isEqualTo(1);
+        assertThat(runs.get()).isBetween(3, 4);
+    }
+
+    @Test
+    public void schedule_whenDestroyed_rejectsTask() {
+        sut.destroy();
+
+        assertThat(sut.isRunning()).isFalse();
+        assertThatThrownBy(() -> sut.schedule(() -> { }, 10))
+            .isExactlyInstanceOf(RejectedExecutionException.class);
+        assertThatThrownBy(() -> sut.execute(() -> { }))
+            .isExactlyInstanceOf(RejectedExecutionException.class);
+    }
+}
@@ -16,5 +16,23 @@ public class ResourceAutoRenewalPropertiesTest {
 
         assertThat(sut.getRenewalPeriodMs()).isEqualTo(60000);
         assertThat(sut.getPreemptiveExpiryMs()).isEqualTo(60000);
+        assertThat(sut.getRenewalLifetimePercent()).isEqualTo(75);
+        assertThat(sut.getRenewalJitterPercent()).isEqualTo(10);
+        assertThat(sut.getPreemptiveExpiryLatencyMultiple()).isEqualTo(10);
+        assertThat(sut.getMinPreemptiveExpiryMs()).isEqualTo(5000);
+        assertThat(sut.getRenewalBackoffInitialMs()).isEqualTo(1000);
+        assertThat(sut.getRenewalBackoffMaxMs()).isEqualTo(60000);
+        assertThat(sut.getRenewalRetryBudget()).isEqualTo(10);
+        assertThat(sut.getRenewalRetryBudgetWindowMs()).isEqualTo(60000);
+        assertThat(sut.getCircuitBreakerFailureThreshold()).isEqualTo(5);
+        assertThat(sut.getCircuitBreakerOpenMs()).isEqualTo(30000);
+        assertThat(sut.isStaleWhileRevalidateEnabled()).isTrue();
+        assertThat(sut.getHardExpiryMs()).isEqualTo(2000);
+        assertThat(sut.isInvalidateOnUnauthorized()).isTrue();
+        assertThat(sut.getInvalidatingErrorCodes()).containsExactly("invalid_token");
+        assertThat(sut.getTokenCacheFile()).isNull();
+        assertThat(sut.isLazyStartupEnabled()).isFalse();
+        assertThat(sut.getSchedulerTickMs()).isEqualTo(10);
+        assertThat(sut.getSchedulerWorkerThreads()).isEqualTo(2);
     }
 }
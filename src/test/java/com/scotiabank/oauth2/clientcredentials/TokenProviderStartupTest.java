@@ -0,0 +1,80 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials;
+
+import com.scotiabank.oauth2.clientcredentials.key.DeferredJwsSigner;
+import com.nimbusds.jose.JWSSigner;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TokenProviderStartupTest {
+
+    @Mock
+    AutoRenewAsyncResourceProvider<String> tokenProvider;
+
+    @Mock
+    JWSSigner signer;
+
+    RenewalScheduler scheduler = new RenewalScheduler(10, 1);
+
+    ResourceAutoRenewalProperties properties = new ResourceAutoRenewalProperties();
+
+    @After
+    public void cleanup() {
+        scheduler.destroy();
+    }
+
+    @Test
+    public void start_whenStartupIsNotLazy_doesNothing() {
+        DeferredJwsSigner deferredSigner = new DeferredJwsSigner(() -> signer);
+        TokenProviderStartup sut = new TokenProviderStartup(tokenProvider, deferredSigner, scheduler, properties);
+
+        sut.start();
+
+        assertThat(sut.isRunning()).isTrue();
+        assertThat(deferredSigner.isLoaded()).isFalse();
+        verifyZeroInteractions(tokenProvider);
+    }
+
+    @Test
+    public void start_whenStartupIsLazy_loadsSignerAndStartsProvider() throws InterruptedException {
+        properties.setLazyStartupEnabled(true);
+        DeferredJwsSigner deferredSigner = new DeferredJwsSigner(() -> signer);
+        TokenProviderStartup sut = new TokenProviderStartup(tokenProvider, deferredSigner, scheduler, properties);
+
+        sut.start();
+
+        verify(tokenProvider).start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!deferredSigner.isLoaded() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(deferredSigner.isLoaded()).isTrue();
+    }
+
+    @Test
+    public void stop_always_runsCallback() {
+        TokenProviderStartup sut = new TokenProviderStartup(tokenProvider, signer, scheduler, properties);
+        sut.start();
+        boolean[] stopped = new boolean[1];
+
+        sut.stop(() -> stopped[0] = true);
+
+        assertThat(stopped[0]).isTrue();
+        assertThat(sut.isRunning()).isFalse();
+        assertThat(sut.isAutoStartup()).isTrue();
+        assertThat(sut.getPhase()).isEqualTo(Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,64 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.cache;
+
+import com.scotiabank.oauth2.clientcredentials.ExpiringResource;
+import com.scotiabank.oauth2.clientcredentials.ResourceCache;
+import com.scotiabank.oauth2.clientcredentials.TokenResource;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Instant;
+import java.util.concurrent.Callable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DeferredTokenCacheTest {
+
+    @Mock
+    Callable<ResourceCache<String>> factory;
+
+    @Mock
+    ResourceCache<String> delegate;
+
+    @Test
+    public void constructor_always_doesNotCreateCache() {
+        new DeferredTokenCache(factory);
+
+        verifyZeroInteractions(factory);
+    }
+
+    @Test
+    public void loadAndStore_always_useCacheCreatedOnce() throws Exception {
+        ExpiringResource<String> cached = new TokenResource("token", Instant.parse("2017-11-17T13:00:00.000Z"));
+        when(factory.call()).thenReturn(delegate);
+        when(delegate.load()).thenReturn(cached);
+        DeferredTokenCache sut = new DeferredTokenCache(factory);
+
+        assertThat(sut.load()).isSameAs(cached);
+        sut.store(cached);
+
+        verify(delegate).store(cached);
+        verify(factory, times(1)).call();
+    }
+
+    @Test
+    public void load_whenCacheCannotBeCreated_doesNotCache() throws Exception {
+        when(factory.call()).thenThrow(new IllegalStateException("no key"));
+        DeferredTokenCache sut = new DeferredTokenCache(factory);
+
+        assertThat(sut.load()).isNull();
+        sut.store(new TokenResource("token", Instant.parse("2017-11-17T13:00:00.000Z")));
+
+        verify(factory, times(1)).call();
+    }
+}
@@ -0,0 +1,156 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.cache;
+
+import com.scotiabank.oauth2.clientcredentials.ClientCredentialsConfigurationException;
+import com.scotiabank.oauth2.clientcredentials.ExpiringResource;
+import com.scotiabank.oauth2.clientcredentials.registry.TokenKey;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EncryptedFileTokenCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    Path file;
+    PrivateKey privateKey;
+    TokenKey tokenKey = new TokenKey("client", "https://idp/token", Arrays.asList("read", "write"));
+    EncryptedFileTokenCache sut;
+
+    Instant expiration = Instant.parse("2018-04-11T12:01:00Z");
+
+    @Before
+    public void init() throws GeneralSecurityException, ClientCredentialsConfigurationException {
+        file = folder.getRoot().toPath().resolve("cache").resolve("token");
+        privateKey = generateKey();
+        sut = new EncryptedFileTokenCache(file, EncryptedFileTokenCache.deriveKey(privateKey), tokenKey);
+    }
+
+    @Test
+    public void load_whenNothingIsStored_returnsNull() {
+        assertThat(sut.load()).isNull();
+    }
+
+    @Test
+    public void load_whenTokenIsStored_returnsToken() {
+        sut.store(token("token", expiration));
+
+        ExpiringResource<String> result = sut.load();
+
+        assertThat(result.getValue()).isEqualTo("token");
+        assertThat(result.getExpiration()).isEqualTo(expiration);
+        assertThat(result.getAuthorizationHeaderValue()).isEqualTo("Bearer token");
+    }
+
+    @Test
+    public void store_whenTokenIsStored_replacesItWithoutLeavingTemporaryFiles() throws IOException {
+        sut.store(token("first", expiration));
+        sut.store(token("second", expiration.plusSeconds(60)));
+
+        assertThat(sut.load().getValue()).isEqualTo("second");
+        assertThat(Files.list(file.getParent())).containsExactly(file);
+    }
+
+    @Test
+    public void store_always_encryptsToken() throws IOException {
+        sut.store(token("plain-token-value", expiration));
+
+        assertThat(new String(Files.readAllBytes(file), "ISO-8859-1")).doesNotContain("plain-token-value");
+    }
+
+    @Test
+    public void load_whenStoredWithOtherKey_returnsNull() throws GeneralSecurityException, ClientCredentialsConfigurationException {
+        new EncryptedFileTokenCache(file, EncryptedFileTokenCache.deriveKey(generateKey()), tokenKey).store(token("token", expiration));
+
+        assertThat(sut.load()).isNull();
+    }
+
+    @Test
+    public void load_whenStoredForOtherClient_returnsNull() throws ClientCredentialsConfigurationException {
+        TokenKey otherClient = new TokenKey("other", "https://idp/token", Arrays.asList("read", "write"));
+        new EncryptedFileTokenCache(file, EncryptedFileTokenCache.deriveKey(privateKey), otherClient).store(token("token", expiration));
+
+        assertThat(sut.load()).isNull();
+    }
+
+    @Test
+    public void load_whenStoredForOtherTokenUrl_returnsNull() throws ClientCredentialsConfigurationException {
+        TokenKey otherTokenUrl = new TokenKey("client", "https://other-idp/token", Arrays.asList("read", "write"));
+        new EncryptedFileTokenCache(file, EncryptedFileTokenCache.deriveKey(privateKey), otherTokenUrl).store(token("token", expiration));
+
+        assertThat(sut.load()).isNull();
+    }
+
+    @Test
+    public void load_whenStoredForOtherScopes_returnsNull() throws ClientCredentialsConfigurationException {
+        TokenKey otherScopes = new TokenKey("client", "https://idp/token", Arrays.asList("read", "write", "admin"));
+        new EncryptedFileTokenCache(file, EncryptedFileTokenCache.deriveKey(privateKey), otherScopes).store(token("token", expiration));
+
+        assertThat(sut.load()).isNull();
+    }
+
+    @Test
+    public void load_whenStoredForSameScopesInOtherOrder_returnsToken() throws ClientCredentialsConfigurationException {
+        TokenKey reordered = new TokenKey("client", "https://idp/token", Arrays.asList("write", "read"));
+        new EncryptedFileTokenCache(file, EncryptedFileTokenCache.deriveKey(privateKey), reordered).store(token("token", expiration));
+
+        assertThat(sut.load().getValue()).isEqualTo("token");
+    }
+
+    @Test
+    public void load_whenFileIsCorrupt_returnsNull() throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[] {1, 2, 3});
+
+        assertThat(sut.load()).isNull();
+    }
+
+    @Test
+    public void deriveKey_always_derivesSameKeyFromSamePrivateKey() throws ClientCredentialsConfigurationException {
+        assertThat(EncryptedFileTokenCache.deriveKey(privateKey).getEncoded())
+            .isEqualTo(EncryptedFileTokenCache.deriveKey(privateKey).getEncoded())
+            .hasSize(32);
+    }
+
+    @Test
+    public void deriveKey_whenKeyIsNotExtractable_throwsException() {
+        PrivateKey hardwareKey = mock(PrivateKey.class);
+        when(hardwareKey.getEncoded()).thenReturn(null);
+
+        assertThatThrownBy(() -> EncryptedFileTokenCache.deriveKey(hardwareKey))
+            .isExactlyInstanceOf(ClientCredentialsConfigurationException.class);
+    }
+
+    private static PrivateKey generateKey() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair().getPrivate();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ExpiringResource<String> token(String value, Instant expiration) {
+        ExpiringResource<String> token = mock(ExpiringResource.class);
+        when(token.getValue()).thenReturn(value);
+        when(token.getExpiration()).thenReturn(expiration);
+        return token;
+    }
+}
@@ -0,0 +1,122 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.cache;
+
+import com.scotiabank.oauth2.clientcredentials.ClientCredentialsConfigurationException;
+import com.scotiabank.oauth2.clientcredentials.ExpiringResource;
+import com.scotiabank.oauth2.clientcredentials.ResourceAutoRenewalProperties;
+import com.scotiabank.oauth2.clientcredentials.ResourceCache;
+import com.scotiabank.oauth2.clientcredentials.registry.TokenKey;
+import com.scotiabank.oauth2.clientcredentials.request.ClientCredentialsAssertionGenerationProperties;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.security.oauth2.client.token.grant.client.ClientCredentialsResourceDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TokenCacheConfigTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    TokenCacheConfig sut = new TokenCacheConfig();
+
+    @Mock
+    ObjectFactory<PrivateKey> privateKey;
+
+    ClientCredentialsResourceDetails resource = new ClientCredentialsResourceDetails();
+
+    ClientCredentialsAssertionGenerationProperties assertionProperties = new ClientCredentialsAssertionGenerationProperties();
+
+    @Before
+    public void setup() {
+        resource.setAccessTokenUri("https://idp/token");
+        resource.setScope(Arrays.asList("read", "write"));
+        assertionProperties.setClientId("client");
+    }
+
+    @Test
+    public void tokenCache_whenNoFileIsConfigured_doesNotCache() throws ClientCredentialsConfigurationException {
+        ResourceCache<String> result = sut.tokenCache(new ResourceAutoRenewalProperties(), privateKey, resource, assertionProperties);
+
+        assertThat(result).isSameAs(ResourceCache.none());
+        verifyZeroInteractions(privateKey);
+    }
+
+    @Test
+    public void tokenCache_whenFileIsConfigured_encryptsWithClientCredentialsKey() throws GeneralSecurityException, ClientCredentialsConfigurationException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        PrivateKey key = generator.generateKeyPair().getPrivate();
+        when(privateKey.getObject()).thenReturn(key);
+
+        ResourceAutoRenewalProperties properties = new ResourceAutoRenewalProperties();
+        properties.setTokenCacheFile("/tmp/token");
+
+        ResourceCache<String> result = sut.tokenCache(properties, privateKey, resource, assertionProperties);
+
+        assertThat(result).isInstanceOf(EncryptedFileTokenCache.class);
+        assertThat(ReflectionTestUtils.getField(result, "file")).isEqualTo(Paths.get("/tmp/token"));
+        assertThat(ReflectionTestUtils.getField(result, "key")).isEqualTo(EncryptedFileTokenCache.deriveKey(key));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void tokenCache_whenFileIsConfigured_bindsTokenToClientTokenUrlAndScopes() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        PrivateKey key = generator.generateKeyPair().getPrivate();
+        when(privateKey.getObject()).thenReturn(key);
+
+        Path file = folder.getRoot().toPath().resolve("token");
+        ResourceAutoRenewalProperties properties = new ResourceAutoRenewalProperties();
+        properties.setTokenCacheFile(file.toString());
+        ExpiringResource<String> token = mock(ExpiringResource.class);
+        when(token.getValue()).thenReturn("token");
+        when(token.getExpiration()).thenReturn(Instant.parse("2018-04-11T12:01:00Z"));
+
+        sut.tokenCache(properties, privateKey, resource, assertionProperties).store(token);
+        EncryptedFileTokenCache sameKey = new EncryptedFileTokenCache(file, EncryptedFileTokenCache.deriveKey(key),
+            new TokenKey("client", "https://idp/token", Arrays.asList("write", "read")));
+        EncryptedFileTokenCache otherScopes = new EncryptedFileTokenCache(file, EncryptedFileTokenCache.deriveKey(key),
+            new TokenKey("client", "https://idp/token", Arrays.asList("read")));
+
+        assertThat(Files.exists(file)).isTrue();
+        assertThat(sameKey.load().getValue()).isEqualTo("token");
+        assertThat(otherScopes.load()).isNull();
+    }
+
+    @Test
+    public void tokenCache_whenStartupIsLazy_derivesKeyOnFirstUse() throws ClientCredentialsConfigurationException {
+        ResourceAutoRenewalProperties properties = new ResourceAutoRenewalProperties();
+        properties.setTokenCacheFile("/tmp/token");
+        properties.setLazyStartupEnabled(true);
+
+        ResourceCache<String> result = sut.tokenCache(properties, privateKey, resource, assertionProperties);
+
+        assertThat(result).isInstanceOf(DeferredTokenCache.class);
+        verifyZeroInteractions(privateKey);
+    }
+}
@@ -0,0 +1,355 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.key;
+
+import com.scotiabank.oauth2.clientcredentials.ClientCredentialsConfigurationException;
+import com.scotiabank.oauth2.clientcredentials.RenewalScheduler;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.RSAKey;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.crypto.Cipher;
+import javax.crypto.EncryptedPrivateKeyInfo;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.PBEParameterSpec;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ClientCredentialsKeyLoaderTest {
+
+    private static final String PASSWORD = "password";
+    private static final String PASSWORD_BASE64 = Base64.getEncoder().encodeToString(PASSWORD.getBytes(StandardCharsets.UTF_8));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    KeyStoreFactory keyStoreFactory;
+
+    @Mock
+    KeyStore keyStore;
+
+    @Mock
+    RenewalScheduler scheduler;
+
+    ParsedKeyCache cache = new ParsedKeyCache();
+
+    ClientCredentialsSignatureProperties source = new ClientCredentialsSignatureProperties();
+
+    KeyPair rsaKeyPair;
+
+    ClientCredentialsKeyLoader sut;
+
+    @Before
+    public void setup() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        rsaKeyPair = generator.generateKeyPair();
+
+        sut = new ClientCredentialsKeyLoader(new Base64Decoder(), keyStoreFactory, new JwsSignerFactory(), cache);
+    }
+
+    @Test
+    public void loadPrivateKey_whenPkcs8PemFile_parsesKey() throws Exception {
+        source.setPrivateKeyFile(write(pem("PRIVATE KEY", rsaKeyPair.getPrivate().getEncoded())));
+
+        PrivateKey key = sut.loadPrivateKey(source);
+
+        assertThat(key.getEncoded()).isEqualTo(rsaKeyPair.getPrivate().getEncoded());
+    }
+
+    @Test
+    public void loadPrivateKey_whenEcPkcs8PemFile_parsesKey() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(256);
+        KeyPair ecKeyPair = generator.generateKeyPair();
+        source.setPrivateKeyFile(write(pem("PRIVATE KEY", ecKeyPair.getPrivate().getEncoded())));
+
+        JWSSigner signer = sut.loadSigner(source);
+
+        assertThat(signer).isInstanceOf(ECDSASigner.class);
+    }
+
+    @Test
+    public void loadPrivateKey_whenEncryptedPkcs8PemFile_decryptsKeyWithKeyPassword() throws Exception {
+        source.setPrivateKeyFile(write(pem("ENCRYPTED PRIVATE KEY", encrypt(rsaKeyPair.getPrivate().getEncoded()))));
+        source.setKeyPasswordBase64(PASSWORD_BASE64);
+
+        PrivateKey key = sut.loadPrivateKey(source);
+
+        assertThat(key.getEncoded()).isEqualTo(rsaKeyPair.getPrivate().getEncoded());
+    }
+
+    @Test
+    public void loadPrivateKey_whenEncryptedPkcs8PemFileAndWrongPassword_throwsException() throws Exception {
+        source.setPrivateKeyFile(write(pem("ENCRYPTED PRIVATE KEY", encrypt(rsaKeyPair.getPrivate().getEncoded()))));
+        source.setKeyPasswordBase64(Base64.getEncoder().encodeToString("wrong".getBytes(StandardCharsets.UTF_8)));
+
+        assertThatThrownBy(() -> sut.loadPrivateKey(source))
+            .isInstanceOf(ClientCredentialsConfigurationException.class)
+            .hasMessage("Unable to decrypt private key");
+    }
+
+    @Test
+    public void loadPrivateKey_whenEncryptedPkcs8PemFileAndNoPassword_throwsException() throws Exception {
+        source.setPrivateKeyFile(write(pem("ENCRYPTED PRIVATE KEY", encrypt(rsaKeyPair.getPrivate().getEncoded()))));
+
+        assertThatThrownBy(() -> sut.loadPrivateKey(source))
+            .isInstanceOf(ClientCredentialsConfigurationException.class)
+            .hasMessageContaining("keyPasswordBase64");
+    }
+
+    @Test
+    public void loadSigner_whenRsaJwkFile_buildsRsaSigner() throws Exception {
+        RSAKey jwk = new RSAKey.Builder((RSAPublicKey) rsaKeyPair.getPublic()).privateKey((RSAPrivateKey) rsaKeyPair.getPrivate()).build();
+        source.setPrivateKeyFile(write(jwk.toJSONString().getBytes(StandardCharsets.UTF_8)));
+
+        JWSSigner signer = sut.loadSigner(source);
+
+        assertThat(signer).isInstanceOf(RSASSASigner.class);
+        assertThat(((RSASSASigner) signer).getPrivateKey().getEncoded()).isEqualTo(rsaKeyPair.getPrivate().getEncoded());
+    }
+
+    @Test
+    public void loadSigner_whenEcJwkFile_buildsEcSigner() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(256);
+        KeyPair ecKeyPair = generator.generateKeyPair();
+        ECKey jwk = new ECKey.Builder(Curve.P_256, (ECPublicKey) ecKeyPair.getPublic()).privateKey((ECPrivateKey) ecKeyPair.getPrivate()).build();
+        source.setPrivateKeyFile(write(jwk.toJSONString().getBytes(StandardCharsets.UTF_8)));
+
+        JWSSigner signer = sut.loadSigner(source);
+
+        assertThat(signer).isInstanceOf(ECDSASigner.class);
+    }
+
+    @Test
+    public void loadPrivateKey_whenJwkHasNoPrivateKey_throwsException() throws Exception {
+        RSAKey jwk = new RSAKey.Builder((RSAPublicKey) rsaKeyPair.getPublic()).build();
+        source.setPrivateKeyFile(write(jwk.toJSONString().getBytes(StandardCharsets.UTF_8)));
+
+        assertThatThrownBy(() -> sut.loadPrivateKey(source))
+            .isInstanceOf(ClientCredentialsConfigurationException.class)
+            .hasMessage("JWK doesn't hold a private key");
+    }
+
+    @Test
+    public void loadPrivateKey_whenPkcs1PemFile_throwsException() throws Exception {
+        source.setPrivateKeyFile(write(pem("RSA PRIVATE KEY", new byte[] {1, 2, 3})));
+
+        assertThatThrownBy(() -> sut.loadPrivateKey(source))
+            .isInstanceOf(ClientCredentialsConfigurationException.class)
+            .hasMessageContaining("openssl pkcs8 -topk8");
+    }
+
+    @Test
+    public void loadPrivateKey_whenFileIsMissing_throwsException() {
+        source.setPrivateKeyFile(new File(folder.getRoot(), "missing.pem").getPath());
+
+        assertThatThrownBy(() -> sut.loadPrivateKey(source))
+            .isInstanceOf(ClientCredentialsConfigurationException.class)
+            .hasMessageStartingWith("Unable to read key file");
+    }
+
+    @Test
+    public void loadPrivateKey_whenKeyStoreFile_readsKeyFromKeyStore() throws Exception {
+        byte[] storeData = {1, 2, 3};
+        when(keyStoreFactory.create(eq(storeData), eq(PASSWORD.toCharArray()), eq("PKCS12"))).thenReturn(keyStore);
+        when(keyStore.getKey(eq("alias"), eq(PASSWORD.toCharArray()))).thenReturn(rsaKeyPair.getPrivate());
+        source.setKeyStoreFile(write(storeData));
+        source.setKeyStorePasswordBase64(PASSWORD_BASE64);
+        source.setKeyStoreFormat("PKCS12");
+        source.setKeyName("alias");
+        source.setKeyPasswordBase64(PASSWORD_BASE64);
+
+        PrivateKey key = sut.loadPrivateKey(source);
+
+        assertThat(key).isSameAs(rsaKeyPair.getPrivate());
+    }
+
+    @Test
+    public void loadPrivateKey_whenKeyStoreBase64_readsKeyFromKeyStore() throws Exception {
+        byte[] storeData = {1, 2, 3};
+        when(keyStoreFactory.create(eq(storeData), eq(PASSWORD.toCharArray()), eq("PKCS12"))).thenReturn(keyStore);
+        when(keyStore.getKey(eq("alias"), eq(PASSWORD.toCharArray()))).thenReturn(rsaKeyPair.getPrivate());
+        source.setKeyStoreBase64(Base64.getEncoder().encodeToString(storeData));
+        source.setKeyStorePasswordBase64(PASSWORD_BASE64);
+        source.setKeyStoreFormat("PKCS12");
+        source.setKeyName("alias");
+        source.setKeyPasswordBase64(PASSWORD_BASE64);
+
+        PrivateKey key = sut.loadPrivateKey(source);
+
+        assertThat(key).isSameAs(rsaKeyPair.getPrivate());
+    }
+
+    @Test
+    public void loadPrivateKey_whenKeyIsNotInKeyStore_throwsException() throws Exception {
+        when(keyStoreFactory.create(any(), any(), eq("PKCS12"))).thenReturn(keyStore);
+        source.setKeyStoreBase64(Base64.getEncoder().encodeToString(new byte[] {1, 2, 3}));
+        source.setKeyStoreFormat("PKCS12");
+        source.setKeyName("alias");
+
+        assertThatThrownBy(() -> sut.loadPrivateKey(source))
+            .isInstanceOf(ClientCredentialsConfigurationException.class)
+            .hasMessage("No private key named alias in the keystore");
+    }
+
+    @Test
+    public void loadPrivateKey_whenNoSource_throwsException() {
+        assertThatThrownBy(() -> sut.loadPrivateKey(source))
+            .isInstanceOf(ClientCredentialsConfigurationException.class)
+            .hasMessageContaining("privateKeyFile, keyStoreFile or keyStoreBase64");
+    }
+
+    @Test
+    public void loadSigner_whenReloadPeriodSetForKeyFile_reloadsRotatedKey() throws Exception {
+        File file = folder.newFile();
+        source.setPrivateKeyFile(file.getPath());
+        Files.write(file.toPath(), pem("PRIVATE KEY", rsaKeyPair.getPrivate().getEncoded()));
+
+        JWSSigner signer = sut.loadSigner(source, scheduler, 1000);
+
+        assertThat(signer).isInstanceOf(ReloadingJwsSigner.class);
+        verify(scheduler).scheduleAtFixedRate(any(Runnable.class), eq(1000L), eq(1000L));
+
+        ReloadingJwsSigner reloading = (ReloadingJwsSigner) signer;
+        assertThat(reloading.reload()).isFalse();
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        PrivateKey rotated = generator.generateKeyPair().getPrivate();
+        Files.write(file.toPath(), pem("PRIVATE KEY", rotated.getEncoded()));
+
+        assertThat(reloading.reload()).isTrue();
+        assertThat(((RSASSASigner) reloading.current()).getPrivateKey().getEncoded()).isEqualTo(rotated.getEncoded());
+        // only the rotated key is left parsed
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(sut.loadPrivateKey(source).getEncoded()).isEqualTo(rotated.getEncoded());
+    }
+
+    @Test
+    public void loadSigner_whenReloadPeriodSetForInlineKeyStore_doesNotReload() throws Exception {
+        when(keyStoreFactory.create(any(), any(), eq("PKCS12"))).thenReturn(keyStore);
+        when(keyStore.getKey(eq("alias"), any())).thenReturn(rsaKeyPair.getPrivate());
+        source.setKeyStoreBase64(Base64.getEncoder().encodeToString(new byte[] {1, 2, 3}));
+        source.setKeyStoreFormat("PKCS12");
+        source.setKeyName("alias");
+
+        JWSSigner signer = sut.loadSigner(source, scheduler, 1000);
+
+        assertThat(signer).isInstanceOf(RSASSASigner.class);
+        verifyZeroInteractions(scheduler);
+    }
+
+    @Test
+    public void loadSigner_whenSameKeyLoadedAgain_parsesOnce() throws Exception {
+        byte[] storeData = {1, 2, 3};
+        when(keyStoreFactory.create(eq(storeData), eq(PASSWORD.toCharArray()), eq("PKCS12"))).thenReturn(keyStore);
+        when(keyStore.getKey(eq("alias"), eq(PASSWORD.toCharArray()))).thenReturn(rsaKeyPair.getPrivate());
+        source.setKeyStorePasswordBase64(PASSWORD_BASE64);
+        source.setKeyStoreFormat("PKCS12");
+        source.setKeyName("alias");
+        source.setKeyPasswordBase64(PASSWORD_BASE64);
+        source.setKeyStoreFile(write(storeData));
+
+        JWSSigner first = sut.loadSigner(source);
+        // the same keystore inline is the same key material
+        source.setKeyStoreFile(null);
+        source.setKeyStoreBase64(Base64.getEncoder().encodeToString(storeData));
+        JWSSigner second = sut.loadSigner(source);
+        PrivateKey key = sut.loadPrivateKey(source);
+
+        assertThat(second).isSameAs(first);
+        assertThat(key).isSameAs(rsaKeyPair.getPrivate());
+        assertThat(cache.size()).isEqualTo(1);
+        verify(keyStoreFactory, times(1)).create(any(), any(), any());
+    }
+
+    @Test
+    public void loadPrivateKey_whenPasswordDiffers_parsesAgain() throws Exception {
+        source.setPrivateKeyFile(write(pem("ENCRYPTED PRIVATE KEY", encrypt(rsaKeyPair.getPrivate().getEncoded()))));
+        source.setKeyPasswordBase64(PASSWORD_BASE64);
+        sut.loadPrivateKey(source);
+
+        source.setKeyPasswordBase64(Base64.getEncoder().encodeToString("wrong".getBytes(StandardCharsets.UTF_8)));
+
+        assertThatThrownBy(() -> sut.loadPrivateKey(source))
+            .isInstanceOf(ClientCredentialsConfigurationException.class);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void loadPrivateKey_whenFileContentChanges_parsesNewKey() throws Exception {
+        File file = folder.newFile();
+        source.setPrivateKeyFile(file.getPath());
+        Files.write(file.toPath(), pem("PRIVATE KEY", rsaKeyPair.getPrivate().getEncoded()));
+        sut.loadPrivateKey(source);
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        PrivateKey rotated = generator.generateKeyPair().getPrivate();
+        Files.write(file.toPath(), pem("PRIVATE KEY", rotated.getEncoded()));
+
+        PrivateKey key = sut.loadPrivateKey(source);
+
+        assertThat(key.getEncoded()).isEqualTo(rotated.getEncoded());
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    private String write(byte[] content) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), content);
+        return file.getPath();
+    }
+
+    private static byte[] pem(String label, byte[] der) {
+        String body = Base64.getMimeEncoder(64, new byte[] {'\n'}).encodeToString(der);
+        return ("-----BEGIN " + label + "-----\n" + body + "\n-----END " + label + "-----\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] encrypt(byte[] pkcs8) throws GeneralSecurityException, IOException {
+        String algorithm = "PBEWithSHA1AndDESede";
+        Cipher cipher = Cipher.getInstance(algorithm);
+        cipher.init(
+            Cipher.ENCRYPT_MODE,
+            SecretKeyFactory.getInstance(algorithm).generateSecret(new PBEKeySpec(PASSWORD.toCharArray())),
+            new PBEParameterSpec(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}, 1024));
+        return new EncryptedPrivateKeyInfo(cipher.getParameters(), cipher.doFinal(pkcs8)).getEncoded();
+    }
+}
@@ -5,20 +5,21 @@
 package com.scotiabank.oauth2.clientcredentials.key;
 
 import com.scotiabank.oauth2.clientcredentials.ClientCredentialsConfigurationException;
+import com.scotiabank.oauth2.clientcredentials.RenewalScheduler;
+import com.scotiabank.oauth2.clientcredentials.ResourceAutoRenewalProperties;
+import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSSigner;
-import com.nimbusds.jose.crypto.RSASSASigner;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
-import java.io.IOException;
-import java.security.*;
+import java.security.PrivateKey;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -28,52 +29,54 @@ public class ClientCredentialsSignatureConfigTest {
     ClientCredentialsSignatureConfig sut;
 
     @Mock
-    KeyStoreDecoder keyStoreDecoder;
+    ClientCredentialsKeyLoader keyLoader;
 
     @Mock
-    Base64Decoder base64Decoder;
+    PrivateKey privateKey;
 
     @Mock
-    KeyStore mockStore;
+    JWSSigner mockSigner;
 
     @Mock
-    PrivateKey privateKey;
+    ClientCredentialsSignatureProperties properties;
 
     @Mock
-    ClientCredentialsSignatureProperties properties;
+    RenewalScheduler scheduler;
 
     @Test
-    public void keyStore_always_passesParametersToDecoder() throws ClientCredentialsConfigurationException {
-        when(keyStoreDecoder.decode("a", "b", "c"))
-            .thenReturn(mockStore);
-        when(properties.getKeyStoreBase64()).thenReturn("a");
-        when(properties.getKeyStorePasswordBase64()).thenReturn("b");
-        when(properties.getKeyStoreFormat()).thenReturn("c");
+    public void privateKey_always_loadsKeyFromProperties() throws ClientCredentialsConfigurationException {
+        when(keyLoader.loadPrivateKey(properties)).thenReturn(privateKey);
+
+        PrivateKey key = sut.privateKey(keyLoader, properties);
 
-        KeyStore store = sut.keyStore(keyStoreDecoder, properties);
+        assertThat(key).isSameAs(privateKey);
+    }
+
+    @Test
+    public void jwsSigner_always_loadsSignerFromProperties() throws ClientCredentialsConfigurationException {
+        when(properties.getKeyReloadPeriodMs()).thenReturn(1000L);
+        when(keyLoader.loadSigner(properties, scheduler, 1000L)).thenReturn(mockSigner);
 
-        assertThat(store).isSameAs(mockStore);
+        JWSSigner signer = sut.jwsSigner(keyLoader, properties, new ResourceAutoRenewalProperties(), scheduler);
 
-        verify(keyStoreDecoder).decode(eq("a"), eq("b"), eq("c"));
-        verify(properties).getKeyStoreBase64();
-        verify(properties).getKeyStorePasswordBase64();
-        verify(properties).getKeyStoreFormat();
+        assertThat(signer).isSameAs(mockSigner);
+        verify(keyLoader).loadSigner(properties, scheduler, 1000L);
     }
 
     @Test
-    public void jwsSigner_always_extractsPrivateKeyAndBuildsSigner() throws GeneralSecurityException, IOException, ClientCredentialsConfigurationException {
-        when(mockStore.getKey(eq("alias"), eq(new char[] {'a', 'b', 'c'}))).thenReturn(privateKey);
-        when(base64Decoder.decodeBase64CharArray(eq("pass"))).thenReturn(new char[] {'a', 'b', 'c'});
-        when(properties.getKeyName()).thenReturn("alias");
-        when(properties.getKeyPasswordBase64()).thenReturn("pass");
-        // simpler to do this than to extract generation of RSASSASigner
-        when(privateKey.getAlgorithm()).thenReturn("RSA");
+    public void jwsSigner_whenStartupIsLazy_loadsSignerOnFirstUse() throws ClientCredentialsConfigurationException, JOSEException {
+        ResourceAutoRenewalProperties tokenManagementProperties = new ResourceAutoRenewalProperties();
+        tokenManagementProperties.setLazyStartupEnabled(true);
+
+        JWSSigner signer = sut.jwsSigner(keyLoader, properties, tokenManagementProperties, scheduler);
+
+        assertThat(signer).isInstanceOf(DeferredJwsSigner.class);
+        verifyZeroInteractions(keyLoader);
 
-        JWSSigner signer = sut.jwsSigner(base64Decoder, mockStore, properties);
+        when(keyLoader.loadSigner(properties, scheduler, 0L)).thenReturn(mockSigner);
 
-        assertThat(signer).isInstanceOf(RSASSASigner.class);
-        assertThat(((RSASSASigner)signer).getPrivateKey()).isSameAs(privateKey);
+        JWSSigner loaded = ((DeferredJwsSigner) signer).get();
 
-        verify(mockStore).getKey(eq("alias"), eq(new char[] {'a', 'b', 'c'}));
+        assertThat(loaded).isSameAs(mockSigner);
     }
 }
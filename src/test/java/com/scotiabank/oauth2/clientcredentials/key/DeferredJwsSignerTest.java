@@ -0,0 +1,106 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.key;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.util.Base64URL;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DeferredJwsSignerTest {
+
+    @Mock
+    Callable<JWSSigner> loader;
+
+    @Mock
+    JWSSigner signer;
+
+    @Test
+    public void constructor_always_doesNotLoadSigner() {
+        DeferredJwsSigner sut = new DeferredJwsSigner(loader);
+
+        assertThat(sut.isLoaded()).isFalse();
+        verifyZeroInteractions(loader);
+    }
+
+    @Test
+    public void get_whenNotLoading_loadsSignerInlineOnce() throws Exception {
+        when(loader.call()).thenReturn(signer);
+        DeferredJwsSigner sut = new DeferredJwsSigner(loader);
+
+        assertThat(sut.get()).isSameAs(signer);
+        assertThat(sut.get()).isSameAs(signer);
+
+        assertThat(sut.isLoaded()).isTrue();
+        verify(loader, times(1)).call();
+    }
+
+    @Test
+    public void load_always_loadsSignerOnExecutorOnce() throws Exception {
+        when(loader.call()).thenReturn(signer);
+        Executor executor = mock(Executor.class);
+        DeferredJwsSigner sut = new DeferredJwsSigner(loader);
+
+        CompletableFuture<JWSSigner> loading = sut.load(executor);
+        assertThat(sut.load(executor)).isSameAs(loading);
+        assertThat(sut.isLoaded()).isFalse();
+
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor, times(1)).execute(task.capture());
+        task.getValue().run();
+
+        assertThat(loading).isCompletedWithValue(signer);
+        assertThat(sut.get()).isSameAs(signer);
+        verify(loader, times(1)).call();
+    }
+
+    @Test
+    public void sign_always_signsWithLoadedSigner() throws Exception {
+        JWSHeader header = new JWSHeader(JWSAlgorithm.RS256);
+        byte[] input = new byte[] {1, 2, 3};
+        Base64URL signature = new Base64URL("signature");
+        when(loader.call()).thenReturn(signer);
+        when(signer.sign(header, input)).thenReturn(signature);
+        when(signer.supportedJWSAlgorithms()).thenReturn(Collections.singleton(JWSAlgorithm.RS256));
+        DeferredJwsSigner sut = new DeferredJwsSigner(loader);
+
+        assertThat(sut.sign(header, input)).isSameAs(signature);
+        assertThat(sut.supportedJWSAlgorithms()).containsExactly(JWSAlgorithm.RS256);
+    }
+
+    @Test
+    public void get_whenSignerCannotBeLoaded_throwsException() throws Exception {
+        IllegalArgumentException failure = new IllegalArgumentException("bad keystore");
+        when(loader.call()).thenThrow(failure);
+        DeferredJwsSigner sut = new DeferredJwsSigner(loader);
+
+        assertThatThrownBy(sut::get)
+            .isInstanceOf(JOSEException.class)
+            .hasCause(failure);
+        assertThatThrownBy(sut::supportedJWSAlgorithms)
+            .isInstanceOf(IllegalStateException.class);
+        verify(loader, times(1)).call();
+    }
+}
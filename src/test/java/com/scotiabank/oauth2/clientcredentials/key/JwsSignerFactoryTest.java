@@ -0,0 +1,58 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.key;
+
+import com.scotiabank.oauth2.clientcredentials.ClientCredentialsConfigurationException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import org.junit.Test;
+
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.spec.ECGenParameterSpec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JwsSignerFactoryTest {
+
+    JwsSignerFactory sut = new JwsSignerFactory();
+
+    @Test
+    public void createSigner_whenKeyIsRsa_createsRsaSigner() throws ClientCredentialsConfigurationException {
+        PrivateKey key = mock(PrivateKey.class);
+        when(key.getAlgorithm()).thenReturn("RSA");
+
+        JWSSigner result = sut.createSigner(key);
+
+        assertThat(result).isInstanceOf(RSASSASigner.class);
+        assertThat(((RSASSASigner) result).getPrivateKey()).isSameAs(key);
+    }
+
+    @Test
+    public void createSigner_whenKeyIsEc_createsEcdsaSignerForCurve() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+
+        JWSSigner result = sut.createSigner(generator.generateKeyPair().getPrivate());
+
+        assertThat(result).isInstanceOf(ECDSASigner.class);
+        assertThat(result.supportedJWSAlgorithms()).containsExactly(JWSAlgorithm.ES256);
+    }
+
+    @Test
+    public void createSigner_whenKeyTypeIsUnsupported_throwsException() {
+        PrivateKey key = mock(PrivateKey.class);
+        when(key.getAlgorithm()).thenReturn("DSA");
+
+        assertThatThrownBy(() -> sut.createSigner(key))
+            .isExactlyInstanceOf(ClientCredentialsConfigurationException.class)
+            .hasMessageContaining("DSA");
+    }
+}
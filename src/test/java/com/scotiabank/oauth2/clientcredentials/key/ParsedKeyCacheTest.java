@@ -0,0 +1,98 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.key;
+
+import com.scotiabank.oauth2.clientcredentials.ClientCredentialsConfigurationException;
+import com.nimbusds.jose.JWSSigner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.security.PrivateKey;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ParsedKeyCacheTest {
+
+    @Mock
+    PrivateKey key;
+
+    @Mock
+    PrivateKey otherKey;
+
+    @Mock
+    JWSSigner signer;
+
+    @Mock
+    JWSSigner otherSigner;
+
+    ParsedKeyCache sut = new ParsedKeyCache();
+
+    @Test
+    public void privateKey_whenHashSeenBefore_returnsParsedKeyWithoutParsing() throws ClientCredentialsConfigurationException {
+        AtomicInteger parses = new AtomicInteger();
+        sut.privateKey("hash", () -> {
+            parses.incrementAndGet();
+            return key;
+        });
+
+        PrivateKey cached = sut.privateKey("hash", () -> {
+            parses.incrementAndGet();
+            return otherKey;
+        });
+
+        assertThat(cached).isSameAs(key);
+        assertThat(parses.get()).isEqualTo(1);
+        assertThat(sut.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void privateKey_whenHashDiffers_parsesKey() throws ClientCredentialsConfigurationException {
+        sut.privateKey("hash", () -> key);
+
+        PrivateKey parsed = sut.privateKey("other", () -> otherKey);
+
+        assertThat(parsed).isSameAs(otherKey);
+        assertThat(sut.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void privateKey_whenParsingFails_cachesNothing() {
+        assertThatThrownBy(() -> sut.privateKey("hash", () -> {
+            throw new ClientCredentialsConfigurationException("bad key");
+        })).isInstanceOf(ClientCredentialsConfigurationException.class);
+
+        assertThat(sut.size()).isZero();
+    }
+
+    @Test
+    public void evict_always_dropsSignerAndItsKey() throws ClientCredentialsConfigurationException {
+        sut.privateKey("hash", () -> key);
+        sut.signer("hash", () -> signer);
+        sut.privateKey("other", () -> otherKey);
+        sut.signer("other", () -> otherSigner);
+
+        sut.evict(signer);
+
+        assertThat(sut.size()).isEqualTo(1);
+        assertThat(sut.signer("other", () -> signer)).isSameAs(otherSigner);
+        assertThat(sut.privateKey("hash", () -> otherKey)).isSameAs(otherKey);
+    }
+
+    @Test
+    public void privateKey_whenMoreKeysThanMaximum_dropsLeastRecentlyUsed() throws ClientCredentialsConfigurationException {
+        sut.privateKey("first", () -> key);
+        for (int i = 0; i < ParsedKeyCache.MAX_KEYS; i++) {
+            sut.privateKey("hash" + i, () -> otherKey);
+        }
+
+        assertThat(sut.size()).isEqualTo(ParsedKeyCache.MAX_KEYS);
+        assertThat(sut.privateKey("first", () -> otherKey)).isSameAs(otherKey);
+    }
+}
@@ -0,0 +1,156 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.key;
+
+import com.scotiabank.oauth2.clientcredentials.ClientCredentialsConfigurationException;
+import com.scotiabank.oauth2.clientcredentials.RenewalScheduler;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.util.Base64URL;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReloadingJwsSignerTest {
+
+    private static final JWSHeader HEADER = new JWSHeader(JWSAlgorithm.RS256);
+    private static final byte[] SIGNING_INPUT = {1, 2, 3};
+
+    @Mock
+    JWSSigner initial;
+
+    @Mock
+    JWSSigner rotated;
+
+    JWSSigner loaded;
+
+    ReloadingJwsSigner sut;
+
+    @Before
+    public void setup() {
+        loaded = initial;
+        sut = new ReloadingJwsSigner(initial, () -> loaded);
+    }
+
+    @Test
+    public void sign_always_signsWithCurrentSigner() throws JOSEException {
+        Base64URL signature = new Base64URL("c2ln");
+        when(initial.sign(HEADER, SIGNING_INPUT)).thenReturn(signature);
+
+        assertThat(sut.sign(HEADER, SIGNING_INPUT)).isSameAs(signature);
+    }
+
+    @Test
+    public void reload_whenKeyIsUnchanged_keepsCurrentSigner() {
+        boolean reloaded = sut.reload();
+
+        assertThat(reloaded).isFalse();
+        assertThat(sut.current()).isSameAs(initial);
+    }
+
+    @Test
+    public void reload_whenKeyChanged_swapsSignerAfterTestSignature() throws JOSEException {
+        when(initial.supportedJWSAlgorithms()).thenReturn(Collections.singleton(JWSAlgorithm.RS256));
+        when(rotated.supportedJWSAlgorithms()).thenReturn(Collections.singleton(JWSAlgorithm.RS256));
+        loaded = rotated;
+
+        boolean reloaded = sut.reload();
+
+        assertThat(reloaded).isTrue();
+        assertThat(sut.current()).isSameAs(rotated);
+        verify(rotated).sign(any(JWSHeader.class), any(byte[].class));
+    }
+
+    @Test
+    public void reload_whenKeyChanged_handsReplacedSignerToCallback() {
+        when(initial.supportedJWSAlgorithms()).thenReturn(Collections.singleton(JWSAlgorithm.RS256));
+        when(rotated.supportedJWSAlgorithms()).thenReturn(Collections.singleton(JWSAlgorithm.RS256));
+        List<JWSSigner> replaced = new ArrayList<>();
+        sut = new ReloadingJwsSigner(initial, () -> rotated, replaced::add);
+
+        sut.reload();
+        sut.reload();
+
+        assertThat(replaced).containsExactly(initial);
+    }
+
+    @Test
+    public void reload_whenTestSignatureFails_keepsCurrentSigner() throws JOSEException {
+        when(initial.supportedJWSAlgorithms()).thenReturn(Collections.singleton(JWSAlgorithm.RS256));
+        when(rotated.supportedJWSAlgorithms()).thenReturn(Collections.singleton(JWSAlgorithm.RS256));
+        when(rotated.sign(any(JWSHeader.class), any(byte[].class))).thenThrow(new JOSEException("broken key"));
+        loaded = rotated;
+
+        boolean reloaded = sut.reload();
+
+        assertThat(reloaded).isFalse();
+        assertThat(sut.current()).isSameAs(initial);
+    }
+
+    @Test
+    public void reload_whenNewKeyDoesNotSupportCurrentAlgorithms_keepsCurrentSigner() throws JOSEException {
+        when(initial.supportedJWSAlgorithms()).thenReturn(Collections.singleton(JWSAlgorithm.RS256));
+        when(rotated.supportedJWSAlgorithms()).thenReturn(Collections.singleton(JWSAlgorithm.ES256));
+        loaded = rotated;
+
+        boolean reloaded = sut.reload();
+
+        assertThat(reloaded).isFalse();
+        assertThat(sut.current()).isSameAs(initial);
+        verify(rotated, never()).sign(any(JWSHeader.class), any(byte[].class));
+    }
+
+    @Test
+    public void reload_whenKeyCannotBeLoaded_keepsCurrentSigner() {
+        sut = new ReloadingJwsSigner(initial, () -> {
+            throw new ClientCredentialsConfigurationException("missing key file");
+        });
+
+        boolean reloaded = sut.reload();
+
+        assertThat(reloaded).isFalse();
+        assertThat(sut.current()).isSameAs(initial);
+    }
+
+    @Test
+    public void scheduleReload_always_reloadsEveryPeriod() throws InterruptedException {
+        RenewalScheduler scheduler = new RenewalScheduler(10, 1);
+        AtomicInteger loads = new AtomicInteger();
+        sut = new ReloadingJwsSigner(initial, () -> {
+            loads.incrementAndGet();
+            return initial;
+        });
+
+        try {
+            sut.scheduleReload(scheduler, 20);
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (loads.get() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+        } finally {
+            scheduler.destroy();
+        }
+
+        assertThat(loads.get()).isGreaterThanOrEqualTo(2);
+    }
+}
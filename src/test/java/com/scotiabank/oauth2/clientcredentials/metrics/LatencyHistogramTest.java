@@ -0,0 +1,61 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LatencyHistogramTest {
+
+    LatencyHistogram sut = new LatencyHistogram();
+
+    @Test
+    public void record_always_tracksCountTotalAndMax() {
+        sut.record(TimeUnit.MILLISECONDS.toNanos(1));
+        sut.record(TimeUnit.MILLISECONDS.toNanos(3));
+
+        assertThat(sut.getCount()).isEqualTo(2);
+        assertThat(sut.getTotalNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(4));
+        assertThat(sut.getMaxNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(3));
+        assertThat(sut.getMeanNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(2));
+    }
+
+    @Test
+    public void getPercentileNanos_always_returnsUpperBoundOfBucket() {
+        for (int i = 0; i < 99; i++) {
+            sut.record(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        sut.record(TimeUnit.SECONDS.toNanos(1));
+
+        // 100us falls in the bucket below 128us
+        assertThat(sut.getPercentileNanos(0.5)).isEqualTo(TimeUnit.MICROSECONDS.toNanos(128));
+        assertThat(sut.getPercentileNanos(0.99)).isEqualTo(TimeUnit.MICROSECONDS.toNanos(128));
+        assertThat(sut.getPercentileNanos(1)).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void getPercentileNanos_whenValueIsBeyondLastBucket_returnsMax() {
+        sut.record(TimeUnit.MINUTES.toNanos(1));
+
+        assertThat(sut.getPercentileNanos(0.5)).isEqualTo(TimeUnit.MINUTES.toNanos(1));
+    }
+
+    @Test
+    public void getPercentileNanos_whenEmpty_returnsZero() {
+        assertThat(sut.getPercentileNanos(0.99)).isEqualTo(0);
+        assertThat(sut.getMeanNanos()).isEqualTo(0);
+    }
+
+    @Test
+    public void record_whenNegative_recordsZero() {
+        sut.record(-5);
+
+        assertThat(sut.getCount()).isEqualTo(1);
+        assertThat(sut.getTotalNanos()).isEqualTo(0);
+    }
+}
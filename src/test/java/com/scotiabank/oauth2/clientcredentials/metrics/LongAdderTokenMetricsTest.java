@@ -0,0 +1,85 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.metrics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LongAdderTokenMetricsTest {
+
+    LongAdderTokenMetrics sut = new LongAdderTokenMetrics();
+
+    @Test
+    public void record_always_countsEvents() {
+        sut.recordHit();
+        sut.recordHit();
+        sut.recordColdMiss();
+        sut.recordWait(1000);
+        sut.recordFetchSuccess(2000);
+        sut.recordFetchFailure(3000, "ResourceAccessException");
+        sut.recordFetchFailure(4000, "ResourceAccessException");
+        sut.recordFetchFailure(5000, "EmptyResponse");
+
+        assertThat(sut.getHitCount()).isEqualTo(2);
+        assertThat(sut.getColdMissCount()).isEqualTo(1);
+        assertThat(sut.getWaitTime().getCount()).isEqualTo(1);
+        assertThat(sut.getFetchSuccessCount()).isEqualTo(1);
+        assertThat(sut.getFetchFailureCount("ResourceAccessException")).isEqualTo(2);
+        assertThat(sut.getFetchFailureCount("EmptyResponse")).isEqualTo(1);
+        assertThat(sut.getFetchFailureCount("OAuth2Exception")).isEqualTo(0);
+        assertThat(sut.getFetchLatency().getCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void forEachFailureCause_always_reportsExistingAndNewCausesOnce() {
+        List<String> causes = new ArrayList<>();
+        sut.recordFetchFailure(1, "EmptyResponse");
+
+        sut.forEachFailureCause(causes::add);
+        sut.recordFetchFailure(1, "ResourceAccessException");
+        sut.recordFetchFailure(1, "ResourceAccessException");
+
+        assertThat(causes).containsExactly("EmptyResponse", "ResourceAccessException");
+    }
+
+    @Test
+    public void getRemainingLifetimeMs_always_readsBoundSupplier() {
+        assertThat(sut.getRemainingLifetimeMs()).isEqualTo(0);
+
+        sut.bindRemainingLifetime(() -> 42);
+
+        assertThat(sut.getRemainingLifetimeMs()).isEqualTo(42);
+    }
+
+    @Test
+    public void getClockSkewMs_always_readsBoundSupplier() {
+        assertThat(sut.getClockSkewMs()).isEqualTo(0);
+
+        sut.bindClockSkew(() -> -3000);
+
+        assertThat(sut.getClockSkewMs()).isEqualTo(-3000);
+    }
+
+    @Test
+    public void withoutGauges_always_recordsEventsAndKeepsBoundGauges() {
+        sut.bindRemainingLifetime(() -> 42);
+        sut.bindClockSkew(() -> 1000);
+        TokenMetrics view = sut.withoutGauges();
+
+        view.recordHit();
+        view.recordFetchFailure(1, "EmptyResponse");
+        view.bindRemainingLifetime(() -> 7);
+        view.bindClockSkew(() -> 7);
+
+        assertThat(sut.getHitCount()).isEqualTo(1);
+        assertThat(sut.getFetchFailureCount("EmptyResponse")).isEqualTo(1);
+        assertThat(sut.getRemainingLifetimeMs()).isEqualTo(42);
+        assertThat(sut.getClockSkewMs()).isEqualTo(1000);
+    }
+}
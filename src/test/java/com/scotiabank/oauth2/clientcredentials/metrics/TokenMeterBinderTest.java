@@ -0,0 +1,57 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenMeterBinderTest {
+
+    LongAdderTokenMetrics metrics = new LongAdderTokenMetrics();
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void bindTo_always_registersMetersReadingCurrentValues() {
+        new TokenMeterBinder(metrics).bindTo(registry);
+
+        metrics.recordHit();
+        metrics.recordWait(TimeUnit.MILLISECONDS.toNanos(5));
+        metrics.bindRemainingLifetime(() -> 5000);
+        metrics.bindClockSkew(() -> -3000);
+
+        assertThat(registry.get("oauth2.clientcredentials.token.hit").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("oauth2.clientcredentials.token.miss").functionCounter().count()).isEqualTo(0);
+        assertThat(registry.get("oauth2.clientcredentials.token.wait").functionTimer().count()).isEqualTo(1);
+        assertThat(registry.get("oauth2.clientcredentials.token.wait.max").gauge().value()).isEqualTo(5);
+        assertThat(registry.get("oauth2.clientcredentials.token.remaining.lifetime").gauge().value()).isEqualTo(5000);
+        assertThat(registry.get("oauth2.clientcredentials.token.clock.skew").gauge().value()).isEqualTo(-3000);
+    }
+
+    @Test
+    public void bindTo_whenNewFailureCauseIsRecorded_registersTaggedCounter() {
+        metrics.recordFetchFailure(1, "EmptyResponse");
+        new TokenMeterBinder(metrics).bindTo(registry);
+
+        metrics.recordFetchFailure(1, "ResourceAccessException");
+        metrics.recordFetchFailure(1, "ResourceAccessException");
+
+        FunctionCounter empty = registry.get("oauth2.clientcredentials.token.fetch.failure")
+            .tag("cause", "EmptyResponse").functionCounter();
+        FunctionCounter access = registry.get("oauth2.clientcredentials.token.fetch.failure")
+            .tag("cause", "ResourceAccessException").functionCounter();
+        FunctionTimer latency = registry.get("oauth2.clientcredentials.token.fetch.latency").functionTimer();
+
+        assertThat(empty.count()).isEqualTo(1);
+        assertThat(access.count()).isEqualTo(2);
+        assertThat(latency.count()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,37 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.metrics;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenMetricsConfigTest {
+
+    TokenMetricsConfig sut = new TokenMetricsConfig();
+
+    @Test
+    public void tokenMetrics_whenExporterIsPresent_recordsMetrics() {
+        assertThat(sut.tokenMetrics()).isInstanceOf(LongAdderTokenMetrics.class);
+    }
+
+    @Test
+    public void tokenPublicMetrics_always_publishesTokenMetrics() {
+        LongAdderTokenMetrics metrics = new LongAdderTokenMetrics();
+
+        TokenPublicMetrics result = new TokenMetricsConfig.ActuatorExport().tokenPublicMetrics(metrics);
+
+        assertThat(result).hasFieldOrPropertyWithValue("metrics", metrics);
+    }
+
+    @Test
+    public void tokenMeterBinder_always_bindsTokenMetrics() {
+        LongAdderTokenMetrics metrics = new LongAdderTokenMetrics();
+
+        TokenMeterBinder result = new TokenMetricsConfig.MicrometerExport().tokenMeterBinder(metrics);
+
+        assertThat(result).hasFieldOrPropertyWithValue("metrics", metrics);
+    }
+}
@@ -0,0 +1,44 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.metrics;
+
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenPublicMetricsTest {
+
+    LongAdderTokenMetrics metrics = new LongAdderTokenMetrics();
+
+    TokenPublicMetrics sut = new TokenPublicMetrics(metrics);
+
+    @Test
+    public void metrics_always_publishesCurrentValues() {
+        metrics.recordHit();
+        metrics.recordColdMiss();
+        metrics.recordFetchSuccess(2000000);
+        metrics.recordFetchFailure(1000000, "EmptyResponse");
+        metrics.bindRemainingLifetime(() -> 5000);
+        metrics.bindClockSkew(() -> -3000);
+
+        Map<String, Number> result = sut.metrics().stream()
+            .collect(Collectors.toMap(Metric::getName, Metric::getValue));
+
+        assertThat(result)
+            .containsEntry("oauth2.clientcredentials.token.hit", 1L)
+            .containsEntry("oauth2.clientcredentials.token.miss", 1L)
+            .containsEntry("oauth2.clientcredentials.token.fetch.success", 1L)
+            .containsEntry("oauth2.clientcredentials.token.fetch.failure.EmptyResponse", 1L)
+            .containsEntry("oauth2.clientcredentials.token.fetch.latency.count", 2L)
+            .containsEntry("oauth2.clientcredentials.token.fetch.latency.max", 2.0)
+            .containsEntry("oauth2.clientcredentials.token.wait.count", 0L)
+            .containsEntry("oauth2.clientcredentials.token.remaining.lifetime", 5000L)
+            .containsEntry("oauth2.clientcredentials.token.clock.skew", -3000L);
+    }
+}
@@ -0,0 +1,259 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.registry;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSSigner;
+import com.scotiabank.oauth2.clientcredentials.AutoRenewAsyncResourceProvider;
+import com.scotiabank.oauth2.clientcredentials.CurrentTimeGenerator;
+import com.scotiabank.oauth2.clientcredentials.RenewalScheduler;
+import com.scotiabank.oauth2.clientcredentials.ResourceAutoRenewalProperties;
+import com.scotiabank.oauth2.clientcredentials.metrics.LongAdderTokenMetrics;
+import com.scotiabank.oauth2.clientcredentials.metrics.TokenMetrics;
+import com.scotiabank.oauth2.clientcredentials.request.ClientAssertionGenerator;
+import com.scotiabank.oauth2.clientcredentials.request.ClientAssertionRequestEnhancer;
+import com.scotiabank.oauth2.clientcredentials.request.ClientCredentialsAssertionGenerationProperties;
+import com.scotiabank.oauth2.clientcredentials.request.ClientCredentialsTokenRequestor;
+import com.scotiabank.oauth2.clientcredentials.request.StandaloneTokenRequestor;
+import com.scotiabank.oauth2.clientcredentials.request.TokenEndpointCircuitBreaker;
+import com.scotiabank.oauth2.clientcredentials.request.TokenEndpointClientProperties;
+import com.scotiabank.oauth2.clientcredentials.request.TokenEndpointCodec;
+import com.scotiabank.oauth2.clientcredentials.store.InMemorySharedTokenStore;
+import com.scotiabank.oauth2.clientcredentials.store.SharedTokenStore;
+import com.scotiabank.oauth2.clientcredentials.store.SharedTokenStoreResourceProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.security.oauth2.client.token.grant.client.ClientCredentialsResourceDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ClientCredentialsProviderFactoryTest {
+
+    JWSSigner clientSigner = mock(JWSSigner.class);
+    JWSSigner defaultSigner = mock(JWSSigner.class);
+    RestTemplate restTemplate = mock(RestTemplate.class);
+    ClientHttpRequestFactory requestFactory = mock(ClientHttpRequestFactory.class);
+    ResourceAutoRenewalProperties renewalProperties = mock(ResourceAutoRenewalProperties.class);
+    CurrentTimeGenerator currentTimeGenerator = mock(CurrentTimeGenerator.class);
+    RenewalScheduler renewalScheduler = new RenewalScheduler(10, 1);
+    LongAdderTokenMetrics metrics = new LongAdderTokenMetrics();
+    ClientCredentialsAssertionGenerationProperties defaultAssertionProperties = new ClientCredentialsAssertionGenerationProperties();
+
+    TokenKey clientKey = new TokenKey("client", "token url", Arrays.asList("read", "write"));
+
+    ClientCredentialsProviderFactory sut;
+
+    AutoRenewAsyncResourceProvider<String> result;
+
+    @Before
+    public void init() {
+        defaultAssertionProperties.setAssertionTokenExpiryTimeMs(2000);
+        sut = new ClientCredentialsProviderFactory(
+            Collections.singletonMap(clientKey, clientSigner),
+            defaultSigner,
+            Collections.singletonMap(clientKey, 1000),
+            defaultAssertionProperties,
+            restTemplate,
+            requestFactory,
+            TokenEndpointClientProperties.Codec.SPRING_SECURITY_OAUTH2,
+            renewalProperties,
+            currentTimeGenerator,
+            renewalScheduler,
+            metrics,
+            SharedTokenStore.NONE,
+            30000);
+    }
+
+    @After
+    public void cleanup() {
+        if (result != null) {
+            result.close();
+        }
+        renewalScheduler.destroy();
+    }
+
+    @Test
+    public void apply_whenClientIsConfigured_buildsProviderWithClientSignerAndScopes() {
+        when(renewalProperties.getRenewalPeriodMs()).thenReturn(Integer.MAX_VALUE);
+
+        result = sut.apply(new TokenKey("client", "token url", Arrays.asList("write", "read")));
+
+        assertThat(ReflectionTestUtils.getField(result, "scheduler")).isSameAs(renewalScheduler);
+
+        ClientCredentialsTokenRequestor requestor = (ClientCredentialsTokenRequestor) ReflectionTestUtils.getField(result, "providerDelegate");
+        assertThat(ReflectionTestUtils.getField(requestor, "restTemplate")).isSameAs(restTemplate);
+        assertThat(requestor.getCircuitBreaker().getState()).isEqualTo(TokenEndpointCircuitBreaker.State.CLOSED);
+
+        ClientCredentialsResourceDetails resource = (ClientCredentialsResourceDetails) ReflectionTestUtils.getField(requestor, "resource");
+        assertThat(resource.getAccessTokenUri()).isEqualTo("token url");
+        assertThat(resource.getScope()).containsExactly("read", "write");
+
+        ClientAssertionGenerator generator = generatorOf(requestor);
+        assertThat(ReflectionTestUtils.getField(generator, "signer")).isSameAs(clientSigner);
+
+        ClientCredentialsAssertionGenerationProperties properties =
+            (ClientCredentialsAssertionGenerationProperties) ReflectionTestUtils.getField(generator, "properties");
+        assertThat(properties.getClientId()).isEqualTo("client");
+        assertThat(properties.getTokenUrl()).isEqualTo("token url");
+        assertThat(properties.getAssertionTokenExpiryTimeMs()).isEqualTo(1000);
+        assertThat(ReflectionTestUtils.getField(generator, "scheduler")).isSameAs(renewalScheduler);
+    }
+
+    @Test
+    public void apply_always_takesOtherAssertionSettingsFromTopLevel() {
+        when(renewalProperties.getRenewalPeriodMs()).thenReturn(Integer.MAX_VALUE);
+        when(defaultSigner.supportedJWSAlgorithms()).thenReturn(Collections.singleton(JWSAlgorithm.PS256));
+        defaultAssertionProperties.setAssertionSigningAlgorithm("PS256");
+        defaultAssertionProperties.setAssertionRefreshPercent(80);
+        defaultAssertionProperties.setAssertionUniqueClaimsEnabled(true);
+        defaultAssertionProperties.setAssertionPoolSize(8);
+
+        result = sut.apply(new TokenKey("other", "token url", null));
+
+        ClientCredentialsAssertionGenerationProperties properties = (ClientCredentialsAssertionGenerationProperties)
+            ReflectionTestUtils.getField(generatorOf((ClientCredentialsTokenRequestor) ReflectionTestUtils.getField(result, "providerDelegate")), "properties");
+        assertThat(properties.getClientId()).isEqualTo("other");
+        assertThat(properties.getAssertionSigningAlgorithm()).isEqualTo("PS256");
+        assertThat(properties.getAssertionRefreshPercent()).isEqualTo(80);
+        assertThat(properties.isAssertionUniqueClaimsEnabled()).isTrue();
+        assertThat(properties.getAssertionPoolSize()).isEqualTo(8);
+        assertThat(properties.isAssertionPreSigningEnabled()).isFalse();
+    }
+
+    @Test
+    public void apply_whenClientHasItsOwnKey_leavesSigningAlgorithmToIt() {
+        when(renewalProperties.getRenewalPeriodMs()).thenReturn(Integer.MAX_VALUE);
+        defaultAssertionProperties.setAssertionSigningAlgorithm("PS256");
+
+        result = sut.apply(clientKey);
+
+        ClientCredentialsAssertionGenerationProperties properties = (ClientCredentialsAssertionGenerationProperties)
+            ReflectionTestUtils.getField(generatorOf((ClientCredentialsTokenRequestor) ReflectionTestUtils.getField(result, "providerDelegate")), "properties");
+        assertThat(properties.getAssertionSigningAlgorithm()).isNull();
+    }
+
+    @Test
+    public void apply_whenClientIsNotConfigured_buildsProviderWithDefaults() {
+        when(renewalProperties.getRenewalPeriodMs()).thenReturn(Integer.MAX_VALUE);
+
+        result = sut.apply(new TokenKey("other", "token url", null));
+
+        ClientCredentialsTokenRequestor requestor = (ClientCredentialsTokenRequestor) ReflectionTestUtils.getField(result, "providerDelegate");
+        ClientAssertionGenerator generator = generatorOf(requestor);
+        assertThat(ReflectionTestUtils.getField(generator, "signer")).isSameAs(defaultSigner);
+
+        ClientCredentialsAssertionGenerationProperties properties =
+            (ClientCredentialsAssertionGenerationProperties) ReflectionTestUtils.getField(generator, "properties");
+        assertThat(properties.getAssertionTokenExpiryTimeMs()).isEqualTo(2000);
+    }
+
+    @Test
+    public void apply_whenClientIdIsConfiguredWithSeveralKeys_buildsProviderWithSignerOfItsKey() {
+        when(renewalProperties.getRenewalPeriodMs()).thenReturn(Integer.MAX_VALUE);
+        JWSSigner adminSigner = mock(JWSSigner.class);
+        TokenKey adminKey = new TokenKey("client", "token url", Collections.singletonList("admin"));
+        Map<TokenKey, JWSSigner> signersByKey = new LinkedHashMap<>();
+        signersByKey.put(clientKey, clientSigner);
+        signersByKey.put(adminKey, adminSigner);
+        ClientCredentialsProviderFactory factory = new ClientCredentialsProviderFactory(
+            signersByKey, defaultSigner, Collections.singletonMap(adminKey, 500), defaultAssertionProperties, restTemplate, requestFactory,
+            TokenEndpointClientProperties.Codec.SPRING_SECURITY_OAUTH2, renewalProperties, currentTimeGenerator,
+            renewalScheduler, metrics, SharedTokenStore.NONE, 30000);
+
+        result = factory.apply(adminKey);
+        ClientAssertionGenerator generator = generatorOf((ClientCredentialsTokenRequestor) ReflectionTestUtils.getField(result, "providerDelegate"));
+        assertThat(ReflectionTestUtils.getField(generator, "signer")).isSameAs(adminSigner);
+        result.close();
+
+        // a key no client is configured with falls back to the first client with its client id
+        result = factory.apply(new TokenKey("client", "other token url", null));
+        generator = generatorOf((ClientCredentialsTokenRequestor) ReflectionTestUtils.getField(result, "providerDelegate"));
+        assertThat(ReflectionTestUtils.getField(generator, "signer")).isSameAs(clientSigner);
+        ClientCredentialsAssertionGenerationProperties properties =
+            (ClientCredentialsAssertionGenerationProperties) ReflectionTestUtils.getField(generator, "properties");
+        assertThat(properties.getAssertionTokenExpiryTimeMs()).isEqualTo(500);
+    }
+
+    @Test
+    public void apply_whenCodecIsStandalone_buildsStandaloneRequestorOnRestTemplateRequestFactory() {
+        when(renewalProperties.getRenewalPeriodMs()).thenReturn(Integer.MAX_VALUE);
+        ClientHttpRequestFactory restTemplateRequestFactory = mock(ClientHttpRequestFactory.class);
+        when(restTemplate.getRequestFactory()).thenReturn(restTemplateRequestFactory);
+        ClientCredentialsProviderFactory standaloneFactory = new ClientCredentialsProviderFactory(
+            Collections.singletonMap(clientKey, clientSigner), defaultSigner, Collections.emptyMap(), defaultAssertionProperties, restTemplate,
+            requestFactory, TokenEndpointClientProperties.Codec.STANDALONE, renewalProperties, currentTimeGenerator,
+            renewalScheduler, metrics, SharedTokenStore.NONE, 30000);
+
+        result = standaloneFactory.apply(new TokenKey("client", "http://localhost/token", Arrays.asList("write", "read")));
+
+        StandaloneTokenRequestor requestor = (StandaloneTokenRequestor) ReflectionTestUtils.getField(result, "providerDelegate");
+        assertThat(ReflectionTestUtils.getField(requestor, "requestFactory")).isSameAs(restTemplateRequestFactory);
+        assertThat(requestor.getCircuitBreaker().getState()).isEqualTo(TokenEndpointCircuitBreaker.State.CLOSED);
+
+        ClientAssertionGenerator generator = (ClientAssertionGenerator) ReflectionTestUtils.getField(requestor, "generator");
+        assertThat(ReflectionTestUtils.getField(generator, "signer")).isSameAs(clientSigner);
+
+        TokenEndpointCodec codec = (TokenEndpointCodec) ReflectionTestUtils.getField(requestor, "codec");
+        assertThat(new String(codec.encodeRequest("assertion"), StandardCharsets.US_ASCII)).contains("&scope=read+write&");
+    }
+
+    @Test
+    public void apply_whenTokensAreShared_sharesTokensPerKey() {
+        when(renewalProperties.getRenewalPeriodMs()).thenReturn(Integer.MAX_VALUE);
+        SharedTokenStore sharedTokenStore = new InMemorySharedTokenStore(currentTimeGenerator);
+        ClientCredentialsProviderFactory sharingFactory = new ClientCredentialsProviderFactory(
+            Collections.emptyMap(), defaultSigner, Collections.emptyMap(), defaultAssertionProperties, restTemplate, requestFactory,
+            TokenEndpointClientProperties.Codec.SPRING_SECURITY_OAUTH2, renewalProperties, currentTimeGenerator, renewalScheduler, metrics, sharedTokenStore, 30000);
+
+        result = sharingFactory.apply(new TokenKey("client", "token url", Arrays.asList("write", "read")));
+
+        Object delegate = ReflectionTestUtils.getField(result, "providerDelegate");
+        assertThat(delegate).isInstanceOf(SharedTokenStoreResourceProvider.class);
+        assertThat(ReflectionTestUtils.getField(delegate, "store")).isSameAs(sharedTokenStore);
+        assertThat(ReflectionTestUtils.getField(delegate, "key")).isEqualTo("client token url [read, write]");
+        assertThat(ReflectionTestUtils.getField(delegate, "leaseMs")).isEqualTo(30000L);
+        assertThat(ReflectionTestUtils.getField(delegate, "delegate")).isInstanceOf(ClientCredentialsTokenRequestor.class);
+    }
+
+    @Test
+    public void apply_always_recordsEventsIntoMetricsWithoutRebindingGauges() {
+        when(renewalProperties.getRenewalPeriodMs()).thenReturn(Integer.MAX_VALUE);
+        metrics.bindRemainingLifetime(() -> 42);
+
+        result = sut.apply(clientKey);
+
+        TokenMetrics providerMetrics = (TokenMetrics) ReflectionTestUtils.getField(result, "metrics");
+        providerMetrics.recordHit();
+        assertThat(metrics.getHitCount()).isEqualTo(1);
+        assertThat(metrics.getRemainingLifetimeMs()).isEqualTo(42);
+    }
+
+    @Test
+    public void apply_whenStartupIsNotLazy_leavesProviderToBeStarted() {
+        when(renewalProperties.getRenewalPeriodMs()).thenReturn(Integer.MAX_VALUE);
+        when(renewalProperties.isLazyStartupEnabled()).thenReturn(false);
+
+        result = sut.apply(new TokenKey("client", "token url", null));
+
+        assertThat(ReflectionTestUtils.getField(result, "started")).hasToString("false");
+    }
+
+    private ClientAssertionGenerator generatorOf(ClientCredentialsTokenRequestor requestor) {
+        ClientAssertionRequestEnhancer enhancer = (ClientAssertionRequestEnhancer) ReflectionTestUtils.getField(requestor, "tokenRequestEnhancer");
+        return (ClientAssertionGenerator) ReflectionTestUtils.getField(enhancer, "generator");
+    }
+}
@@ -0,0 +1,40 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.registry;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenKeyTest {
+
+    @Test
+    public void equals_whenScopesAreInDifferentOrder_isEqual() {
+        TokenKey a = new TokenKey("client", "url", Arrays.asList("read", "write"));
+        TokenKey b = new TokenKey("client", "url", Arrays.asList("write", "read"));
+
+        assertThat(a).isEqualTo(b);
+        assertThat(a.hashCode()).isEqualTo(b.hashCode());
+    }
+
+    @Test
+    public void equals_whenAnyComponentDiffers_isNotEqual() {
+        TokenKey key = new TokenKey("client", "url", Arrays.asList("read"));
+
+        assertThat(key).isNotEqualTo(new TokenKey("other", "url", Arrays.asList("read")));
+        assertThat(key).isNotEqualTo(new TokenKey("client", "other", Arrays.asList("read")));
+        assertThat(key).isNotEqualTo(new TokenKey("client", "url", Arrays.asList("write")));
+    }
+
+    @Test
+    public void constructor_whenScopesAreNull_usesEmptyScopes() {
+        TokenKey key = new TokenKey("client", "url", null);
+
+        assertThat(key.getScopes()).isEmpty();
+        assertThat(key).isEqualTo(new TokenKey("client", "url", Arrays.asList()));
+    }
+}
@@ -0,0 +1,30 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.registry;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenRegistryPropertiesTest {
+
+    @Test
+    public void constructor_always_setsDefaultValuesForRegistryBounds() {
+        TokenRegistryProperties sut = new TokenRegistryProperties();
+
+        assertThat(sut.getMaximumClients()).isEqualTo(1000);
+        assertThat(sut.getClientIdleExpiryMs()).isEqualTo(3600000);
+        assertThat(sut.getClients()).isEmpty();
+    }
+
+    @Test
+    public void constructor_always_setsDefaultValuesForClientWarmUp() {
+        TokenRegistryProperties sut = new TokenRegistryProperties();
+
+        assertThat(sut.isClientWarmUpEnabled()).isFalse();
+        assertThat(sut.getClientWarmUpParallelism()).isEqualTo(8);
+        assertThat(sut.getClientWarmUpTimeoutMs()).isEqualTo(30000);
+    }
+}
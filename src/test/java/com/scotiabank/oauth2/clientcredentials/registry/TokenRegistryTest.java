@@ -0,0 +1,364 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.registry;
+
+import com.scotiabank.oauth2.clientcredentials.AutoRenewAsyncResourceProvider;
+import com.scotiabank.oauth2.clientcredentials.ClientCredentialsTokenInterceptor;
+import com.scotiabank.oauth2.clientcredentials.CurrentTimeGenerator;
+import com.scotiabank.oauth2.clientcredentials.ExpiringResource;
+import com.scotiabank.oauth2.clientcredentials.ExpiringResourceProvider;
+import com.scotiabank.oauth2.clientcredentials.RenewalScheduler;
+import com.scotiabank.oauth2.clientcredentials.ResourceAutoRenewalProperties;
+import com.scotiabank.oauth2.clientcredentials.ResourceCache;
+import com.scotiabank.oauth2.clientcredentials.TokenResource;
+import com.scotiabank.oauth2.clientcredentials.metrics.TokenMetrics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TokenRegistryTest {
+
+    TokenRegistry sut;
+
+    @Mock
+    CurrentTimeGenerator currentTimeGenerator;
+
+    @Mock
+    ExpiringResource<String> resource;
+
+    TokenKey keyA = new TokenKey("a", "url", Collections.singletonList("read"));
+    TokenKey keyB = new TokenKey("b", "url", Collections.singletonList("read"));
+    TokenKey keyC = new TokenKey("c", "url", Collections.singletonList("read"));
+
+    Map<TokenKey, AutoRenewAsyncResourceProvider<String>> providers = new ConcurrentHashMap<>();
+    AtomicInteger creations = new AtomicInteger();
+
+    Function<TokenKey, ExpiringResourceProvider<String>> providerFactory = key -> {
+        creations.incrementAndGet();
+        AutoRenewAsyncResourceProvider<String> provider = mock(AutoRenewAsyncResourceProvider.class);
+        when(provider.getResource()).thenReturn(resource);
+        providers.put(key, provider);
+        return provider;
+    };
+
+    @Before
+    public void init() {
+        sut = new TokenRegistry(Collections.singletonMap("named", keyA), providerFactory, 2, 10000, currentTimeGenerator, RenewalScheduler.getDefault());
+    }
+
+    @After
+    public void cleanup() {
+        sut.close();
+    }
+
+    @Test
+    public void getResource_whenKeyIsRequestedRepeatedly_createsProviderOnce() {
+        assertThat(sut.getResource(keyA)).isSameAs(resource);
+        assertThat(sut.getResource(new TokenKey("a", "url", Collections.singletonList("read")))).isSameAs(resource);
+
+        assertThat(creations.get()).isEqualTo(1);
+        assertThat(sut.size()).isEqualTo(1);
+        verify(providers.get(keyA)).start();
+    }
+
+    @Test
+    public void getResource_whileAnotherProviderIsCreated_doesNotWaitOnIt() throws Exception {
+        CountDownLatch creatingA = new CountDownLatch(1);
+        CountDownLatch releaseA = new CountDownLatch(1);
+        TokenRegistry registry = new TokenRegistry(Collections.emptyMap(), key -> {
+            if (key.equals(keyA)) {
+                creatingA.countDown();
+                try {
+                    releaseA.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return providerFactory.apply(key);
+        }, 10, 10000, currentTimeGenerator, RenewalScheduler.getDefault());
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<ExpiringResource<String>> resourceA = executor.submit(() -> registry.getResource(keyA));
+            assertThat(creatingA.await(10, TimeUnit.SECONDS)).isTrue();
+            // a second reader of the key being created waits on it too
+            Future<ExpiringResource<String>> resourceA2 = executor.submit(() -> registry.getResource(keyA));
+
+            assertThat(registry.getResource(keyB)).isSameAs(resource);
+            assertThat(resourceA.isDone()).isFalse();
+
+            releaseA.countDown();
+            assertThat(resourceA.get(10, TimeUnit.SECONDS)).isSameAs(resource);
+            assertThat(resourceA2.get(10, TimeUnit.SECONDS)).isSameAs(resource);
+            assertThat(creations.get()).isEqualTo(2);
+        } finally {
+            releaseA.countDown();
+            executor.shutdownNow();
+            registry.close();
+        }
+    }
+
+    @Test
+    public void getResource_whenProviderCannotBeCreated_createsItAgainOnNextRequest() {
+        AtomicInteger attempts = new AtomicInteger();
+        TokenRegistry registry = new TokenRegistry(Collections.emptyMap(), key -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("No key");
+            }
+            return providerFactory.apply(key);
+        }, 10, 10000, currentTimeGenerator, RenewalScheduler.getDefault());
+
+        assertThatThrownBy(() -> registry.getResource(keyA))
+            .isExactlyInstanceOf(IllegalStateException.class);
+        assertThat(registry.size()).isEqualTo(0);
+
+        assertThat(registry.getResource(keyA)).isSameAs(resource);
+        assertThat(registry.size()).isEqualTo(1);
+        registry.close();
+    }
+
+    @Test
+    public void getResource_whenMaximumSizeIsExceeded_closesLeastRecentlyUsedProvider() {
+        when(currentTimeGenerator.getCurrentTimeMillis()).thenReturn(0L);
+        sut.getResource(keyA);
+
+        when(currentTimeGenerator.getCurrentTimeMillis()).thenReturn(5000L);
+        sut.getResource(keyB);
+
+        when(currentTimeGenerator.getCurrentTimeMillis()).thenReturn(10000L);
+        sut.getResource(keyC);
+
+        assertThat(sut.size()).isEqualTo(2);
+        verify(providers.get(keyA)).close();
+        verify(providers.get(keyB), never()).close();
+        verify(providers.get(keyC), never()).close();
+    }
+
+    @Test
+    public void getResource_whenMaximumSizeIsExceededWithinSameSecond_keepsNewProvider() {
+        TokenRegistry registry = new TokenRegistry(Collections.emptyMap(), providerFactory, 1, 10000, currentTimeGenerator, RenewalScheduler.getDefault());
+
+        assertThat(registry.getResource(keyA)).isSameAs(resource);
+        assertThat(registry.getResource(keyB)).isSameAs(resource);
+
+        assertThat(registry.size()).isEqualTo(1);
+        verify(providers.get(keyA)).close();
+        verify(providers.get(keyB), never()).close();
+        registry.close();
+    }
+
+    @Test
+    public void getResource_whenProviderIsEvictedWhileItIsRead_retrievesTokenFromNewProvider() {
+        AtomicLong now = new AtomicLong();
+        CurrentTimeGenerator clock = new CurrentTimeGenerator() {
+            @Override
+            public long getCurrentTimeMillis() {
+                return now.get();
+            }
+        };
+        AtomicReference<TokenRegistry> registry = new AtomicReference<>();
+        registry.set(new TokenRegistry(Collections.emptyMap(), key -> {
+            if (creations.incrementAndGet() == 1) {
+                // evicted, and so closed, before it had a token to hand out
+                return () -> {
+                    now.set(20000);
+                    registry.get().evictIdleEntries();
+                    return null;
+                };
+            }
+            return () -> resource;
+        }, 10, 10000, clock, RenewalScheduler.getDefault()));
+
+        assertThat(registry.get().getResource(keyA)).isSameAs(resource);
+        assertThat(creations.get()).isEqualTo(2);
+        registry.get().close();
+    }
+
+    @Test
+    public void getResource_whenRecentlyUsed_isNotEvicted() {
+        when(currentTimeGenerator.getCurrentTimeMillis()).thenReturn(0L);
+        sut.getResource(keyA);
+
+        when(currentTimeGenerator.getCurrentTimeMillis()).thenReturn(5000L);
+        sut.getResource(keyB);
+
+        when(currentTimeGenerator.getCurrentTimeMillis()).thenReturn(7000L);
+        sut.getResource(keyA);
+
+        when(currentTimeGenerator.getCurrentTimeMillis()).thenReturn(10000L);
+        sut.getResource(keyC);
+
+        verify(providers.get(keyA), never()).close();
+        verify(providers.get(keyB)).close();
+    }
+
+    @Test
+    public void evictIdleEntries_whenProviderHasNotBeenUsed_closesProvider() {
+        when(currentTimeGenerator.getCurrentTimeMillis()).thenReturn(0L);
+        sut.getResource(keyA);
+
+        when(currentTimeGenerator.getCurrentTimeMillis()).thenReturn(8000L);
+        sut.getResource(keyB);
+
+        when(currentTimeGenerator.getCurrentTimeMillis()).thenReturn(12000L);
+        sut.evictIdleEntries();
+
+        assertThat(sut.size()).isEqualTo(1);
+        verify(providers.get(keyA)).close();
+        verify(providers.get(keyB), never()).close();
+    }
+
+    @Test
+    public void providerFor_whenNameIsConfigured_returnsProviderForKey() {
+        ExpiringResourceProvider<String> provider = sut.providerFor("named");
+
+        assertThat(provider.getResource()).isSameAs(resource);
+        assertThat(providers).containsOnlyKeys(keyA);
+    }
+
+    @Test
+    public void providerFor_whenTokenIsRejected_invalidatesItInKeysProviderAndReplaysRequest() throws IOException {
+        ExpiringResource<String> rejected = new TokenResource("rejected", Instant.now().plusSeconds(3600));
+        ExpiringResource<String> renewed = new TokenResource("renewed", Instant.now().plusSeconds(3600));
+        AutoRenewAsyncResourceProvider<String> provider = mock(AutoRenewAsyncResourceProvider.class);
+        when(provider.getResource()).thenReturn(rejected, renewed);
+        when(provider.invalidate(rejected)).thenReturn(true);
+        TokenRegistry registry = new TokenRegistry(Collections.emptyMap(), key -> provider, 10, 10000, currentTimeGenerator, RenewalScheduler.getDefault());
+
+        HttpHeaders headers = new HttpHeaders();
+        HttpRequest request = mock(HttpRequest.class);
+        when(request.getHeaders()).thenReturn(headers);
+        HttpHeaders challenge = new HttpHeaders();
+        challenge.set(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"");
+        ClientHttpResponse unauthorized = mock(ClientHttpResponse.class);
+        when(unauthorized.getRawStatusCode()).thenReturn(401);
+        when(unauthorized.getHeaders()).thenReturn(challenge);
+        ClientHttpResponse ok = mock(ClientHttpResponse.class);
+        byte[] body = new byte[0];
+        ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+        when(execution.execute(request, body)).thenReturn(unauthorized, ok);
+
+        ClientHttpResponse result = new ClientCredentialsTokenInterceptor(registry.providerFor(keyA)).intercept(request, body, execution);
+
+        assertThat(result).isSameAs(ok);
+        assertThat(headers.getFirst(HttpHeaders.AUTHORIZATION)).isEqualTo("Bearer renewed");
+        verify(provider).invalidate(rejected);
+        verify(unauthorized).close();
+        registry.close();
+    }
+
+    @Test
+    public void providerFor_whenNameIsNotConfigured_throwsException() {
+        assertThatThrownBy(() -> sut.providerFor("unknown"))
+            .isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void warmUp_always_retrievesFirstTokenOfEveryNamedClient() {
+        Map<String, TokenKey> namedKeys = new LinkedHashMap<>();
+        namedKeys.put("a", keyA);
+        namedKeys.put("b", keyB);
+        Map<TokenKey, AutoRenewAsyncResourceProvider<String>> warmedUp = new ConcurrentHashMap<>();
+        TokenRegistry registry = new TokenRegistry(namedKeys, key -> {
+            AutoRenewAsyncResourceProvider<String> provider = mock(AutoRenewAsyncResourceProvider.class);
+            when(provider.warmUp()).thenReturn(resource);
+            warmedUp.put(key, provider);
+            return provider;
+        }, 2, 10000, currentTimeGenerator, RenewalScheduler.getDefault());
+        when(resource.getValue()).thenReturn("token");
+
+        TokenWarmUp.Report<String> report = registry.warmUp(new TokenWarmUp(2, 1000));
+
+        assertThat(report.isReady()).isTrue();
+        assertThat(report.getClients()).containsOnlyKeys("a", "b");
+        assertThat(registry.size()).isEqualTo(2);
+        verify(warmedUp.get(keyA)).warmUp();
+        verify(warmedUp.get(keyB)).warmUp();
+        verify(warmedUp.get(keyA)).start();
+        verify(warmedUp.get(keyB)).start();
+        registry.close();
+    }
+
+    @Test
+    public void warmUp_whenProvidersRenewAutomatically_retrievesTheirTokensOnWarmUpThreadsBeforeStartingThem() {
+        Map<String, TokenKey> namedKeys = new LinkedHashMap<>();
+        namedKeys.put("a", keyA);
+        namedKeys.put("b", keyB);
+        namedKeys.put("c", keyC);
+        ResourceAutoRenewalProperties renewalProperties = new ResourceAutoRenewalProperties();
+        renewalProperties.setRenewalPeriodMs(Integer.MAX_VALUE);
+        // a single worker, and every retrieval waits on the others - only completes if they run on the warm-up threads
+        RenewalScheduler scheduler = new RenewalScheduler(10, 1);
+        CyclicBarrier allRetrieving = new CyclicBarrier(3);
+        Set<String> retrievingThreads = ConcurrentHashMap.newKeySet();
+        Map<TokenKey, AutoRenewAsyncResourceProvider<String>> created = new ConcurrentHashMap<>();
+        TokenRegistry registry = new TokenRegistry(namedKeys, key -> {
+            AutoRenewAsyncResourceProvider<String> provider = new AutoRenewAsyncResourceProvider<>(() -> {
+                retrievingThreads.add(Thread.currentThread().getName());
+                try {
+                    allRetrieving.await(5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                return new TokenResource("token", Instant.now().plusSeconds(3600));
+            }, renewalProperties, new CurrentTimeGenerator(), scheduler, TokenMetrics.NOOP, ResourceCache.none(), true);
+            created.put(key, provider);
+            return provider;
+        }, 10, 10000, currentTimeGenerator, scheduler);
+
+        try {
+            TokenWarmUp.Report<String> report = registry.warmUp(new TokenWarmUp(3, 10000));
+
+            assertThat(report.isReady()).isTrue();
+            assertThat(retrievingThreads).hasSize(3).allMatch(thread -> thread.startsWith("token-warm-up-"));
+            assertThat(created.values()).allMatch(provider -> ReflectionTestUtils.getField(provider, "started").toString().equals("true"));
+        } finally {
+            registry.close();
+            scheduler.destroy();
+        }
+    }
+
+    @Test
+    public void close_always_closesAllProviders() {
+        sut.getResource(keyA);
+        sut.getResource(keyB);
+
+        sut.close();
+
+        assertThat(sut.size()).isEqualTo(0);
+        verify(providers.get(keyA)).close();
+        verify(providers.get(keyB)).close();
+    }
+}
@@ -0,0 +1,101 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.registry;
+
+import com.scotiabank.oauth2.clientcredentials.ExpiringResource;
+import com.scotiabank.oauth2.clientcredentials.ExpiringResourceProvider;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TokenWarmUpTest {
+
+    @Mock
+    ExpiringResource<String> resource;
+
+    @Test
+    public void warmUp_whenClientsAreSlow_retrievesTheirTokensInParallel() {
+        when(resource.getValue()).thenReturn("token");
+        // every retrieval waits on the others, so only completes if all of them run at once
+        CyclicBarrier allRetrieving = new CyclicBarrier(4);
+        ExpiringResourceProvider<String> provider = () -> {
+            try {
+                allRetrieving.await(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return resource;
+        };
+
+        TokenWarmUp.Report<String> report = new TokenWarmUp(4, 10000)
+            .warmUp(Arrays.asList("a", "b", "c", "d"), client -> provider);
+
+        assertThat(report.isReady()).isTrue();
+        assertThat(report.getReadyCount()).isEqualTo(4);
+        assertThat(report.getClients()).containsOnlyKeys("a", "b", "c", "d");
+        assertThat(report.getElapsedMs()).isLessThan(5000);
+    }
+
+    @Test
+    public void warmUp_whenClientGetsNoToken_reportsItFailed() {
+        when(resource.getValue()).thenReturn("token");
+
+        TokenWarmUp.Report<String> report = new TokenWarmUp(2, 10000).warmUp(Arrays.asList("ready", "null", "throws"), client -> {
+            switch (client) {
+                case "ready":
+                    return () -> resource;
+                case "null":
+                    return () -> null;
+                default:
+                    throw new IllegalArgumentException("No client " + client);
+            }
+        });
+
+        assertThat(report.isReady()).isFalse();
+        assertThat(report.getReadyCount()).isEqualTo(1);
+        assertThat(report.getClients().get("ready").getStatus()).isEqualTo(TokenWarmUp.Status.READY);
+        assertThat(report.getClients().get("null").getStatus()).isEqualTo(TokenWarmUp.Status.FAILED);
+        assertThat(report.getClients().get("throws").getStatus()).isEqualTo(TokenWarmUp.Status.FAILED);
+    }
+
+    @Test
+    public void warmUp_whenTimeoutPasses_reportsPendingClientsTimedOut() {
+        when(resource.getValue()).thenReturn("token");
+        CountDownLatch never = new CountDownLatch(1);
+
+        TokenWarmUp.Report<String> report = new TokenWarmUp(2, 200).warmUp(Arrays.asList("fast", "slow"), client -> () -> {
+            if ("slow".equals(client)) {
+                try {
+                    never.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return resource;
+        });
+        never.countDown();
+
+        assertThat(report.getClients().get("fast").isReady()).isTrue();
+        assertThat(report.getClients().get("slow").getStatus()).isEqualTo(TokenWarmUp.Status.TIMED_OUT);
+        assertThat(report.getElapsedMs()).isGreaterThanOrEqualTo(200).isLessThan(5000);
+    }
+
+    @Test
+    public void constructor_whenParallelismIsNotPositive_throwsException() {
+        assertThatThrownBy(() -> new TokenWarmUp(0, 1000))
+            .isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+}
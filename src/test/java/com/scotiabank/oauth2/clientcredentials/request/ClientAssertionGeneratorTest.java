@@ -6,6 +6,8 @@ package com.scotiabank.oauth2.clientcredentials.request;
 
 import com.scotiabank.oauth2.clientcredentials.ClientCredentialsConfigurationException;
 import com.scotiabank.oauth2.clientcredentials.CurrentTimeGenerator;
+import com.scotiabank.oauth2.clientcredentials.RenewalScheduler;
+import com.scotiabank.oauth2.clientcredentials.key.DeferredJwsSigner;
 import com.google.common.base.Charsets;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSAlgorithm;
@@ -22,10 +24,18 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -37,11 +47,16 @@ public class ClientAssertionGeneratorTest {
     @Mock
     CurrentTimeGenerator currentTimeGenerator;
 
+    @Mock
+    RenewalScheduler scheduler;
+
+    ClientCredentialsAssertionGenerationProperties props;
+
     ClientAssertionGenerator sut;
 
     @Before
     public void init() throws ClientCredentialsConfigurationException {
-        ClientCredentialsAssertionGenerationProperties props = new ClientCredentialsAssertionGenerationProperties();
+        props = new ClientCredentialsAssertionGenerationProperties();
         props.setClientId("client id");
         props.setTokenUrl("token url");
         props.setAssertionTokenExpiryTimeMs((int)Duration.of(10, ChronoUnit.MINUTES).toMillis());
@@ -84,4 +99,167 @@ public class ClientAssertionGeneratorTest {
 
         assertThat(result).isNull();
     }
+
+    @Test
+    public void getAssertionToken_whenPreSigningIsEnabled_returnsAssertionSignedInBackground() throws Exception {
+        Instant staticInstant = Instant.parse("2017-11-17T13:00:00.000Z");
+        when(currentTimeGenerator.getCurrentTime()).thenReturn(staticInstant);
+        givenSignerSignsAnything();
+        givenSchedulerRunsTasksImmediately();
+
+        props.setAssertionPreSigningEnabled(true);
+        sut = new ClientAssertionGenerator(props, signer, currentTimeGenerator, scheduler);
+
+        verify(signer, times(1)).sign(any(), any());
+
+        String first = sut.getAssertionToken();
+        String second = sut.getAssertionToken();
+
+        assertThat(first).isNotNull();
+        assertThat(second).isEqualTo(first);
+        verify(signer, times(1)).sign(any(), any());
+    }
+
+    @Test
+    public void getAssertionToken_whenPreSignedAssertionIsPastRefreshPoint_returnsNewAssertion() throws Exception {
+        Instant staticInstant = Instant.parse("2017-11-17T13:00:00.000Z");
+        when(currentTimeGenerator.getCurrentTime()).thenReturn(staticInstant, staticInstant, staticInstant.plus(5, ChronoUnit.MINUTES));
+        givenSignerSignsAnything();
+        givenSchedulerRunsTasksImmediately();
+
+        props.setAssertionPreSigningEnabled(true);
+        sut = new ClientAssertionGenerator(props, signer, currentTimeGenerator, scheduler);
+
+        String result = sut.getAssertionToken();
+
+        assertThat(result).endsWith(".signature");
+        verify(signer, times(2)).sign(any(), any());
+    }
+
+    @Test
+    public void getAssertionToken_whenUniqueClaimsArePreSigned_handsOutEachAssertionOnce() throws Exception {
+        Instant staticInstant = Instant.parse("2017-11-17T13:00:00.000Z");
+        when(currentTimeGenerator.getCurrentTime()).thenReturn(staticInstant);
+        givenSignerSignsAnything();
+        givenSchedulerRunsTasksImmediately();
+
+        props.setAssertionPreSigningEnabled(true);
+        props.setAssertionUniqueClaimsEnabled(true);
+        props.setAssertionPoolSize(3);
+        sut = new ClientAssertionGenerator(props, signer, currentTimeGenerator, scheduler);
+
+        verify(signer, times(3)).sign(any(), any());
+
+        String first = sut.getAssertionToken();
+        String second = sut.getAssertionToken();
+
+        assertThat(first).isNotEqualTo(second);
+        // each assertion taken from the pool is replaced in the background
+        verify(signer, times(5)).sign(any(), any());
+    }
+
+    @Test
+    public void getAssertionToken_whenUniqueClaimsAreEnabled_generatesDistinctAssertions() throws Exception {
+        Instant staticInstant = Instant.parse("2017-11-17T13:00:00.000Z");
+        when(currentTimeGenerator.getCurrentTime()).thenReturn(staticInstant);
+        givenSignerSignsAnything();
+
+        props.setAssertionUniqueClaimsEnabled(true);
+        sut = new ClientAssertionGenerator(props, signer, currentTimeGenerator, scheduler);
+
+        assertThat(sut.getAssertionToken()).isNotEqualTo(sut.getAssertionToken());
+    }
+
+    @Test
+    public void getAssertionToken_whenSchedulerIsShutDown_signsAssertionInline() throws Exception {
+        Instant staticInstant = Instant.parse("2017-11-17T13:00:00.000Z");
+        when(currentTimeGenerator.getCurrentTime()).thenReturn(staticInstant);
+        givenSignerSignsAnything();
+        doThrow(new RejectedExecutionException()).when(scheduler).execute(any());
+
+        props.setAssertionPreSigningEnabled(true);
+        sut = new ClientAssertionGenerator(props, signer, currentTimeGenerator, scheduler);
+
+        String result = sut.getAssertionToken();
+
+        assertThat(result).endsWith(".signature");
+        verify(signer, times(1)).sign(any(), any());
+    }
+
+    @Test
+    public void getAssertionToken_whenSignerOnlySupportsEs256_signsWithEs256() throws Exception {
+        Instant staticInstant = Instant.parse("2017-11-17T13:00:00.000Z");
+        when(currentTimeGenerator.getCurrentTime()).thenReturn(staticInstant);
+        when(signer.supportedJWSAlgorithms()).thenReturn(new HashSet<JWSAlgorithm>(Arrays.asList(JWSAlgorithm.ES256)));
+        when(signer.sign(argThat(arg -> arg.getAlgorithm().equals(JWSAlgorithm.ES256)), any()))
+            .thenReturn(new Base64URL("signature"));
+
+        sut = new ClientAssertionGenerator(props, signer, currentTimeGenerator);
+
+        assertThat(sut.getAssertionToken()).startsWith("eyJhbGciOiJFUzI1NiJ9.");
+    }
+
+    @Test
+    public void getAssertionToken_whenSigningAlgorithmIsConfigured_signsWithConfiguredAlgorithm() throws Exception {
+        Instant staticInstant = Instant.parse("2017-11-17T13:00:00.000Z");
+        when(currentTimeGenerator.getCurrentTime()).thenReturn(staticInstant);
+        when(signer.supportedJWSAlgorithms()).thenReturn(new HashSet<JWSAlgorithm>(Arrays.asList(JWSAlgorithm.RS256, JWSAlgorithm.PS256)));
+        when(signer.sign(argThat(arg -> arg.getAlgorithm().equals(JWSAlgorithm.PS256)), any()))
+            .thenReturn(new Base64URL("signature"));
+
+        props.setAssertionSigningAlgorithm("PS256");
+        sut = new ClientAssertionGenerator(props, signer, currentTimeGenerator);
+
+        assertThat(sut.getAssertionToken()).startsWith("eyJhbGciOiJQUzI1NiJ9.");
+    }
+
+    @Test
+    public void constructor_whenSigningAlgorithmIsNotSupportedBySigner_throwsException() {
+        when(signer.supportedJWSAlgorithms()).thenReturn(new HashSet<JWSAlgorithm>(Arrays.asList(JWSAlgorithm.RS256)));
+
+        props.setAssertionSigningAlgorithm("ES256");
+
+        assertThatThrownBy(() -> new ClientAssertionGenerator(props, signer, currentTimeGenerator))
+            .isExactlyInstanceOf(ClientCredentialsConfigurationException.class);
+    }
+
+    @Test
+    public void getAssertionToken_whenSignerIsDeferred_resolvesAlgorithmWithFirstAssertion() throws Exception {
+        Instant staticInstant = Instant.parse("2017-11-17T13:00:00.000Z");
+        when(currentTimeGenerator.getCurrentTime()).thenReturn(staticInstant);
+        when(signer.supportedJWSAlgorithms()).thenReturn(new HashSet<JWSAlgorithm>(Arrays.asList(JWSAlgorithm.ES256)));
+        when(signer.sign(argThat(arg -> arg.getAlgorithm().equals(JWSAlgorithm.ES256)), any()))
+            .thenReturn(new Base64URL("signature"));
+        DeferredJwsSigner deferredSigner = new DeferredJwsSigner(() -> signer);
+
+        sut = new ClientAssertionGenerator(props, deferredSigner, currentTimeGenerator);
+
+        assertThat(deferredSigner.isLoaded()).isFalse();
+        assertThat(sut.getAssertionToken()).startsWith("eyJhbGciOiJFUzI1NiJ9.");
+    }
+
+    @Test
+    public void getAssertionToken_whenSigningAlgorithmIsNotSupportedByDeferredSigner_returnsNull() throws Exception {
+        Instant staticInstant = Instant.parse("2017-11-17T13:00:00.000Z");
+        when(currentTimeGenerator.getCurrentTime()).thenReturn(staticInstant);
+        when(signer.supportedJWSAlgorithms()).thenReturn(new HashSet<JWSAlgorithm>(Arrays.asList(JWSAlgorithm.RS256)));
+
+        props.setAssertionSigningAlgorithm("ES256");
+        sut = new ClientAssertionGenerator(props, new DeferredJwsSigner(() -> signer), currentTimeGenerator);
+
+        assertThat(sut.getAssertionToken()).isNull();
+        verify(signer, never()).sign(any(), any());
+    }
+
+    private void givenSignerSignsAnything() throws JOSEException {
+        when(signer.supportedJWSAlgorithms()).thenReturn(new HashSet<JWSAlgorithm>(Arrays.asList(JWSAlgorithm.RS256)));
+        when(signer.sign(any(), any())).thenReturn(new Base64URL("signature"));
+    }
+
+    private void givenSchedulerRunsTasksImmediately() {
+        doAnswer(inv -> {
+            inv.<Runnable>getArgument(0).run();
+            return null;
+        }).when(scheduler).execute(any());
+    }
 }
@@ -15,4 +15,14 @@ public class ClientCredentialsAssertionGenerationPropertiesTest {
         assertThat(new ClientCredentialsAssertionGenerationProperties().getAssertionTokenExpiryTimeMs())
             .isEqualTo(3600000);
     }
+
+    @Test
+    public void constructor_always_setsDefaultPreSigningOptions() {
+        ClientCredentialsAssertionGenerationProperties result = new ClientCredentialsAssertionGenerationProperties();
+
+        assertThat(result.isAssertionPreSigningEnabled()).isFalse();
+        assertThat(result.isAssertionUniqueClaimsEnabled()).isFalse();
+        assertThat(result.getAssertionRefreshPercent()).isEqualTo(50);
+        assertThat(result.getAssertionPoolSize()).isEqualTo(4);
+    }
 }
@@ -4,24 +4,42 @@
  */
 package com.scotiabank.oauth2.clientcredentials.request;
 
+import com.scotiabank.oauth2.clientcredentials.ClientCredentialsCircuitOpenException;
+import com.scotiabank.oauth2.clientcredentials.CurrentTimeGenerator;
 import com.scotiabank.oauth2.clientcredentials.ExpiringResource;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.client.MockClientHttpResponse;
 import org.springframework.security.oauth2.client.token.grant.client.ClientCredentialsResourceDetails;
 import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestOperations;
 import org.springframework.web.client.RestTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -57,6 +75,101 @@ public class ClientCredentialsTokenRequestorTest {
         verify(restTemplate).execute(eq("some uri"), eq(HttpMethod.POST), any(), any(), anyMap());
     }
 
+    @Test
+    public void getToken_whenIssuerClockIsAhead_movesTokenExpiryOntoLocalClock() {
+        when(restTemplate.getMessageConverters()).thenReturn(Collections.singletonList(new MappingJackson2HttpMessageConverter()));
+        when(resource.getAccessTokenUri()).thenReturn("some uri");
+        // the issuer's clock is an hour ahead, and the token lives for 10 minutes
+        long issuerTimeSeconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 3600;
+        String token = unsecuredJwt("{\"iat\":" + issuerTimeSeconds + ",\"exp\":" + (issuerTimeSeconds + 600) + "}");
+        MockClientHttpResponse response = new MockClientHttpResponse(
+            ("{\"access_token\":\"" + token + "\",\"token_type\":\"bearer\"}").getBytes(StandardCharsets.UTF_8), HttpStatus.OK);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().setDate(TimeUnit.SECONDS.toMillis(issuerTimeSeconds));
+        when(restTemplate.execute(eq("some uri"), eq(HttpMethod.POST), any(), any(), anyMap()))
+            .thenAnswer((InvocationOnMock inv) -> inv.<ResponseExtractor<OAuth2AccessToken>>getArgument(3).extractData(response));
+
+        sut = new ClientCredentialsTokenRequestor(resource, restTemplate);
+
+        long before = System.currentTimeMillis();
+        ExpiringResource<String> result = sut.getResource();
+        long after = System.currentTimeMillis();
+
+        assertThat(result.getValue()).isEqualTo(token);
+        assertThat(result.getClockSkewMs()).isBetween(3598000L, 3600000L);
+        assertThat(result.getExpiration().toEpochMilli()).isBetween(before + 600000, after + 600000);
+    }
+
+    @Test
+    public void getToken_whenDateHeaderIsMalformed_timesResponseOnGivenClockOnly() {
+        when(restTemplate.getMessageConverters()).thenReturn(Collections.singletonList(new MappingJackson2HttpMessageConverter()));
+        when(resource.getAccessTokenUri()).thenReturn("some uri");
+        long issuedAtSeconds = 1516239022;
+        String token = unsecuredJwt("{\"iat\":" + issuedAtSeconds + ",\"exp\":" + (issuedAtSeconds + 600) + "}");
+        MockClientHttpResponse response = new MockClientHttpResponse(
+            ("{\"access_token\":\"" + token + "\",\"token_type\":\"bearer\"}").getBytes(StandardCharsets.UTF_8), HttpStatus.OK);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().set(HttpHeaders.DATE, "not a date");
+        when(restTemplate.execute(eq("some uri"), eq(HttpMethod.POST), any(), any(), anyMap()))
+            .thenAnswer((InvocationOnMock inv) -> inv.<ResponseExtractor<OAuth2AccessToken>>getArgument(3).extractData(response));
+        // received as it was issued, by the given clock
+        CurrentTimeGenerator currentTimeGenerator = mock(CurrentTimeGenerator.class);
+        when(currentTimeGenerator.getCurrentTimeMillis()).thenReturn(TimeUnit.SECONDS.toMillis(issuedAtSeconds));
+
+        sut = new ClientCredentialsTokenRequestor(resource, restTemplate, null, currentTimeGenerator);
+        ExpiringResource<String> result = sut.getResource();
+
+        assertThat(result.getClockSkewMs()).isEqualTo(0);
+        assertThat(result.getExpiration()).isEqualTo(Instant.ofEpochSecond(issuedAtSeconds + 600));
+    }
+
+    @Test
+    public void getToken_whenCircuitIsOpen_failsWithoutCallingTokenUrl() {
+        when(restTemplate.getMessageConverters()).thenReturn(new ArrayList<>());
+        when(resource.getAccessTokenUri()).thenReturn("some uri");
+
+        sut = new ClientCredentialsTokenRequestor(resource, restTemplate);
+        TokenEndpointCircuitBreaker circuitBreaker = new TokenEndpointCircuitBreaker(1, 60000);
+        circuitBreaker.recordFailure();
+        sut.setCircuitBreaker(circuitBreaker);
+
+        assertThatThrownBy(() -> sut.getResource())
+            .isExactlyInstanceOf(ClientCredentialsCircuitOpenException.class)
+            .hasMessageContaining("some uri");
+
+        verify(restTemplate, never()).execute(any(), any(), any(), any(), anyMap());
+    }
+
+    @Test
+    public void getToken_whenCallFails_recordsFailureOnCircuitBreaker() {
+        when(restTemplate.getMessageConverters()).thenReturn(new ArrayList<>());
+        when(resource.getAccessTokenUri()).thenReturn("some uri");
+        when(restTemplate.execute(eq("some uri"), eq(HttpMethod.POST), any(), any(), anyMap()))
+            .thenThrow(new ResourceAccessException("connection refused"));
+
+        sut = new ClientCredentialsTokenRequestor(resource, restTemplate);
+        TokenEndpointCircuitBreaker circuitBreaker = new TokenEndpointCircuitBreaker(2, 60000);
+        sut.setCircuitBreaker(circuitBreaker);
+
+        assertThatThrownBy(() -> sut.getResource()).isInstanceOf(ResourceAccessException.class);
+        assertThatThrownBy(() -> sut.getResource()).isInstanceOf(ResourceAccessException.class);
+
+        assertThat(sut.getCircuitBreaker().getState()).isEqualTo(TokenEndpointCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void getToken_whenTokenHasNoValue_recordsFailureAndReturnsNull() {
+        when(restTemplate.getMessageConverters()).thenReturn(new ArrayList<>());
+        when(resource.getAccessTokenUri()).thenReturn("some uri");
+        when(restTemplate.execute(eq("some uri"), eq(HttpMethod.POST), any(), any(), anyMap()))
+            .thenReturn(mock(OAuth2AccessToken.class));
+
+        sut = new ClientCredentialsTokenRequestor(resource, restTemplate);
+
+        assertThat(sut.getResource()).isNull();
+        assertThat(sut.getCircuitBreaker().getConsecutiveFailures()).isEqualTo(1);
+    }
+
     @Test
     public void getRestTemplate_whenNotPassedIn_returnsGeneratedTemplate() {
         sut = new ClientCredentialsTokenRequestor(resource, null);
@@ -65,4 +178,29 @@ public class ClientCredentialsTokenRequestorTest {
 
         assertThat(result).isNotNull();
     }
+
+    @Test
+    public void getRestTemplate_whenRequestFactoryPassedIn_generatesTemplateOnRequestFactory() {
+        ClientHttpRequestFactory requestFactory = mock(ClientHttpRequestFactory.class);
+        sut = new ClientCredentialsTokenRequestor(resource, null, requestFactory);
+
+        RestOperations result = sut.getRestTemplate();
+
+        assertThat(((RestTemplate) result).getRequestFactory()).isSameAs(requestFactory);
+    }
+
+    @Test
+    public void getRestTemplate_whenTemplateAndRequestFactoryPassedIn_returnsTemplate() {
+        when(restTemplate.getMessageConverters()).thenReturn(new ArrayList<>());
+
+        sut = new ClientCredentialsTokenRequestor(resource, restTemplate, mock(ClientHttpRequestFactory.class));
+
+        assertThat(sut.getRestTemplate()).isSameAs(restTemplate);
+    }
+
+    private static String unsecuredJwt(String claims) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8))
+            + "." + encoder.encodeToString(claims.getBytes(StandardCharsets.UTF_8)) + ".";
+    }
 }
@@ -0,0 +1,90 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.request;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenEndpointCircuitBreakerTest {
+
+    AtomicLong nanoTime = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+
+    TokenEndpointCircuitBreaker sut = new TokenEndpointCircuitBreaker(3, 1000, nanoTime::get);
+
+    @Test
+    public void recordFailure_whenThresholdIsReached_opensCircuit() {
+        sut.recordFailure();
+        sut.recordFailure();
+        assertThat(sut.getState()).isEqualTo(TokenEndpointCircuitBreaker.State.CLOSED);
+        assertThat(sut.tryAcquirePermission()).isTrue();
+
+        sut.recordFailure();
+
+        assertThat(sut.getState()).isEqualTo(TokenEndpointCircuitBreaker.State.OPEN);
+        assertThat(sut.getConsecutiveFailures()).isEqualTo(3);
+        assertThat(sut.isCallPermitted()).isFalse();
+        assertThat(sut.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    public void tryAcquirePermission_whenOpenPeriodElapses_allowsSingleTrialCall() {
+        openCircuit();
+        nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+
+        assertThat(sut.isCallPermitted()).isTrue();
+        assertThat(sut.tryAcquirePermission()).isTrue();
+
+        assertThat(sut.getState()).isEqualTo(TokenEndpointCircuitBreaker.State.HALF_OPEN);
+        assertThat(sut.isCallPermitted()).isFalse();
+        assertThat(sut.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    public void recordSuccess_whenHalfOpen_closesCircuit() {
+        openCircuit();
+        nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        sut.tryAcquirePermission();
+
+        sut.recordSuccess();
+
+        assertThat(sut.getState()).isEqualTo(TokenEndpointCircuitBreaker.State.CLOSED);
+        assertThat(sut.getConsecutiveFailures()).isEqualTo(0);
+        assertThat(sut.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    public void recordFailure_whenHalfOpen_reopensCircuit() {
+        openCircuit();
+        nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        sut.tryAcquirePermission();
+
+        sut.recordFailure();
+
+        assertThat(sut.getState()).isEqualTo(TokenEndpointCircuitBreaker.State.OPEN);
+        assertThat(sut.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    public void recordFailure_whenDisabled_neverOpensCircuit() {
+        sut = TokenEndpointCircuitBreaker.disabled();
+
+        for (int i = 0; i < 100; i++) {
+            sut.recordFailure();
+        }
+
+        assertThat(sut.getState()).isEqualTo(TokenEndpointCircuitBreaker.State.CLOSED);
+        assertThat(sut.tryAcquirePermission()).isTrue();
+    }
+
+    private void openCircuit() {
+        for (int i = 0; i < 3; i++) {
+            sut.recordFailure();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.request;
+
+import com.scotiabank.oauth2.clientcredentials.RenewalScheduler;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TokenEndpointClientConfigTest {
+
+    TokenEndpointClientConfig sut = new TokenEndpointClientConfig();
+
+    TokenEndpointClientProperties properties = new TokenEndpointClientProperties();
+
+    ClientCredentialsAssertionGenerationProperties assertionProperties = new ClientCredentialsAssertionGenerationProperties();
+
+    @Mock
+    RenewalScheduler scheduler;
+
+    ClientHttpRequestFactory result;
+
+    @After
+    public void cleanup() throws Exception {
+        if (result instanceof TokenEndpointRequestFactory) {
+            ((TokenEndpointRequestFactory) result).destroy();
+        }
+    }
+
+    @Test
+    public void tokenEndpointRequestFactory_byDefault_poolsConnectionsWithoutWarmUp() {
+        assertionProperties.setTokenUrl("https://localhost/token");
+
+        result = sut.tokenEndpointRequestFactory(properties, assertionProperties, scheduler);
+
+        assertThat(result).isInstanceOf(TokenEndpointRequestFactory.class);
+        assertThat(ReflectionTestUtils.getField(result, "totalTimeoutMs")).isEqualTo(15000);
+        verifyZeroInteractions(scheduler);
+    }
+
+    @Test
+    public void tokenEndpointRequestFactory_whenWarmUpEnabled_warmsUpInBackground() {
+        properties.setTokenEndpointWarmUpEnabled(true);
+        assertionProperties.setTokenUrl("https://localhost/token");
+
+        result = sut.tokenEndpointRequestFactory(properties, assertionProperties, scheduler);
+
+        verify(scheduler).execute(any(Runnable.class));
+    }
+
+    @Test
+    public void tokenEndpointRequestFactory_whenWarmUpEnabledWithoutTokenUrl_doesNotWarmUp() {
+        properties.setTokenEndpointWarmUpEnabled(true);
+
+        result = sut.tokenEndpointRequestFactory(properties, assertionProperties, scheduler);
+
+        verifyZeroInteractions(scheduler);
+    }
+
+    @Test
+    public void tokenEndpointRequestFactory_whenPoolingDisabled_usesUrlConnectionsWithTimeouts() {
+        properties.setTokenEndpointPoolingEnabled(false);
+        properties.setTokenEndpointConnectTimeoutMs(100);
+        properties.setTokenEndpointReadTimeoutMs(200);
+
+        result = sut.tokenEndpointRequestFactory(properties, assertionProperties, scheduler);
+
+        assertThat(result).isInstanceOf(SimpleClientHttpRequestFactory.class);
+        assertThat(ReflectionTestUtils.getField(result, "connectTimeout")).isEqualTo(100);
+        assertThat(ReflectionTestUtils.getField(result, "readTimeout")).isEqualTo(200);
+    }
+}
@@ -0,0 +1,26 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.request;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenEndpointClientPropertiesTest {
+
+    @Test
+    public void constructor_always_setsDefaultValues() {
+        TokenEndpointClientProperties sut = new TokenEndpointClientProperties();
+
+        assertThat(sut.getTokenEndpointCodec()).isEqualTo(TokenEndpointClientProperties.Codec.SPRING_SECURITY_OAUTH2);
+        assertThat(sut.isTokenEndpointPoolingEnabled()).isTrue();
+        assertThat(sut.getTokenEndpointMaxConnections()).isEqualTo(4);
+        assertThat(sut.getTokenEndpointKeepAliveMs()).isEqualTo(60000);
+        assertThat(sut.isTokenEndpointWarmUpEnabled()).isFalse();
+        assertThat(sut.getTokenEndpointConnectTimeoutMs()).isEqualTo(2000);
+        assertThat(sut.getTokenEndpointReadTimeoutMs()).isEqualTo(10000);
+        assertThat(sut.getTokenEndpointTotalTimeoutMs()).isEqualTo(15000);
+    }
+}
@@ -0,0 +1,147 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.request;
+
+import com.scotiabank.oauth2.clientcredentials.RenewalScheduler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.ssl.SSLContexts;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TokenEndpointRequestFactoryTest {
+
+    private static final byte[] TOKEN_RESPONSE = "{\"access_token\":\"token\",\"expires_in\":60}".getBytes(StandardCharsets.UTF_8);
+
+    HttpServer server;
+
+    ExecutorService serverExecutor = Executors.newCachedThreadPool();
+
+    Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+    volatile long responseDelayMs;
+
+    RenewalScheduler scheduler = new RenewalScheduler(10, 1);
+
+    TokenEndpointClientProperties properties = new TokenEndpointClientProperties();
+
+    TokenEndpointRequestFactory sut;
+
+    @Before
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/token", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            StreamUtils.drain(exchange.getRequestBody());
+            try {
+                Thread.sleep(responseDelayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, TOKEN_RESPONSE.length);
+            exchange.getResponseBody().write(TOKEN_RESPONSE);
+            exchange.close();
+        });
+        server.setExecutor(serverExecutor);
+        server.start();
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        if (sut != null) {
+            sut.destroy();
+        }
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        scheduler.destroy();
+    }
+
+    @Test
+    public void createRequest_always_reusesPooledConnection() throws IOException {
+        sut = newRequestFactory();
+
+        assertThat(post()).isEqualTo(TOKEN_RESPONSE);
+        assertThat(post()).isEqualTo(TOKEN_RESPONSE);
+
+        assertThat(clientPorts).hasSize(1);
+        assertThat(sut.getLeasedConnections()).isEqualTo(0);
+        assertThat(sut.getAvailableConnections()).isEqualTo(1);
+    }
+
+    @Test
+    public void createRequest_whenTotalTimeoutExpires_abortsRequest() {
+        properties.setTokenEndpointTotalTimeoutMs(100);
+        responseDelayMs = 5000;
+        sut = newRequestFactory();
+
+        long start = System.nanoTime();
+        assertThatThrownBy(this::post).isInstanceOf(IOException.class);
+
+        assertThat(System.nanoTime() - start).isLessThan(4000000000L);
+    }
+
+    @Test
+    public void warmUp_whenTokenEndpointIsReachable_leavesConnectionForFirstRequest() throws IOException {
+        sut = newRequestFactory();
+
+        boolean warmedUp = sut.warmUp(tokenUrl());
+
+        assertThat(warmedUp).isTrue();
+        assertThat(sut.getAvailableConnections()).isEqualTo(1);
+
+        post();
+
+        assertThat(sut.getAvailableConnections()).isEqualTo(1);
+        assertThat(clientPorts).hasSize(1);
+    }
+
+    @Test
+    public void warmUp_whenTokenEndpointIsUnreachable_returnsFalse() throws IOException {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            closedPort = socket.getLocalPort();
+        }
+        sut = newRequestFactory();
+
+        boolean warmedUp = sut.warmUp("http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + closedPort + "/token");
+
+        assertThat(warmedUp).isFalse();
+        assertThat(sut.getAvailableConnections()).isEqualTo(0);
+        assertThat(sut.getLeasedConnections()).isEqualTo(0);
+    }
+
+    private TokenEndpointRequestFactory newRequestFactory() {
+        return new TokenEndpointRequestFactory(
+            properties, new SSLConnectionSocketFactory(SSLContexts.createSystemDefault()), scheduler);
+    }
+
+    private String tokenUrl() {
+        return "http://" + server.getAddress().getAddress().getHostAddress() + ":" + server.getAddress().getPort() + "/token";
+    }
+
+    private byte[] post() throws IOException {
+        try (ClientHttpResponse response = sut.createRequest(URI.create(tokenUrl()), HttpMethod.POST).execute()) {
+            return StreamUtils.copyToByteArray(response.getBody());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.store;
+
+import com.scotiabank.oauth2.clientcredentials.CurrentTimeGenerator;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FileSharedTokenStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    CurrentTimeGenerator currentTimeGenerator;
+
+    SharedTokenStore sut;
+
+    StoredToken token = new StoredToken("token", 2000);
+    StoredToken renewed = new StoredToken("renewed", 3000);
+
+    @Before
+    public void init() {
+        when(currentTimeGenerator.getCurrentTimeMillis()).thenReturn(1000L);
+        sut = new FileSharedTokenStore(folder.getRoot().toPath().resolve("store"), currentTimeGenerator);
+    }
+
+    @Test
+    public void compareAndSet_whenExpectedTokenIsKept_replacesIt() {
+        assertThat(sut.get("key")).isNull();
+
+        assertThat(sut.compareAndSet("key", null, token)).isTrue();
+        assertThat(sut.compareAndSet("key", token, renewed)).isTrue();
+
+        assertThat(sut.get("key")).isEqualTo(renewed);
+        assertThat(sut.get("other key")).isNull();
+    }
+
+    @Test
+    public void compareAndSet_whenOtherTokenIsKept_doesNotReplaceIt() {
+        sut.compareAndSet("key", null, token);
+
+        assertThat(sut.compareAndSet("key", null, renewed)).isFalse();
+        assertThat(sut.compareAndSet("key", new StoredToken("token", 2500), renewed)).isFalse();
+
+        assertThat(sut.get("key")).isEqualTo(token);
+    }
+
+    @Test
+    public void get_whenTokenHasExpired_returnsNullAndTreatsItAsAbsent() {
+        sut.compareAndSet("key", null, token);
+        when(currentTimeGenerator.getCurrentTimeMillis()).thenReturn(2000L);
+
+        assertThat(sut.get("key")).isNull();
+        assertThat(sut.compareAndSet("key", null, renewed)).isTrue();
+    }
+
+    @Test
+    public void tryAcquireLease_whenHeldByOtherOwner_failsUntilReleasedOrLapsed() {
+        assertThat(sut.tryAcquireLease("key", "first", 500)).isTrue();
+        assertThat(sut.tryAcquireLease("key", "first", 500)).isTrue();
+        assertThat(sut.tryAcquireLease("key", "second", 500)).isFalse();
+        assertThat(sut.tryAcquireLease("other key", "second", 500)).isTrue();
+
+        sut.releaseLease("key", "second");
+        assertThat(sut.tryAcquireLease("key", "second", 500)).isFalse();
+
+        sut.releaseLease("key", "first");
+        assertThat(sut.tryAcquireLease("key", "second", 500)).isTrue();
+
+        when(currentTimeGenerator.getCurrentTimeMillis()).thenReturn(1500L);
+        assertThat(sut.tryAcquireLease("key", "first", 500)).isTrue();
+    }
+
+    @Test
+    public void compareAndSet_whenStoresShareDirectory_sharesTokensAndLeases() {
+        SharedTokenStore other = new FileSharedTokenStore(folder.getRoot().toPath().resolve("store"), currentTimeGenerator);
+
+        assertThat(sut.tryAcquireLease("key", "first", 500)).isTrue();
+        assertThat(other.tryAcquireLease("key", "second", 500)).isFalse();
+        assertThat(sut.compareAndSet("key", null, token)).isTrue();
+
+        assertThat(other.get("key")).isEqualTo(token);
+        assertThat(other.compareAndSet("key", null, renewed)).isFalse();
+    }
+
+    @Test
+    public void compareAndSet_always_leavesNoTemporaryFiles() throws IOException {
+        sut.compareAndSet("key", null, token);
+        sut.compareAndSet("key", token, renewed);
+        sut.tryAcquireLease("key", "first", 500);
+
+        assertThat(Files.list(folder.getRoot().toPath().resolve("store")).map(Path::getFileName).map(Path::toString))
+            .noneMatch(name -> name.endsWith(".tmp"))
+            .noneMatch(name -> name.contains("key"));
+    }
+}
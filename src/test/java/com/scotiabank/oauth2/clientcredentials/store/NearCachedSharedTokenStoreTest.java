@@ -0,0 +1,111 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.store;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class NearCachedSharedTokenStoreTest {
+
+    @Mock
+    SharedTokenStore delegate;
+
+    AtomicLong nanoTime = new AtomicLong();
+
+    NearCachedSharedTokenStore sut;
+
+    StoredToken token = new StoredToken("token", 2000);
+    StoredToken renewed = new StoredToken("renewed", 3000);
+
+    private NearCachedSharedTokenStore nearCached(long nearCacheMs) {
+        return new NearCachedSharedTokenStore(delegate, nearCacheMs, nanoTime::get);
+    }
+
+    @Test
+    public void get_withinNearCacheTime_readsStoreOnce() {
+        sut = nearCached(1000);
+        when(delegate.get("key")).thenReturn(token);
+
+        assertThat(sut.get("key")).isEqualTo(token);
+        nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        assertThat(sut.get("key")).isEqualTo(token);
+        nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        assertThat(sut.get("key")).isEqualTo(token);
+
+        verify(delegate, times(2)).get("key");
+    }
+
+    @Test
+    public void get_whenStoreHasNoToken_readsStoreEveryTime() {
+        sut = nearCached(1000);
+
+        assertThat(sut.get("key")).isNull();
+        assertThat(sut.get("key")).isNull();
+
+        verify(delegate, times(2)).get("key");
+    }
+
+    @Test
+    public void compareAndSet_whenReplaced_nearCachesUpdate() {
+        sut = nearCached(1000);
+        when(delegate.compareAndSet("key", token, renewed)).thenReturn(true);
+
+        assertThat(sut.compareAndSet("key", token, renewed)).isTrue();
+        assertThat(sut.get("key")).isEqualTo(renewed);
+
+        verify(delegate, times(0)).get("key");
+    }
+
+    @Test
+    public void compareAndSet_whenNotReplaced_evictsToken() {
+        sut = nearCached(1000);
+        when(delegate.get("key")).thenReturn(token, renewed);
+
+        sut.get("key");
+        assertThat(sut.compareAndSet("key", token, renewed)).isFalse();
+
+        assertThat(sut.get("key")).isEqualTo(renewed);
+    }
+
+    @Test
+    public void tryAcquireLease_whenAcquired_evictsToken() {
+        sut = nearCached(1000);
+        when(delegate.get("key")).thenReturn(token, renewed);
+        when(delegate.tryAcquireLease("key", "owner", 500)).thenReturn(true);
+
+        sut.get("key");
+        assertThat(sut.tryAcquireLease("key", "owner", 500)).isTrue();
+
+        assertThat(sut.get("key")).isEqualTo(renewed);
+    }
+
+    @Test
+    public void releaseLease_always_releasesLeaseInStore() {
+        sut = nearCached(1000);
+
+        sut.releaseLease("key", "owner");
+
+        verify(delegate).releaseLease("key", "owner");
+    }
+
+    @Test
+    public void constructor_always_doesNotReachStore() {
+        sut = new NearCachedSharedTokenStore(delegate, 1000);
+
+        verifyZeroInteractions(delegate);
+    }
+}
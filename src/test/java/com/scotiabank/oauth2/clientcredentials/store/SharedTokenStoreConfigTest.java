@@ -0,0 +1,53 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.store;
+
+import com.scotiabank.oauth2.clientcredentials.ClientCredentialsConfigurationException;
+import com.scotiabank.oauth2.clientcredentials.CurrentTimeGenerator;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SharedTokenStoreConfigTest {
+
+    SharedTokenStoreConfig sut = new SharedTokenStoreConfig();
+
+    SharedTokenStoreProperties properties = new SharedTokenStoreProperties();
+
+    @Test
+    public void sharedTokenStore_byDefault_sharesNothing() throws ClientCredentialsConfigurationException {
+        assertThat(sut.sharedTokenStore(properties, new CurrentTimeGenerator())).isSameAs(SharedTokenStore.NONE);
+    }
+
+    @Test
+    public void sharedTokenStore_whenInMemory_nearCachesInMemoryStore() throws ClientCredentialsConfigurationException {
+        properties.setSharedTokenStore(SharedTokenStoreProperties.Type.IN_MEMORY);
+
+        SharedTokenStore result = sut.sharedTokenStore(properties, new CurrentTimeGenerator());
+
+        assertThat(result).isInstanceOf(NearCachedSharedTokenStore.class);
+        assertThat(ReflectionTestUtils.getField(result, "delegate")).isInstanceOf(InMemorySharedTokenStore.class);
+        assertThat(ReflectionTestUtils.getField(result, "nearCacheNanos")).isEqualTo(1000000000L);
+    }
+
+    @Test
+    public void sharedTokenStore_whenFileWithoutNearCache_usesFileStore() throws ClientCredentialsConfigurationException {
+        properties.setSharedTokenStore(SharedTokenStoreProperties.Type.FILE);
+        properties.setSharedTokenStoreDirectory("/tmp/tokens");
+        properties.setSharedTokenStoreNearCacheMs(0);
+
+        assertThat(sut.sharedTokenStore(properties, new CurrentTimeGenerator())).isInstanceOf(FileSharedTokenStore.class);
+    }
+
+    @Test
+    public void sharedTokenStore_whenFileWithoutDirectory_throwsException() {
+        properties.setSharedTokenStore(SharedTokenStoreProperties.Type.FILE);
+
+        assertThatThrownBy(() -> sut.sharedTokenStore(properties, new CurrentTimeGenerator()))
+            .isExactlyInstanceOf(ClientCredentialsConfigurationException.class);
+    }
+}
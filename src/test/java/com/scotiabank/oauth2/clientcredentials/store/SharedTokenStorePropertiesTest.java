@@ -0,0 +1,22 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.store;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SharedTokenStorePropertiesTest {
+
+    @Test
+    public void constructor_always_setsDefaultValues() {
+        SharedTokenStoreProperties sut = new SharedTokenStoreProperties();
+
+        assertThat(sut.getSharedTokenStore()).isEqualTo(SharedTokenStoreProperties.Type.NONE);
+        assertThat(sut.getSharedTokenStoreDirectory()).isNull();
+        assertThat(sut.getSharedTokenStoreLeaseMs()).isEqualTo(30000);
+        assertThat(sut.getSharedTokenStoreNearCacheMs()).isEqualTo(1000);
+    }
+}
@@ -0,0 +1,186 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.store;
+
+import com.scotiabank.oauth2.clientcredentials.CurrentTimeGenerator;
+import com.scotiabank.oauth2.clientcredentials.ExpiringResource;
+import com.scotiabank.oauth2.clientcredentials.ExpiringResourceProvider;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SharedTokenStoreResourceProviderTest {
+
+    @Mock
+    ExpiringResourceProvider<String> firstRequestor;
+
+    @Mock
+    ExpiringResourceProvider<String> secondRequestor;
+
+    CurrentTimeGenerator currentTimeGenerator = new CurrentTimeGenerator() {
+        @Override
+        public long getCurrentTimeMillis() {
+            return 1000;
+        }
+    };
+
+    SharedTokenStore store;
+
+    SharedTokenStoreResourceProvider first;
+    SharedTokenStoreResourceProvider second;
+
+    @Before
+    public void init() {
+        store = new InMemorySharedTokenStore(currentTimeGenerator);
+        first = new SharedTokenStoreResourceProvider(firstRequestor, store, "key", 30000, currentTimeGenerator);
+        second = new SharedTokenStoreResourceProvider(secondRequestor, store, "key", 30000, currentTimeGenerator);
+    }
+
+    @Test
+    public void getResource_whenOtherInstanceRenewed_reusesItsToken() {
+        ExpiringResource<String> token = token("token", 5000);
+        when(firstRequestor.getResource()).thenReturn(token);
+
+        assertThat(first.getResource().getValue()).isEqualTo("token");
+
+        ExpiringResource<String> result = second.getResource();
+        assertThat(result.getValue()).isEqualTo("token");
+        assertThat(result.getExpiration()).isEqualTo(Instant.ofEpochMilli(5000));
+
+        verify(secondRequestor, never()).getResource();
+        assertThat(store.tryAcquireLease("key", "someone else", 1)).isTrue();
+    }
+
+    @Test
+    public void getResource_whenStoredTokenWasAlreadyHandedOut_renewsAndSharesToken() {
+        ExpiringResource<String> token = token("token", 5000);
+        ExpiringResource<String> renewed = token("renewed", 6000);
+        when(firstRequestor.getResource()).thenReturn(token, renewed);
+
+        first.getResource();
+        second.getResource();
+        assertThat(first.getResource().getValue()).isEqualTo("renewed");
+
+        assertThat(second.getResource().getValue()).isEqualTo("renewed");
+        assertThat(store.get("key")).isEqualTo(new StoredToken("renewed", 6000));
+        verify(firstRequestor, times(2)).getResource();
+        verify(secondRequestor, never()).getResource();
+    }
+
+    @Test
+    public void getResource_whenOtherInstanceHoldsLeaseAndTokenIsCurrent_returnsNullRightAway() {
+        ExpiringResource<String> token = token("token", 5000);
+        when(firstRequestor.getResource()).thenReturn(token);
+        first.getResource();
+        store.tryAcquireLease("key", "someone else", 30000);
+
+        long start = System.nanoTime();
+        assertThat(first.getResource()).isNull();
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+        verify(firstRequestor, times(1)).getResource();
+    }
+
+    @Test
+    public void getResource_whenOtherInstanceHoldsLeaseAndThereIsNoToken_waitsForItToBeShared() {
+        store.tryAcquireLease("key", "someone else", 30000);
+        ScheduledExecutorService otherInstance = Executors.newSingleThreadScheduledExecutor();
+        try {
+            otherInstance.schedule(() -> store.compareAndSet("key", null, new StoredToken("shared", 5000)), 100, TimeUnit.MILLISECONDS);
+
+            ExpiringResource<String> result = first.getResource();
+
+            assertThat(result.getValue()).isEqualTo("shared");
+            verify(firstRequestor, never()).getResource();
+        } finally {
+            otherInstance.shutdownNow();
+        }
+    }
+
+    @Test
+    public void getResource_whenOtherInstanceReleasesLeaseWithoutSharing_renewsAndSharesTokenItself() {
+        ExpiringResource<String> token = token("token", 5000);
+        when(firstRequestor.getResource()).thenReturn(token);
+        store.tryAcquireLease("key", "someone else", 30000);
+        ScheduledExecutorService otherInstance = Executors.newSingleThreadScheduledExecutor();
+        try {
+            otherInstance.schedule(() -> store.releaseLease("key", "someone else"), 100, TimeUnit.MILLISECONDS);
+
+            ExpiringResource<String> result = first.getResource();
+
+            assertThat(result).isSameAs(token);
+            assertThat(store.get("key")).isEqualTo(new StoredToken("token", 5000));
+        } finally {
+            otherInstance.shutdownNow();
+        }
+    }
+
+    @Test
+    public void getResource_whenOtherInstanceHoldsLeaseAndSharesNothing_returnsNullOnceWaitIsOver() {
+        store.tryAcquireLease("key", "someone else", 30000);
+        SharedTokenStoreResourceProvider sut = new SharedTokenStoreResourceProvider(firstRequestor, store, "key", 30000, 200, currentTimeGenerator);
+
+        long start = System.nanoTime();
+        assertThat(sut.getResource()).isNull();
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(200).isLessThan(5000);
+        verify(firstRequestor, never()).getResource();
+    }
+
+    @Test
+    public void getResource_whenRenewalFails_releasesLeaseAndSharesNothing() {
+        assertThat(first.getResource()).isNull();
+
+        assertThat(store.get("key")).isNull();
+        assertThat(store.tryAcquireLease("key", "someone else", 1)).isTrue();
+    }
+
+    @Test
+    public void getResource_whenStoreIsUnavailable_requestsTokenDirectly() {
+        SharedTokenStore unavailable = mock(SharedTokenStore.class);
+        when(unavailable.get(anyString())).thenThrow(new IllegalStateException("unavailable"));
+        ExpiringResource<String> token = mock(ExpiringResource.class);
+        when(firstRequestor.getResource()).thenReturn(token);
+
+        ExpiringResource<String> result = new SharedTokenStoreResourceProvider(firstRequestor, unavailable, "key", 30000, currentTimeGenerator).getResource();
+
+        assertThat(result).isSameAs(token);
+        verify(unavailable, never()).tryAcquireLease(anyString(), anyString(), anyLong());
+        verify(unavailable, never()).compareAndSet(eq("key"), any(), any());
+    }
+
+    @Test
+    public void share_whenNothingIsShared_returnsDelegate() {
+        assertThat(SharedTokenStoreResourceProvider.share(firstRequestor, SharedTokenStore.NONE, "key", 30000, currentTimeGenerator)).isSameAs(firstRequestor);
+        assertThat(SharedTokenStoreResourceProvider.share(firstRequestor, store, "key", 30000, currentTimeGenerator))
+            .isInstanceOf(SharedTokenStoreResourceProvider.class);
+    }
+
+    private static ExpiringResource<String> token(String value, long expiresAtMs) {
+        ExpiringResource<String> token = mock(ExpiringResource.class);
+        when(token.getValue()).thenReturn(value);
+        when(token.getExpiration()).thenReturn(Instant.ofEpochMilli(expiresAtMs));
+        return token;
+    }
+}
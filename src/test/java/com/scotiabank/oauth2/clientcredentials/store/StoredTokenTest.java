@@ -0,0 +1,51 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.scotiabank.oauth2.clientcredentials.store;
+
+import com.scotiabank.oauth2.clientcredentials.ExpiringResource;
+import org.junit.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StoredTokenTest {
+
+    @Test
+    public void equals_whenValueAndExpiryMatch_isEqual() {
+        assertThat(new StoredToken("token", 1000)).isEqualTo(new StoredToken("token", 1000));
+        assertThat(new StoredToken("token", 1000).hashCode()).isEqualTo(new StoredToken("token", 1000).hashCode());
+        assertThat(new StoredToken("token", 1000)).isNotEqualTo(new StoredToken("token", 2000));
+        assertThat(new StoredToken("token", 1000)).isNotEqualTo(new StoredToken("other", 1000));
+    }
+
+    @Test
+    public void isExpiredAt_always_comparesWithExpiry() {
+        StoredToken sut = new StoredToken("token", 1000);
+
+        assertThat(sut.isExpiredAt(999)).isFalse();
+        assertThat(sut.isExpiredAt(1000)).isTrue();
+    }
+
+    @Test
+    public void of_always_roundTripsResource() {
+        ExpiringResource<String> resource = mock(ExpiringResource.class);
+        when(resource.getValue()).thenReturn("token");
+        when(resource.getExpiration()).thenReturn(Instant.ofEpochMilli(1000));
+
+        ExpiringResource<String> result = StoredToken.of(resource).toResource();
+
+        assertThat(result.getValue()).isEqualTo("token");
+        assertThat(result.getExpiration()).isEqualTo(Instant.ofEpochMilli(1000));
+        assertThat(result.getAuthorizationHeaderValue()).isEqualTo("Bearer token");
+    }
+
+    @Test
+    public void toString_always_omitsTokenValue() {
+        assertThat(new StoredToken("secret", 1000).toString()).doesNotContain("secret");
+    }
+}
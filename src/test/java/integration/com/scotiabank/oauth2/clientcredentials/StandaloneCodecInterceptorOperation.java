@@ -0,0 +1,14 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package integration.com.scotiabank.oauth2.clientcredentials;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * {@link InterceptorOperation} with tokens requested through the standalone token endpoint codec.
+ */
+@TestPropertySource(properties = "oauth2.clientcredentials.tokenEndpointCodec=STANDALONE")
+public class StandaloneCodecInterceptorOperation extends InterceptorOperation {
+}